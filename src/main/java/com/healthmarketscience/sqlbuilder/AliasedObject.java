@@ -35,6 +35,16 @@ public class AliasedObject extends SqlObject
     _alias = alias;
   }
 
+  /** @return the object being aliased */
+  SqlObject getObject() {
+    return _obj;
+  }
+
+  /** @return the alias */
+  String getAlias() {
+    return _alias;
+  }
+
   /**
    * Optionally adds an alias to a SqlObject.
    * @return the given SqlObject wrapped by an AliasedObject if the given
@@ -52,6 +62,17 @@ public class AliasedObject extends SqlObject
     _obj.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject obj = transformer.transform(_obj);
+    if(obj == _obj) {
+      return this;
+    }
+    AliasedObject copy = (AliasedObject)copy();
+    copy._obj = obj;
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     app.append(_obj).append(" AS ").append(_alias);
@@ -46,6 +46,10 @@ class AllTableColumns extends TableObject
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    // (matches the tables found via the columns in collectSchemaObjects)
+    if(!_table.getColumns().isEmpty()) {
+      SqlContext.getContext(app).addColumnTable(_table);
+    }
     ColumnObject.appendTableAliasPrefix(app, _table);
     app.append("*");
   }
@@ -96,6 +96,21 @@ public class AlterTableQuery extends Query<AlterTableQuery>
     _table.collectSchemaObjects(vContext);
     _action.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject table = transformer.transform(_table);
+    SqlObject action = transformer.transform(_action);
+    if((table == _table) && (action == _action)) {
+      return result;
+    }
+    AlterTableQuery copy = (AlterTableQuery)((result == this) ? copy() :
+                                             result);
+    copy._table = table;
+    copy._action = action;
+    return copy;
+  }
   
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
@@ -127,6 +142,17 @@ public class AlterTableQuery extends Query<AlterTableQuery>
       _constraint.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject constraint = transformer.transform(_constraint);
+      if(constraint == _constraint) {
+        return this;
+      }
+      AddConstraintAction copy = (AddConstraintAction)copy();
+      copy._constraint = constraint;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(" ADD ").append(_constraint);
@@ -153,6 +179,17 @@ public class AlterTableQuery extends Query<AlterTableQuery>
       _column.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject column = transformer.transform(_column);
+      if(column == _column) {
+        return this;
+      }
+      AddColumnAction copy = (AddColumnAction)copy();
+      copy._column = column;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(" ADD ").append(_column);
@@ -61,12 +61,44 @@ public abstract class BaseCTEQuery<ThisType extends BaseCTEQuery<ThisType>>
     return getThisType();
   }
 
+  /** @return {@code true} if the common table expressions are recursive,
+              {@code false} otherwise */
+  boolean isRecursive() {
+    return _recursive;
+  }
+
+  /** @return the common table expressions of this query */
+  SqlObjectList<SqlObject> getCommonTableExpressions() {
+    return _ctes;
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     super.collectSchemaObjects(vContext);
     _ctes.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<SqlObject> ctes = _ctes.transformObjects(
+        transformer, SqlObject.class);
+    if(ctes == _ctes) {
+      return result;
+    }
+    BaseCTEQuery<?> copy = (BaseCTEQuery<?>)((result == this) ? copy() :
+                                             result);
+    copy._ctes = ctes;
+    return copy;
+  }
+
+  @Override
+  protected BaseCTEQuery<?> copy() {
+    BaseCTEQuery<?> copy = (BaseCTEQuery<?>)super.copy();
+    copy._ctes = _ctes.copy();
+    return copy;
+  }
+
   @Override
   protected void prependTo(AppendableExt app) throws IOException {
     // we prepend the CTE outside the context of this query because the CTE is
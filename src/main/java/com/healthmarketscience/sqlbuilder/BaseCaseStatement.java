@@ -122,6 +122,29 @@ public abstract class BaseCaseStatement<ThisType extends BaseCaseStatement<ThisT
     }
     _whens.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject operand = transformer.transform(_operand);
+    SqlObjectList<BaseWhenObject> whens = _whens.transformObjects(
+        transformer, BaseWhenObject.class);
+    if((operand == _operand) && (whens == _whens)) {
+      return this;
+    }
+    BaseCaseStatement<?> copy = (BaseCaseStatement<?>)copy();
+    copy._operand = operand;
+    if(whens != _whens) {
+      copy._whens = whens;
+    }
+    return copy;
+  }
+
+  @Override
+  protected BaseCaseStatement<?> copy() {
+    BaseCaseStatement<?> copy = (BaseCaseStatement<?>)super.copy();
+    copy._whens = _whens.copy();
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
@@ -156,6 +179,24 @@ public abstract class BaseCaseStatement<ThisType extends BaseCaseStatement<ThisT
     protected void collectSchemaObjects(ValidationContext vContext) {
       _result.collectSchemaObjects(vContext);
     }
+
+    @Override
+    protected BaseWhenObject transformChildren(SqlTransformer transformer) {
+      return withResult(transformer.transform(_result));
+    }
+
+    /**
+     * @return this object if the given result is the current result,
+     *         otherwise a copy of this object with the given result
+     */
+    protected BaseWhenObject withResult(SqlObject result) {
+      if(result == _result) {
+        return this;
+      }
+      BaseWhenObject copy = (BaseWhenObject)copy();
+      copy._result = result;
+      return copy;
+    }
     
     protected void appendResult(AppendableExt app) throws IOException {
       app.append(_result);
@@ -179,6 +220,18 @@ public abstract class BaseCaseStatement<ThisType extends BaseCaseStatement<ThisT
       super.collectSchemaObjects(vContext);
       _test.collectSchemaObjects(vContext);
     }
+
+    @Override
+    protected BaseWhenObject transformChildren(SqlTransformer transformer) {
+      SqlObject test = transformer.transform(_test);
+      BaseWhenObject result = super.transformChildren(transformer);
+      if(test == _test) {
+        return result;
+      }
+      WhenObject copy = (WhenObject)((result == this) ? copy() : result);
+      copy._test = test;
+      return copy;
+    }
     
     @Override
     public void appendTo(AppendableExt app) throws IOException {
@@ -64,6 +64,31 @@ public abstract class BaseCreateQuery<ThisType extends BaseCreateQuery<ThisType>
     _columns.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject object = transformer.transform(_object);
+    SqlObjectList<SqlObject> columns = _columns.transformObjects(
+        transformer, SqlObject.class);
+    if((object == _object) && (columns == _columns)) {
+      return result;
+    }
+    BaseCreateQuery<?> copy = (BaseCreateQuery<?>)((result == this) ?
+                                                   copy() : result);
+    copy._object = object;
+    if(columns != _columns) {
+      copy._columns = columns;
+    }
+    return copy;
+  }
+
+  @Override
+  protected BaseCreateQuery<?> copy() {
+    BaseCreateQuery<?> copy = (BaseCreateQuery<?>)super.copy();
+    copy._columns = _columns.copy();
+    return copy;
+  }
+
   @Override
   public void validate(ValidationContext vContext)
     throws ValidationException
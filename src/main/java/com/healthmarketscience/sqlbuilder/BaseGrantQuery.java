@@ -159,6 +159,38 @@ public abstract class BaseGrantQuery<ThisType extends BaseGrantQuery<ThisType>>
     _targetObj.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<SqlObject> grantees = _grantees.transformObjects(
+        transformer, SqlObject.class);
+    SqlObjectList<SqlObject> privileges = _privileges.transformObjects(
+        transformer, SqlObject.class);
+    SqlObject targetObj = transformer.transform(_targetObj);
+    if((grantees == _grantees) && (privileges == _privileges) &&
+       (targetObj == _targetObj)) {
+      return result;
+    }
+    BaseGrantQuery<?> copy = (BaseGrantQuery<?>)((result == this) ?
+                                                 copy() : result);
+    if(grantees != _grantees) {
+      copy._grantees = grantees;
+    }
+    if(privileges != _privileges) {
+      copy._privileges = privileges;
+    }
+    copy._targetObj = targetObj;
+    return copy;
+  }
+
+  @Override
+  protected BaseGrantQuery<?> copy() {
+    BaseGrantQuery<?> copy = (BaseGrantQuery<?>)super.copy();
+    copy._grantees = _grantees.copy();
+    copy._privileges = _privileges.copy();
+    return copy;
+  }
+
   @Override
   public void validate(ValidationContext vContext)
     throws ValidationException
@@ -254,6 +286,25 @@ public abstract class BaseGrantQuery<ThisType extends BaseGrantQuery<ThisType>>
       _columns.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObjectList<SqlObject> columns = _columns.transformObjects(
+          transformer, SqlObject.class);
+      if(columns == _columns) {
+        return this;
+      }
+      Privilege copy = (Privilege)super.copy();
+      copy._columns = columns;
+      return copy;
+    }
+
+    @Override
+    protected Privilege copy() {
+      Privilege copy = (Privilege)super.copy();
+      copy._columns = _columns.copy();
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(_type);
@@ -301,6 +352,17 @@ public abstract class BaseGrantQuery<ThisType extends BaseGrantQuery<ThisType>>
       _name.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject name = transformer.transform(_name);
+      if(name == _name) {
+        return this;
+      }
+      TargetObject copy = (TargetObject)copy();
+      copy._name = name;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(_type).append(_name);
@@ -44,6 +44,31 @@ abstract class BaseInsertQuery<ThisType extends BaseInsertQuery<ThisType>>
     _columns.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject table = transformer.transform(_table);
+    SqlObjectList<SqlObject> columns = _columns.transformObjects(
+        transformer, SqlObject.class);
+    if((table == _table) && (columns == _columns)) {
+      return result;
+    }
+    BaseInsertQuery<?> copy = (BaseInsertQuery<?>)((result == this) ?
+                                                   copy() : result);
+    copy._table = table;
+    if(columns != _columns) {
+      copy._columns = columns;
+    }
+    return copy;
+  }
+
+  @Override
+  protected BaseInsertQuery<?> copy() {
+    BaseInsertQuery<?> copy = (BaseInsertQuery<?>)super.copy();
+    copy._columns = _columns.copy();
+    return copy;
+  }
+
   /**
    * Appends the prefix "INSERT INTO (&lt;columns&gt;)" to the given
    * AppendableExt.
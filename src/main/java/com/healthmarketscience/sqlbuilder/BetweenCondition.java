@@ -49,6 +49,26 @@ public class BetweenCondition extends Condition {
     _negate = negate;
     return this;
   }
+
+  /** @return {@code true} if this is a NOT BETWEEN condition */
+  boolean isNegate() {
+    return _negate;
+  }
+
+  /** @return the value which is compared to the range */
+  SqlObject getValue() {
+    return _value;
+  }
+
+  /** @return the lower bound of the range */
+  SqlObject getMinValue() {
+    return _minValue;
+  }
+
+  /** @return the upper bound of the range */
+  SqlObject getMaxValue() {
+    return _maxValue;
+  }
   
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
@@ -56,6 +76,22 @@ public class BetweenCondition extends Condition {
     _minValue.collectSchemaObjects(vContext);
     _maxValue.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject value = transformer.transform(_value);
+    SqlObject minValue = transformer.transform(_minValue);
+    SqlObject maxValue = transformer.transform(_maxValue);
+    if((value == _value) && (minValue == _minValue) &&
+       (maxValue == _maxValue)) {
+      return this;
+    }
+    BetweenCondition copy = (BetweenCondition)copy();
+    copy._value = value;
+    copy._minValue = minValue;
+    copy._maxValue = maxValue;
+    return copy;
+  }
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
@@ -17,6 +17,9 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -92,12 +95,45 @@ public class BinaryCondition extends Condition
     _rightValue = Converter.toColumnSqlObject(rightValue);
   }
 
+  /** @return the binary operation of this condition */
+  Object getBinaryOp() {
+    return _binaryOp;
+  }
+
+  /** @return the left value of this condition */
+  SqlObject getLeftValue() {
+    return _leftValue;
+  }
+
+  /** @return the right value of this condition */
+  SqlObject getRightValue() {
+    return _rightValue;
+  }
+
+  /** @return the LIKE escape char of this condition, if any */
+  Character getLikeEscapeChar() {
+    return ((_escapeChar != null) ? (Character)_escapeChar.getValue() : null);
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _leftValue.collectSchemaObjects(vContext);
     _rightValue.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject leftValue = transformer.transform(_leftValue);
+    SqlObject rightValue = transformer.transform(_rightValue);
+    if((leftValue == _leftValue) && (rightValue == _rightValue)) {
+      return this;
+    }
+    BinaryCondition copy = (BinaryCondition)copy();
+    copy._leftValue = leftValue;
+    copy._rightValue = rightValue;
+    return copy;
+  }
+
   protected boolean supportsEscape(Object binaryOp) {
     return ((binaryOp == Op.LIKE) || (binaryOp == Op.NOT_LIKE));
   }
@@ -119,6 +155,19 @@ public class BinaryCondition extends Condition
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     openParen(app);
+    if(((_binaryOp == Op.EQUAL_TO) || (_binaryOp == Op.NOT_EQUAL_TO)) &&
+       SqlContext.getContext(app).getCanonicalize()) {
+      // the operands of (in)equality may be swapped, so sort them
+      List<String> sqls = CanonicalSql.render(
+          app, Arrays.asList(_leftValue, _rightValue));
+      if(CanonicalSql.isReorderable(sqls) &&
+         (sqls.get(0).compareTo(sqls.get(1)) > 0)) {
+        Collections.reverse(sqls);
+      }
+      app.append(sqls.get(0)).append(_binaryOp).append(sqls.get(1));
+      closeParen(app);
+      return;
+    }
     app.append(_leftValue).append(_binaryOp).append(_rightValue);
     if(_escapeChar != null) {
       app.append(" ESCAPE ").append(_escapeChar);
@@ -77,6 +77,10 @@ public class BooleanValueObject extends Expression
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    if(SqlContext.getContext(app).getStripLiterals()) {
+      QUESTION_MARK.appendTo(app);
+      return;
+    }
     app.append(toSqlValue(_value));
   }
 
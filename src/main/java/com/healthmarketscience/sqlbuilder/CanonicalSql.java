@@ -0,0 +1,164 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.healthmarketscience.common.util.AppendableExt;
+
+
+/**
+ * Utility methods for generating canonical sql (see
+ * {@link SqlContext#setCanonicalize}).
+ *
+ * @author James Ahlborn
+ */
+final class CanonicalSql
+{
+  /** reserved words which are upper-cased in custom sql (these may not be
+      used as unquoted identifiers, so changing their case is safe) */
+  private static final Set<String> KEYWORDS = new HashSet<String>(
+      Arrays.asList("ALL", "AND", "ANY", "AS", "ASC", "BETWEEN", "BY",
+                    "CASE", "CROSS", "DESC", "DISTINCT", "ELSE", "END",
+                    "EXISTS", "FALSE", "FROM", "FULL", "GROUP", "HAVING",
+                    "IN", "INNER", "IS", "JOIN", "LEFT", "LIKE", "NOT",
+                    "NULL", "ON", "OR", "ORDER", "OUTER", "RIGHT", "SELECT",
+                    "SOME", "THEN", "TRUE", "UNION", "WHEN", "WHERE"));
+
+  private CanonicalSql() {}
+
+  /**
+   * Appends the given objects separated by the given delimiter.  If the
+   * objects can be reordered without changing the order of any positional
+   * parameters (at most one of them generates a <code>?</code>), they are
+   * appended in sorted order (and duplicates are dropped if requested),
+   * otherwise they are appended in their original order.
+   */
+  static void appendSorted(AppendableExt app,
+                           Iterable<? extends SqlObject> objs,
+                           String delimiter, boolean dropDuplicates)
+    throws IOException
+  {
+    List<String> sqls = render(app, objs);
+    if(isReorderable(sqls)) {
+      Collections.sort(sqls);
+      if(dropDuplicates) {
+        for(int i = sqls.size() - 1; i > 0; --i) {
+          if(sqls.get(i).equals(sqls.get(i - 1))) {
+            sqls.remove(i);
+          }
+        }
+      }
+    }
+    boolean first = true;
+    for(String sql : sqls) {
+      if(!first) {
+        app.append(delimiter);
+      }
+      app.append(sql);
+      first = false;
+    }
+  }
+
+  /**
+   * Generates the sql of each of the given objects (in order) using the
+   * current context of the given AppendableExt.
+   */
+  static List<String> render(AppendableExt app,
+                             Iterable<? extends SqlObject> objs)
+    throws IOException
+  {
+    SqlContext context = SqlContext.getContext(app);
+    List<String> sqls = new ArrayList<String>();
+    for(SqlObject obj : objs) {
+      AppendableExt objApp = new AppendableExt(new StringBuilder(), context);
+      objApp.append(obj);
+      sqls.add(objApp.getAppendable().toString());
+    }
+    return sqls;
+  }
+
+  /**
+   * @return {@code true} if at most one of the given sql strings includes a
+   *         positional parameter (or anything which looks like one)
+   */
+  static boolean isReorderable(List<String> sqls) {
+    int numParams = 0;
+    for(String sql : sqls) {
+      if((sql.indexOf('?') >= 0) && (++numParams > 1)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Normalizes a custom sql fragment: runs of whitespace are replaced by a
+   * single space, leading and trailing whitespace is removed, and reserved
+   * words are upper-cased.  Quoted strings and identifiers are left as is.
+   * Fragments including line comments are returned unchanged (removing the
+   * line breaks would change their meaning).
+   */
+  static String normalize(String sql) {
+    if(sql.contains("--")) {
+      return sql;
+    }
+    StringBuilder sb = new StringBuilder(sql.length());
+    int len = sql.length();
+    int i = 0;
+    while(i < len) {
+      char c = sql.charAt(i);
+      if(Character.isWhitespace(c)) {
+        while((i < len) && Character.isWhitespace(sql.charAt(i))) {
+          ++i;
+        }
+        if((sb.length() > 0) && (i < len)) {
+          sb.append(' ');
+        }
+      } else if((c == '\'') || (c == '"') || (c == '`') || (c == '[')) {
+        // copy quoted text (doubled end quotes are handled by treating
+        // them as two adjacent quoted sections)
+        char endQuote = ((c == '[') ? ']' : c);
+        int end = sql.indexOf(endQuote, i + 1);
+        end = ((end < 0) ? len : (end + 1));
+        sb.append(sql, i, end);
+        i = end;
+      } else if(Character.isLetter(c) || (c == '_')) {
+        int start = i;
+        while((i < len) && (Character.isLetterOrDigit(sql.charAt(i)) ||
+                            (sql.charAt(i) == '_') ||
+                            (sql.charAt(i) == '$'))) {
+          ++i;
+        }
+        String word = sql.substring(start, i);
+        String upperWord = word.toUpperCase(Locale.ROOT);
+        sb.append(KEYWORDS.contains(upperWord) ? upperWord : word);
+      } else {
+        sb.append(c);
+        ++i;
+      }
+    }
+    return sb.toString();
+  }
+}
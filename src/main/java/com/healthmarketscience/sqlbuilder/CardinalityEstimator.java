@@ -0,0 +1,315 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.ColumnStatistics;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+import com.healthmarketscience.sqlbuilder.dbspec.TableStatistics;
+
+
+/**
+ * Simple cost model which estimates the number of rows produced by the
+ * tables of a {@link SelectQuery} using the optional statistics of
+ * {@link TableStatistics} tables (row counts) and {@link ColumnStatistics}
+ * columns (number of distinct values), e.g. as loaded into the dbspec.basic
+ * objects by {@code DbStatistics}.
+ * <p>
+ * The WHERE conditions which only reference a single table are used to
+ * estimate the rows of that table which are selected, using the classic
+ * selectivity estimates: {@code 1/<distinct values>} for equality (or
+ * {@code 1/10} if unknown), {@code 1/3} for ranges, {@code 1/4} for BETWEEN,
+ * and combining the estimates of AND, OR and NOT conditions assuming
+ * independence.  Equi-join conditions between two tables have selectivity
+ * {@code 1/max(<distinct values>)} (where a column without statistics is
+ * assumed to be a key of its table).
+ * <p>
+ * These estimates are used to order the auto-generated FROM tables of a
+ * SelectQuery and the joins planned by {@link JoinPlanner#addJoins}
+ * (smallest estimate first), which matters for databases which join tables
+ * in the given order (e.g. MySQL with many tables or {@code STRAIGHT_JOIN}).
+ * The estimates may also be used to reject overly expensive queries before
+ * executing them.
+ * <p>
+ * Example:
+ * <pre>
+ *   DbStatistics.loadFromMetaData(spec, conn.getMetaData());
+ *   Double rows = CardinalityEstimator.estimateResultRows(query);
+ *   if((rows != null) &amp;&amp; (rows &gt; MAX_ROWS)) {
+ *     throw new IllegalArgumentException("query too expensive");
+ *   }
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class CardinalityEstimator
+{
+  /** selectivity of an equality condition on a column with no statistics */
+  public static final double EQUALITY_SELECTIVITY = 0.1;
+  /** selectivity of a range condition (&lt;, &lt;=, &gt;, &gt;=) */
+  public static final double RANGE_SELECTIVITY = 1.0d / 3.0d;
+  /** selectivity of a BETWEEN condition */
+  public static final double BETWEEN_SELECTIVITY = 0.25;
+  /** selectivity of an IS NULL condition */
+  public static final double NULL_SELECTIVITY = 0.1;
+  /** selectivity of any other condition */
+  public static final double DEFAULT_SELECTIVITY = 1.0d / 3.0d;
+
+  private CardinalityEstimator() {}
+
+  /**
+   * @return the estimated number of rows in the given table, or {@code null}
+   *         if unknown
+   */
+  public static Long getRowCount(Table table) {
+    return ((table instanceof TableStatistics) ?
+            ((TableStatistics)table).getRowCount() : null);
+  }
+
+  /**
+   * @return the estimated number of distinct values in the given column, or
+   *         {@code null} if unknown
+   */
+  public static Long getDistinctValueCount(Column column) {
+    return ((column instanceof ColumnStatistics) ?
+            ((ColumnStatistics)column).getDistinctValueCount() : null);
+  }
+
+  /**
+   * @return the estimated number of rows of the given table which are
+   *         selected by the WHERE conditions of the given query which only
+   *         reference that table, or {@code null} if the number of rows in
+   *         the table is unknown
+   */
+  public static Double estimateTableRows(SelectQuery query, Table table) {
+    Long rowCount = getRowCount(table);
+    if(rowCount == null) {
+      return null;
+    }
+    double rows = rowCount;
+    for(Condition cond : SubqueryRewriter.getConjuncts(
+            query.getWhereClause())) {
+      Set<Table> tables = SubqueryRewriter.getReferencedTables(cond);
+      if((tables != null) && (tables.size() == 1) &&
+         tables.contains(table)) {
+        rows *= estimateSelectivity(cond);
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the estimated number of rows produced by the FROM and WHERE
+   * clauses of the given query (before any grouping, DISTINCT or
+   * OFFSET/FETCH NEXT).  This is the product of the estimated rows of each
+   * table (see {@link #estimateTableRows}) and the selectivity of the join
+   * conditions (ON and WHERE conditions referencing multiple tables).
+   *
+   * @return the estimated number of rows, or {@code null} if the number of
+   *         rows of any of the tables of the query is unknown
+   */
+  public static Double estimateResultRows(SelectQuery query) {
+    double rows = 1.0d;
+    for(Table table : query.getColumnTables()) {
+      Double tableRows = estimateTableRows(query, table);
+      if(tableRows == null) {
+        return null;
+      }
+      rows *= tableRows;
+    }
+
+    List<Condition> joinConds = new ArrayList<Condition>();
+    for(Condition cond : query.getJoinConditions()) {
+      joinConds.addAll(SubqueryRewriter.getConjuncts(cond));
+    }
+    for(Condition cond : SubqueryRewriter.getConjuncts(
+            query.getWhereClause())) {
+      Set<Table> tables = SubqueryRewriter.getReferencedTables(cond);
+      if((tables == null) || (tables.size() > 1)) {
+        joinConds.add(cond);
+      }
+    }
+    for(Condition cond : joinConds) {
+      rows *= estimateJoinSelectivity(cond);
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the given tables ordered by their estimated rows (see
+   * {@link #estimateTableRows}), smallest first.  Tables with unknown
+   * estimates follow the others (in their original order).  If none of the
+   * tables have estimates, the tables are returned in their original
+   * order.
+   */
+  public static List<Table> orderTables(SelectQuery query,
+                                        Collection<? extends Table> tables)
+  {
+    List<Table> orderedTables = new ArrayList<Table>(tables);
+    boolean hasStats = false;
+    for(Table table : orderedTables) {
+      if(getRowCount(table) != null) {
+        hasStats = true;
+        break;
+      }
+    }
+    if(!hasStats || (orderedTables.size() < 2)) {
+      return orderedTables;
+    }
+
+    final Map<Table,Double> estimates = new IdentityHashMap<Table,Double>();
+    for(Table table : orderedTables) {
+      Double tableRows = estimateTableRows(query, table);
+      estimates.put(table, ((tableRows != null) ? tableRows :
+                            Double.POSITIVE_INFINITY));
+    }
+    // note, sort is stable
+    Collections.sort(orderedTables, new Comparator<Table>() {
+      @Override
+      public int compare(Table table1, Table table2) {
+        return Double.compare(estimates.get(table1), estimates.get(table2));
+      }
+    });
+    return orderedTables;
+  }
+
+  /**
+   * @return the estimated fraction (between 0 and 1) of rows which satisfy
+   *         the given condition
+   */
+  public static double estimateSelectivity(Condition cond) {
+    double sel = DEFAULT_SELECTIVITY;
+    if(cond instanceof ComboCondition) {
+      ComboCondition combo = (ComboCondition)cond;
+      if(combo.getComboOp() == ComboCondition.Op.AND) {
+        sel = 1.0d;
+        for(Condition nestedCond : combo.getConditions()) {
+          if(!nestedCond.isEmpty()) {
+            sel *= estimateSelectivity(nestedCond);
+          }
+        }
+      } else if(combo.getComboOp() == ComboCondition.Op.OR) {
+        double notSel = 1.0d;
+        for(Condition nestedCond : combo.getConditions()) {
+          if(!nestedCond.isEmpty()) {
+            notSel *= (1.0d - estimateSelectivity(nestedCond));
+          }
+        }
+        sel = 1.0d - notSel;
+      }
+    } else if(cond instanceof NotCondition) {
+      sel = 1.0d - estimateSelectivity(((NotCondition)cond).getCondition());
+    } else if(ConditionNormalizer.getEqualityColumn(cond) != null) {
+      sel = estimateEqualitySelectivity(
+          ConditionNormalizer.getEqualityColumn(cond),
+          ConditionNormalizer.getEqualityValues(cond).size());
+    } else if(cond instanceof InCondition) {
+      InCondition ic = (InCondition)cond;
+      Column column = ((ic.getLeftValue() instanceof ColumnObject) ?
+                       ((ColumnObject)ic.getLeftValue()).getColumn() : null);
+      sel = estimateEqualitySelectivity(column, ic.getRightValues().size());
+      if(ic.isNegate()) {
+        sel = 1.0d - sel;
+      }
+    } else if(cond instanceof BinaryCondition) {
+      Object op = ((BinaryCondition)cond).getBinaryOp();
+      if((op == BinaryCondition.Op.EQUAL_TO) ||
+         (op == BinaryCondition.Op.LIKE)) {
+        sel = EQUALITY_SELECTIVITY;
+      } else if((op == BinaryCondition.Op.NOT_EQUAL_TO) ||
+                (op == BinaryCondition.Op.NOT_LIKE)) {
+        sel = 1.0d - EQUALITY_SELECTIVITY;
+      } else if((op == BinaryCondition.Op.LESS_THAN) ||
+                (op == BinaryCondition.Op.LESS_THAN_OR_EQUAL_TO) ||
+                (op == BinaryCondition.Op.GREATER_THAN) ||
+                (op == BinaryCondition.Op.GREATER_THAN_OR_EQUAL_TO)) {
+        sel = RANGE_SELECTIVITY;
+      }
+    } else if(cond instanceof BetweenCondition) {
+      sel = (((BetweenCondition)cond).isNegate() ?
+             (1.0d - BETWEEN_SELECTIVITY) : BETWEEN_SELECTIVITY);
+    } else if(cond instanceof UnaryCondition) {
+      Object op = ((UnaryCondition)cond).getUnaryOp();
+      if(op == UnaryCondition.Op.IS_NULL) {
+        sel = NULL_SELECTIVITY;
+      } else if(op == UnaryCondition.Op.IS_NOT_NULL) {
+        sel = 1.0d - NULL_SELECTIVITY;
+      }
+    }
+    return Math.max(0.0d, Math.min(1.0d, sel));
+  }
+
+  /**
+   * @return the selectivity of a condition comparing the given column (if
+   *         known) for equality to one of the given number of values
+   */
+  private static double estimateEqualitySelectivity(Column column,
+                                                    int numValues)
+  {
+    Long distinctValues = ((column != null) ?
+                           getDistinctValueCount(column) : null);
+    double sel = (((distinctValues != null) && (distinctValues > 0)) ?
+                  ((double)numValues / distinctValues) :
+                  (numValues * EQUALITY_SELECTIVITY));
+    return Math.min(1.0d, sel);
+  }
+
+  /**
+   * @return the selectivity of the given condition which references
+   *         multiple tables
+   */
+  private static double estimateJoinSelectivity(Condition cond) {
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition bc = (BinaryCondition)cond;
+      if((bc.getBinaryOp() == BinaryCondition.Op.EQUAL_TO) &&
+         (bc.getLeftValue() instanceof ColumnObject) &&
+         (bc.getRightValue() instanceof ColumnObject)) {
+        Long distinct1 = estimateJoinDistinctValues(
+            ((ColumnObject)bc.getLeftValue()).getColumn());
+        Long distinct2 = estimateJoinDistinctValues(
+            ((ColumnObject)bc.getRightValue()).getColumn());
+        Long distinctValues = ((distinct1 == null) ? distinct2 :
+                               ((distinct2 == null) ? distinct1 :
+                                Long.valueOf(Math.max(distinct1, distinct2))));
+        if((distinctValues != null) && (distinctValues > 0)) {
+          return (1.0d / distinctValues);
+        }
+        return EQUALITY_SELECTIVITY;
+      }
+    }
+    return estimateSelectivity(cond);
+  }
+
+  /**
+   * @return the number of distinct values of the given join column, assuming
+   *         the column is a key if it has no statistics
+   */
+  private static Long estimateJoinDistinctValues(Column column) {
+    Long distinctValues = getDistinctValueCount(column);
+    return ((distinctValues != null) ? distinctValues :
+            getRowCount(column.getTable()));
+  }
+}
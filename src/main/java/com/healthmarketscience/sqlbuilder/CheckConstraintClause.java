@@ -77,6 +77,26 @@ public class CheckConstraintClause extends ConstraintClause
     
     _condition.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    ComboCondition condition = transformer.transformClause(_condition);
+    if(condition == _condition) {
+      return result;
+    }
+    CheckConstraintClause copy = (CheckConstraintClause)(
+        (result == this) ? copy() : result);
+    copy._condition = condition;
+    return copy;
+  }
+
+  @Override
+  protected CheckConstraintClause copy() {
+    CheckConstraintClause copy = (CheckConstraintClause)super.copy();
+    copy._condition = _condition.copy();
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
@@ -38,6 +38,11 @@ class ColumnObject extends Expression
     _column = column;
   }
 
+  /** @return the column referenced by this object */
+  Column getColumn() {
+    return _column;
+  }
+
   @Override
   public boolean hasParens() { return false; }
 
@@ -48,6 +53,7 @@ class ColumnObject extends Expression
 
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    SqlContext.getContext(app).addColumnTable(_column.getTable());
     appendTableAliasPrefix(app, _column.getTable());
     app.append(_column.getColumnNameSQL());
   }
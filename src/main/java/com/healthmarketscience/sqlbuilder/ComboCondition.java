@@ -49,6 +49,7 @@ public class ComboCondition extends Condition
   }  
 
   
+  private final Object _comboOp;
   private SqlObjectList<Condition> _conditions;
 
   public ComboCondition(Op comboOp) {
@@ -75,15 +76,45 @@ public class ComboCondition extends Condition
    */
   public ComboCondition(Object comboOpStr, Object... conditions)
   {
+    _comboOp = comboOpStr;
     _conditions = SqlObjectList.create(comboOpStr.toString());
     _conditions.addObjects(Converter.CUSTOM_TO_CONDITION, conditions);
   }
+
+  /** @return the combination operation of this condition */
+  Object getComboOp() {
+    return _comboOp;
+  }
+
+  /** @return the nested conditions of this condition */
+  SqlObjectList<Condition> getConditions() {
+    return _conditions;
+  }
     
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _conditions.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<Condition> conditions = _conditions.transformObjects(
+        transformer, Condition.class);
+    if(conditions == _conditions) {
+      return this;
+    }
+    ComboCondition copy = (ComboCondition)super.copy();
+    copy._conditions = conditions;
+    return copy;
+  }
+
+  @Override
+  protected ComboCondition copy() {
+    ComboCondition copy = (ComboCondition)super.copy();
+    copy._conditions = _conditions.copy();
+    return copy;
+  }
+
   @Override
   public boolean isEmpty() {
     return areEmpty(_conditions);
@@ -94,6 +125,11 @@ public class ComboCondition extends Condition
     return hasParens(_conditions);
   }
 
+  @Override
+  protected boolean isCommutative() {
+    return ((_comboOp == Op.AND) || (_comboOp == Op.OR));
+  }
+
   /** Adds the given condition to the list of conditions. */
   public ComboCondition addCondition(Condition condition) {
     return addCustomConditions(condition);
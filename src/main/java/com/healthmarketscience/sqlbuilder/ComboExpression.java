@@ -75,11 +75,35 @@ public class ComboExpression extends Expression
     _expressions.addObjects(Converter.CUSTOM_TO_EXPRESSION, expressions);
   }
     
+  /** @return the nested expressions of this expression */
+  SqlObjectList<Expression> getExpressions() {
+    return _expressions;
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _expressions.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<Expression> expressions = _expressions.transformObjects(
+        transformer, Expression.class);
+    if(expressions == _expressions) {
+      return this;
+    }
+    ComboExpression copy = (ComboExpression)super.copy();
+    copy._expressions = expressions;
+    return copy;
+  }
+
+  @Override
+  protected ComboExpression copy() {
+    ComboExpression copy = (ComboExpression)super.copy();
+    copy._expressions = _expressions.copy();
+    return copy;
+  }
+
   @Override
   public boolean isEmpty() {
     return areEmpty(_expressions);
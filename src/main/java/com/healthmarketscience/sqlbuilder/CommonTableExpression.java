@@ -108,6 +108,11 @@ public class CommonTableExpression extends SqlObject
     return this;
   }
 
+  /** @return the CTE definition query */
+  SqlObject getQuery() {
+    return _query;
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
 
@@ -121,6 +126,17 @@ public class CommonTableExpression extends SqlObject
     vContext.collectNestedQuerySchemaObjects(_query);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject query = transformer.transform(_query);
+    if(query == _query) {
+      return this;
+    }
+    CommonTableExpression copy = (CommonTableExpression)copy();
+    copy._query = query;
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     app.append(_table);
@@ -0,0 +1,164 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Set which compares elements by identity and stores a small number of
+ * elements inline (in insertion order) before switching to a hash based
+ * identity set.  Storage is not allocated until the first element is added.
+ * Used for the (generally small) collections of tables and columns within a
+ * {@link ValidationContext}.
+ *
+ * @author James Ahlborn
+ */
+class CompactIdentitySet<E> extends AbstractSet<E>
+{
+  /** max number of elements stored inline */
+  static final int MAX_INLINE_SIZE = 8;
+
+  /** inline elements, {@code null} until the first element is added (and
+      after switching to _set) */
+  private Object[] _elems;
+  private int _size;
+  /** hash based identity set, used once the inline storage is exceeded */
+  private Set<E> _set;
+
+  CompactIdentitySet() {}
+
+  @Override
+  public int size() {
+    return ((_set != null) ? _set.size() : _size);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if(_set != null) {
+      return _set.contains(o);
+    }
+    return (indexOf(o) >= 0);
+  }
+
+  @Override
+  public boolean add(E e) {
+    if(_set != null) {
+      return _set.add(e);
+    }
+    if(indexOf(e) >= 0) {
+      return false;
+    }
+    if(_elems == null) {
+      _elems = new Object[2];
+    } else if(_size == _elems.length) {
+      if(_size == MAX_INLINE_SIZE) {
+        Set<E> set = Collections.newSetFromMap(new IdentityHashMap<E,Boolean>());
+        for(int i = 0; i < _size; ++i) {
+          set.add(getElem(i));
+        }
+        set.add(e);
+        _set = set;
+        _elems = null;
+        _size = 0;
+        return true;
+      }
+      _elems = Arrays.copyOf(_elems, Math.min(_size * 2, MAX_INLINE_SIZE));
+    }
+    _elems[_size++] = e;
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if(_set != null) {
+      return _set.remove(o);
+    }
+    int idx = indexOf(o);
+    if(idx < 0) {
+      return false;
+    }
+    removeElem(idx);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    _set = null;
+    _elems = null;
+    _size = 0;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    if(_set != null) {
+      return _set.iterator();
+    }
+    return new Iterator<E>() {
+      private int _next;
+      private boolean _canRemove;
+
+      @Override
+      public boolean hasNext() {
+        return (_next < _size);
+      }
+
+      @Override
+      public E next() {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        _canRemove = true;
+        return getElem(_next++);
+      }
+
+      @Override
+      public void remove() {
+        if(!_canRemove) {
+          throw new IllegalStateException();
+        }
+        _canRemove = false;
+        removeElem(--_next);
+      }
+    };
+  }
+
+  private int indexOf(Object o) {
+    for(int i = 0; i < _size; ++i) {
+      if(_elems[i] == o) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private E getElem(int idx) {
+    return (E)_elems[idx];
+  }
+
+  private void removeElem(int idx) {
+    System.arraycopy(_elems, idx + 1, _elems, idx, _size - idx - 1);
+    _elems[--_size] = null;
+  }
+}
@@ -0,0 +1,419 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+
+
+/**
+ * Opt-in pass which normalizes the conditions of a query (or any other tree
+ * of SqlObjects), producing smaller sql which is generally easier for the
+ * database to plan.  The following rewrites are applied (bottom-up):
+ * <ul>
+ * <li>nested AND/OR ComboConditions with the same operator are flattened
+ *     and empty conditions (e.g. {@link Condition#EMPTY}) are removed</li>
+ * <li>duplicate conditions within an AND/OR are removed</li>
+ * <li>constant comparisons of literal values (e.g. {@code 1 = 1}) are
+ *     evaluated: constant true conditions are removed from an AND and
+ *     constant false conditions are removed from an OR, while a constant
+ *     false condition in an AND (or constant true condition in an OR)
+ *     replaces the entire combination</li>
+ * <li>ComboExpressions of integral number literals ({@code +}, {@code -},
+ *     {@code *}) and string literals ({@code ||}) are folded into a single
+ *     literal</li>
+ * <li>equality comparisons of the same column with literal values (or
+ *     placeholders) within an OR are combined into a single
+ *     {@link InCondition}</li>
+ * </ul>
+ * <p>
+ * A non-empty condition is never normalized to an empty condition.  Also,
+ * ComboConditions with custom operators or disabled parentheses are left
+ * unchanged.  Duplicates are detected by comparing the
+ * {@link QueryFingerprint}s of the conditions, so the sql of every condition
+ * (and compared value) is generated once per normalized combination.
+ * Duplicate detection assumes that any functions used within the conditions
+ * are deterministic.  Conditions containing QueryPreparer placeholders are
+ * never considered duplicates.
+ * <p>
+ * As with any {@link SqlTransformer}, the given object is not modified,
+ * instead a (partial) copy is returned if anything was normalized.
+ * <p>
+ * Example:
+ * <pre>
+ *   SelectQuery normalized = (SelectQuery)ConditionNormalizer.normalize(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class ConditionNormalizer extends SqlTransformer
+{
+  public ConditionNormalizer() {}
+
+  /**
+   * @return the given object with all of its conditions normalized
+   */
+  public static SqlObject normalize(SqlObject obj) {
+    return new ConditionNormalizer().transform(obj);
+  }
+
+  @Override
+  protected SqlObject rewrite(SqlObject obj) {
+    if(obj instanceof ComboCondition) {
+      return normalizeCombo((ComboCondition)obj);
+    }
+    if(obj instanceof ComboExpression) {
+      return foldExpression((ComboExpression)obj);
+    }
+    return obj;
+  }
+
+  /**
+   * Normalizes the given (AND/OR) combo condition, whose nested conditions
+   * have already been normalized.
+   */
+  protected Condition normalizeCombo(ComboCondition combo) {
+    Object comboOp = combo.getComboOp();
+    if(((comboOp != ComboCondition.Op.AND) &&
+        (comboOp != ComboCondition.Op.OR)) || combo.isDisableParens()) {
+      return combo;
+    }
+    boolean isAnd = (comboOp == ComboCondition.Op.AND);
+
+    boolean changed = false;
+    List<Condition> conds = new ArrayList<Condition>();
+    for(Condition cond : combo.getConditions()) {
+      if(cond.isEmpty()) {
+        changed = true;
+      } else if((cond instanceof ComboCondition) &&
+                (((ComboCondition)cond).getComboOp() == comboOp) &&
+                !cond.isDisableParens()) {
+        // flatten nested combo (which is already normalized)
+        for(Condition nestedCond : ((ComboCondition)cond).getConditions()) {
+          if(!nestedCond.isEmpty()) {
+            conds.add(nestedCond);
+          }
+        }
+        changed = true;
+      } else {
+        conds.add(cond);
+      }
+    }
+
+    // evaluate constant conditions and remove duplicates
+    Condition droppedConst = null;
+    Set<QueryFingerprint> fingerprints = new HashSet<QueryFingerprint>();
+    List<Condition> newConds = new ArrayList<Condition>(conds.size());
+    for(Condition cond : conds) {
+      Boolean value = evaluate(cond);
+      if(value != null) {
+        if(value == isAnd) {
+          // true in an AND, false in an OR, not relevant
+          droppedConst = cond;
+          changed = true;
+          continue;
+        }
+        // false in an AND, true in an OR, decides the whole combination
+        return cond;
+      }
+      if(!containsPlaceHolder(cond) &&
+         !fingerprints.add(QueryFingerprint.of(cond))) {
+        // duplicate
+        changed = true;
+        continue;
+      }
+      newConds.add(cond);
+    }
+
+    if(!isAnd && combineEqualities(newConds)) {
+      changed = true;
+    }
+
+    if(!changed) {
+      return combo;
+    }
+    if(newConds.isEmpty()) {
+      // don't turn a non-empty condition into an empty condition
+      return ((droppedConst != null) ? droppedConst : Condition.EMPTY);
+    }
+    if(newConds.size() == 1) {
+      return newConds.get(0);
+    }
+    ComboCondition newCombo = combo.copy();
+    newCombo.getConditions().clear();
+    newCombo.getConditions().addObjects(newConds);
+    return newCombo;
+  }
+
+  /**
+   * Replaces equality comparisons of the same column with literal values
+   * within the given OR'ed conditions with a single InCondition.
+   * @return {@code true} if the conditions were modified, {@code false}
+   *         otherwise
+   */
+  private static boolean combineEqualities(List<Condition> conds) {
+    // collect the (distinct) values compared to each column
+    Map<Column,List<SqlObject>> colValues =
+      new IdentityHashMap<Column,List<SqlObject>>();
+    Map<Column,Integer> colCounts = new IdentityHashMap<Column,Integer>();
+    Map<Column,Set<QueryFingerprint>> colFingerprints =
+      new IdentityHashMap<Column,Set<QueryFingerprint>>();
+    for(Condition cond : conds) {
+      Column column = getEqualityColumn(cond);
+      if(column == null) {
+        continue;
+      }
+      List<SqlObject> values = colValues.get(column);
+      if(values == null) {
+        values = new ArrayList<SqlObject>();
+        colValues.put(column, values);
+        colCounts.put(column, 0);
+        colFingerprints.put(column, new HashSet<QueryFingerprint>());
+      }
+      colCounts.put(column, colCounts.get(column) + 1);
+      Set<QueryFingerprint> fingerprints = colFingerprints.get(column);
+      for(SqlObject value : getEqualityValues(cond)) {
+        if((value instanceof QueryPreparer.PlaceHolder) ||
+           fingerprints.add(QueryFingerprint.of(value))) {
+          values.add(value);
+        }
+      }
+    }
+
+    // replace the first comparison of each column with the combined
+    // condition and remove the rest
+    boolean changed = false;
+    Set<Column> replaced = Collections.newSetFromMap(
+        new IdentityHashMap<Column,Boolean>());
+    for(int i = 0; i < conds.size(); ++i) {
+      Column column = getEqualityColumn(conds.get(i));
+      if((column == null) || (colCounts.get(column) < 2)) {
+        continue;
+      }
+      if(replaced.add(column)) {
+        conds.set(i, new InCondition(new ColumnObject(column),
+                                     colValues.get(column)));
+      } else {
+        conds.remove(i--);
+      }
+      changed = true;
+    }
+    return changed;
+  }
+
+  /**
+   * @return the column of the given condition if it compares a column to
+   *         literal values for equality (<code>col = value</code> or
+   *         <code>col IN (values)</code>), {@code null} otherwise
+   */
+  static Column getEqualityColumn(Condition cond) {
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition bc = (BinaryCondition)cond;
+      if(bc.getBinaryOp() != BinaryCondition.Op.EQUAL_TO) {
+        return null;
+      }
+      if((bc.getLeftValue() instanceof ColumnObject) &&
+         isLiteral(bc.getRightValue())) {
+        return ((ColumnObject)bc.getLeftValue()).getColumn();
+      }
+      if((bc.getRightValue() instanceof ColumnObject) &&
+         isLiteral(bc.getLeftValue())) {
+        return ((ColumnObject)bc.getRightValue()).getColumn();
+      }
+    } else if(cond instanceof InCondition) {
+      InCondition ic = (InCondition)cond;
+      if(ic.isNegate() || !(ic.getLeftValue() instanceof ColumnObject) ||
+         ic.getRightValues().isEmpty()) {
+        return null;
+      }
+      for(SqlObject value : ic.getRightValues()) {
+        if(!isLiteral(value)) {
+          return null;
+        }
+      }
+      return ((ColumnObject)ic.getLeftValue()).getColumn();
+    }
+    return null;
+  }
+
+  /**
+   * @return the literal values of the given equality condition (see
+   *         {@link #getEqualityColumn})
+   */
+  static List<SqlObject> getEqualityValues(Condition cond) {
+    List<SqlObject> values = new ArrayList<SqlObject>();
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition bc = (BinaryCondition)cond;
+      values.add((bc.getLeftValue() instanceof ColumnObject) ?
+                 bc.getRightValue() : bc.getLeftValue());
+    } else {
+      for(SqlObject value : ((InCondition)cond).getRightValues()) {
+        values.add(value);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Folds the given combo expression of literals into a single literal, if
+   * possible.
+   */
+  protected Expression foldExpression(ComboExpression combo) {
+    String opStr = combo.getExpressions().getDelimiter();
+    if(combo.getExpressions().size() < 2) {
+      return combo;
+    }
+
+    if(opStr.equals(ComboExpression.Op.CONCATENATE.toString())) {
+      StringBuilder sb = new StringBuilder();
+      for(Expression expr : combo.getExpressions()) {
+        if(!(expr instanceof ValueObject) ||
+           !(((ValueObject)expr).getValue() instanceof String)) {
+          return combo;
+        }
+        sb.append((String)((ValueObject)expr).getValue());
+      }
+      return new ValueObject(sb.toString());
+    }
+
+    boolean isAdd = opStr.equals(ComboExpression.Op.ADD.toString());
+    boolean isSubtract = opStr.equals(ComboExpression.Op.SUBTRACT.toString());
+    boolean isMultiply = opStr.equals(ComboExpression.Op.MULTIPLY.toString());
+    if(!isAdd && !isSubtract && !isMultiply) {
+      return combo;
+    }
+
+    Long result = null;
+    for(Expression expr : combo.getExpressions()) {
+      if(!(expr instanceof NumberValueObject) ||
+         !((NumberValueObject)expr).isIntegralInRange(
+             Long.MIN_VALUE, Long.MAX_VALUE)) {
+        return combo;
+      }
+      long value = ((NumberValueObject)expr).getValue().longValue();
+      try {
+        if(result == null) {
+          result = value;
+        } else if(isAdd) {
+          result = Math.addExact(result, value);
+        } else if(isSubtract) {
+          result = Math.subtractExact(result, value);
+        } else {
+          result = Math.multiplyExact(result, value);
+        }
+      } catch(ArithmeticException e) {
+        // overflow, leave it to the database
+        return combo;
+      }
+    }
+    return new NumberValueObject(result);
+  }
+
+  /**
+   * @return the constant value of the given condition if it is a comparison
+   *         of literal values which can be evaluated, {@code null} otherwise
+   */
+  static Boolean evaluate(Condition cond) {
+    if(!(cond instanceof BinaryCondition)) {
+      return null;
+    }
+    BinaryCondition bc = (BinaryCondition)cond;
+    if(!(bc.getBinaryOp() instanceof BinaryCondition.Op)) {
+      return null;
+    }
+    BinaryCondition.Op op = (BinaryCondition.Op)bc.getBinaryOp();
+    SqlObject left = bc.getLeftValue();
+    SqlObject right = bc.getRightValue();
+
+    int cmp = 0;
+    if((left instanceof NumberValueObject) &&
+       (right instanceof NumberValueObject)) {
+      BigDecimal leftNum = Numbers.toBigDecimal(
+          ((NumberValueObject)left).getValue());
+      BigDecimal rightNum = Numbers.toBigDecimal(
+          ((NumberValueObject)right).getValue());
+      if((leftNum == null) || (rightNum == null)) {
+        return null;
+      }
+      cmp = leftNum.compareTo(rightNum);
+    } else if((left instanceof ValueObject) && (right instanceof ValueObject)) {
+      // string comparisons depend on the collation, so we can only evaluate
+      // comparisons of identical values
+      Object leftVal = ((ValueObject)left).getValue();
+      if((leftVal == null) ||
+         !leftVal.equals(((ValueObject)right).getValue())) {
+        return null;
+      }
+    } else {
+      return null;
+    }
+
+    switch(op) {
+    case LESS_THAN:
+      return (cmp < 0);
+    case LESS_THAN_OR_EQUAL_TO:
+      return (cmp <= 0);
+    case GREATER_THAN:
+      return (cmp > 0);
+    case GREATER_THAN_OR_EQUAL_TO:
+      return (cmp >= 0);
+    case EQUAL_TO:
+      return (cmp == 0);
+    case NOT_EQUAL_TO:
+      return (cmp != 0);
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * @return {@code true} if the given object is a literal value or a
+   *         placeholder, {@code false} otherwise
+   */
+  static boolean isLiteral(SqlObject obj) {
+    return ((obj instanceof ValueObject) ||
+            (obj instanceof NumberValueObject) ||
+            (obj instanceof BooleanValueObject) ||
+            (obj instanceof QueryPreparer.PlaceHolder));
+  }
+
+  /**
+   * @return {@code true} if the given object contains any QueryPreparer
+   *         placeholders, {@code false} otherwise
+   */
+  static boolean containsPlaceHolder(SqlObject obj) {
+    final boolean[] found = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if(obj instanceof QueryPreparer.PlaceHolder) {
+          found[0] = true;
+        }
+        return !found[0];
+      }
+    }.walk(obj);
+    return found[0];
+  }
+}
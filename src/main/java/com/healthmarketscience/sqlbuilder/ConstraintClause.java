@@ -64,7 +64,7 @@ public class ConstraintClause extends SqlObject
 
   
   protected final Type _type;
-  protected final SqlObject _name;
+  protected SqlObject _name;
   protected SqlObjectList<SqlObject> _columns = SqlObjectList.create();
 
   public ConstraintClause(Constraint constraint) {
@@ -107,6 +107,29 @@ public class ConstraintClause extends SqlObject
     _columns.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject name = transformer.transform(_name);
+    SqlObjectList<SqlObject> columns = _columns.transformObjects(
+        transformer, SqlObject.class);
+    if((name == _name) && (columns == _columns)) {
+      return this;
+    }
+    ConstraintClause copy = copy();
+    copy._name = name;
+    if(columns != _columns) {
+      copy._columns = columns;
+    }
+    return copy;
+  }
+
+  @Override
+  protected ConstraintClause copy() {
+    ConstraintClause copy = (ConstraintClause)super.copy();
+    copy._columns = _columns.copy();
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     if(_name != null) {
@@ -254,6 +277,17 @@ public class ConstraintClause extends SqlObject
     protected void collectSchemaObjects(ValidationContext vContext) {
       _name.collectSchemaObjects(vContext);
     }
+
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject name = transformer.transform(_name);
+      if(name == _name) {
+        return this;
+      }
+      Prefix copy = (Prefix)copy();
+      copy._name = name;
+      return copy;
+    }
     
     @Override
     public void appendTo(AppendableExt app) throws IOException {
@@ -0,0 +1,217 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Constraint;
+import com.healthmarketscience.sqlbuilder.dbspec.ForeignKeyConstraint;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+/**
+ * Utility methods for examining the constraints of the dbspec model (both
+ * table constraints and column constraints).
+ *
+ * @author James Ahlborn
+ */
+class Constraints
+{
+  private Constraints() {}
+
+  /**
+   * @return the primary key columns of the given table, or {@code null} if
+   *         the table has no primary key constraint
+   */
+  static List<? extends Column> getPrimaryKey(Table table) {
+    for(Constraint constraint : table.getConstraints()) {
+      if(constraint.getType() == Constraint.Type.PRIMARY_KEY) {
+        return constraint.getColumns();
+      }
+    }
+    for(Column column : table.getColumns()) {
+      for(Constraint constraint : column.getConstraints()) {
+        if(constraint.getType() == Constraint.Type.PRIMARY_KEY) {
+          return Collections.singletonList(column);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the column lists of all the primary key and unique constraints
+   *         of the given table (which are generally backed by an index)
+   */
+  static List<List<? extends Column>> getUniqueKeys(Table table) {
+    List<List<? extends Column>> keys = new ArrayList<List<? extends Column>>();
+    for(Constraint constraint : table.getConstraints()) {
+      if(isUniqueKey(constraint) && !constraint.getColumns().isEmpty()) {
+        keys.add(constraint.getColumns());
+      }
+    }
+    for(Column column : table.getColumns()) {
+      for(Constraint constraint : column.getConstraints()) {
+        if(isUniqueKey(constraint)) {
+          keys.add(Collections.singletonList(column));
+        }
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * @return {@code true} if the given columns include all the columns of a
+   *         primary key or unique constraint of the given table,
+   *         {@code false} otherwise
+   */
+  static boolean containsUniqueKey(Table table,
+                                   Collection<? extends Column> columns) {
+    for(Constraint constraint : table.getConstraints()) {
+      if(isUniqueKey(constraint) && !constraint.getColumns().isEmpty() &&
+         containsAll(columns, constraint.getColumns())) {
+        return true;
+      }
+    }
+    for(Column column : columns) {
+      if(column.getTable() != table) {
+        continue;
+      }
+      for(Constraint constraint : column.getConstraints()) {
+        if(isUniqueKey(constraint)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return {@code true} if the given column can not contain null values
+   *         (has a not null or primary key constraint), {@code false}
+   *         otherwise
+   */
+  static boolean isNotNull(Column column) {
+    for(Constraint constraint : column.getConstraints()) {
+      if((constraint.getType() == Constraint.Type.NOT_NULL) ||
+         (constraint.getType() == Constraint.Type.PRIMARY_KEY)) {
+        return true;
+      }
+    }
+    for(Constraint constraint : column.getTable().getConstraints()) {
+      if((constraint.getType() == Constraint.Type.PRIMARY_KEY) &&
+         containsAll(constraint.getColumns(), Collections.singleton(column))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the given columns (of a single table) are
+   * exactly the columns of a foreign key constraint which references exactly
+   * the given referenced columns (in the same order), {@code false}
+   * otherwise.
+   */
+  static boolean isForeignKey(List<? extends Column> columns,
+                              List<? extends Column> refColumns) {
+    if(columns.isEmpty()) {
+      return false;
+    }
+    Table table = columns.get(0).getTable();
+    for(Constraint constraint : table.getConstraints()) {
+      if(isForeignKey(constraint, columns, refColumns)) {
+        return true;
+      }
+    }
+    if(columns.size() == 1) {
+      for(Constraint constraint : columns.get(0).getConstraints()) {
+        if(isForeignKey(constraint, columns, refColumns)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isForeignKey(Constraint constraint,
+                                      List<? extends Column> columns,
+                                      List<? extends Column> refColumns) {
+    if((constraint.getType() != Constraint.Type.FOREIGN_KEY) ||
+       !(constraint instanceof ForeignKeyConstraint)) {
+      return false;
+    }
+    ForeignKeyConstraint fkConstraint = (ForeignKeyConstraint)constraint;
+    List<? extends Column> fkRefColumns = fkConstraint.getReferencedColumns();
+    if((fkRefColumns == null) || fkRefColumns.isEmpty()) {
+      // references the primary key
+      fkRefColumns = getPrimaryKey(fkConstraint.getReferencedTable());
+      if(fkRefColumns == null) {
+        return false;
+      }
+    }
+    if((fkRefColumns.size() != refColumns.size()) ||
+       (fkRefColumns.get(0).getTable() != refColumns.get(0).getTable())) {
+      return false;
+    }
+    // compare the column pairs, ignoring order
+    List<? extends Column> fkColumns = constraint.getColumns();
+    if(fkColumns.size() != columns.size()) {
+      return false;
+    }
+    for(int i = 0; i < fkColumns.size(); ++i) {
+      boolean found = false;
+      for(int j = 0; j < columns.size(); ++j) {
+        if((fkColumns.get(i) == columns.get(j)) &&
+           (fkRefColumns.get(i) == refColumns.get(j))) {
+          found = true;
+          break;
+        }
+      }
+      if(!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isUniqueKey(Constraint constraint) {
+    return ((constraint.getType() == Constraint.Type.PRIMARY_KEY) ||
+            (constraint.getType() == Constraint.Type.UNIQUE));
+  }
+
+  private static boolean containsAll(Collection<? extends Column> columns,
+                                     Collection<? extends Column> subColumns) {
+    for(Column subColumn : subColumns) {
+      boolean found = false;
+      for(Column column : columns) {
+        if(column == subColumn) {
+          found = true;
+          break;
+        }
+      }
+      if(!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -189,6 +189,19 @@ public class CreateIndexQuery extends BaseCreateQuery<CreateIndexQuery>
     _table.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject table = transformer.transform(_table);
+    if(table == _table) {
+      return result;
+    }
+    CreateIndexQuery copy = (CreateIndexQuery)((result == this) ? copy() :
+                                               result);
+    copy._table = table;
+    return copy;
+  }
+
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
     throws IOException
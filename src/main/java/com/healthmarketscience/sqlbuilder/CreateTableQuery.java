@@ -325,6 +325,27 @@ public class CreateTableQuery extends BaseCreateQuery<CreateTableQuery>
     _constraints.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<SqlObject> constraints = _constraints.transformObjects(
+        transformer, SqlObject.class);
+    if(constraints == _constraints) {
+      return result;
+    }
+    CreateTableQuery copy = (CreateTableQuery)((result == this) ? copy() :
+                                               result);
+    copy._constraints = constraints;
+    return copy;
+  }
+
+  @Override
+  protected CreateTableQuery copy() {
+    CreateTableQuery copy = (CreateTableQuery)super.copy();
+    copy._constraints = _constraints.copy();
+    return copy;
+  }
+
   @Override
   public void validate(ValidationContext vContext)
     throws ValidationException
@@ -379,6 +400,21 @@ public class CreateTableQuery extends BaseCreateQuery<CreateTableQuery>
       _column.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject column = transformer.transform(_column);
+      Object constraint = ((_constraint instanceof SqlObject) ?
+                           transformer.transform((SqlObject)_constraint) :
+                           _constraint);
+      if((column == _column) && (constraint == _constraint)) {
+        return this;
+      }
+      ConstrainedColumn copy = (ConstrainedColumn)copy();
+      copy._column = column;
+      copy._constraint = constraint;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(_column).append(" ").append(_constraint);
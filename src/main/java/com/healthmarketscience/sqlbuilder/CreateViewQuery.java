@@ -91,6 +91,20 @@ public class CreateViewQuery extends BaseCreateQuery<CreateViewQuery>
     vContext.collectNestedQuerySchemaObjects(_selectQuery);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SelectQuery selectQuery = transformer.transform(
+        _selectQuery, SelectQuery.class);
+    if(selectQuery == _selectQuery) {
+      return result;
+    }
+    CreateViewQuery copy = (CreateViewQuery)((result == this) ? copy() :
+                                             result);
+    copy._selectQuery = selectQuery;
+    return copy;
+  }
+
   @Override
   public void validate(ValidationContext vContext)
     throws ValidationException
@@ -52,6 +52,17 @@ public class CustomCondition extends Condition
       _cond.collectSchemaObjects(vContext);
     }
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject cond = transformer.transform(_cond);
+    if(cond == _cond) {
+      return this;
+    }
+    CustomCondition copy = (CustomCondition)copy();
+    copy._cond = cond;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
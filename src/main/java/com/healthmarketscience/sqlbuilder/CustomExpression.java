@@ -52,6 +52,17 @@ public class CustomExpression extends Expression
       _expr.collectSchemaObjects(vContext);
     }
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject expr = transformer.transform(_expr);
+    if(expr == _expr) {
+      return this;
+    }
+    CustomExpression copy = (CustomExpression)copy();
+    copy._expr = expr;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
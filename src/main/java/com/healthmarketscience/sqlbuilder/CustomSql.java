@@ -62,6 +62,11 @@ public class CustomSql extends SqlObject
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    if((_obj instanceof String) &&
+       SqlContext.getContext(app).getCanonicalize()) {
+      app.append(CanonicalSql.normalize((String)_obj));
+      return;
+    }
     app.append(_obj);
   }
 }
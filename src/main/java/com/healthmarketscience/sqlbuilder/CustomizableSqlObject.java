@@ -47,6 +47,47 @@ public abstract class CustomizableSqlObject extends SqlObject
     }
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    if(_customizations == null) {
+      return this;
+    }
+    List<Customization> newCusts = null;
+    for(int i = 0; i < _customizations.size(); ++i) {
+      Customization cust = _customizations.get(i);
+      SqlObject obj = transformer.transform(cust.getObject());
+      if((obj != cust.getObject()) && (newCusts == null)) {
+        newCusts = new ArrayList<Customization>(_customizations);
+      }
+      if(newCusts != null) {
+        newCusts.set(i, new Customization(cust._anchor, cust._type, obj));
+      }
+    }
+    if(newCusts == null) {
+      return this;
+    }
+    CustomizableSqlObject copy = (CustomizableSqlObject)super.copy();
+    copy._customizations = newCusts;
+    return copy;
+  }
+
+  @Override
+  protected CustomizableSqlObject copy() {
+    CustomizableSqlObject copy = (CustomizableSqlObject)super.copy();
+    if(_customizations != null) {
+      copy._customizations = new ArrayList<Customization>(_customizations);
+    }
+    return copy;
+  }
+
+  /**
+   * Returns <code>true</code> if any customizations have been added to this
+   * object, <code>false</code> otherwise.
+   */
+  protected boolean hasCustomizations() {
+    return ((_customizations != null) && !_customizations.isEmpty());
+  }
+
   /**
    * Appends the appropriate customizations for the given anchor (and possibly
    * the anchor clause itself) based on whether or not the clause should be
@@ -19,15 +19,34 @@ package com.healthmarketscience.sqlbuilder;
 import java.io.IOException;
 
 import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
+import com.healthmarketscience.sqlbuilder.custom.HookAnchor;
+import com.healthmarketscience.sqlbuilder.custom.HookType;
 import com.healthmarketscience.sqlbuilder.dbspec.Table;
 
 /**
  * Query which generates a DELETE statement.
+ * <p>
+ * Note that this query supports custom SQL syntax, see {@link Hook} for more
+ * details.
  *  
  * @author James Ahlborn
  */
 public class DeleteQuery extends BaseCTEQuery<DeleteQuery>
 {
+  /**
+   * The HookAnchors supported for DELETE queries.  See {@link com.healthmarketscience.sqlbuilder.custom}
+   * for more details on custom SQL syntax.
+   */
+  public enum Hook implements HookAnchor {
+    /** Anchor for the beginning of the query, only supports {@link
+        HookType#BEFORE} */
+    HEADER,
+    /** Anchor for the end of the query, only supports {@link
+        HookType#BEFORE} */
+    TRAILER;
+  }
+
   private SqlObject _table;
   private ComboCondition _condition =
     ComboCondition.and();
@@ -44,6 +63,11 @@ public class DeleteQuery extends BaseCTEQuery<DeleteQuery>
     _table = Converter.toCustomTableSqlObject(tableStr);
   }
 
+  /** @return the table of this delete query */
+  SqlObject getTable() {
+    return _table;
+  }
+
   /**
    * Allows access to the AND ComboCondition of the where clause to facilitate
    * common condition building code.
@@ -67,6 +91,38 @@ public class DeleteQuery extends BaseCTEQuery<DeleteQuery>
     return this;
   }
 
+  /**
+   * Adds custom SQL to this query.  See {@link com.healthmarketscience.sqlbuilder.custom} for more details on
+   * custom SQL syntax.
+   * @param hook the part of the query being customized
+   * @param type the type of customization
+   * @param obj the custom sql.  The {@code Object} -&gt; {@code SqlObject}
+   *            conversions handled by {@link Converter#toCustomSqlObject}.
+   */
+  public DeleteQuery addCustomization(Hook hook, HookType type, Object obj) {
+    super.addCustomization(hook, type, obj);
+    return this;
+  }
+
+  /**
+   * Adds custom SQL to this query.  See {@link com.healthmarketscience.sqlbuilder.custom} for more details on
+   * custom SQL syntax.
+   * @param obj the custom sql syntax on which the
+   *            {@link CustomSyntax#apply(DeleteQuery)} method will be
+   *            invoked (may be {@code null}).
+   */
+  public DeleteQuery addCustomization(CustomSyntax obj) {
+    if(obj != null) {
+      obj.apply(this);
+    }
+    return this;
+  }
+
+  @Override
+  protected void applyHint(CustomSyntax hint) {
+    addCustomization(hint);
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     super.collectSchemaObjects(vContext);
@@ -74,12 +130,37 @@ public class DeleteQuery extends BaseCTEQuery<DeleteQuery>
     _condition.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject table = transformer.transform(_table);
+    ComboCondition condition = transformer.transformClause(_condition);
+    if((table == _table) && (condition == _condition)) {
+      return result;
+    }
+    DeleteQuery copy = (DeleteQuery)((result == this) ? copy() : result);
+    copy._table = table;
+    if(condition != _condition) {
+      copy._condition = condition;
+    }
+    return copy;
+  }
+
+  @Override
+  protected DeleteQuery copy() {
+    DeleteQuery copy = (DeleteQuery)super.copy();
+    copy._condition = _condition.copy();
+    return copy;
+  }
+
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
     throws IOException
   {
     newContext.setUseTableAliases(false);
-    
+
+    customAppendTo(app, Hook.HEADER);
+
     // append basic select
     app.append("DELETE FROM ").append(_table);
 
@@ -87,6 +168,8 @@ public class DeleteQuery extends BaseCTEQuery<DeleteQuery>
       // append "where" condition(s)
       app.append(" WHERE ").append(_condition);
     }
+
+    customAppendTo(app, Hook.TRAILER);
   }
 
 }
@@ -0,0 +1,333 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.io.IOException;
+
+import com.healthmarketscience.common.util.AppendableExt;
+
+
+/**
+ * Describes the SQL variant of a specific database: how the generic query
+ * features which have differing native syntax are rendered, and the limits
+ * and capabilities of the database which other builders may query.
+ * <p>
+ * A Dialect is set on the {@link SqlContext} used for SQL generation (see
+ * {@link SqlContext#setDialect} and {@link #toSql}).  Currently, the dialect
+ * determines how the {@link SelectQuery#setOffset OFFSET} and
+ * {@link SelectQuery#setFetchNext FETCH NEXT} values of a SelectQuery are
+ * rendered, e.g. {@code "LIMIT 10 OFFSET 20"} for PostgreSQL or
+ * {@code "TOP (10)"} for SQL Server.  This allows a single query definition
+ * to be rendered in the native (most efficient) form for each database,
+ * instead of using the database specific customizations like
+ * {@link com.healthmarketscience.sqlbuilder.custom.mysql.MysLimitClause} or
+ * {@link com.healthmarketscience.sqlbuilder.custom.sqlserver.MssTopClause}.
+ * <p>
+ * The built-in dialects are {@link #ANSI} (the default), {@link #POSTGRESQL},
+ * {@link #MYSQL}, {@link #SQL_SERVER} and {@link #ORACLE}.  Custom dialects
+ * may be created by subclassing this class (the default implementations of
+ * all the methods describe ANSI SQL).
+ * <p>
+ * Example:
+ * <pre>
+ *   SelectQuery query = new SelectQuery()
+ *     // ... build the query ...
+ *     .setOffset(20).setFetchNext(10);
+ *   String sql = Dialect.MYSQL.toSql(query);
+ *   // " ... LIMIT 20, 10"
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class Dialect
+{
+  /** The syntax used by a database for "insert or update" statements */
+  public enum UpsertSyntax
+  {
+    /** database has no upsert statement */
+    NONE,
+    /** the SQL 2003 {@code "MERGE INTO ... USING ..."} statement */
+    MERGE,
+    /** the {@code "INSERT ... ON CONFLICT ... DO UPDATE"} clause */
+    ON_CONFLICT,
+    /** the {@code "INSERT ... ON DUPLICATE KEY UPDATE"} clause */
+    ON_DUPLICATE_KEY_UPDATE;
+  }
+
+  /** Standard SQL (the default dialect).  Uses the "SQL 2008"
+      {@code "OFFSET <n> ROWS FETCH NEXT <n> ROWS ONLY"} clauses. */
+  public static final Dialect ANSI = new Dialect("ANSI");
+
+  /** PostgreSQL dialect.  Uses the {@code "LIMIT <n> OFFSET <n>"}
+      clauses. */
+  public static final Dialect POSTGRESQL = new Dialect("PostgreSQL") {
+    @Override
+    public int getMaxBindParameters() {
+      return Short.MAX_VALUE;
+    }
+    @Override
+    public UpsertSyntax getUpsertSyntax() {
+      return UpsertSyntax.ON_CONFLICT;
+    }
+    @Override
+    public boolean supportsArrays() {
+      return true;
+    }
+    @Override
+    public void appendLimitSuffix(AppendableExt app, SqlObject offset,
+                                  SqlObject fetchCount, boolean hasOrdering)
+      throws IOException
+    {
+      if(fetchCount != null) {
+        app.append(" LIMIT ").append(fetchCount);
+      }
+      if(offset != null) {
+        app.append(" OFFSET ").append(offset);
+      }
+    }
+  };
+
+  /** MySQL dialect.  Uses the {@code "LIMIT [<offset>,] <n>"} clause. */
+  public static final Dialect MYSQL = new Dialect("MySQL") {
+    @Override
+    public int getMaxBindParameters() {
+      return 65535;
+    }
+    @Override
+    public UpsertSyntax getUpsertSyntax() {
+      return UpsertSyntax.ON_DUPLICATE_KEY_UPDATE;
+    }
+    @Override
+    public String quoteIdentifier(String identifier) {
+      return quote(identifier, '`', '`');
+    }
+    @Override
+    public void appendLimitSuffix(AppendableExt app, SqlObject offset,
+                                  SqlObject fetchCount, boolean hasOrdering)
+      throws IOException
+    {
+      if((offset == null) && (fetchCount == null)) {
+        return;
+      }
+      app.append(" LIMIT ");
+      if(offset != null) {
+        app.append(offset).append(", ");
+      }
+      // mysql has no offset without limit, the documented workaround is to
+      // use the largest possible row count
+      app.append((fetchCount != null) ? fetchCount :
+                 MYSQL_MAX_ROW_COUNT);
+    }
+  };
+
+  /** SQL Server dialect.  Uses the {@code "TOP (<n>)"} clause when there is
+      no offset, otherwise the {@code "OFFSET <n> ROWS FETCH NEXT <n> ROWS
+      ONLY"} clauses (adding a no-op ordering if the query has none, since
+      SQL Server requires an ORDER BY clause for OFFSET). */
+  public static final Dialect SQL_SERVER = new Dialect("SQL Server") {
+    @Override
+    public int getMaxBindParameters() {
+      return 2100;
+    }
+    @Override
+    public boolean supportsRowValueComparison() {
+      return false;
+    }
+    @Override
+    public String quoteIdentifier(String identifier) {
+      return quote(identifier, '[', ']');
+    }
+    @Override
+    public void appendLimitPrefix(AppendableExt app, SqlObject offset,
+                                  SqlObject fetchCount)
+      throws IOException
+    {
+      if((offset == null) && (fetchCount != null)) {
+        app.append("TOP (").append(fetchCount).append(") ");
+      }
+    }
+    @Override
+    public void appendLimitSuffix(AppendableExt app, SqlObject offset,
+                                  SqlObject fetchCount, boolean hasOrdering)
+      throws IOException
+    {
+      if(offset == null) {
+        // handled by TOP
+        return;
+      }
+      if(!hasOrdering) {
+        app.append(" ORDER BY (SELECT NULL)");
+      }
+      super.appendLimitSuffix(app, offset, fetchCount, hasOrdering);
+    }
+  };
+
+  /** Oracle (12c or later) dialect.  Uses the "SQL 2008"
+      {@code "OFFSET <n> ROWS FETCH NEXT <n> ROWS ONLY"} clauses (which
+      Oracle optimizes like the equivalent {@code ROWNUM} queries). */
+  public static final Dialect ORACLE = new Dialect("Oracle") {
+    @Override
+    public int getMaxBindParameters() {
+      return 65535;
+    }
+    @Override
+    public int getMaxInListSize() {
+      return 1000;
+    }
+    @Override
+    public boolean supportsRowValueComparison() {
+      return false;
+    }
+  };
+
+  private static final SqlObject MYSQL_MAX_ROW_COUNT =
+    new CustomSql("18446744073709551615");
+
+  private final String _name;
+
+  protected Dialect(String name) {
+    _name = name;
+  }
+
+  /** @return the name of this dialect */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * @return the maximum number of bind parameters ("?" placeholders) allowed
+   *         in a single statement, {@link Integer#MAX_VALUE} if there is no
+   *         (known) limit
+   */
+  public int getMaxBindParameters() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return the maximum number of values allowed in a single IN list,
+   *         {@link Integer#MAX_VALUE} if there is no (known) limit
+   */
+  public int getMaxInListSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  /** @return the syntax used for "insert or update" statements */
+  public UpsertSyntax getUpsertSyntax() {
+    return UpsertSyntax.MERGE;
+  }
+
+  /** @return {@code true} if array column types and array values are
+              supported, {@code false} otherwise */
+  public boolean supportsArrays() {
+    return false;
+  }
+
+  /** @return {@code true} if row value comparisons like
+              {@code "(a,b) > (1,2)"} are supported, {@code false}
+              otherwise (see {@link KeysetPager#setUseRowValues}) */
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
+  /**
+   * @return the given identifier as a quoted (delimited) identifier, e.g.
+   *         {@code "\"order\""} for ANSI SQL
+   */
+  public String quoteIdentifier(String identifier) {
+    return quote(identifier, '"', '"');
+  }
+
+  /**
+   * Appends any clause which limits the rows returned by a SelectQuery and
+   * goes before the select list (following the DISTINCT keyword, if any).
+   * Either of the given values may be {@code null}.
+   */
+  public void appendLimitPrefix(AppendableExt app, SqlObject offset,
+                                SqlObject fetchCount)
+    throws IOException
+  {
+    // none for ANSI
+  }
+
+  /**
+   * Appends any clauses which limit the rows returned by a SelectQuery and
+   * go after the ORDER BY clause (and before the FOR UPDATE clause).  Either
+   * of the given values may be {@code null}.
+   */
+  public void appendLimitSuffix(AppendableExt app, SqlObject offset,
+                                SqlObject fetchCount, boolean hasOrdering)
+    throws IOException
+  {
+    if(offset != null) {
+      app.append(" OFFSET ").append(offset).append(" ROWS");
+    }
+    if(fetchCount != null) {
+      app.append(" FETCH NEXT ").append(fetchCount).append(" ROWS ONLY");
+    }
+  }
+
+  /**
+   * @return a new SqlContext which uses this dialect
+   */
+  public SqlContext newContext() {
+    SqlContext context = new SqlContext();
+    context.setDialect(this);
+    return context;
+  }
+
+  /**
+   * @return the SQL for the given object generated using this dialect
+   */
+  public String toSql(SqlObject obj) {
+    return obj.toString(128, newContext());
+  }
+
+  /**
+   * @return the canonical SQL for the given object generated using this
+   *         dialect (see {@link SqlContext#setCanonicalize})
+   */
+  public String toCanonicalSql(SqlObject obj) {
+    SqlContext context = newContext();
+    context.setCanonicalize(true);
+    return obj.toString(128, context);
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+
+  /**
+   * @return the given identifier wrapped in the given quote chars, with any
+   *         embedded end quote chars doubled
+   */
+  protected static String quote(String identifier, char startQuote,
+                                char endQuote)
+  {
+    StringBuilder sb = new StringBuilder(identifier.length() + 2);
+    sb.append(startQuote);
+    for(int i = 0; i < identifier.length(); ++i) {
+      char c = identifier.charAt(i);
+      if(c == endQuote) {
+        sb.append(c);
+      }
+      sb.append(c);
+    }
+    return sb.append(endQuote).toString();
+  }
+
+}
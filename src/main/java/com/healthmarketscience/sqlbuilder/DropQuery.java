@@ -92,6 +92,18 @@ public class DropQuery extends Query<DropQuery>
     _obj.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject obj = transformer.transform(_obj);
+    if(obj == _obj) {
+      return result;
+    }
+    DropQuery copy = (DropQuery)((result == this) ? copy() : result);
+    copy._obj = obj;
+    return copy;
+  }
+
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
     throws IOException
@@ -0,0 +1,176 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
+
+
+/**
+ * Execution settings for a single query: a query timeout, session settings
+ * which are executed on the connection before the query (e.g. the
+ * PostgreSQL {@link com.healthmarketscience.sqlbuilder.custom.postgresql.PgSetLocal}
+ * statements), and query hints which are added to the query itself (e.g. the
+ * MySQL {@link com.healthmarketscience.sqlbuilder.custom.mysql.MysMaxExecutionTimeHint}
+ * or the SQL Server {@link com.healthmarketscience.sqlbuilder.custom.sqlserver.MssOptionClause}).
+ * <p>
+ * An envelope is attached to a query via
+ * {@link Query#setExecutionEnvelope}, after which any hints are added to the
+ * sql generated for the query.  The query is then executed using a statement created by
+ * {@link #createStatement} or {@link #prepareStatement}, which run the
+ * session settings and apply the query timeout.
+ * <p>
+ * Example:
+ * <pre>
+ *   ExecutionEnvelope env = new ExecutionEnvelope()
+ *     .setQueryTimeout(30, TimeUnit.SECONDS)
+ *     .addSessionSettings(PgSetLocal.statementTimeout(30000),
+ *                         PgSetLocal.workMem("64MB"));
+ *   SelectQuery query = new SelectQuery()
+ *     // ... build the query ...
+ *     .setExecutionEnvelope(env);
+ *   PreparedStatement ps = env.prepareStatement(conn, query.toString());
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class ExecutionEnvelope
+{
+  private int _queryTimeout;
+  private final List<SqlObject> _sessionSettings = new ArrayList<SqlObject>();
+  private final List<CustomSyntax> _hints = new ArrayList<CustomSyntax>();
+
+  public ExecutionEnvelope() {}
+
+  /** @return the query timeout in seconds ({@code 0} indicates no
+              timeout) */
+  public int getQueryTimeout() {
+    return _queryTimeout;
+  }
+
+  /**
+   * Sets the query timeout which will be applied using
+   * {@link Statement#setQueryTimeout}.  Timeouts which are not a whole
+   * number of seconds are rounded up to the next second.
+   */
+  public ExecutionEnvelope setQueryTimeout(long timeout, TimeUnit unit) {
+    if(timeout < 0) {
+      throw new IllegalArgumentException("timeout may not be negative");
+    }
+    long secs = unit.toSeconds(timeout);
+    if(TimeUnit.SECONDS.toNanos(secs) < unit.toNanos(timeout)) {
+      ++secs;
+    }
+    _queryTimeout = (int)Math.min(secs, Integer.MAX_VALUE);
+    return this;
+  }
+
+  /** @return the session setting statements */
+  public List<SqlObject> getSessionSettings() {
+    return Collections.unmodifiableList(_sessionSettings);
+  }
+
+  /**
+   * Adds statements which will be executed on the connection before the
+   * query.
+   * <p>
+   * {@code Object} -&gt; {@code SqlObject} conversions handled by
+   * {@link Converter#toCustomSqlObject}.
+   */
+  public ExecutionEnvelope addSessionSettings(Object... settings) {
+    for(Object setting : settings) {
+      _sessionSettings.add(Converter.toCustomSqlObject(setting));
+    }
+    return this;
+  }
+
+  /** @return the query hints */
+  public List<CustomSyntax> getHints() {
+    return Collections.unmodifiableList(_hints);
+  }
+
+  /**
+   * Adds hints which will be added to the sql generated for any query to
+   * which this envelope is attached.
+   */
+  public ExecutionEnvelope addHints(CustomSyntax... hints) {
+    Collections.addAll(_hints, hints);
+    return this;
+  }
+
+  /**
+   * Runs the session settings on the connection of the given statement and
+   * sets the query timeout on the statement.
+   */
+  public void applyTo(Statement stmt) throws SQLException {
+    if(!_sessionSettings.isEmpty()) {
+      Statement settingStmt = stmt.getConnection().createStatement();
+      try {
+        for(SqlObject setting : _sessionSettings) {
+          settingStmt.execute(setting.toString());
+        }
+      } finally {
+        settingStmt.close();
+      }
+    }
+    if(_queryTimeout > 0) {
+      stmt.setQueryTimeout(_queryTimeout);
+    }
+  }
+
+  /**
+   * @return a new Statement from the given connection to which this envelope
+   *         has been applied
+   */
+  public Statement createStatement(Connection conn) throws SQLException {
+    Statement stmt = conn.createStatement();
+    return initStatement(stmt);
+  }
+
+  /**
+   * @return a new PreparedStatement for the given sql from the given
+   *         connection to which this envelope has been applied
+   */
+  public PreparedStatement prepareStatement(Connection conn, String sql)
+    throws SQLException
+  {
+    PreparedStatement stmt = conn.prepareStatement(sql);
+    return initStatement(stmt);
+  }
+
+  private <T extends Statement> T initStatement(T stmt) throws SQLException {
+    boolean success = false;
+    try {
+      applyTo(stmt);
+      success = true;
+      return stmt;
+    } finally {
+      if(!success) {
+        stmt.close();
+      }
+    }
+  }
+
+}
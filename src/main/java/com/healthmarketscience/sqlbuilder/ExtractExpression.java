@@ -51,7 +51,7 @@ public class ExtractExpression extends Expression
   }
 
   private final Object _datePart;
-  private final SqlObject _dateExpression;
+  private SqlObject _dateExpression;
 
   public ExtractExpression(DatePart datePart, Object dateExpression) {
     this((Object)datePart, dateExpression);
@@ -62,6 +62,16 @@ public class ExtractExpression extends Expression
     _dateExpression = Converter.toColumnSqlObject(dateExpression);
   }
 
+  /** @return the date part extracted by this expression */
+  Object getDatePart() {
+    return _datePart;
+  }
+
+  /** @return the date expression from which the date part is extracted */
+  SqlObject getDateExpression() {
+    return _dateExpression;
+  }
+
   @Override
   public boolean hasParens() { return false; }
 
@@ -70,6 +80,17 @@ public class ExtractExpression extends Expression
     _dateExpression.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject dateExpression = transformer.transform(_dateExpression);
+    if(dateExpression == _dateExpression) {
+      return this;
+    }
+    ExtractExpression copy = (ExtractExpression)copy();
+    copy._dateExpression = dateExpression;
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     app.append("EXTRACT(")
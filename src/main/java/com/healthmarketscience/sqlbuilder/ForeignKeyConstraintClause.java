@@ -95,6 +95,31 @@ public class ForeignKeyConstraintClause extends ConstraintClause
     }
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject refTable = transformer.transform(_refTable);
+    SqlObjectList<SqlObject> refColumns = _refColumns.transformObjects(
+        transformer, SqlObject.class);
+    if((refTable == _refTable) && (refColumns == _refColumns)) {
+      return result;
+    }
+    ForeignKeyConstraintClause copy = (ForeignKeyConstraintClause)(
+        (result == this) ? copy() : result);
+    copy._refTable = refTable;
+    if(refColumns != _refColumns) {
+      copy._refColumns = refColumns;
+    }
+    return copy;
+  }
+
+  @Override
+  protected ForeignKeyConstraintClause copy() {
+    ForeignKeyConstraintClause copy = (ForeignKeyConstraintClause)super.copy();
+    copy._refColumns = _refColumns.copy();
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     super.appendTo(app);
@@ -103,6 +103,26 @@ public class FunctionCall extends Expression
     return this;
   }
 
+  /** @return {@code true} if the DISTINCT keyword is used */
+  boolean isDistinct() {
+    return _isDistinct;
+  }
+
+  /** @return the name of the function */
+  SqlObject getFunctionName() {
+    return _functionName;
+  }
+
+  /** @return the parameters of the function */
+  SqlObjectList<SqlObject> getParams() {
+    return _params;
+  }
+
+  /** @return the window clause of the function, if any */
+  SqlObject getWindow() {
+    return _window;
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _functionName.collectSchemaObjects(vContext);
@@ -110,6 +130,29 @@ public class FunctionCall extends Expression
     collectSchemaObjects(_window, vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<SqlObject> params = _params.transformObjects(
+        transformer, SqlObject.class);
+    SqlObject window = transformer.transform(_window);
+    if((params == _params) && (window == _window)) {
+      return this;
+    }
+    FunctionCall copy = copy();
+    if(params != _params) {
+      copy._params = params;
+    }
+    copy._window = window;
+    return copy;
+  }
+
+  @Override
+  protected FunctionCall copy() {
+    FunctionCall copy = (FunctionCall)super.copy();
+    copy._params = _params.copy();
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     app.append(_functionName).append("(");
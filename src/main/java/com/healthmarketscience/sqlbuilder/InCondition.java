@@ -87,6 +87,21 @@ public class InCondition extends Condition {
     return this;
   }
 
+  /** @return {@code true} if this is a NOT IN condition */
+  boolean isNegate() {
+    return _negate;
+  }
+
+  /** @return the left value of this condition */
+  SqlObject getLeftValue() {
+    return _leftValue;
+  }
+
+  /** @return the right values of this condition */
+  SqlObjectList<SqlObject> getRightValues() {
+    return _rightValues;
+  }
+
   @Override
   public boolean isEmpty() {
     // if the condition is negated and the list is empty, this is essentially
@@ -100,6 +115,44 @@ public class InCondition extends Condition {
     _rightValues.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject leftValue = transformer.transform(_leftValue);
+    SqlObjectList<SqlObject> rightValues = _rightValues.transformObjects(
+        transformer, SqlObject.class);
+    if((leftValue == _leftValue) && (rightValues == _rightValues)) {
+      return this;
+    }
+    InCondition copy = copy();
+    copy._leftValue = leftValue;
+    if(rightValues != _rightValues) {
+      copy._rightValues = rightValues;
+    }
+    return copy;
+  }
+
+  @Override
+  protected InCondition copy() {
+    InCondition copy = (InCondition)super.copy();
+    copy._rightValues = _rightValues.copy();
+    return copy;
+  }
+
+  /**
+   * @return {@code true} if all the right values are literal values,
+   *         {@code false} otherwise
+   */
+  private boolean areLiteralValues()
+  {
+    for(SqlObject value : _rightValues) {
+      if(!ConditionNormalizer.isLiteral(value) ||
+         (value instanceof QueryPreparer.PlaceHolder)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Returns {@code true} if the entire contents of the tested values is a single
    * Expression with parens.
@@ -129,6 +182,12 @@ public class InCondition extends Condition {
       // expressions will have their own "()"
       if(isSingleExpression()) {
         app.append(_rightValues);
+      } else if(SqlContext.getContext(app).getCanonicalize()) {
+        app.append("(");
+        CanonicalSql.appendSorted(app, _rightValues,
+                                  _rightValues.getDelimiter(),
+                                  areLiteralValues());
+        app.append(")");
       } else {
         app.append("(").append(_rightValues).append(")");
       }
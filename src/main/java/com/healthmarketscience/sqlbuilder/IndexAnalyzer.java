@@ -0,0 +1,523 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Index;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Analyzes queries for likely index problems using the {@link Index}es and
+ * primary key/unique constraints of the dbspec model.  A query (and any
+ * queries nested within it) is checked for:
+ * <ul>
+ * <li>{@link IssueType#UNINDEXED_PREDICATE}: a table with WHERE predicates
+ *     for which none of the compared (or joined) columns is the leading
+ *     column of an index</li>
+ * <li>{@link IssueType#UNINDEXED_JOIN}: a join between two tables where
+ *     neither side's join columns include the leading column of an
+ *     index</li>
+ * <li>{@link IssueType#FUNCTION_ON_INDEXED_COLUMN}: a comparison of an
+ *     expression wrapping an indexed column (e.g. {@code lower(col) = ?}),
+ *     which prevents the index from being used</li>
+ * <li>{@link IssueType#LEADING_WILDCARD_LIKE}: a {@code LIKE} pattern which
+ *     starts with a wildcard</li>
+ * <li>{@link IssueType#UNINDEXED_ORDER_BY}: an ORDER BY clause (of plain
+ *     columns) which is not covered by an index (taking into account leading
+ *     index columns which are fixed by equality predicates)</li>
+ * <li>{@link IssueType#UNINDEXED_WRITE}: an UPDATE or DELETE query without an
+ *     indexed predicate on the target table</li>
+ * </ul>
+ * <p>
+ * Only predicates which are AND'ed together at the top level of a WHERE or
+ * ON clause are considered usable for an index.  The analysis is
+ * necessarily approximate (it knows nothing about table sizes or the
+ * database's planner), but is useful for catching regressions in tests via
+ * {@link #check}.
+ * <p>
+ * Example:
+ * <pre>
+ *   IndexAnalyzer analyzer = new IndexAnalyzer(schema.getIndexs());
+ *   analyzer.check(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class IndexAnalyzer
+{
+  /** The types of issues found by the analyzer */
+  public enum IssueType
+  {
+    UNINDEXED_PREDICATE,
+    UNINDEXED_JOIN,
+    FUNCTION_ON_INDEXED_COLUMN,
+    LEADING_WILDCARD_LIKE,
+    UNINDEXED_ORDER_BY,
+    UNINDEXED_WRITE;
+  }
+
+  /**
+   * A single issue found by the analyzer.
+   */
+  public static final class Issue
+  {
+    private final IssueType _type;
+    private final Table _table;
+    private final List<Column> _columns;
+
+    private Issue(IssueType type, Table table,
+                  Collection<? extends Column> columns) {
+      _type = type;
+      _table = table;
+      _columns = Collections.unmodifiableList(new ArrayList<Column>(columns));
+    }
+
+    public IssueType getType() {
+      return _type;
+    }
+
+    /** @return the relevant table, if any */
+    public Table getTable() {
+      return _table;
+    }
+
+    /** @return the relevant columns */
+    public List<Column> getColumns() {
+      return _columns;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder().append(_type);
+      if(_table != null) {
+        sb.append(" ").append(_table.getTableNameSQL());
+      }
+      if(!_columns.isEmpty()) {
+        sb.append(" (");
+        for(int i = 0; i < _columns.size(); ++i) {
+          if(i > 0) {
+            sb.append(",");
+          }
+          sb.append(_columns.get(i).getColumnNameSQL());
+        }
+        sb.append(")");
+      }
+      return sb.toString();
+    }
+  }
+
+  private final Map<Table,List<List<? extends Column>>> _indexes =
+    new HashMap<Table,List<List<? extends Column>>>();
+
+  public IndexAnalyzer() {}
+
+  public IndexAnalyzer(Collection<? extends Index> indexes) {
+    addIndexes(indexes);
+  }
+
+  /**
+   * Adds the given indexes to the indexes known by this analyzer.  Primary
+   * key and unique constraints are always considered to be indexed.
+   */
+  public IndexAnalyzer addIndexes(Collection<? extends Index> indexes) {
+    for(Index index : indexes) {
+      addIndex(index);
+    }
+    return this;
+  }
+
+  /**
+   * Adds the given index to the indexes known by this analyzer.
+   */
+  public IndexAnalyzer addIndex(Index index) {
+    if(!index.getColumns().isEmpty()) {
+      getIndexes(index.getTable()).add(index.getColumns());
+    }
+    return this;
+  }
+
+  /**
+   * Analyzes the given query and any queries nested within it.
+   *
+   * @return the issues found, empty if none
+   */
+  public List<Issue> analyze(SqlObject query) {
+    final List<Issue> issues = new ArrayList<Issue>();
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if(obj instanceof SelectQuery) {
+          analyzeSelect((SelectQuery)obj, issues);
+        } else if(obj instanceof UpdateQuery) {
+          analyzeWrite(((UpdateQuery)obj).getTable(),
+                       ((UpdateQuery)obj).getWhereClause(), issues);
+        } else if(obj instanceof DeleteQuery) {
+          analyzeWrite(((DeleteQuery)obj).getTable(),
+                       ((DeleteQuery)obj).getWhereClause(), issues);
+        } else if(obj instanceof Condition) {
+          analyzeCondition((Condition)obj, issues);
+        }
+        return true;
+      }
+    }.walk(query);
+    return issues;
+  }
+
+  /**
+   * Analyzes the given query (see {@link #analyze}), throwing a
+   * ValidationException describing the issues if any are found.
+   */
+  public void check(SqlObject query) throws ValidationException {
+    List<Issue> issues = analyze(query);
+    if(!issues.isEmpty()) {
+      throw new ValidationException("Query has index issues " + issues +
+                                    ": " + query);
+    }
+  }
+
+  private void analyzeSelect(SelectQuery query, List<Issue> issues) {
+    Predicates preds = new Predicates();
+    preds.collect(query.getWhereClause());
+    for(Condition joinCond : query.getJoinConditions()) {
+      preds.collect(joinCond);
+    }
+
+    for(Map.Entry<Table,Set<Column>> e : preds._filters.entrySet()) {
+      Table table = e.getKey();
+      Set<Column> usableCols = new LinkedHashSet<Column>(e.getValue());
+      Set<Column> joinCols = preds._joins.get(table);
+      if(joinCols != null) {
+        usableCols.addAll(joinCols);
+      }
+      if(!hasUsableIndex(table, usableCols)) {
+        issues.add(new Issue(IssueType.UNINDEXED_PREDICATE, table,
+                             e.getValue()));
+      }
+    }
+
+    for(Column[] joinPair : preds._joinPairs) {
+      Table table1 = joinPair[0].getTable();
+      Table table2 = joinPair[1].getTable();
+      if(!hasUsableIndex(table1, preds._joins.get(table1)) &&
+         !hasUsableIndex(table2, preds._joins.get(table2))) {
+        issues.add(new Issue(IssueType.UNINDEXED_JOIN, null,
+                             Arrays.asList(joinPair)));
+      }
+    }
+
+    analyzeOrdering(query, preds, issues);
+  }
+
+  private void analyzeOrdering(SelectQuery query, Predicates preds,
+                               List<Issue> issues) {
+    List<Column> orderCols = new ArrayList<Column>();
+    Set<OrderObject.Dir> dirs = new LinkedHashSet<OrderObject.Dir>();
+    for(SqlObject obj : query.getOrdering()) {
+      OrderObject.Dir dir = null;
+      if(obj instanceof OrderObject) {
+        dir = ((OrderObject)obj).getDir();
+        obj = ((OrderObject)obj).getObject();
+      }
+      if(!(obj instanceof ColumnObject)) {
+        // ordering by expression/index/alias, can't tell
+        return;
+      }
+      dirs.add((dir != null) ? dir : OrderObject.Dir.ASCENDING);
+      orderCols.add(((ColumnObject)obj).getColumn());
+    }
+    if(orderCols.isEmpty()) {
+      return;
+    }
+
+    Table table = orderCols.get(0).getTable();
+    boolean covered = (dirs.size() == 1);
+    for(Column orderCol : orderCols) {
+      covered &= (orderCol.getTable() == table);
+    }
+    if(covered) {
+      covered = false;
+      for(List<? extends Column> indexCols : getIndexes(table)) {
+        if(coversOrdering(indexCols, orderCols, preds._equalities)) {
+          covered = true;
+          break;
+        }
+      }
+    }
+    if(!covered) {
+      issues.add(new Issue(IssueType.UNINDEXED_ORDER_BY, table, orderCols));
+    }
+  }
+
+  private void analyzeWrite(SqlObject tableObj, Condition cond,
+                            List<Issue> issues) {
+    if(!(tableObj instanceof TableObject)) {
+      return;
+    }
+    Table table = ((TableObject)tableObj)._table;
+    Predicates preds = new Predicates();
+    preds.collect(cond);
+    Set<Column> usableCols = new LinkedHashSet<Column>();
+    Set<Column> filterCols = preds._filters.get(table);
+    if(filterCols != null) {
+      usableCols.addAll(filterCols);
+    }
+    Set<Column> joinCols = preds._joins.get(table);
+    if(joinCols != null) {
+      usableCols.addAll(joinCols);
+    }
+    if(!hasUsableIndex(table, usableCols)) {
+      issues.add(new Issue(IssueType.UNINDEXED_WRITE, table, usableCols));
+    }
+  }
+
+  /**
+   * Checks the given (single) condition for expressions which prevent index
+   * usage.
+   */
+  private void analyzeCondition(Condition cond, List<Issue> issues) {
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition bc = (BinaryCondition)cond;
+      checkWrapped(bc.getLeftValue(), issues);
+      checkWrapped(bc.getRightValue(), issues);
+      if((bc.getBinaryOp() == BinaryCondition.Op.LIKE) &&
+         (bc.getLeftValue() instanceof ColumnObject) &&
+         isLeadingWildcard(bc.getRightValue())) {
+        Column column = ((ColumnObject)bc.getLeftValue()).getColumn();
+        issues.add(new Issue(IssueType.LEADING_WILDCARD_LIKE,
+                             column.getTable(),
+                             Collections.singletonList(column)));
+      }
+    } else if(cond instanceof InCondition) {
+      checkWrapped(((InCondition)cond).getLeftValue(), issues);
+    } else if(cond instanceof BetweenCondition) {
+      checkWrapped(((BetweenCondition)cond).getValue(), issues);
+    }
+  }
+
+  /**
+   * Adds an issue if the given compared value is an expression directly
+   * wrapping the leading column of an index.
+   */
+  private void checkWrapped(SqlObject value, List<Issue> issues) {
+    Iterable<? extends SqlObject> wrapped = null;
+    if(value instanceof FunctionCall) {
+      wrapped = ((FunctionCall)value).getParams();
+    } else if(value instanceof ExtractExpression) {
+      wrapped = Collections.singletonList(
+          ((ExtractExpression)value).getDateExpression());
+    } else if(value instanceof ComboExpression) {
+      wrapped = ((ComboExpression)value).getExpressions();
+    }
+    if(wrapped == null) {
+      return;
+    }
+    for(SqlObject obj : wrapped) {
+      if(obj instanceof ColumnObject) {
+        Column column = ((ColumnObject)obj).getColumn();
+        if(hasUsableIndex(column.getTable(),
+                          Collections.singleton(column))) {
+          issues.add(new Issue(IssueType.FUNCTION_ON_INDEXED_COLUMN,
+                               column.getTable(),
+                               Collections.singletonList(column)));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if any index of the given table has a leading
+   *         column in the given columns, {@code false} otherwise
+   */
+  private boolean hasUsableIndex(Table table, Collection<Column> columns) {
+    if((columns == null) || columns.isEmpty()) {
+      return false;
+    }
+    for(List<? extends Column> indexCols : getIndexes(table)) {
+      if(columns.contains(indexCols.get(0))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the column lists of all the indexes (explicit and from
+   *         constraints) for the given table
+   */
+  private List<List<? extends Column>> getIndexes(Table table) {
+    List<List<? extends Column>> indexes = _indexes.get(table);
+    if(indexes == null) {
+      indexes = new ArrayList<List<? extends Column>>(
+          Constraints.getUniqueKeys(table));
+      _indexes.put(table, indexes);
+    }
+    return indexes;
+  }
+
+  /**
+   * @return {@code true} if the given index columns can provide rows in the
+   *         order of the given columns, given the columns which are fixed by
+   *         equality predicates, {@code false} otherwise
+   */
+  private static boolean coversOrdering(List<? extends Column> indexCols,
+                                        List<Column> orderCols,
+                                        Set<Column> fixedCols) {
+    int idxPos = 0;
+    int orderPos = 0;
+    while(orderPos < orderCols.size()) {
+      Column orderCol = orderCols.get(orderPos);
+      if((idxPos < indexCols.size()) && (indexCols.get(idxPos) == orderCol)) {
+        ++idxPos;
+        ++orderPos;
+      } else if(fixedCols.contains(orderCol)) {
+        // a constant column has no effect on the ordering
+        ++orderPos;
+      } else if((idxPos < indexCols.size()) &&
+                fixedCols.contains(indexCols.get(idxPos))) {
+        ++idxPos;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLeadingWildcard(SqlObject pattern) {
+    if(!(pattern instanceof ValueObject)) {
+      return false;
+    }
+    Object value = ((ValueObject)pattern).getValue();
+    return ((value instanceof String) &&
+            (((String)value).startsWith("%") ||
+             ((String)value).startsWith("_")));
+  }
+
+  /**
+   * The index-usable predicates of a query, i.e. the simple column
+   * comparisons AND'ed together at the top level of a condition.
+   */
+  private static final class Predicates
+  {
+    /** the columns compared to values, by table */
+    private final Map<Table,Set<Column>> _filters =
+      new LinkedHashMap<Table,Set<Column>>();
+    /** the columns compared to columns of other tables, by table */
+    private final Map<Table,Set<Column>> _joins =
+      new LinkedHashMap<Table,Set<Column>>();
+    /** the first column comparison found between each pair of tables */
+    private final List<Column[]> _joinPairs = new ArrayList<Column[]>();
+    /** the columns fixed by equality predicates */
+    private final Set<Column> _equalities = new LinkedHashSet<Column>();
+
+    private void collect(Condition cond) {
+      if((cond instanceof ComboCondition) &&
+         (((ComboCondition)cond).getComboOp() == ComboCondition.Op.AND)) {
+        for(Condition nestedCond : ((ComboCondition)cond).getConditions()) {
+          collect(nestedCond);
+        }
+      } else if(cond instanceof BinaryCondition) {
+        collectBinary((BinaryCondition)cond);
+      } else if(cond instanceof InCondition) {
+        InCondition ic = (InCondition)cond;
+        if(!ic.isNegate() && (ic.getLeftValue() instanceof ColumnObject)) {
+          addFilter(((ColumnObject)ic.getLeftValue()).getColumn());
+        }
+      } else if(cond instanceof BetweenCondition) {
+        BetweenCondition bc = (BetweenCondition)cond;
+        if(!bc.isNegate() && (bc.getValue() instanceof ColumnObject)) {
+          addFilter(((ColumnObject)bc.getValue()).getColumn());
+        }
+      }
+    }
+
+    private void collectBinary(BinaryCondition bc) {
+      Object op = bc.getBinaryOp();
+      if(op == BinaryCondition.Op.LIKE) {
+        if((bc.getLeftValue() instanceof ColumnObject) &&
+           !isLeadingWildcard(bc.getRightValue())) {
+          addFilter(((ColumnObject)bc.getLeftValue()).getColumn());
+        }
+        return;
+      }
+      if((op == BinaryCondition.Op.NOT_EQUAL_TO) ||
+         (op == BinaryCondition.Op.NOT_LIKE) ||
+         !(op instanceof BinaryCondition.Op)) {
+        return;
+      }
+      Column leftCol = getColumn(bc.getLeftValue());
+      Column rightCol = getColumn(bc.getRightValue());
+      if((leftCol != null) && (rightCol != null)) {
+        if(leftCol.getTable() != rightCol.getTable()) {
+          addJoin(leftCol, rightCol);
+        }
+      } else if((leftCol != null) || (rightCol != null)) {
+        Column column = ((leftCol != null) ? leftCol : rightCol);
+        addFilter(column);
+        if(op == BinaryCondition.Op.EQUAL_TO) {
+          _equalities.add(column);
+        }
+      }
+    }
+
+    private void addFilter(Column column) {
+      getColumns(_filters, column.getTable()).add(column);
+    }
+
+    private void addJoin(Column column1, Column column2) {
+      getColumns(_joins, column1.getTable()).add(column1);
+      getColumns(_joins, column2.getTable()).add(column2);
+      for(Column[] joinPair : _joinPairs) {
+        Table table1 = joinPair[0].getTable();
+        Table table2 = joinPair[1].getTable();
+        if(((table1 == column1.getTable()) &&
+            (table2 == column2.getTable())) ||
+           ((table1 == column2.getTable()) &&
+            (table2 == column1.getTable()))) {
+          return;
+        }
+      }
+      _joinPairs.add(new Column[]{column1, column2});
+    }
+
+    private static Column getColumn(SqlObject obj) {
+      return ((obj instanceof ColumnObject) ?
+              ((ColumnObject)obj).getColumn() : null);
+    }
+
+    private static Set<Column> getColumns(Map<Table,Set<Column>> colMap,
+                                          Table table) {
+      Set<Column> cols = colMap.get(table);
+      if(cols == null) {
+        cols = new LinkedHashSet<Column>();
+        colMap.put(table, cols);
+      }
+      return cols;
+    }
+  }
+}
@@ -143,6 +143,26 @@ public class InsertQuery extends BaseInsertQuery<InsertQuery>
     super.collectSchemaObjects(vContext);
     _values.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<SqlObject> values = _values.transformObjects(
+        transformer, SqlObject.class);
+    if(values == _values) {
+      return result;
+    }
+    InsertQuery copy = (InsertQuery)((result == this) ? copy() : result);
+    copy._values = values;
+    return copy;
+  }
+
+  @Override
+  protected InsertQuery copy() {
+    InsertQuery copy = (InsertQuery)super.copy();
+    copy._values = _values.copy();
+    return copy;
+  }
   
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
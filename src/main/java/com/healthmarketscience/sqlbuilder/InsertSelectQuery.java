@@ -79,6 +79,20 @@ public class InsertSelectQuery extends BaseInsertQuery<InsertSelectQuery>
     // treat select query as a separate subquery
     vContext.collectNestedQuerySchemaObjects(_selectQuery);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SelectQuery selectQuery = transformer.transform(
+        _selectQuery, SelectQuery.class);
+    if(selectQuery == _selectQuery) {
+      return result;
+    }
+    InsertSelectQuery copy = (InsertSelectQuery)((result == this) ? copy() :
+                                                 result);
+    copy._selectQuery = selectQuery;
+    return copy;
+  }
     
   @Override
   public void validate(ValidationContext vContext)
@@ -74,6 +74,17 @@ public class JdbcEscape extends Expression
     _val.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject val = transformer.transform(_val);
+    if(val == _val) {
+      return this;
+    }
+    JdbcEscape copy = (JdbcEscape)copy();
+    copy._val = val;
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
     app.append("{").append(_type).append(_val).append("}");
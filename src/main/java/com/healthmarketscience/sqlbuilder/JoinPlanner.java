@@ -0,0 +1,280 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Join;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Plans the joins needed to connect a set of tables using a collection of
+ * predefined {@link Join}s (e.g. the joins of a
+ * {@link com.healthmarketscience.sqlbuilder.dbspec.basic.DbSpec}, see
+ * {@link com.healthmarketscience.sqlbuilder.dbspec.basic.DbSpec#getJoinPlanner}).
+ * <p>
+ * The joins are indexed into an (undirected) graph of tables when the
+ * planner is created.  Given the tables referenced by a query, the planner
+ * finds a small tree of joins which connects all the tables (the "Steiner
+ * tree" problem) using the shortest path heuristic: starting from the first
+ * table, the nearest unconnected table (by number of joins) is repeatedly
+ * connected to the current tree until all tables are connected.  Any
+ * intermediate tables on the chosen paths are included in the result.  When
+ * multiple paths are equally short, the joins given first are preferred.
+ * <p>
+ * This class is immutable and thread-safe (assuming the given joins are not
+ * modified).
+ * <p>
+ * Example:
+ * <pre>
+ *   SelectQuery query = new SelectQuery()
+ *     .addColumns(customerNameCol, productNameCol);
+ *   // adds joins customer -&gt; order -&gt; orderItem -&gt; product
+ *   spec.getJoinPlanner().addJoins(query, SelectQuery.JoinType.INNER);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class JoinPlanner
+{
+  /** the joins from which this planner was built */
+  private final List<Join> _joins;
+  /** the edges adjacent to each table */
+  private final Map<Table,List<Edge>> _edges =
+    new IdentityHashMap<Table,List<Edge>>();
+
+  public JoinPlanner(Collection<? extends Join> joins) {
+    _joins = Collections.unmodifiableList(new ArrayList<Join>(joins));
+    for(Join join : _joins) {
+      Table fromTable = join.getFromTable();
+      Table toTable = join.getToTable();
+      if(fromTable == toTable) {
+        // self joins never connect anything
+        continue;
+      }
+      addEdge(fromTable, new Edge(toTable, join, false));
+      addEdge(toTable, new Edge(fromTable, join, true));
+    }
+  }
+
+  /** @return the joins from which this planner was built */
+  public List<Join> getJoins() {
+    return _joins;
+  }
+
+  private void addEdge(Table table, Edge edge) {
+    List<Edge> edges = _edges.get(table);
+    if(edges == null) {
+      edges = new ArrayList<Edge>(2);
+      _edges.put(table, edges);
+    }
+    edges.add(edge);
+  }
+
+  /**
+   * Returns the joins needed to connect all of the given tables.  The
+   * returned joins are ordered (and oriented) such that the "from" table of
+   * each join is either the "from" table of the first join or the "to" table
+   * of a previous join, as required by
+   * {@link SelectQuery#addJoins(SelectQuery.JoinType,Join...)}.  Joins which
+   * are used in the reverse direction of their definition are returned as
+   * reversed views of the original joins.
+   *
+   * @param tables the tables which need to be joined
+   * @return the joins connecting the tables, empty if less than two tables
+   *         were given
+   * @throws IllegalArgumentException if the tables cannot all be connected
+   *         by the joins of this planner
+   */
+  public List<Join> planJoins(Collection<? extends Table> tables) {
+    Set<Table> remaining = new LinkedHashSet<Table>(tables);
+    List<Join> joins = new ArrayList<Join>();
+    if(remaining.size() < 2) {
+      return joins;
+    }
+
+    // start the tree with the first table
+    Map<Table,Edge> tree = new IdentityHashMap<Table,Edge>();
+    Table firstTable = remaining.iterator().next();
+    remaining.remove(firstTable);
+    tree.put(firstTable, null);
+    List<Table> treeTables = new ArrayList<Table>();
+    treeTables.add(firstTable);
+
+    while(!remaining.isEmpty()) {
+
+      // breadth first search from all the tables currently in the tree until
+      // we find the nearest table which still needs to be connected
+      Map<Table,Edge> visited = new IdentityHashMap<Table,Edge>(tree);
+      Deque<Table> queue = new ArrayDeque<Table>(treeTables);
+      Table found = null;
+      while((found == null) && !queue.isEmpty()) {
+        Table table = queue.poll();
+        List<Edge> edges = _edges.get(table);
+        if(edges == null) {
+          continue;
+        }
+        for(Edge edge : edges) {
+          if(visited.containsKey(edge._toTable)) {
+            continue;
+          }
+          visited.put(edge._toTable, edge);
+          if(remaining.contains(edge._toTable)) {
+            found = edge._toTable;
+            break;
+          }
+          queue.add(edge._toTable);
+        }
+      }
+
+      if(found == null) {
+        throw new IllegalArgumentException(
+            "No joins connect tables " + remaining + " to tables " +
+            treeTables);
+      }
+
+      // add the path to the found table to the tree (the path is found
+      // backwards, so the joins need to be reversed)
+      List<Table> pathTables = new ArrayList<Table>();
+      for(Table table = found; !tree.containsKey(table); ) {
+        pathTables.add(table);
+        table = visited.get(table).getFromTable();
+      }
+      Collections.reverse(pathTables);
+      for(Table table : pathTables) {
+        Edge edge = visited.get(table);
+        tree.put(table, edge);
+        treeTables.add(table);
+        remaining.remove(table);
+        joins.add(edge.toJoin());
+      }
+    }
+
+    return joins;
+  }
+
+  /**
+   * Adds the joins needed to connect all of the tables referenced by the
+   * columns of the given query (see {@link #planJoins}) to the query.  For
+   * inner joins, if the tables have statistics, the joins start from the
+   * table with the fewest estimated rows (see {@link
+   * CardinalityEstimator#orderTables}), otherwise (and for outer joins,
+   * where the order affects the results) from the first referenced table.
+   * The
+   * given query should not have any FROM tables or joins, and should not
+   * reference columns of the tables of any enclosing queries.  If the query
+   * references less than two tables, it is not modified.
+   *
+   * @param query the query to which the joins will be added
+   * @param joinType the type of join to use for all the joins
+   * @return the given query
+   * @throws IllegalArgumentException if the query already has FROM tables
+   *         or the tables cannot all be connected
+   */
+  public SelectQuery addJoins(SelectQuery query, SelectQuery.JoinType joinType)
+  {
+    if(!query.getJoins().isEmpty()) {
+      throw new IllegalArgumentException(
+          "Query already has FROM tables or joins");
+    }
+    Collection<Table> tables = query.getColumnTables();
+    if((joinType == null) || (joinType == SelectQuery.JoinType.INNER)) {
+      tables = CardinalityEstimator.orderTables(query, tables);
+    }
+    List<Join> joins = planJoins(tables);
+    if(!joins.isEmpty()) {
+      query.addJoins(joinType, joins.toArray(new Join[joins.size()]));
+    }
+    return query;
+  }
+
+  /**
+   * Edge in the join graph, a join as seen from one of its tables.
+   */
+  private static final class Edge
+  {
+    /** the table on the other side of the join */
+    private final Table _toTable;
+    private final Join _join;
+    /** whether or not the join is traversed in the reverse direction of its
+        definition */
+    private final boolean _reversed;
+
+    private Edge(Table toTable, Join join, boolean reversed) {
+      _toTable = toTable;
+      _join = join;
+      _reversed = reversed;
+    }
+
+    private Table getFromTable() {
+      return (_reversed ? _join.getToTable() : _join.getFromTable());
+    }
+
+    private Join toJoin() {
+      return (_reversed ? new ReversedJoin(_join) : _join);
+    }
+  }
+
+  /**
+   * View of a Join with the "from" and "to" sides swapped.
+   */
+  private static final class ReversedJoin implements Join
+  {
+    private final Join _join;
+
+    private ReversedJoin(Join join) {
+      _join = join;
+    }
+
+    @Override
+    public Table getFromTable() {
+      return _join.getToTable();
+    }
+
+    @Override
+    public Table getToTable() {
+      return _join.getFromTable();
+    }
+
+    @Override
+    public List<? extends Column> getFromColumns() {
+      return _join.getToColumns();
+    }
+
+    @Override
+    public List<? extends Column> getToColumns() {
+      return _join.getFromColumns();
+    }
+
+    @Override
+    public String toString() {
+      return "reversed(" + _join + ")";
+    }
+  }
+}
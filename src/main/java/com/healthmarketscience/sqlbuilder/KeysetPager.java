@@ -0,0 +1,298 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Generates the pages of a {@link SelectQuery} using keyset ("seek")
+ * pagination.  Instead of skipping the rows of the previous pages with an
+ * OFFSET clause (which requires the database to generate and discard all
+ * those rows), each page is fetched using a condition which selects the rows
+ * after the last row of the previous page, so every page costs the same to
+ * fetch (given an index matching the ordering).
+ * <p>
+ * The keys are the ORDER BY entries of the query, which must end with a
+ * unique "tiebreaker" (i.e. the ordering must include the columns of a
+ * primary key or unique constraint, see {@link #setRequireUniqueKey}).
+ * Ordering entries may be columns, other expressions or indexes into the
+ * select list.  The key values of the last row of a page are passed to
+ * {@link #getPageAfter} to get the next page.  The key columns should not
+ * contain {@code null} values.
+ * <p>
+ * The seek condition is generated in the expanded form which all databases
+ * support, e.g. for {@code ORDER BY a ASC, b DESC}: {@code ((a >= ?) AND ((a
+ * > ?) OR ((a = ?) AND (b < ?))))}, where the leading redundant bound allows
+ * the condition to be used for an index range scan.  Databases which
+ * support row value comparisons (e.g. PostgreSQL) can use the compact form
+ * {@code ((a,b) > (?,?))} instead (see {@link #setUseRowValues}), which is
+ * only possible if all the keys are ordered in the same direction.  The page
+ * size is applied using a {@link LimitSyntax}, which defaults to FETCH NEXT.
+ * <p>
+ * Example:
+ * <pre>
+ *   KeysetPager pager = new KeysetPager().setUseRowValues(true);
+ *   SelectQuery firstPage = pager.getFirstPage(query, 50);
+ *   // ... read rows, remembering the ordering values of the last row ...
+ *   SelectQuery nextPage = pager.getPageAfter(query, 50, lastName, lastId);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class KeysetPager
+{
+  /**
+   * Strategy for limiting a page query to the page size.
+   */
+  public interface LimitSyntax
+  {
+    /**
+     * Limits the given query (which has no OFFSET/FETCH NEXT clauses) to the
+     * given number of rows.
+     */
+    public void applyLimit(SelectQuery query, int pageSize);
+  }
+
+  /** LimitSyntax which uses the SQL 2008 FETCH NEXT clause */
+  public static final LimitSyntax FETCH_NEXT = new LimitSyntax() {
+    @Override
+    public void applyLimit(SelectQuery query, int pageSize) {
+      query.setFetchNext(pageSize);
+    }
+  };
+
+  private boolean _useRowValues;
+  private boolean _requireUniqueKey = true;
+  private LimitSyntax _limitSyntax = FETCH_NEXT;
+
+  public KeysetPager() {}
+
+  public boolean isUseRowValues() {
+    return _useRowValues;
+  }
+
+  /**
+   * Sets whether or not a row value comparison should be used for the seek
+   * condition when all the keys are ordered in the same direction.
+   * Default is {@code false}.
+   */
+  public KeysetPager setUseRowValues(boolean useRowValues) {
+    _useRowValues = useRowValues;
+    return this;
+  }
+
+  public boolean isRequireUniqueKey() {
+    return _requireUniqueKey;
+  }
+
+  /**
+   * Sets whether or not the ordering of the paged query must be verified to
+   * include a unique key (without which rows may be skipped or repeated).
+   * May be disabled for tables whose constraints are not described by the
+   * schema.  Default is {@code true}.
+   */
+  public KeysetPager setRequireUniqueKey(boolean requireUniqueKey) {
+    _requireUniqueKey = requireUniqueKey;
+    return this;
+  }
+
+  public LimitSyntax getLimitSyntax() {
+    return _limitSyntax;
+  }
+
+  public KeysetPager setLimitSyntax(LimitSyntax limitSyntax) {
+    if(limitSyntax == null) {
+      throw new IllegalArgumentException("limitSyntax was null");
+    }
+    _limitSyntax = limitSyntax;
+    return this;
+  }
+
+  /**
+   * @return a new query which returns the first page of the given query
+   */
+  public SelectQuery getFirstPage(SelectQuery query, int pageSize) {
+    return getPageAfter(query, pageSize);
+  }
+
+  /**
+   * Returns a new query which returns the page of the given query after the
+   * row with the given key values (if no values are given, the first page
+   * is returned).  The given query is not modified.
+   * <p>
+   * {@code Object} -&gt; {@code SqlObject} conversions handled by
+   * {@link Converter#toValueSqlObject}, so the values may be
+   * {@link QueryPreparer} placeholders.  Note that the expanded seek
+   * condition uses most values multiple times, so placeholders should be
+   * {@link QueryPreparer.MultiPlaceHolder}s.
+   *
+   * @param query the query to page, which must have an ORDER BY clause
+   * @param pageSize the maximum number of rows in the page
+   * @param lastKeyValues the values of the ordering entries of the last row
+   *                      of the previous page
+   * @throws IllegalArgumentException if the query ordering is not valid for
+   *         keyset pagination or the key values do not match the ordering
+   */
+  public SelectQuery getPageAfter(SelectQuery query, int pageSize,
+                                  Object... lastKeyValues)
+  {
+    if(pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive");
+    }
+    List<SqlObject> keys = new ArrayList<SqlObject>();
+    List<OrderObject.Dir> dirs = new ArrayList<OrderObject.Dir>();
+    getKeys(query, keys, dirs);
+
+    SelectQuery page = query.copy();
+    page.setOffsetAndFetch(null, null);
+    if((lastKeyValues != null) && (lastKeyValues.length > 0)) {
+      if(lastKeyValues.length != keys.size()) {
+        throw new IllegalArgumentException(
+            "expected " + keys.size() + " key values, given " +
+            lastKeyValues.length);
+      }
+      List<SqlObject> values = new ArrayList<SqlObject>();
+      for(Object value : lastKeyValues) {
+        if(value == null) {
+          throw new IllegalArgumentException("key values may not be null");
+        }
+        values.add(Converter.toValueSqlObject(value));
+      }
+      page.addCondition(getSeekCondition(keys, dirs, values));
+    }
+    _limitSyntax.applyLimit(page, pageSize);
+    return page;
+  }
+
+  /**
+   * Determines the keys (and their directions) from the ordering of the
+   * given query.
+   */
+  private void getKeys(SelectQuery query, List<SqlObject> keys,
+                       List<OrderObject.Dir> dirs)
+  {
+    if(query.getOrdering().isEmpty()) {
+      throw new IllegalArgumentException(
+          "keyset pagination requires an ordered query");
+    }
+    Set<Column> keyColumns = new LinkedHashSet<Column>();
+    for(SqlObject order : query.getOrdering()) {
+      OrderObject.Dir dir = OrderObject.Dir.ASCENDING;
+      SqlObject key = order;
+      if(order instanceof OrderObject) {
+        dir = ((OrderObject)order).getDir();
+        key = ((OrderObject)order).getObject();
+      }
+      if(key instanceof NumberValueObject) {
+        // index into the select list
+        NumberValueObject idx = (NumberValueObject)key;
+        if(!idx.isIntegralInRange(1, query.getColumns().size())) {
+          throw new IllegalArgumentException(
+              "invalid ordering index " + idx);
+        }
+        key = query.getColumns().get(idx.getValue().intValue() - 1);
+        if(key instanceof AliasedObject) {
+          key = ((AliasedObject)key).getObject();
+        }
+      }
+      if((key == SqlObject.ALL_SYMBOL) || (key instanceof AllTableColumns) ||
+         (key instanceof CustomSql)) {
+        // custom sql may be an alias, which cannot be used in the WHERE
+        // clause
+        throw new IllegalArgumentException(
+            "ordering entry " + key + " cannot be used as a key");
+      }
+      if(key instanceof ColumnObject) {
+        keyColumns.add(((ColumnObject)key).getColumn());
+      }
+      keys.add(key);
+      dirs.add((dir != null) ? dir : OrderObject.Dir.ASCENDING);
+    }
+
+    if(_requireUniqueKey) {
+      Set<Table> tables = new LinkedHashSet<Table>();
+      for(Column column : keyColumns) {
+        tables.add(column.getTable());
+      }
+      boolean unique = false;
+      for(Table table : tables) {
+        if(Constraints.containsUniqueKey(table, keyColumns)) {
+          unique = true;
+          break;
+        }
+      }
+      if(!unique) {
+        throw new IllegalArgumentException(
+            "query ordering does not include a unique key");
+      }
+    }
+  }
+
+  /**
+   * @return the condition which selects the rows after the row with the
+   *         given key values
+   */
+  private Condition getSeekCondition(List<SqlObject> keys,
+                                     List<OrderObject.Dir> dirs,
+                                     List<SqlObject> values)
+  {
+    if(keys.size() == 1) {
+      return getComparison(keys.get(0), dirs.get(0), values.get(0), false);
+    }
+
+    if(_useRowValues && (new LinkedHashSet<OrderObject.Dir>(dirs).size()
+                         == 1)) {
+      return getComparison(
+          new ComboExpression(",", keys.toArray()), dirs.get(0),
+          new ComboExpression(",", values.toArray()), false);
+    }
+
+    ComboCondition seek = ComboCondition.or();
+    for(int i = 0; i < keys.size(); ++i) {
+      ComboCondition cond = ComboCondition.and();
+      for(int j = 0; j < i; ++j) {
+        cond.addCondition(BinaryCondition.equalTo(keys.get(j),
+                                                  values.get(j)));
+      }
+      cond.addCondition(getComparison(keys.get(i), dirs.get(i),
+                                      values.get(i), false));
+      seek.addCondition(cond);
+    }
+    // the redundant bound on the leading key enables an index range scan
+    return ComboCondition.and(
+        getComparison(keys.get(0), dirs.get(0), values.get(0), true),
+        seek);
+  }
+
+  private static Condition getComparison(Object key, OrderObject.Dir dir,
+                                         Object value, boolean inclusive) {
+    if(dir == OrderObject.Dir.DESCENDING) {
+      return (inclusive ? BinaryCondition.lessThanOrEq(key, value) :
+              BinaryCondition.lessThan(key, value));
+    }
+    return (inclusive ? BinaryCondition.greaterThanOrEq(key, value) :
+            BinaryCondition.greaterThan(key, value));
+  }
+}
@@ -52,6 +52,18 @@ public class NegateExpression extends Expression
   protected void collectSchemaObjects(ValidationContext vContext) {
     _expression.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    Expression expression = transformer.transform(
+        _expression, Expression.class);
+    if(expression == _expression) {
+      return this;
+    }
+    NegateExpression copy = (NegateExpression)copy();
+    copy._expression = expression;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
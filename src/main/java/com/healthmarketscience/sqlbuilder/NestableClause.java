@@ -17,9 +17,11 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import com.healthmarketscience.common.util.AppendableExt;
-import java.util.ArrayList;
 
 
 /**
@@ -156,55 +158,77 @@ abstract class NestableClause extends SqlObject
     }
   }
   
+  /**
+   * Returns {@code true} iff the nested clauses of this clause may be
+   * appended in any order without changing its meaning (used when
+   * generating canonical sql, see {@link SqlContext#setCanonicalize}).
+   * <p>
+   * Default implementation returns {@code false}.
+   */
+  protected boolean isCommutative() { return false; }
+
   /**
    * Appends the given nested clauses to the given AppendableExt, handling
-   * empty nested clauses and enclosing parens.
+   * empty nested clauses and enclosing parens.  The nested clauses are
+   * sorted when generating canonical sql if this clause is
+   * {@link #isCommutative commutative}.
    */
   protected void appendNestedClauses(
       AppendableExt app,
       SqlObjectList<? extends NestableClause> nestedClauses)
     throws IOException
   {
-    // optimize for the expected case of no empty sub-conditions (otherwise,
-    // we would copy/filter the list every time instead of testing first, then
-    // filtering)
-    boolean hasEmptyNestedClause = false;
+    // optimize for the expected case of no empty nested clauses (only
+    // filter the list once we find an empty one, and test each nested clause
+    // only once since isEmpty() may need to walk the entire nested clause)
+    List<NestableClause> nonEmpty = null;
+    int idx = 0;
     for(NestableClause nestedClause : nestedClauses) {
       if(nestedClause.isEmpty()) {
-        // doh!  need to filter
-        hasEmptyNestedClause = true;
-        break;
+        if(nonEmpty == null) {
+          // doh!  need to filter
+          nonEmpty = new ArrayList<NestableClause>(nestedClauses.size());
+          Iterator<? extends NestableClause> prevIter =
+            nestedClauses.iterator();
+          for(int i = 0; i < idx; ++i) {
+            nonEmpty.add(prevIter.next());
+          }
+        }
+      } else if(nonEmpty != null) {
+        nonEmpty.add(nestedClause);
       }
+      ++idx;
+    }
+    Iterable<? extends NestableClause> tmpNestedClauses = nestedClauses;
+    int numNonEmpty = nestedClauses.size();
+    if(nonEmpty != null) {
+      tmpNestedClauses = nonEmpty;
+      numNonEmpty = nonEmpty.size();
     }
 
-    SqlObjectList<? extends NestableClause> tmpNestedClauses;
-    if(!hasEmptyNestedClause) {
-      
-      // cool, use existing list
-      tmpNestedClauses = nestedClauses;
-      
+    boolean parens = ((numNonEmpty > 1) && !isDisableParens());
+    if(parens) {
+      app.append("(");
+    }
+
+    // append the non-empty nestedClauses
+    String delimiter = nestedClauses.getDelimiter();
+    if((numNonEmpty > 1) && isCommutative() &&
+       SqlContext.getContext(app).getCanonicalize()) {
+      CanonicalSql.appendSorted(app, tmpNestedClauses, delimiter, false);
     } else {
-      
-      // create a filtered list of non-empty sub-nestedClauses
-      SqlObjectList<NestableClause> nonEmptyNestableClauses =
-        new SqlObjectList<NestableClause>(
-          nestedClauses.getDelimiter(),
-          new ArrayList<NestableClause>(nestedClauses.size()));
-      for(NestableClause nestedClause : nestedClauses) {
-        if(!nestedClause.isEmpty()) {
-          nonEmptyNestableClauses.addObject(nestedClause);
+      boolean first = true;
+      for(NestableClause nestedClause : tmpNestedClauses) {
+        if(!first) {
+          app.append(delimiter);
         }
+        app.append(nestedClause);
+        first = false;
       }
-      
-      // use this list instead
-      tmpNestedClauses = nonEmptyNestableClauses;
     }
 
-    // append the non-empty nestedClauses
-    if((tmpNestedClauses.size() > 1) && !isDisableParens()) {
-      app.append("(").append(tmpNestedClauses).append(")");
-    } else {
-      app.append(tmpNestedClauses);
+    if(parens) {
+      app.append(")");
     }
   }
 
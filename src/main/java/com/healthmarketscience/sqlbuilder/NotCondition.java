@@ -41,6 +41,11 @@ public class NotCondition extends Condition
     _condition = condition;
   }
 
+  /** @return the negated condition */
+  Condition getCondition() {
+    return _condition;
+  }
+
   @Override
   public boolean isEmpty() {
     return _condition.isEmpty();
@@ -50,6 +55,17 @@ public class NotCondition extends Condition
   protected void collectSchemaObjects(ValidationContext vContext) {
     _condition.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    Condition condition = transformer.transform(_condition, Condition.class);
+    if(condition == _condition) {
+      return this;
+    }
+    NotCondition copy = (NotCondition)copy();
+    copy._condition = condition;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException
@@ -40,6 +40,11 @@ public class NumberValueObject extends Expression
     _value = value;
   }
 
+  /** @return the literal value of this object */
+  Number getValue() {
+    return _value;
+  }
+
   @Override
   public boolean hasParens() { return false; }
 
@@ -80,6 +85,10 @@ public class NumberValueObject extends Expression
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    if(SqlContext.getContext(app).getStripLiterals()) {
+      QUESTION_MARK.appendTo(app);
+      return;
+    }
     app.append(_value);
   }
 }
@@ -0,0 +1,118 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Utility methods for comparing and combining the numeric (and other) values
+ * read from or written to the database, where equal values may be
+ * represented by different Number types.
+ *
+ * @author James Ahlborn
+ */
+class Numbers
+{
+  private Numbers() {}
+
+  /**
+   * @return {@code true} if the given value is an integral Number,
+   *         {@code false} otherwise
+   */
+  static boolean isIntegral(Object value) {
+    return ((value instanceof Integer) || (value instanceof Long) ||
+            (value instanceof Short) || (value instanceof Byte) ||
+            (value instanceof BigInteger));
+  }
+
+  /**
+   * @return the given number as a BigDecimal, or {@code null} if it has no
+   *         exact decimal representation
+   */
+  static BigDecimal toBigDecimal(Number num) {
+    if(num instanceof BigDecimal) {
+      return (BigDecimal)num;
+    }
+    if(num instanceof BigInteger) {
+      return new BigDecimal((BigInteger)num);
+    }
+    if(isIntegral(num)) {
+      return BigDecimal.valueOf(num.longValue());
+    }
+    if((num instanceof Double) || (num instanceof Float)) {
+      double d = num.doubleValue();
+      return ((Double.isNaN(d) || Double.isInfinite(d)) ? null :
+              BigDecimal.valueOf(d));
+    }
+    try {
+      return new BigDecimal(num.toString());
+    } catch(NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Compares the given (non-{@code null}) values.  Numbers of different
+   * types are compared by value, other values of the same Comparable type
+   * by their natural ordering, and anything else by their string values.
+   */
+  @SuppressWarnings("unchecked")
+  static int compareValues(Object value1, Object value2) {
+    if((value1 instanceof Number) && (value2 instanceof Number) &&
+       (value1.getClass() != value2.getClass())) {
+      BigDecimal num1 = toBigDecimal((Number)value1);
+      BigDecimal num2 = toBigDecimal((Number)value2);
+      if((num1 != null) && (num2 != null)) {
+        return num1.compareTo(num2);
+      }
+      return Double.compare(((Number)value1).doubleValue(),
+                            ((Number)value2).doubleValue());
+    }
+    if((value1 instanceof Comparable<?>) &&
+       (value1.getClass() == value2.getClass())) {
+      return ((Comparable<Object>)value1).compareTo(value2);
+    }
+    return value1.toString().compareTo(value2.toString());
+  }
+
+  /**
+   * Adds the two numbers, retaining an integral type if both numbers are
+   * integral.
+   *
+   * @throws ArithmeticException if the sum of two integral numbers which are
+   *         not BigIntegers overflows a long
+   */
+  static Number add(Number num1, Number num2) {
+    if(isIntegral(num1) && isIntegral(num2)) {
+      if((num1 instanceof BigInteger) || (num2 instanceof BigInteger)) {
+        return toBigDecimal(num1).add(toBigDecimal(num2)).toBigInteger();
+      }
+      return Math.addExact(num1.longValue(), num2.longValue());
+    }
+    if((num1 instanceof BigDecimal) || (num2 instanceof BigDecimal) ||
+       (num1 instanceof BigInteger) || (num2 instanceof BigInteger)) {
+      BigDecimal dec1 = toBigDecimal(num1);
+      BigDecimal dec2 = toBigDecimal(num2);
+      if((dec1 != null) && (dec2 != null)) {
+        return dec1.add(dec2);
+      }
+    }
+    return num1.doubleValue() + num2.doubleValue();
+  }
+}
@@ -65,7 +65,7 @@ public class OrderObject extends SqlObject
   
 
   private final Dir _dir;
-  private final SqlObject _obj;
+  private SqlObject _obj;
   private NullOrder _nullOrder;
 
   public OrderObject(Dir dir, Object obj) {
@@ -89,11 +89,32 @@ public class OrderObject extends SqlObject
   SqlObject getObject() {
     return _obj;
   }
+
+  /** @return the direction of this OrderObject */
+  Dir getDir() {
+    return _dir;
+  }
+
+  /** @return the null order of this OrderObject, if any */
+  NullOrder getNullOrder() {
+    return _nullOrder;
+  }
   
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _obj.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject obj = transformer.transform(_obj);
+    if(obj == _obj) {
+      return this;
+    }
+    OrderObject copy = (OrderObject)copy();
+    copy._obj = obj;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
@@ -0,0 +1,234 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Rewrites the "*" and "&lt;table&gt;.*" entries in the select list of a
+ * {@link SelectQuery} (see {@link SelectQuery#addAllColumns} and {@link
+ * SelectQuery#addAllTableColumns}) so that only the columns which are
+ * actually needed are selected.  This reduces the amount of data returned
+ * and may enable the database to use index-only scans.
+ * <p>
+ * The needed columns are either the {@link QueryReader.Column}s of a
+ * QueryReader (which have been given a plain table column via {@link
+ * QueryReader.Column#setColumnObject} and are not otherwise used in the
+ * query), or an explicitly declared collection of columns.  When using a
+ * QueryReader, the QueryReader.Columns themselves are added to the select
+ * list, so they will have valid indexes once the rewritten query is
+ * converted to a string.
+ * <p>
+ * "*" is replaced by the needed columns of all the tables referenced by the
+ * query, "&lt;table&gt;.*" is replaced by the needed columns of that table.
+ * If no needed columns are found for an entry, it is left as is.  Only the
+ * select list of the given query is rewritten, any nested queries (e.g.
+ * {@code EXISTS (SELECT * ...)}) are left unchanged.
+ * <p>
+ * DISTINCT and grouped queries are never rewritten, as the select list of
+ * such queries affects which rows are returned.  Queries ordered by select
+ * list position (see {@link SelectQuery#addIndexedOrdering}) are never
+ * rewritten either, as the positions would refer to different columns.
+ * <p>
+ * As with any {@link SqlTransformer}, the given object is not modified,
+ * instead a copy is returned if anything was rewritten.
+ * <p>
+ * Example:
+ * <pre>
+ *   QueryReader reader = new QueryReader();
+ *   QueryReader.Column nameCol = reader.getNewColumn()
+ *     .setColumnObject(custNameCol);
+ *   QueryReader.Column cityCol = reader.getNewColumn()
+ *     .setColumnObject(custCityCol);
+ *   String queryStr = new ProjectionPruner(reader).transform(
+ *     new SelectQuery().addAllTableColumns(custTable)).toString();
+ *   // SELECT t0.name,t0.city FROM customer t0
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class ProjectionPruner extends SqlTransformer
+{
+  private final QueryReader _reader;
+  private final List<Column> _columns;
+
+  /**
+   * Prunes "*" entries to the columns of the given QueryReader.
+   */
+  public ProjectionPruner(QueryReader reader) {
+    _reader = reader;
+    _columns = null;
+  }
+
+  /**
+   * Prunes "*" entries to the given columns.
+   */
+  public ProjectionPruner(Column... columns) {
+    this(Arrays.asList(columns));
+  }
+
+  /**
+   * Prunes "*" entries to the given columns.
+   */
+  public ProjectionPruner(Collection<? extends Column> columns) {
+    _reader = null;
+    _columns = Collections.unmodifiableList(new ArrayList<Column>(columns));
+  }
+
+  @Override
+  protected boolean enter(SqlObject obj) {
+    // only the select list of the top-level query is rewritten
+    return false;
+  }
+
+  @Override
+  protected SqlObject rewrite(SqlObject obj) {
+    if(!(obj instanceof SelectQuery) || !((SelectQuery)obj).hasAllColumns()) {
+      return obj;
+    }
+    SelectQuery query = (SelectQuery)obj;
+    if(query.isDistinct() || !query.getGrouping().isEmpty()) {
+      // pruning the select list would change the rows returned
+      return obj;
+    }
+    if(hasIndexedOrdering(query)) {
+      // pruning the select list would change the meaning of the ordering
+      return obj;
+    }
+
+    List<SqlObject> candidates = getCandidates(query);
+    if(candidates.isEmpty()) {
+      return obj;
+    }
+
+    // a needed column is only added once, even if matched by multiple "*"
+    // entries
+    Set<SqlObject> added = Collections.newSetFromMap(
+        new IdentityHashMap<SqlObject,Boolean>());
+    List<SqlObject> newColumns = new ArrayList<SqlObject>();
+    boolean changed = false;
+    for(SqlObject col : query.getColumns()) {
+      Collection<Table> tables = null;
+      if(col == SqlObject.ALL_SYMBOL) {
+        tables = query.getColumnTables();
+      } else if(col instanceof AllTableColumns) {
+        tables = Collections.singleton(((AllTableColumns)col)._table);
+      }
+      List<SqlObject> neededCols = ((tables != null) ?
+                                    getNeededColumns(candidates, tables,
+                                                     added) :
+                                    Collections.<SqlObject>emptyList());
+      if(neededCols.isEmpty()) {
+        newColumns.add(col);
+      } else {
+        newColumns.addAll(neededCols);
+        changed = true;
+      }
+    }
+    if(!changed) {
+      return obj;
+    }
+
+    SelectQuery copy = query.copy();
+    copy.getColumns().clear();
+    copy.getColumns().addObjects(newColumns);
+    return copy;
+  }
+
+  /**
+   * @return {@code true} if the given query is ordered by any select list
+   *         positions, {@code false} otherwise
+   */
+  private static boolean hasIndexedOrdering(SelectQuery query) {
+    for(SqlObject orderObj : query.getOrdering()) {
+      if(orderObj instanceof OrderObject) {
+        orderObj = ((OrderObject)orderObj).getObject();
+      }
+      if(orderObj instanceof NumberValueObject) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the column objects which may be added to the select list of the
+   *         given query (each of which wraps a plain ColumnObject)
+   */
+  private List<SqlObject> getCandidates(SelectQuery query) {
+    List<SqlObject> candidates = new ArrayList<SqlObject>();
+    if(_reader == null) {
+      for(Column column : _columns) {
+        candidates.add(new ColumnObject(column));
+      }
+      return candidates;
+    }
+
+    // reader columns may only be used once
+    Set<SqlObject> used = Collections.newSetFromMap(
+        new IdentityHashMap<SqlObject,Boolean>());
+    for(SqlObject col : query.getColumns()) {
+      used.add(col);
+    }
+    for(QueryReader.Column readerCol : _reader.getColumns()) {
+      if(!readerCol.isInQuery() && !used.contains(readerCol) &&
+         (readerCol.getCustomColumnObject() instanceof ColumnObject)) {
+        candidates.add(readerCol);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the candidates which select columns of the given tables and
+   *         have not yet been added
+   */
+  private static List<SqlObject> getNeededColumns(
+      List<SqlObject> candidates, Collection<Table> tables,
+      Set<SqlObject> added)
+  {
+    List<SqlObject> neededCols = new ArrayList<SqlObject>();
+    for(SqlObject candidate : candidates) {
+      if(added.contains(candidate)) {
+        continue;
+      }
+      if(tables.contains(getColumn(candidate).getTable())) {
+        neededCols.add(candidate);
+        added.add(candidate);
+      }
+    }
+    return neededCols;
+  }
+
+  private static Column getColumn(SqlObject candidate) {
+    if(candidate instanceof QueryReader.Column) {
+      candidate = ((QueryReader.Column)candidate).getCustomColumnObject();
+    }
+    return ((ColumnObject)candidate).getColumn();
+  }
+}
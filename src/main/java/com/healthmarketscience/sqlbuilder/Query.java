@@ -17,11 +17,9 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashSet;
 
 import com.healthmarketscience.common.util.AppendableExt;
-import com.healthmarketscience.sqlbuilder.dbspec.Table;
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
 
 
 
@@ -36,8 +34,50 @@ import com.healthmarketscience.sqlbuilder.dbspec.Table;
 public abstract class Query<ThisType extends Query<ThisType>>
   extends CustomizableSqlObject implements Verifiable<ThisType>
 {
+  private ExecutionEnvelope _envelope;
+
   protected Query() {}
 
+  /** @return the execution settings for this query, if any */
+  public ExecutionEnvelope getExecutionEnvelope() {
+    return _envelope;
+  }
+
+  /**
+   * Sets the execution settings for this query, replacing any previous
+   * settings.  Any hints in the given envelope are added to the sql
+   * generated for this query (this query itself is not modified by the
+   * hints).
+   *
+   * @throws UnsupportedOperationException if the envelope contains hints and
+   *         this query does not support hints
+   */
+  public ThisType setExecutionEnvelope(ExecutionEnvelope envelope) {
+    if(hasHints(envelope)) {
+      // fail fast if the hints are not supported
+      withHints(envelope);
+    }
+    _envelope = envelope;
+    return getThisType();
+  }
+
+  private static boolean hasHints(ExecutionEnvelope envelope) {
+    return ((envelope != null) && !envelope.getHints().isEmpty());
+  }
+
+  /**
+   * @return a copy of this query (without an envelope) to which the hints of
+   *         the given envelope have been applied
+   */
+  private Query<?> withHints(ExecutionEnvelope envelope) {
+    Query<?> query = (Query<?>)copy();
+    query._envelope = null;
+    for(CustomSyntax hint : envelope.getHints()) {
+      query.applyHint(hint);
+    }
+    return query;
+  }
+
   @Override
   public final ThisType validate()
     throws ValidationException
@@ -64,18 +104,9 @@ public abstract class Query<ThisType extends Query<ThisType>>
   protected void validateTables(ValidationContext vContext)
     throws ValidationException
   {
-    Collection<Table> allTables = vContext.getTables();
-    if(vContext.getParent() != null) {
-      // tables could be defined in any outer contexts, so need to track back
-      allTables = new HashSet<Table>(allTables);
-      ValidationContext tmpVContext = vContext;
-      while((tmpVContext = tmpVContext.getParent()) != null) {
-        allTables.addAll(tmpVContext.getTables());
-      }
-    }
-
-    // make sure all column tables are referenced by a table (if desired)
-    if(!allTables.containsAll(vContext.getColumnTables())) {
+    // make sure all column tables are referenced by a table (if desired).
+    // note, tables could be defined in any outer contexts
+    if(!vContext.areColumnTablesInScope()) {
       throw new ValidationException("Columns used for unreferenced tables");
     }
   }
@@ -89,10 +120,17 @@ public abstract class Query<ThisType extends Query<ThisType>>
   
   @Override
   public final void appendTo(AppendableExt app) throws IOException {
+    if(hasHints(_envelope)) {
+      // the hints are only added to the generated sql
+      withHints(_envelope).appendTo(app);
+      return;
+    }
+
     prependTo(app);
 
     SqlContext newContext = SqlContext.pushContext(app);
     newContext.setQuery(this);
+    newContext.setColumnTables(null);
     appendTo(app, newContext);
     // note, this is not within a finally block because any exceptions from
     // appendTo are expected to be unrecoverable, and we don't want to muddy
@@ -100,6 +138,16 @@ public abstract class Query<ThisType extends Query<ThisType>>
     SqlContext.popContext(app, newContext);
   }
 
+  /**
+   * Called when generating the sql for a query with an {@link
+   * ExecutionEnvelope} to add the given hint to a copy of the query.  Base
+   * implementation throws UnsupportedOperationException.
+   */
+  protected void applyHint(CustomSyntax hint) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support query hints");
+  }
+
   /** @return the handle to this object as the subclass type */
   @SuppressWarnings("unchecked")
   protected final ThisType getThisType() {
@@ -0,0 +1,196 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.io.IOException;
+
+import com.healthmarketscience.common.util.AppendableExt;
+
+
+/**
+ * A 128-bit fingerprint of the sql text generated by a SqlObject (typically
+ * a query), which may be used as a compact key for statement caches, metrics,
+ * result caches, etc.  Fingerprints are computed by hashing the generated
+ * sql as it is appended, using a hash function which is fixed by this class,
+ * so fingerprints are stable across JVMs (given the same schema, including
+ * table aliases).
+ * <p>
+ * Two kinds of fingerprints are supported:
+ * <ul>
+ * <li>{@link #of} hashes the complete sql, so two objects have the same
+ *     fingerprint iff they generate the same sql (barring a hash
+ *     collision)</li>
+ * <li>{@link #shapeOf} hashes the sql with all literal values and
+ *     placeholders replaced by <code>?</code> (see
+ *     {@link SqlContext#setStripLiterals}), so queries which differ only in
+ *     their values have the same "shape" fingerprint</li>
+ * </ul>
+ * <p>
+ * Note, computing a fingerprint walks the entire object tree exactly like
+ * generating the sql, so it costs about the same as {@link Object#toString}
+ * minus building the sql string.  Fingerprints are not cached, because the
+ * nested objects of a query may be modified without the query being
+ * notified.  Callers which need to reuse a fingerprint should compute it once
+ * after the query is complete.
+ *
+ * @author James Ahlborn
+ */
+public final class QueryFingerprint
+{
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long _high;
+  private final long _low;
+
+  private QueryFingerprint(long high, long low) {
+    _high = high;
+    _low = low;
+  }
+
+  /**
+   * @return the fingerprint of the complete sql generated by the given
+   *         object
+   */
+  public static QueryFingerprint of(SqlObject obj) {
+    return compute(obj, false);
+  }
+
+  /**
+   * @return the fingerprint of the sql generated by the given object with
+   *         all literal values and placeholders replaced by <code>?</code>
+   */
+  public static QueryFingerprint shapeOf(SqlObject obj) {
+    return compute(obj, true);
+  }
+
+  /**
+   * Returns {@code true} if the given objects generate the same sql (based
+   * on their fingerprints), {@code false} otherwise.  Note, this generates
+   * the sql of both objects (unless they are the same object).
+   */
+  public static boolean generateSameSql(SqlObject obj1, SqlObject obj2) {
+    return ((obj1 == obj2) || of(obj1).equals(of(obj2)));
+  }
+
+  /** @return the high 64 bits of this fingerprint */
+  public long getHigh() {
+    return _high;
+  }
+
+  /** @return the low 64 bits of this fingerprint */
+  public long getLow() {
+    return _low;
+  }
+
+  private static QueryFingerprint compute(SqlObject obj, boolean stripLiterals)
+  {
+    Builder builder = new Builder();
+    SqlContext context = new SqlContext();
+    context.setStripLiterals(stripLiterals);
+    context.setFingerprintBuilder(builder);
+    try {
+      new AppendableExt(builder, context).append(obj);
+    } catch(IOException e) {
+      // our appendable does not throw
+      throw new IllegalStateException(e);
+    }
+    return builder.finish();
+  }
+
+  @Override
+  public int hashCode() {
+    return (int)(_low ^ (_low >>> 32));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) {
+      return true;
+    }
+    if(!(o instanceof QueryFingerprint)) {
+      return false;
+    }
+    QueryFingerprint other = (QueryFingerprint)o;
+    return ((_high == other._high) && (_low == other._low));
+  }
+
+  /** @return the fingerprint as 32 hex digits */
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", _high, _low);
+  }
+
+  /** final avalanche step (from MurmurHash3) */
+  private static long mix(long h) {
+    h ^= (h >>> 33);
+    h *= 0xff51afd7ed558ccdL;
+    h ^= (h >>> 33);
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= (h >>> 33);
+    return h;
+  }
+
+  /**
+   * Appendable which hashes the appended sql.
+   */
+  static final class Builder implements Appendable
+  {
+    private long _high = GOLDEN_GAMMA;
+    private long _low = FNV_OFFSET;
+    private int _length;
+
+    private Builder() {}
+
+    private void update(char c) {
+      _low = (_low ^ c) * FNV_PRIME;
+      _high = Long.rotateLeft((_high ^ c) * GOLDEN_GAMMA, 31);
+      ++_length;
+    }
+
+    private QueryFingerprint finish() {
+      return new QueryFingerprint(mix(_high ^ _length), mix(_low ^ _length));
+    }
+
+    @Override
+    public Builder append(char c) {
+      update(c);
+      return this;
+    }
+
+    @Override
+    public Builder append(CharSequence csq) {
+      if(csq == null) {
+        csq = "null";
+      }
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Builder append(CharSequence csq, int start, int end) {
+      if(csq == null) {
+        csq = "null";
+      }
+      for(int i = start; i < end; ++i) {
+        update(csq.charAt(i));
+      }
+      return this;
+    }
+  }
+
+}
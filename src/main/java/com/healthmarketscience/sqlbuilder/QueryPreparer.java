@@ -546,7 +546,10 @@ public class QueryPreparer
     
     @Override
     public void appendTo(AppendableExt app) throws IOException {
-      addIndex(_outer._curIndex++);
+      if(SqlContext.getContext(app).getFingerprintBuilder() == null) {
+        // indexes are only assigned when generating the actual sql
+        addIndex(_outer._curIndex++);
+      }
       SqlObject.QUESTION_MARK.appendTo(app);
     }
   }
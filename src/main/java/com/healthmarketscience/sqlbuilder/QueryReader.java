@@ -19,6 +19,9 @@ package com.healthmarketscience.sqlbuilder;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.healthmarketscience.common.util.AppendableExt;
 
@@ -69,6 +72,9 @@ import com.healthmarketscience.common.util.AppendableExt;
  *   
  * </pre>
  *
+ * A query which selects "*" may be rewritten to only select the Columns of
+ * a QueryReader using a {@link ProjectionPruner}.
+ *
  * @author James Ahlborn
  */
 public class QueryReader {
@@ -84,6 +90,8 @@ public class QueryReader {
   /** the index that will be assigned to the next Column written to the
       query */
   private int _curIndex;
+  /** all the Columns created for this QueryReader */
+  private final List<Column> _columns = new ArrayList<Column>();
 
   public QueryReader() {
     this(DEFAULT_START_INDEX);
@@ -109,6 +117,14 @@ public class QueryReader {
   public Column getNewColumn() {
     return new Column(this);
   }
+
+  /**
+   * @return all the Columns which have been created for this QueryReader,
+   *         in the order they were created
+   */
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(_columns);
+  }
   
   /**
    * A SqlObject which outputs the passed in SqlObject, and records the
@@ -132,6 +148,7 @@ public class QueryReader {
     
     public Column(QueryReader outer) {
       _outer = outer;
+      _outer._columns.add(this);
     }
 
     /**
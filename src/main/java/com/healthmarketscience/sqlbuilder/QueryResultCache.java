@@ -0,0 +1,462 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Client-side cache of query results which is invalidated based on the
+ * tables read by the cached queries.
+ * <p>
+ * A query is first registered with the cache using {@link #register}, which
+ * generates the sql for the query (once) and determines all the
+ * {@link Table}s which the query reads (including tables read by nested
+ * subqueries).  The returned {@link CachedQuery} can then be used to get and
+ * put results keyed by the query sql and the parameters bound to the query.
+ * The cache is bounded both by entry count (least recently used entries are
+ * evicted first) and by entry age.
+ * <p>
+ * Any write to a table invalidates the cached results of all queries which
+ * read that table.  DML queries executed through
+ * {@link #executeUpdate(Connection,Query)} are handled automatically, DML
+ * executed any other way must be reported to the cache using one of the
+ * {@code invalidate} methods.  Invalidation occurs when the DML is
+ * executed, however results read by other transactions before the enclosing
+ * transaction (if any) is committed may still be cached at that point.  So,
+ * transactions which execute DML through {@link #executeUpdate} should be
+ * completed using {@link #commit} or {@link #rollback}, which invalidate the
+ * written tables again after the transaction ends (DML executed any other way
+ * within a transaction should be reported again after the commit).  The
+ * written tables of a connection are otherwise remembered until its next
+ * commit or rollback through this cache (or until the connection is garbage
+ * collected).  Also,
+ * tables which are only referenced via custom sql cannot be tracked, so
+ * queries using such tables should not be cached.
+ * <p>
+ * This class is thread-safe.
+ * <p>
+ * Example:
+ * <pre>
+ *   QueryResultCache cache = new QueryResultCache(1000, 5, TimeUnit.MINUTES);
+ *   QueryResultCache.CachedQuery stateQuery = cache.register(
+ *     new SelectQuery().addAllTableColumns(stateTable));
+ *   List&lt;State&gt; states = stateQuery.get(
+ *     new QueryResultCache.Loader&lt;List&lt;State&gt;&gt;() {
+ *       public List&lt;State&gt; load(String sql, List&lt;?&gt; params)
+ *         throws SQLException {
+ *         // ... execute the sql and read the results ...
+ *       }
+ *     });
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class QueryResultCache
+{
+  /**
+   * Callback used to load a result on a cache miss.
+   */
+  public interface Loader<T>
+  {
+    /**
+     * Loads the result for the given sql and parameters.
+     *
+     * @param sql the sql of the cached query
+     * @param params the parameters to be bound to the query
+     */
+    public T load(String sql, List<?> params) throws SQLException;
+  }
+
+  private final int _maxEntries;
+  private final long _ttlNanos;
+  private final Map<CacheKey,CacheEntry> _entries;
+  /** the keys of the current entries for each table */
+  private final Map<Table,Set<CacheKey>> _tableKeys =
+    new HashMap<Table,Set<CacheKey>>();
+  /** count of invalidations, used to discard results which were loaded
+      concurrently with an invalidation */
+  private long _invalidationCount;
+  /** the tables written by executeUpdate within the current transaction of
+      each connection (weak keys, so connections whose transactions are not
+      completed through this cache are not retained) */
+  private final Map<Connection,Set<Table>> _transactionTables =
+    new WeakHashMap<Connection,Set<Table>>();
+
+  /**
+   * @param maxEntries the maximum number of results to cache
+   * @param ttl the maximum amount of time a result will be cached, a value
+   *            {@code <= 0} indicates no time limit
+   * @param unit the unit of the ttl
+   */
+  public QueryResultCache(int maxEntries, long ttl, TimeUnit unit) {
+    if(maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+    _maxEntries = maxEntries;
+    _ttlNanos = ((ttl > 0) ? unit.toNanos(ttl) : 0L);
+    _entries = new LinkedHashMap<CacheKey,CacheEntry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 0L;
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<CacheKey,CacheEntry> eldest) {
+        if(size() > _maxEntries) {
+          unindex(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Registers the given query with this cache.  The query is converted to
+   * sql (so any QueryPreparer placeholders in the query will be assigned
+   * their indexes) and should not be subsequently modified.
+   *
+   * @return a handle for getting/putting results for the given query
+   */
+  public CachedQuery register(Query<?> query) {
+    return new CachedQuery(query.toString(), getReadTables(query));
+  }
+
+  /** @return the current number of cached results */
+  public synchronized int size() {
+    return _entries.size();
+  }
+
+  /**
+   * Executes the given DML query using the given connection and invalidates
+   * any cached results which depend on the tables written by the query.  If
+   * the connection is not in auto-commit mode, the tables will be
+   * invalidated again by {@link #commit} or {@link #rollback}.
+   *
+   * @return the update count returned from {@link Statement#executeUpdate}
+   */
+  public int executeUpdate(Connection conn, Query<?> query)
+    throws SQLException
+  {
+    Collection<Table> tables = getWrittenTables(query);
+    if(!conn.getAutoCommit()) {
+      addTransactionTables(conn, tables);
+    }
+    Statement stmt = conn.createStatement();
+    try {
+      return stmt.executeUpdate(query.toString());
+    } finally {
+      stmt.close();
+      invalidate(tables);
+    }
+  }
+
+  /**
+   * Commits the current transaction of the given connection and then
+   * invalidates any cached results which depend on the tables written by
+   * {@link #executeUpdate} within the transaction (results which were read
+   * by other transactions before the commit may have been cached after the
+   * DML was executed).
+   */
+  public void commit(Connection conn) throws SQLException {
+    try {
+      conn.commit();
+    } finally {
+      invalidate(removeTransactionTables(conn));
+    }
+  }
+
+  /**
+   * Rolls back the current transaction of the given connection and then
+   * invalidates any cached results which depend on the tables written by
+   * {@link #executeUpdate} within the transaction (results read within the
+   * transaction may have been cached).
+   */
+  public void rollback(Connection conn) throws SQLException {
+    try {
+      conn.rollback();
+    } finally {
+      invalidate(removeTransactionTables(conn));
+    }
+  }
+
+  /**
+   * Invalidates any cached results which depend on the tables written by the
+   * given DML query (e.g. an {@link InsertQuery}, {@link UpdateQuery} or
+   * {@link DeleteQuery}).
+   */
+  public void invalidate(Query<?> query) {
+    invalidate(getWrittenTables(query));
+  }
+
+  /**
+   * Invalidates any cached results which depend on the given table.
+   */
+  public void invalidate(Table table) {
+    invalidate(Collections.singleton(table));
+  }
+
+  /**
+   * Invalidates any cached results which depend on any of the given tables.
+   */
+  public synchronized void invalidate(Collection<? extends Table> tables) {
+    ++_invalidationCount;
+    for(Table table : tables) {
+      Set<CacheKey> keys = _tableKeys.remove(table);
+      if(keys != null) {
+        for(CacheKey key : keys) {
+          remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Invalidates all cached results.
+   */
+  public synchronized void invalidateAll() {
+    ++_invalidationCount;
+    _entries.clear();
+    _tableKeys.clear();
+  }
+
+  /**
+   * Returns all the tables read by the given query, including tables read by
+   * any nested subqueries.
+   */
+  protected Set<Table> getReadTables(Query<?> query) {
+    Set<Table> tables = new LinkedHashSet<Table>();
+    ValidationContext vContext = ValidationContext.newFlattened(
+        tables, new HashSet<Column>());
+    query.collectSchemaObjects(vContext);
+    vContext.getColumnTables(tables);
+    return tables;
+  }
+
+  /**
+   * Returns the tables written by the given DML query (which may include
+   * some tables which are only read by the query).
+   */
+  protected Set<Table> getWrittenTables(Query<?> query) {
+    Set<Table> tables = new LinkedHashSet<Table>();
+    ValidationContext vContext = new ValidationContext(
+        null, tables, new HashSet<Column>(), true);
+    query.collectSchemaObjects(vContext);
+    vContext.getColumnTables(tables);
+    return tables;
+  }
+
+  private synchronized Object getCached(CacheKey key) {
+    CacheEntry entry = _entries.get(key);
+    if(entry == null) {
+      return null;
+    }
+    if((_ttlNanos > 0L) && ((System.nanoTime() - entry._created) > _ttlNanos)) {
+      remove(key);
+      return null;
+    }
+    return entry._result;
+  }
+
+  private synchronized void putCached(CacheKey key, Object result,
+                                      long invalidationCount) {
+    if(invalidationCount != _invalidationCount) {
+      // result may have been loaded before a relevant write, discard it
+      return;
+    }
+    if(_entries.put(key, new CacheEntry(result)) == null) {
+      for(Table table : key._query._tables) {
+        Set<CacheKey> keys = _tableKeys.get(table);
+        if(keys == null) {
+          keys = new HashSet<CacheKey>();
+          _tableKeys.put(table, keys);
+        }
+        keys.add(key);
+      }
+    }
+  }
+
+  private synchronized void addTransactionTables(
+      Connection conn, Collection<Table> tables) {
+    Set<Table> txnTables = _transactionTables.get(conn);
+    if(txnTables == null) {
+      txnTables = new LinkedHashSet<Table>();
+      _transactionTables.put(conn, txnTables);
+    }
+    txnTables.addAll(tables);
+  }
+
+  private synchronized Set<Table> removeTransactionTables(Connection conn) {
+    Set<Table> txnTables = _transactionTables.remove(conn);
+    return ((txnTables != null) ? txnTables :
+            Collections.<Table>emptySet());
+  }
+
+  private synchronized long getInvalidationCount() {
+    return _invalidationCount;
+  }
+
+  private void remove(CacheKey key) {
+    if(_entries.remove(key) != null) {
+      unindex(key);
+    }
+  }
+
+  private void unindex(CacheKey key) {
+    for(Table table : key._query._tables) {
+      Set<CacheKey> keys = _tableKeys.get(table);
+      if(keys != null) {
+        keys.remove(key);
+        if(keys.isEmpty()) {
+          _tableKeys.remove(table);
+        }
+      }
+    }
+  }
+
+  /**
+   * Handle for the cached results of a single registered query.
+   */
+  public final class CachedQuery
+  {
+    private final String _sql;
+    private final Set<Table> _tables;
+
+    private CachedQuery(String sql, Set<Table> tables) {
+      _sql = sql;
+      _tables = Collections.unmodifiableSet(tables);
+    }
+
+    /** @return the sql for the registered query */
+    public String getSql() {
+      return _sql;
+    }
+
+    /** @return the tables read by the registered query */
+    public Set<Table> getTables() {
+      return _tables;
+    }
+
+    /**
+     * @return the cached result for the given parameters, or {@code null} if
+     *         no result is currently cached
+     */
+    public Object get(Object... params) {
+      return getCached(new CacheKey(this, params));
+    }
+
+    /**
+     * Caches the given result for the given parameters.
+     */
+    public void put(Object result, Object... params) {
+      putCached(new CacheKey(this, params), result, getInvalidationCount());
+    }
+
+    /**
+     * Returns the cached result for the given parameters, using the given
+     * loader to load (and cache) the result if no result is currently
+     * cached.  If a relevant table is invalidated while the result is being
+     * loaded, the loaded result is returned but not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Loader<T> loader, Object... params)
+      throws SQLException
+    {
+      CacheKey key = new CacheKey(this, params);
+      long invalidationCount = getInvalidationCount();
+      T result = (T)getCached(key);
+      if(result == null) {
+        result = loader.load(_sql, key._params);
+        if(result != null) {
+          putCached(key, result, invalidationCount);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return _sql;
+    }
+  }
+
+  /**
+   * Key for a cached result, the query sql and bound parameters.
+   */
+  private static final class CacheKey
+  {
+    private final CachedQuery _query;
+    private final List<Object> _params;
+    private final int _hashCode;
+
+    private CacheKey(CachedQuery query, Object[] params) {
+      _query = query;
+      _params = Collections.unmodifiableList(
+          new ArrayList<Object>(Arrays.asList(params)));
+      _hashCode = (31 * query._sql.hashCode()) + _params.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(this == o) {
+        return true;
+      }
+      if(!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey)o;
+      return ((_hashCode == other._hashCode) &&
+              _query._sql.equals(other._query._sql) &&
+              _params.equals(other._params));
+    }
+  }
+
+  /**
+   * A cached result.
+   */
+  private static final class CacheEntry
+  {
+    private final Object _result;
+    private final long _created = System.nanoTime();
+
+    private CacheEntry(Object result) {
+      _result = result;
+    }
+  }
+
+}
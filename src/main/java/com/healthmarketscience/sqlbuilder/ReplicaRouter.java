@@ -0,0 +1,332 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.sql.DataSource;
+
+
+/**
+ * Helper class which routes queries to either a primary DataSource or one of
+ * a pool of read replica DataSources based on the type of the query.
+ * <p>
+ * A query is considered read-only (see {@link #isReadOnly}) if it is a
+ * {@link SelectQuery} (or a {@link SetOperationQuery} of SelectQuerys)
+ * without the FOR UPDATE clause and all queries nested within it (e.g.
+ * subqueries and common table expressions) are also read-only.  All other
+ * queries (DML, DDL, custom sql) are routed to the primary.
+ * <p>
+ * The replica used for a read-only query is chosen by a pluggable
+ * {@link Balancer} (see {@link #newRoundRobin} and {@link #LEAST_IN_FLIGHT}).
+ * By default, each router uses its own round robin Balancer.
+ * <p>
+ * Since replicas generally lag behind the primary, a {@link Session} may be
+ * used to get "read-your-writes" consistency: after a write has been routed
+ * through a Session, any reads routed through that Session within the
+ * configured window are also sent to the primary.
+ * <p>
+ * This class is thread-safe.  A Session is intended for use by a single
+ * logical client (e.g. a user session or request), but is also thread-safe.
+ * <p>
+ * Example:
+ * <pre>
+ *   ReplicaRouter router = new ReplicaRouter(primaryDs, replicaDs1, replicaDs2)
+ *     .setBalancer(ReplicaRouter.LEAST_IN_FLIGHT)
+ *     .setReadYourWritesWindow(2, TimeUnit.SECONDS);
+ *   ReplicaRouter.Session session = router.newSession();
+ *   Connection conn = session.getConnection(query);
+ *   try {
+ *     // ... execute query.toString() ...
+ *   } finally {
+ *     conn.close();
+ *   }
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class ReplicaRouter
+{
+  /**
+   * Strategy for choosing which replica will handle a read-only query.
+   */
+  public interface Balancer
+  {
+    /**
+     * @param inFlight the number of currently open connections for each
+     *                 replica
+     * @return the index of the chosen replica
+     */
+    public int selectReplica(int[] inFlight);
+  }
+
+  /**
+   * @return a new Balancer which chooses each replica in turn (the Balancer
+   *         is stateful, so should not be shared between routers)
+   */
+  public static Balancer newRoundRobin() {
+    return new Balancer() {
+      private final AtomicInteger _next = new AtomicInteger();
+      @Override
+      public int selectReplica(int[] inFlight) {
+        return ((_next.getAndIncrement() & Integer.MAX_VALUE) %
+                inFlight.length);
+      }
+    };
+  }
+
+  /** Balancer which chooses the replica with the fewest open connections
+      (the first such replica on ties) */
+  public static final Balancer LEAST_IN_FLIGHT = new Balancer() {
+    @Override
+    public int selectReplica(int[] inFlight) {
+      int best = 0;
+      for(int i = 1; i < inFlight.length; ++i) {
+        if(inFlight[i] < inFlight[best]) {
+          best = i;
+        }
+      }
+      return best;
+    }
+  };
+
+  private final DataSource _primary;
+  private final List<DataSource> _replicas;
+  private final AtomicLongArray _inFlight;
+  private volatile Balancer _balancer = newRoundRobin();
+  private volatile long _readYourWritesNanos;
+
+  public ReplicaRouter(DataSource primary, DataSource... replicas) {
+    _primary = primary;
+    _replicas = Collections.unmodifiableList(
+        new ArrayList<DataSource>(Arrays.asList(replicas)));
+    _inFlight = new AtomicLongArray(replicas.length);
+  }
+
+  /** @return the primary DataSource */
+  public DataSource getPrimary() {
+    return _primary;
+  }
+
+  /** @return the replica DataSources */
+  public List<DataSource> getReplicas() {
+    return _replicas;
+  }
+
+  public Balancer getBalancer() {
+    return _balancer;
+  }
+
+  public ReplicaRouter setBalancer(Balancer balancer) {
+    if(balancer == null) {
+      throw new IllegalArgumentException("balancer was null");
+    }
+    _balancer = balancer;
+    return this;
+  }
+
+  /**
+   * Sets the amount of time after a write within a {@link Session} during
+   * which reads within that Session will be routed to the primary.  Default
+   * is {@code 0} (no read-your-writes consistency).
+   */
+  public ReplicaRouter setReadYourWritesWindow(long window, TimeUnit unit) {
+    _readYourWritesNanos = unit.toNanos(window);
+    return this;
+  }
+
+  /**
+   * @return the number of currently open connections obtained from the
+   *         replica with the given index
+   */
+  public int getInFlight(int replicaIdx) {
+    return (int)_inFlight.get(replicaIdx);
+  }
+
+  /**
+   * @return a new Session for routing queries with read-your-writes
+   *         consistency
+   */
+  public Session newSession() {
+    return new Session();
+  }
+
+  /**
+   * Returns a connection appropriate for executing the given query (without
+   * read-your-writes consistency).
+   */
+  public Connection getConnection(SqlObject query) throws SQLException {
+    return (isReadOnly(query) ? getReplicaConnection() :
+            _primary.getConnection());
+  }
+
+  /**
+   * Returns a connection from one of the replicas (or the primary if there
+   * are no replicas).
+   */
+  public Connection getReplicaConnection() throws SQLException {
+    int numReplicas = _replicas.size();
+    if(numReplicas == 0) {
+      return _primary.getConnection();
+    }
+
+    int[] inFlight = new int[numReplicas];
+    for(int i = 0; i < numReplicas; ++i) {
+      inFlight[i] = (int)_inFlight.get(i);
+    }
+    int replicaIdx = _balancer.selectReplica(inFlight);
+
+    Connection conn = _replicas.get(replicaIdx).getConnection();
+    _inFlight.incrementAndGet(replicaIdx);
+    return (Connection)Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+        new TrackingHandler(conn, replicaIdx));
+  }
+
+  /**
+   * Returns {@code true} if the given query only reads data, {@code false}
+   * otherwise.
+   */
+  public static boolean isReadOnly(SqlObject query) {
+    if(!(query instanceof SelectQuery) &&
+       !(query instanceof SetOperationQuery<?>)) {
+      return false;
+    }
+    ClassifyingContext vContext = new ClassifyingContext();
+    query.collectSchemaObjects(vContext);
+    return vContext._readOnly;
+  }
+
+  /**
+   * Routes queries with read-your-writes consistency.
+   */
+  public final class Session
+  {
+    /** time of the last write through this session (only valid if
+        _hasWritten is {@code true}) */
+    private final AtomicLong _lastWrite = new AtomicLong();
+    private volatile boolean _hasWritten;
+
+    private Session() {}
+
+    /**
+     * Returns a connection appropriate for executing the given query.  If
+     * the query is a write, subsequent reads within the read-your-writes
+     * window will be routed to the primary.
+     */
+    public Connection getConnection(SqlObject query) throws SQLException {
+      if(!isReadOnly(query)) {
+        markWrite();
+        return _primary.getConnection();
+      }
+      if(isWithinWriteWindow()) {
+        return _primary.getConnection();
+      }
+      return getReplicaConnection();
+    }
+
+    /**
+     * Records a write which was made outside of this router (so that
+     * subsequent reads observe it).
+     */
+    public void markWrite() {
+      _lastWrite.set(System.nanoTime());
+      _hasWritten = true;
+    }
+
+    /**
+     * @return {@code true} if reads through this session are currently
+     *         being routed to the primary
+     */
+    public boolean isWithinWriteWindow() {
+      return (_hasWritten &&
+              ((System.nanoTime() - _lastWrite.get()) < _readYourWritesNanos));
+    }
+  }
+
+  /**
+   * Connection handler which decrements the in-flight count of the relevant
+   * replica when the connection is closed.
+   */
+  private final class TrackingHandler implements InvocationHandler
+  {
+    private final Connection _conn;
+    private final int _replicaIdx;
+    private final AtomicBoolean _closed = new AtomicBoolean();
+
+    private TrackingHandler(Connection conn, int replicaIdx) {
+      _conn = conn;
+      _replicaIdx = replicaIdx;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+      throws Throwable
+    {
+      if(method.getName().equals("close") && (method.getParameterCount() == 0)) {
+        if(_closed.compareAndSet(false, true)) {
+          _inFlight.decrementAndGet(_replicaIdx);
+        }
+      }
+      try {
+        return method.invoke(_conn, args);
+      } catch(InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /**
+   * ValidationContext which descends into all nested queries looking for
+   * any query which is not read-only.
+   */
+  private static final class ClassifyingContext extends ValidationContext
+  {
+    private boolean _readOnly = true;
+
+    private ClassifyingContext() {
+      super(null, null, false, true);
+    }
+
+    @Override
+    public void addVerifiable(Verifiable<?> verifiable) {
+      if(verifiable instanceof Query<?>) {
+        if(verifiable instanceof SelectQuery) {
+          if(((SelectQuery)verifiable).isForUpdate()) {
+            _readOnly = false;
+          }
+        } else if(!(verifiable instanceof SetOperationQuery<?>)) {
+          _readOnly = false;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.time.LocalDate;
+
+
+/**
+ * Opt-in pass which rewrites some common predicates which prevent the use of
+ * indexes on most databases into equivalent "sargable" range predicates on
+ * the underlying column.  The following rewrites are applied:
+ * <ul>
+ * <li>comparisons of the year of a date column with an integral value
+ *     (using either {@code EXTRACT(YEAR FROM col)} or the common
+ *     {@code YEAR(col)} function), e.g. {@code EXTRACT(YEAR FROM col) = 2024}
+ *     becomes <code>(col &gt;= {d '2024-01-01'}) AND
+ *     (col &lt; {d '2025-01-01'})</code></li>
+ * <li>{@code LIKE} conditions on a column whose pattern is a literal prefix
+ *     followed by {@code %}, e.g. {@code col LIKE 'abc%'} becomes
+ *     {@code (col >= 'abc') AND (col < 'abd')} (only if enabled, see
+ *     below)</li>
+ * </ul>
+ * <p>
+ * Note that other function wrappers (e.g. {@code lower(col) = ?}) cannot
+ * be rewritten without changing the meaning of the condition and are left
+ * unchanged (an expression index is the appropriate fix for those).
+ * <p>
+ * The {@code LIKE} rewrite assumes a collation in which all strings with a
+ * given prefix sort between the prefix and the prefix with its last
+ * character incremented (e.g. a binary or "C" collation), so it is disabled
+ * by default and must be enabled using {@link #setRewriteLikePrefixes}.
+ * Patterns using the
+ * {@code _} wildcard are never rewritten, nor are patterns containing a
+ * backslash unless an explicit escape char is given (some databases use
+ * backslash as the default escape char).
+ * <p>
+ * As with any {@link SqlTransformer}, the given object is not modified,
+ * instead a (partial) copy is returned if anything was rewritten.
+ * <p>
+ * Example:
+ * <pre>
+ *   SelectQuery sargable = (SelectQuery)SargableRewriter.process(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class SargableRewriter extends SqlTransformer
+{
+  private static final String YEAR = "YEAR";
+
+  private boolean _rewriteLikePrefixes;
+
+  public SargableRewriter() {}
+
+  /**
+   * @return the given object with all relevant predicates rewritten
+   */
+  public static SqlObject process(SqlObject obj) {
+    return new SargableRewriter().transform(obj);
+  }
+
+  public boolean isRewriteLikePrefixes() {
+    return _rewriteLikePrefixes;
+  }
+
+  /**
+   * Enables/disables rewriting {@code LIKE} prefix patterns into range
+   * conditions.  Default is {@code false}.
+   */
+  public SargableRewriter setRewriteLikePrefixes(boolean rewriteLikePrefixes)
+  {
+    _rewriteLikePrefixes = rewriteLikePrefixes;
+    return this;
+  }
+
+  @Override
+  protected SqlObject rewrite(SqlObject obj) {
+    if(!(obj instanceof BinaryCondition)) {
+      return obj;
+    }
+    BinaryCondition cond = (BinaryCondition)obj;
+    Object op = cond.getBinaryOp();
+    Condition newCond = null;
+    if(op == BinaryCondition.Op.LIKE) {
+      if(_rewriteLikePrefixes) {
+        newCond = rewriteLikePrefix(cond);
+      }
+    } else if(op instanceof BinaryCondition.Op) {
+      newCond = rewriteYear(cond);
+    }
+    return ((newCond != null) ? newCond : cond);
+  }
+
+  /**
+   * Returns the literal used for the first day of the given year in
+   * rewritten year comparisons.  Default implementation returns a JDBC
+   * escaped date.
+   */
+  protected Object toYearStartLiteral(int year) {
+    return JdbcEscape.date(LocalDate.of(year, 1, 1));
+  }
+
+  /**
+   * @return the range condition equivalent to the given year comparison, or
+   *         {@code null} if it is not a year comparison which can be
+   *         rewritten
+   */
+  private Condition rewriteYear(BinaryCondition cond) {
+    BinaryCondition.Op op = (BinaryCondition.Op)cond.getBinaryOp();
+    SqlObject column = getYearColumn(cond.getLeftValue());
+    SqlObject value = cond.getRightValue();
+    if(column == null) {
+      // check for year on the right side (flip the comparison)
+      column = getYearColumn(cond.getRightValue());
+      value = cond.getLeftValue();
+      op = flip(op);
+    }
+    if((column == null) || (op == null) ||
+       !(value instanceof NumberValueObject) ||
+       !((NumberValueObject)value).isIntegralInRange(1, 9998)) {
+      return null;
+    }
+    int year = ((NumberValueObject)value).getValue().intValue();
+
+    switch(op) {
+    case EQUAL_TO:
+      return ComboCondition.and(
+          BinaryCondition.greaterThanOrEq(column, toYearStartLiteral(year)),
+          BinaryCondition.lessThan(column, toYearStartLiteral(year + 1)));
+    case LESS_THAN:
+      return BinaryCondition.lessThan(column, toYearStartLiteral(year));
+    case LESS_THAN_OR_EQUAL_TO:
+      return BinaryCondition.lessThan(column, toYearStartLiteral(year + 1));
+    case GREATER_THAN:
+      return BinaryCondition.greaterThanOrEq(
+          column, toYearStartLiteral(year + 1));
+    case GREATER_THAN_OR_EQUAL_TO:
+      return BinaryCondition.greaterThanOrEq(column, toYearStartLiteral(year));
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * @return the column from which the year is taken if the given object is
+   *         a year extraction of a column, {@code null} otherwise
+   */
+  private static SqlObject getYearColumn(SqlObject obj) {
+    SqlObject dateExpr = null;
+    if(obj instanceof ExtractExpression) {
+      ExtractExpression extract = (ExtractExpression)obj;
+      if(YEAR.equalsIgnoreCase(String.valueOf(extract.getDatePart()))) {
+        dateExpr = extract.getDateExpression();
+      }
+    } else if(obj instanceof FunctionCall) {
+      FunctionCall func = (FunctionCall)obj;
+      if((func.getWindow() == null) && !func.isDistinct() &&
+         (func.getParams().size() == 1) &&
+         YEAR.equalsIgnoreCase(func.getFunctionName().toString())) {
+        dateExpr = func.getParams().get(0);
+      }
+    }
+    return ((dateExpr instanceof ColumnObject) ? dateExpr : null);
+  }
+
+  /**
+   * @return the operator which gives the same result when the operands are
+   *         swapped, or {@code null} if the operator is not a comparison
+   */
+  private static BinaryCondition.Op flip(BinaryCondition.Op op) {
+    switch(op) {
+    case EQUAL_TO:
+      return op;
+    case LESS_THAN:
+      return BinaryCondition.Op.GREATER_THAN;
+    case LESS_THAN_OR_EQUAL_TO:
+      return BinaryCondition.Op.GREATER_THAN_OR_EQUAL_TO;
+    case GREATER_THAN:
+      return BinaryCondition.Op.LESS_THAN;
+    case GREATER_THAN_OR_EQUAL_TO:
+      return BinaryCondition.Op.LESS_THAN_OR_EQUAL_TO;
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * @return the range condition equivalent to the given LIKE condition, or
+   *         {@code null} if the pattern is not a simple literal prefix
+   */
+  private static Condition rewriteLikePrefix(BinaryCondition cond) {
+    if(!(cond.getLeftValue() instanceof ColumnObject) ||
+       !(cond.getRightValue() instanceof ValueObject)) {
+      return null;
+    }
+    Object patternObj = ((ValueObject)cond.getRightValue()).getValue();
+    if(!(patternObj instanceof String)) {
+      return null;
+    }
+    String pattern = (String)patternObj;
+    Character escapeChar = cond.getLikeEscapeChar();
+
+    // parse the literal prefix, which must be followed only by '%'s
+    StringBuilder prefix = new StringBuilder();
+    int i = 0;
+    for(; i < pattern.length(); ++i) {
+      char c = pattern.charAt(i);
+      if((escapeChar != null) && (c == escapeChar)) {
+        if(++i == pattern.length()) {
+          // invalid pattern
+          return null;
+        }
+        prefix.append(pattern.charAt(i));
+      } else if(c == '%') {
+        break;
+      } else if((c == '_') || ((escapeChar == null) && (c == '\\'))) {
+        return null;
+      } else {
+        prefix.append(c);
+      }
+    }
+    if((prefix.length() == 0) || (i == pattern.length())) {
+      // no prefix or no trailing wildcard
+      return null;
+    }
+    for(; i < pattern.length(); ++i) {
+      if(pattern.charAt(i) != '%') {
+        return null;
+      }
+    }
+
+    char last = prefix.charAt(prefix.length() - 1);
+    if((last == Character.MAX_VALUE) || Character.isSurrogate(last) ||
+       Character.isSurrogate((char)(last + 1))) {
+      return null;
+    }
+    String lower = prefix.toString();
+    prefix.setCharAt(prefix.length() - 1, (char)(last + 1));
+    String upper = prefix.toString();
+
+    SqlObject column = cond.getLeftValue();
+    return ComboCondition.and(BinaryCondition.greaterThanOrEq(column, lower),
+                              BinaryCondition.lessThan(column, upper));
+  }
+}
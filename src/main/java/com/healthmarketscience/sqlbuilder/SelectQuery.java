@@ -17,13 +17,16 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Set;
 
 import com.healthmarketscience.common.util.AppendableExt;
@@ -42,13 +45,16 @@ import com.healthmarketscience.sqlbuilder.custom.HookAnchor;
  * "WHERE" clause, "GROUP BY" clause, "ORDER BY" clause, and "HAVING" clause.
  * <p>
  * Note that the "OFFSET" and "FETCH NEXT" clauses are supported from "SQL
- * 2008".
+ * 2008".  These clauses are rendered in the native form of the
+ * {@link Dialect} of the current {@link SqlContext}.
  * <p>
  * If Columns are used for any referenced columns, and no complicated joins
  * are required, the table list may be left empty and it will be
- * auto-generated in the append call.  Note, that this is not the most
- * efficient method (as this list will not be cached for the future due to
- * mutability constraints on <code>appendTo</code>).
+ * auto-generated in the append call.  The referenced tables are generally
+ * collected while the query is being appended (so the query is only
+ * traversed once), and the tables of the queries enclosing a nested query
+ * are only determined once per append call.  Nothing is remembered between
+ * append calls, so the query may be modified freely in between.
  * <p>
  * Note that this query supports custom SQL syntax, see {@link Hook} for more
  * details.
@@ -136,6 +142,34 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
 
   /** Returns the ordering in this select query. */
   SqlObjectList<SqlObject> getOrdering() { return _ordering; }
+
+  /** Returns the ON conditions of the joins in this select query. */
+  List<Condition> getJoinConditions() {
+    List<Condition> conds = new ArrayList<Condition>();
+    for(SqlObject joinObj : _joins) {
+      if((joinObj instanceof JoinTo) &&
+         (((JoinTo)joinObj)._onCondition != null)) {
+        conds.add(((JoinTo)joinObj)._onCondition);
+      }
+    }
+    return conds;
+  }
+
+  /** Returns the grouping in this select query. */
+  SqlObjectList<SqlObject> getGrouping() { return _grouping; }
+
+  /** Returns the named window definitions in this select query. */
+  SqlObjectList<SqlObject> getWindows() { return _windows; }
+
+  /** Returns the offset of this select query, if any. */
+  SqlObject getOffset() { return _offset; }
+
+  /** Returns the fetch count of this select query, if any. */
+  SqlObject getFetchCount() { return _fetchCount; }
+
+  /** Returns {@code true} iff this select query includes the DISTINCT
+      keyword. */
+  boolean isDistinct() { return _isDistinct; }
   
   /**
    * Returns <code>true</code> iff this select query is using some sort of
@@ -176,6 +210,11 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     _forUpdate = forUpdate;
     return this;
   }
+
+  /** @return {@code true} if this query includes the FOR UPDATE clause */
+  public boolean isForUpdate() {
+    return _forUpdate;
+  }
   
   /**
    * Adds the given columns to the SELECT column list.
@@ -328,6 +367,410 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     return this;
   }
 
+  /**
+   * Removes any joins to tables which do not contribute any columns to this
+   * query and which cannot affect the rows returned by this query.  A join
+   * to a table which is not otherwise referenced by this query (including
+   * any nested subqueries and the join conditions of the remaining joins) is
+   * removed if it is:
+   * <ul>
+   * <li>a {@link JoinType#LEFT_OUTER} join whose condition equates all the
+   *     columns of a primary key or unique constraint of the joined table to
+   *     columns of other tables (or values), so that it matches at most one
+   *     row, or</li>
+   * <li>a {@link JoinType#INNER} join whose condition equates exactly the
+   *     columns of a foreign key constraint (of the "from" table) whose
+   *     columns are all not null to the referenced columns of the joined
+   *     table, so that it matches exactly one row.</li>
+   * </ul>
+   * Joins are considered from last to first, and removing a join may allow
+   * previous joins to be removed.  Nothing is removed if the query selects
+   * "*" or if the joins were not all added using the {@code add*Join}
+   * methods.
+   * <p>
+   * Note, tables which are only referenced via custom sql cannot be
+   * detected, so this method should not be used on queries which reference
+   * the joined tables that way.
+   *
+   * @return this query
+   */
+  public SelectQuery eliminateUnusedJoins() {
+    if(_joinFromTables.isEmpty() ||
+       (_joinFromTables.size() != (_joins.size() - 1)) ||
+       hasAllColumns(_columns)) {
+      return this;
+    }
+    for(SqlObject joinObj : _joins) {
+      SqlObject tableObj = ((joinObj instanceof JoinTo) ?
+                            ((JoinTo)joinObj)._toTable : joinObj);
+      if(!(tableObj instanceof TableObject) ||
+         ((joinObj instanceof JoinTo) &&
+          (((JoinTo)joinObj)._joinType == null))) {
+        // custom table or "simple" join
+        return this;
+      }
+    }
+    for(SqlObject fromObj : _joinFromTables) {
+      if(!(fromObj instanceof TableObject)) {
+        return this;
+      }
+    }
+
+    // find all the tables referenced outside of the FROM clause
+    ValidationContext vContext = ValidationContext.newFlattened();
+    super.collectSchemaObjects(vContext);
+    _columns.collectSchemaObjects(vContext);
+    _condition.collectSchemaObjects(vContext);
+    _grouping.collectSchemaObjects(vContext);
+    _ordering.collectSchemaObjects(vContext);
+    _having.collectSchemaObjects(vContext);
+    _windows.collectSchemaObjects(vContext);
+    collectSchemaObjects(_offset, vContext);
+    collectSchemaObjects(_fetchCount, vContext);
+    Set<Table> usedTables = new HashSet<Table>(vContext.getTables());
+    vContext.getColumnTables(usedTables);
+
+    boolean removed = true;
+    while(removed) {
+      removed = false;
+      for(int i = _joins.size() - 1; i > 0; --i) {
+        if(isRemovableJoin(i, usedTables)) {
+          Iterator<SqlObject> iter = _joins.iterator();
+          for(int j = 0; j <= i; ++j) {
+            iter.next();
+          }
+          iter.remove();
+          _joinFromTables.remove(i - 1);
+          removed = true;
+        }
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns <code>true</code> if the join at the given index of the joins
+   * list can be removed (see {@link #eliminateUnusedJoins}),
+   * <code>false</code> otherwise.
+   */
+  private boolean isRemovableJoin(int joinIdx, Set<Table> usedTables) {
+    JoinTo join = (JoinTo)_joins.get(joinIdx);
+    Table table = ((TableObject)join._toTable)._table;
+    if(usedTables.contains(table)) {
+      return false;
+    }
+
+    // check the other joins
+    ValidationContext vContext = ValidationContext.newFlattened();
+    for(int i = 0; i < _joins.size(); ++i) {
+      if(i != joinIdx) {
+        _joins.get(i).collectSchemaObjects(vContext);
+      }
+    }
+    for(int i = 0; i < _joinFromTables.size(); ++i) {
+      if(i != (joinIdx - 1)) {
+        _joinFromTables.get(i).collectSchemaObjects(vContext);
+      }
+    }
+    if(vContext.getTables().contains(table) ||
+       vContext.getColumnTables().contains(table)) {
+      return false;
+    }
+
+    // find the equality conditions between the columns of the joined table
+    // and everything else
+    List<Column> keyColumns = new ArrayList<Column>();
+    List<SqlObject> otherValues = new ArrayList<SqlObject>();
+    boolean onlyKeyConditions = findKeyConditions(
+        join._onCondition, table, keyColumns, otherValues);
+
+    switch(join._joinType) {
+    case LEFT_OUTER:
+      // matches at most one row
+      return Constraints.containsUniqueKey(table, keyColumns);
+    case INNER:
+      // matches exactly one row
+      if(!onlyKeyConditions || keyColumns.isEmpty()) {
+        return false;
+      }
+      Table fromTable = ((TableObject)_joinFromTables.get(joinIdx - 1))._table;
+      if(isOuterJoined(fromTable)) {
+        // a null foreign key row would be filtered out by this join
+        return false;
+      }
+      List<Column> fkColumns = new ArrayList<Column>();
+      for(SqlObject otherValue : otherValues) {
+        if(!(otherValue instanceof ColumnObject)) {
+          return false;
+        }
+        Column fkColumn = ((ColumnObject)otherValue).getColumn();
+        if((fkColumn.getTable() != fromTable) ||
+           !Constraints.isNotNull(fkColumn)) {
+          return false;
+        }
+        fkColumns.add(fkColumn);
+      }
+      return Constraints.isForeignKey(fkColumns, keyColumns);
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Finds all the "column = value" conditions (combined using AND) in the
+   * given condition where the column is from the given table and the value
+   * does not reference the given table.
+   *
+   * @param cond the condition to search
+   * @param table the relevant table
+   * @param keyColumns (out) the columns of the given table
+   * @param otherValues (out) the values to which the columns are equal
+   * @return <code>true</code> if the condition consists solely of such
+   *         conditions, <code>false</code> otherwise
+   */
+  private static boolean findKeyConditions(
+      Condition cond, Table table, List<Column> keyColumns,
+      List<SqlObject> otherValues)
+  {
+    if(cond instanceof ComboCondition) {
+      ComboCondition comboCond = (ComboCondition)cond;
+      if(comboCond.getComboOp() != ComboCondition.Op.AND) {
+        return false;
+      }
+      boolean onlyKeyConditions = true;
+      for(Condition nestedCond : comboCond.getConditions()) {
+        onlyKeyConditions &= findKeyConditions(nestedCond, table, keyColumns,
+                                               otherValues);
+      }
+      return onlyKeyConditions;
+    }
+    if(!(cond instanceof BinaryCondition)) {
+      return false;
+    }
+    BinaryCondition binCond = (BinaryCondition)cond;
+    if(binCond.getBinaryOp() != BinaryCondition.Op.EQUAL_TO) {
+      return false;
+    }
+    SqlObject leftValue = binCond.getLeftValue();
+    SqlObject rightValue = binCond.getRightValue();
+    if(isTableColumn(leftValue, table) && !referencesTable(rightValue, table)) {
+      keyColumns.add(((ColumnObject)leftValue).getColumn());
+      otherValues.add(rightValue);
+      return true;
+    }
+    if(isTableColumn(rightValue, table) && !referencesTable(leftValue, table)) {
+      keyColumns.add(((ColumnObject)rightValue).getColumn());
+      otherValues.add(leftValue);
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isTableColumn(SqlObject obj, Table table) {
+    return ((obj instanceof ColumnObject) &&
+            (((ColumnObject)obj).getColumn().getTable() == table));
+  }
+
+  private static boolean referencesTable(SqlObject obj, Table table) {
+    ValidationContext vContext = ValidationContext.newFlattened();
+    obj.collectSchemaObjects(vContext);
+    return (vContext.getTables().contains(table) ||
+            vContext.getColumnTables().contains(table));
+  }
+
+  /**
+   * Returns a new query which counts the rows returned by this query
+   * (ignoring any OFFSET/FETCH NEXT clauses), e.g. to get the total number of
+   * rows for a paginated query.  The ordering, OFFSET/FETCH NEXT and FOR
+   * UPDATE clauses are dropped and the select list is replaced by {@code
+   * COUNT(*)}, which may in turn allow some outer joins to be removed (see
+   * {@link #eliminateUnusedJoins}).
+   * <p>
+   * If this query is DISTINCT, grouped or an aggregate query (uses one of the
+   * standard aggregate functions or a HAVING clause without grouping), the
+   * distinct rows/groups are counted instead.  If there is a single not null
+   * DISTINCT column (or GROUP BY column without HAVING) of a table which is
+   * not outer joined, that is done using {@code COUNT(DISTINCT <column>)},
+   * otherwise the query (minus the dropped clauses) is counted as a derived
+   * table {@code SELECT COUNT(*) FROM (<query>) cnt}, where the columns of
+   * the derived table are given generated aliases (unless already
+   * aliased).
+   * <p>
+   * This query should be a top-level query and is not modified.
+   */
+  public SelectQuery toCountQuery() {
+    SelectQuery query = copy();
+    query._ordering.clear();
+    query._offset = null;
+    query._fetchCount = null;
+    query._forUpdate = false;
+    if(query._joins.isEmpty()) {
+      // the FROM clause would otherwise be determined by the select list
+      // and ordering which are being replaced
+      for(Table table : getColumnTables()) {
+        query.addFromTable(table);
+      }
+    }
+
+    boolean grouped = !_grouping.isEmpty();
+    boolean aggregate = (!grouped &&
+                         (!_having.isEmpty() || hasAggregate(_columns)));
+    if(!_isDistinct && !grouped && !aggregate) {
+      query.setCountColumn(FunctionCall.countAll());
+      return query.eliminateUnusedJoins();
+    }
+
+    if(_isDistinct != grouped) {
+      SqlObjectList<SqlObject> keys = (grouped ? _grouping : _columns);
+      SqlObject key = ((keys.size() == 1) ? keys.get(0) : null);
+      if(key instanceof AliasedObject) {
+        key = ((AliasedObject)key).getObject();
+      }
+      if((key instanceof ColumnObject) && _having.isEmpty() &&
+         Constraints.isNotNull(((ColumnObject)key).getColumn()) &&
+         !isOuterJoined(((ColumnObject)key).getColumn().getTable())) {
+        query._grouping.clear();
+        query._isDistinct = false;
+        query.setCountColumn(FunctionCall.count().setIsDistinct(true)
+                             .addColumnParams(
+                                 ((ColumnObject)key).getColumn()));
+        return query.eliminateUnusedJoins();
+      }
+    }
+
+    if(grouped && !_isDistinct && !aggregate) {
+      // only the groups matter
+      boolean plainGrouping = true;
+      for(SqlObject group : _grouping) {
+        if(!(group instanceof ColumnObject)) {
+          plainGrouping = false;
+          break;
+        }
+      }
+      if(plainGrouping) {
+        query._columns.clear();
+        query._columns.addObjects(_grouping);
+        query.eliminateUnusedJoins();
+      }
+    }
+
+    // the columns of a derived table must have distinct names
+    int colIdx = 0;
+    for(ListIterator<SqlObject> iter = query._columns.listIterator();
+        iter.hasNext(); ) {
+      SqlObject col = iter.next();
+      ++colIdx;
+      if(!(col instanceof AliasedObject) && (col != ALL_SYMBOL) &&
+         !(col instanceof AllTableColumns)) {
+        iter.set(new AliasedObject(col, "cnt_col" + colIdx));
+      }
+    }
+
+    // common table expressions must be defined by the outer query
+    SelectQuery countQuery = new SelectQuery()
+      .addCustomColumns(FunctionCall.countAll())
+      .addCustomFromTable(new DerivedTable(query, "cnt"))
+      .setRecursive(query.isRecursive());
+    countQuery.getCommonTableExpressions().addObjects(
+        query.getCommonTableExpressions());
+    query.getCommonTableExpressions().clear();
+    return countQuery;
+  }
+
+  /**
+   * @return {@code true} if the given table may be on the null supplying
+   *         side of an outer join of this query (or the type of a join
+   *         cannot be determined), {@code false} otherwise
+   */
+  boolean isOuterJoined(Table table) {
+    for(int i = 1; i < _joins.size(); ++i) {
+      SqlObject joinObj = _joins.get(i);
+      if(!(joinObj instanceof JoinTo)) {
+        // custom join
+        return true;
+      }
+      JoinType joinType = ((JoinTo)joinObj)._joinType;
+      if((joinType == null) || (joinType == JoinType.INNER)) {
+        continue;
+      }
+      if((joinType != JoinType.RIGHT_OUTER) &&
+         referencesTable(((JoinTo)joinObj)._toTable, table)) {
+        return true;
+      }
+      if(joinType != JoinType.LEFT_OUTER) {
+        // all the previously joined tables are null supplying
+        for(int j = 0; j < i; ++j) {
+          SqlObject prevObj = _joins.get(j);
+          if(referencesTable(((prevObj instanceof JoinTo) ?
+                              ((JoinTo)prevObj)._toTable : prevObj),
+                             table)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a copy of this query with an additional final column {@code
+   * COUNT(*) OVER ()} which contains the total number of rows returned by
+   * this query (ignoring any OFFSET/FETCH NEXT clauses), e.g. to get a page
+   * of rows and the total number of rows for a paginated query in one query.
+   * <p>
+   * This query is not modified.
+   *
+   * @throws IllegalStateException if this query is DISTINCT (the window
+   *         function is evaluated before duplicates are removed)
+   */
+  public SelectQuery withTotalCount() {
+    if(_isDistinct) {
+      throw new IllegalStateException(
+          "total count cannot be determined for DISTINCT query");
+    }
+    SelectQuery query = copy();
+    query.addCustomColumns(FunctionCall.countAll()
+                           .setWindow(new WindowDefinitionClause()));
+    return query;
+  }
+
+  /**
+   * Replaces the select list (and any named windows, which are only used by
+   * the select list and ordering) with the given count column.
+   */
+  private void setCountColumn(FunctionCall countCol) {
+    _columns.clear();
+    _windows.clear();
+    _columns.addObject(countCol);
+  }
+
+  /**
+   * @return {@code true} if the given select list includes an aggregate
+   *         function (outside of any nested subqueries), {@code false}
+   *         otherwise
+   */
+  static boolean hasAggregate(SqlObject columns) {
+    final boolean[] found = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if(obj instanceof Subquery) {
+          return false;
+        }
+        if((obj instanceof FunctionCall) &&
+           (((FunctionCall)obj).getWindow() == null) &&
+           SubqueryRewriter.AGGREGATE_FUNCTIONS.contains(
+               ((FunctionCall)obj).getFunctionName().toString()
+               .toUpperCase())) {
+          found[0] = true;
+        }
+        return !found[0];
+      }
+    }.walk(columns);
+    return found[0];
+  }
+
   /**
    * Adds the given column with the given direction to the "ORDER BY"
    * clause
@@ -477,6 +920,15 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     _fetchCount = Converter.toValueSqlObject(fetchCount);
     return this;
   }
+
+  /**
+   * Sets the raw offset and fetch count values (either of which may be
+   * {@code null}).
+   */
+  void setOffsetAndFetch(SqlObject offset, SqlObject fetchCount) {
+    _offset = offset;
+    _fetchCount = fetchCount;
+  }
   
   /**
    * Adds custom SQL to this query.  See {@link com.healthmarketscience.sqlbuilder.custom} for more details on
@@ -505,6 +957,11 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     return this;
   }
 
+  @Override
+  protected void applyHint(CustomSyntax hint) {
+    addCustomization(hint);
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     super.collectSchemaObjects(vContext);
@@ -523,6 +980,88 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     }
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<SqlObject> columns = _columns.transformObjects(
+        transformer, SqlObject.class);
+    List<SqlObject> joinFromTables = null;
+    int idx = 0;
+    for(SqlObject fromTable : _joinFromTables) {
+      SqlObject newFromTable = transformer.transform(fromTable);
+      if((newFromTable != fromTable) && (joinFromTables == null)) {
+        joinFromTables = new LinkedList<SqlObject>(
+            _joinFromTables.subList(0, idx));
+      }
+      if(joinFromTables != null) {
+        joinFromTables.add(newFromTable);
+      }
+      ++idx;
+    }
+    SqlObjectList<SqlObject> joins = _joins.transformObjects(
+        transformer, SqlObject.class);
+    ComboCondition condition = transformer.transformClause(_condition);
+    SqlObjectList<SqlObject> grouping = _grouping.transformObjects(
+        transformer, SqlObject.class);
+    ComboCondition having = transformer.transformClause(_having);
+    SqlObjectList<SqlObject> windows = _windows.transformObjects(
+        transformer, SqlObject.class);
+    SqlObjectList<SqlObject> ordering = _ordering.transformObjects(
+        transformer, SqlObject.class);
+    SqlObject offset = transformer.transform(_offset);
+    SqlObject fetchCount = transformer.transform(_fetchCount);
+    if((columns == _columns) && (joinFromTables == null) &&
+       (joins == _joins) && (condition == _condition) &&
+       (grouping == _grouping) && (having == _having) &&
+       (windows == _windows) && (ordering == _ordering) &&
+       (offset == _offset) && (fetchCount == _fetchCount)) {
+      return result;
+    }
+
+    SelectQuery copy = (SelectQuery)((result == this) ? copy() : result);
+    if(columns != _columns) {
+      copy._columns = columns;
+    }
+    if(joinFromTables != null) {
+      copy._joinFromTables = joinFromTables;
+    }
+    if(joins != _joins) {
+      copy._joins = joins;
+    }
+    if(condition != _condition) {
+      copy._condition = condition;
+    }
+    if(grouping != _grouping) {
+      copy._grouping = grouping;
+    }
+    if(having != _having) {
+      copy._having = having;
+    }
+    if(windows != _windows) {
+      copy._windows = windows;
+    }
+    if(ordering != _ordering) {
+      copy._ordering = ordering;
+    }
+    copy._offset = offset;
+    copy._fetchCount = fetchCount;
+    return copy;
+  }
+
+  @Override
+  protected SelectQuery copy() {
+    SelectQuery copy = (SelectQuery)super.copy();
+    copy._columns = _columns.copy();
+    copy._joins = _joins.copy();
+    copy._joinFromTables = new LinkedList<SqlObject>(_joinFromTables);
+    copy._condition = _condition.copy();
+    copy._grouping = _grouping.copy();
+    copy._ordering = _ordering.copy();
+    copy._having = _having.copy();
+    copy._windows = _windows.copy();
+    return copy;
+  }
+
   @Override
   public void validate(ValidationContext vContext)
     throws ValidationException
@@ -653,24 +1192,78 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     customAppendTo(app, Hook.SELECT, "SELECT ");
 
     maybeAppendTo(app, Hook.DISTINCT, "DISTINCT ", _isDistinct);
+
+    newContext.getDialect().appendLimitPrefix(app, _offset, _fetchCount);
+
+    SqlObjectList<SqlObject> joins = _joins;
+    if(joins.isEmpty() && canCollectColumnTablesWhileAppending()) {
+
+      // the join tables have not been determined yet.  rather than walking
+      // the entire query once to find them and again to append it, we
+      // collect the tables of the columns as they are appended (into the
+      // same groups in which collectSchemaObjects() would find them, in
+      // order to generate the same table order).  the clauses after the
+      // FROM clause are appended to a temporary buffer so that the FROM
+      // clause can be inserted before them.
+      Set<Table> leadTables = new LinkedHashSet<Table>();
+      Set<Table> orderTables = new LinkedHashSet<Table>();
+      Set<Table> trailTables = new LinkedHashSet<Table>();
+      newContext.setColumnTables(leadTables);
+
+      app.append(_columns);
+
+      AppendableExt clausesApp = new AppendableExt(new StringBuilder(),
+                                                   newContext);
+      appendClauses(clausesApp, newContext, leadTables, orderTables,
+                    trailTables);
+      newContext.setColumnTables(null);
+
+      leadTables.addAll(orderTables);
+      leadTables.addAll(trailTables);
+      joins = buildJoins(newContext, leadTables);
+      if(newContext.getCanonicalize()) {
+        joins = sortFromTables(app, joins);
+      }
+      maybeAppendTo(app, Hook.FROM, " FROM ", joins, !joins.isEmpty());
+      app.append((CharSequence)clausesApp.getAppendable());
+      return;
+    }
       
     app.append(_columns);
 
-    SqlObjectList<SqlObject> joins = _joins;
     if(joins.isEmpty()) {
       // auto generate the join tables from all the referenced columns
-      joins = buildJoins(newContext);
+      joins = buildJoins(newContext, getColumnTables());
+    }
+    if(newContext.getCanonicalize()) {
+      joins = sortFromTables(app, joins);
     }
     
     // append the joins
     maybeAppendTo(app, Hook.FROM, " FROM ", joins, !joins.isEmpty());
 
+    appendClauses(app, newContext, null, null, null);
+  }
+
+  /**
+   * Appends all the clauses of this query which follow the FROM clause.  If
+   * the given table collections are non-{@code null}, the tables of the
+   * columns appended by each clause are collected into the relevant
+   * collection.
+   */
+  private void appendClauses(AppendableExt app, SqlContext newContext,
+                             Collection<Table> leadTables,
+                             Collection<Table> orderTables,
+                             Collection<Table> trailTables)
+    throws IOException
+  {
     // append "where" condition(s)
     maybeAppendTo(app, Hook.WHERE, " WHERE ", _condition, !_condition.isEmpty());
 
     // append grouping clause
     boolean hasGroupings = !_grouping.isEmpty();
     maybeAppendTo(app, Hook.GROUP_BY, " GROUP BY ", _grouping, hasGroupings);
+    newContext.setColumnTables(trailTables);
     if(hasGroupings) {
       // append having clause (which is considered a sub-clause of the GROUP
       // BY clause)
@@ -681,68 +1274,165 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
     maybeAppendTo(app, Hook.WINDOW, " WINDOW ", _windows, !_windows.isEmpty());
     
     // append ordering clause
+    newContext.setColumnTables(orderTables);
     maybeAppendTo(app, Hook.ORDER_BY, " ORDER BY ", _ordering, 
                   !_ordering.isEmpty());
+    newContext.setColumnTables(trailTables);
 
-    if(_offset != null) {
-      app.append(" OFFSET ").append(_offset).append(" ROWS");
-    }
-    if(_fetchCount != null) {
-      app.append(" FETCH NEXT ").append(_fetchCount).append(" ROWS ONLY");
-    }     
+    newContext.getDialect().appendLimitSuffix(app, _offset, _fetchCount,
+                                              !_ordering.isEmpty());
 
     maybeAppendTo(app, Hook.FOR_UPDATE, " FOR UPDATE", _forUpdate);
 
     customAppendTo(app, Hook.TRAILER);
   }
 
-  private SqlObjectList<SqlObject> buildJoins(SqlContext newContext) {
-    
+  /**
+   * Returns <code>true</code> if all the tables referenced by this query
+   * will be found by collecting the tables of the columns as they are
+   * appended, <code>false</code> if some referenced columns may not be
+   * appended before the FROM clause is needed (or at all).
+   */
+  private boolean canCollectColumnTablesWhileAppending() {
+    // customizations may be appended anywhere (including within the FROM
+    // clause), and the having clause is not appended without groupings
+    return (!hasCustomizations() &&
+            (_having.isEmpty() || !_grouping.isEmpty()));
+  }
+
+  private SqlObjectList<SqlObject> buildJoins(SqlContext newContext,
+                                              Collection<Table> columnTables)
+  {
     // auto generate the join tables from all the referenced columns
     SqlObjectList<SqlObject> joins = SqlObjectList.create();
 
-    // note, we don't cache this collection because we don't want the
-    // appendTo() method to mutate object state.
-    // note, we use LinkedHashSet to preserve the order that the tables were
-    // referenced (for lack of a better choice of ordering)
-    ValidationContext tmpVContext = new ValidationContext(
-        null, new LinkedHashSet<Column>());
-    collectSchemaObjects(tmpVContext);
-
-    if(tmpVContext.getColumns().isEmpty()) {
+    if(columnTables.isEmpty()) {
       // this is some sort of "constant" select, no columns/tables
       return joins;
     }
-        
-    Collection<Table> columnTables = tmpVContext.getColumnTables(
-        new LinkedHashSet<Table>());
 
     if(newContext.getParent() != null) {
 
       // this query is nested.  some of the column refs may be from tables
-      // in the outer queries.  note, we do "local only" collection as we
-      // are going up the nesting chain and do not need to descend past the
-      // relevant local context
-      ValidationContext outerVContext = new ValidationContext(true);
-      SqlContext tmpContext = newContext;
-      while((tmpContext = tmpContext.getParent()) != null) {
-        Query<?> parentQuery = tmpContext.getQuery();
-        if(parentQuery != null) {
-          parentQuery.collectSchemaObjects(outerVContext);
-        }
+      // in the outer queries, so remove any outer tables from the
+      // columnTables collection
+      Collection<Table> outerTables = getEnclosingTables(
+          newContext.getParent());
+      if(!outerTables.isEmpty()) {
+        columnTables = new LinkedHashSet<Table>(columnTables);
+        columnTables.removeAll(outerTables);
       }
-        
-      // remove any outer tables from the columnTables collection
-      columnTables.removeAll(outerVContext.getColumnTables());
     }
       
-    for(Table table : columnTables) {
+    // put the tables in cost order (if the tables have statistics)
+    for(Table table : CardinalityEstimator.orderTables(this, columnTables)) {
       joins.addObject(Converter.toTableDefSqlObject(table));
     }
 
     return joins;
   }
 
+  /**
+   * Returns the given FROM clause entries sorted by their generated sql if
+   * they are all tables (either auto-generated or added using
+   * {@link #addFromTable}), otherwise returns the given entries.
+   */
+  private static SqlObjectList<SqlObject> sortFromTables(
+      AppendableExt app, SqlObjectList<SqlObject> joins)
+    throws IOException
+  {
+    if(joins.size() < 2) {
+      return joins;
+    }
+
+    List<SqlObject> tables = new ArrayList<SqlObject>();
+    for(SqlObject join : joins) {
+      if(join instanceof JoinTo) {
+        JoinTo joinTo = (JoinTo)join;
+        if(joinTo._joinType != null) {
+          return joins;
+        }
+        join = joinTo._toTable;
+      }
+      if(!(join instanceof TableDefObject)) {
+        return joins;
+      }
+      tables.add(join);
+    }
+
+    final List<String> sqls = CanonicalSql.render(app, tables);
+    List<Integer> order = new ArrayList<Integer>();
+    for(int i = 0; i < tables.size(); ++i) {
+      order.add(i);
+    }
+    Collections.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer idx1, Integer idx2) {
+        return sqls.get(idx1).compareTo(sqls.get(idx2));
+      }
+    });
+
+    SqlObjectList<SqlObject> sortedJoins = SqlObjectList.create();
+    for(Integer idx : order) {
+      sortedJoins.addObject(tables.get(idx));
+    }
+    return sortedJoins;
+  }
+
+  /**
+   * Returns the tables referenced by the columns used directly in this query
+   * (not including nested subqueries), in the order in which they are
+   * referenced.  Note, the tables are not cached because nested objects
+   * (e.g. conditions) may be modified without this query being notified.
+   */
+  Collection<Table> getColumnTables() {
+    // note, we use LinkedHashSet to preserve the order that the tables were
+    // referenced (for lack of a better choice of ordering)
+    ValidationContext tmpVContext = new ValidationContext(
+        null, new LinkedHashSet<Column>());
+    collectSchemaObjects(tmpVContext);
+    return tmpVContext.getColumnTables(new LinkedHashSet<Table>());
+  }
+
+  /**
+   * Returns the tables referenced by the columns of the queries of the given
+   * context and all its parent contexts.  The result is memoized in each
+   * context, so each enclosing query is only examined once per sql
+   * generation no matter how deeply the queries are nested.
+   */
+  private static Collection<Table> getEnclosingTables(SqlContext context) {
+    Collection<Table> tables = context.getEnclosingTables();
+    if(tables == null) {
+      SqlContext parentContext = context.getParent();
+      Collection<Table> parentTables = ((parentContext != null) ?
+                                        getEnclosingTables(parentContext) :
+                                        Collections.<Table>emptySet());
+      Query<?> query = context.getQuery();
+      if(query == null) {
+        tables = parentTables;
+      } else {
+        tables = new HashSet<Table>(parentTables);
+        if(query instanceof SelectQuery) {
+          tables.addAll(((SelectQuery)query).getColumnTables());
+        } else {
+          // note, we do "local only" collection as we do not need to descend
+          // past the relevant local context
+          ValidationContext outerVContext = new ValidationContext(true);
+          query.collectSchemaObjects(outerVContext);
+          outerVContext.getColumnTables(tables);
+        }
+      }
+      context.setEnclosingTables(tables);
+    }
+    return tables;
+  }
+
+  /** @return the FROM tables and joins which have been added to this
+              query */
+  SqlObjectList<SqlObject> getJoins() {
+    return _joins;
+  }
+
   /**
    * Returns <code>true</code> iff the given column list contains some sort of
    * "*" syntax as a column placeholder.
@@ -803,6 +1493,20 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
       }
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject toTable = transformer.transform(_toTable);
+      Condition onCondition = transformer.transform(
+          _onCondition, Condition.class);
+      if((toTable == _toTable) && (onCondition == _onCondition)) {
+        return this;
+      }
+      JoinTo copy = (JoinTo)copy();
+      copy._toTable = toTable;
+      copy._onCondition = onCondition;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       if(_joinType != null) {
@@ -823,7 +1527,7 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
   private static final class NamedWindowDefinition extends SqlObject
   {
     private final String _name;
-    private final SqlObject _definition;
+    private SqlObject _definition;
 
     private NamedWindowDefinition(String name, SqlObject definition) {
       _name = name;
@@ -835,9 +1539,56 @@ public class SelectQuery extends BaseCTEQuery<SelectQuery>
       _definition.collectSchemaObjects(vContext);
     }
 
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject definition = transformer.transform(_definition);
+      if(definition == _definition) {
+        return this;
+      }
+      NamedWindowDefinition copy = (NamedWindowDefinition)copy();
+      copy._definition = definition;
+      return copy;
+    }
+
     @Override
     public void appendTo(AppendableExt app) throws IOException {
       app.append(_name).append(" AS ").append(_definition);
     }
   }
+
+  /**
+   * Outputs a query as a derived table in the FROM clause
+   * <code>"(&lt;query&gt;) &lt;alias&gt;"</code>.
+   */
+  private static final class DerivedTable extends SqlObject
+  {
+    private SqlObject _query;
+    private final String _alias;
+
+    private DerivedTable(SqlObject query, String alias) {
+      _query = query;
+      _alias = alias;
+    }
+
+    @Override
+    protected void collectSchemaObjects(ValidationContext vContext) {
+      vContext.collectNestedQuerySchemaObjects(_query);
+    }
+
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject query = transformer.transform(_query);
+      if(query == _query) {
+        return this;
+      }
+      DerivedTable copy = (DerivedTable)copy();
+      copy._query = query;
+      return copy;
+    }
+
+    @Override
+    public void appendTo(AppendableExt app) throws IOException {
+      app.append("(").append(_query).append(") ").append(_alias);
+    }
+  }
 }
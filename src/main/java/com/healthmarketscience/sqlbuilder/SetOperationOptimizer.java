@@ -0,0 +1,798 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Opt-in pass which simplifies UNION queries (see {@link SetOperationQuery})
+ * based on the conditions of the individual SELECT queries (the
+ * "branches").  Each of the following rules may be individually
+ * enabled/disabled (all are enabled by default):
+ * <ul>
+ * <li><b>branch merging</b> ({@link #setMergeBranches}): branches which are
+ *     identical except for an equality condition on the same column, e.g.
+ *     {@code ... WHERE (t.type = 'a')} and {@code ... WHERE (t.type = 'b')},
+ *     are merged into a single branch using an IN condition, {@code ...
+ *     WHERE (t.type IN ('a','b'))}.  Branches are compared by the
+ *     {@link QueryFingerprint}s of their sql (without the differing
+ *     condition), so each comparison generates the sql of both branches.
+ *     The branches must not use grouping, windows, FETCH/OFFSET, functions
+ *     in the select list or placeholders.  For UNION ALL, the branches must
+ *     also not be DISTINCT and the values must be provably different.</li>
+ * <li><b>UNION to UNION ALL</b> ({@link #setUnionToUnionAll}): UNION is
+ *     replaced by UNION ALL if every branch provably returns distinct rows
+ *     and the rows of every pair of branches are provably disjoint.  A branch
+ *     returns distinct rows if it is DISTINCT, groups by columns which are
+ *     all selected, or selects the primary key of its single table.  Two
+ *     branches are disjoint if some column position has non-overlapping
+ *     values in each branch (different literal "discriminator" values, or
+ *     selected columns restricted by mutually exclusive equality, IN, range
+ *     or BETWEEN conditions), or if both branches select the primary key of
+ *     the same table in the same positions and have mutually exclusive
+ *     conditions on any column of that table.</li>
+ * </ul>
+ * <p>
+ * Only conditions AND'ed together at the top level of the WHERE clause are
+ * considered.  Only set operation queries whose branches are all joined by
+ * UNION or all joined by UNION ALL are simplified, EXCEPT and INTERSECT
+ * queries are left as is.  String literals are only considered to be
+ * different if they differ ignoring case and trailing spaces (to allow for
+ * common database collations).
+ * <p>
+ * As with any {@link SqlTransformer}, the given object is not modified,
+ * instead a (partial) copy is returned if anything was rewritten.
+ * <p>
+ * Example:
+ * <pre>
+ *   UnionQuery optimized = (UnionQuery)SetOperationOptimizer.process(
+ *     SetOperationQuery.union(
+ *       new SelectQuery().addColumns(idCol).addCustomColumns("active")
+ *         .addCondition(BinaryCondition.equalTo(statusCol, "A")),
+ *       new SelectQuery().addColumns(idCol).addCustomColumns("closed")
+ *         .addCondition(BinaryCondition.equalTo(statusCol, "C"))));
+ *   // UNION is now UNION ALL
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class SetOperationOptimizer extends SqlTransformer
+{
+  private boolean _mergeBranches = true;
+  private boolean _unionToUnionAll = true;
+
+  public SetOperationOptimizer() {}
+
+  /**
+   * @return the given object with all relevant set operation queries
+   *         simplified
+   */
+  public static SqlObject process(SqlObject obj) {
+    return new SetOperationOptimizer().transform(obj);
+  }
+
+  public boolean isMergeBranches() {
+    return _mergeBranches;
+  }
+
+  public SetOperationOptimizer setMergeBranches(boolean mergeBranches) {
+    _mergeBranches = mergeBranches;
+    return this;
+  }
+
+  public boolean isUnionToUnionAll() {
+    return _unionToUnionAll;
+  }
+
+  public SetOperationOptimizer setUnionToUnionAll(boolean unionToUnionAll) {
+    _unionToUnionAll = unionToUnionAll;
+    return this;
+  }
+
+  @Override
+  protected SqlObject rewrite(SqlObject obj) {
+    if(!(obj instanceof SetOperationQuery<?>)) {
+      return obj;
+    }
+    SetOperationQuery<?> query = (SetOperationQuery<?>)obj;
+    List<SetOperationQuery.Type> types = query.getOperationTypes();
+    if(types.isEmpty() || (new HashSet<SetOperationQuery.Type>(types).size()
+                           != 1)) {
+      return obj;
+    }
+    SetOperationQuery.Type type = types.get(0);
+    if((type != SetOperationQuery.Type.UNION) &&
+       (type != SetOperationQuery.Type.UNION_ALL)) {
+      return obj;
+    }
+    boolean isUnion = (type == SetOperationQuery.Type.UNION);
+
+    List<SqlObject> branches = query.getQueries();
+    boolean changed = false;
+    if(_mergeBranches && mergeBranches(branches, isUnion)) {
+      changed = true;
+    }
+    if(isUnion && _unionToUnionAll && isDisjoint(branches)) {
+      type = SetOperationQuery.Type.UNION_ALL;
+      changed = true;
+    }
+    if(!changed) {
+      return obj;
+    }
+
+    if((branches.size() == 1) && (type == SetOperationQuery.Type.UNION)) {
+      // a lone branch no longer gets the UNION duplicate elimination
+      SelectQuery branch = ((SelectQuery)branches.get(0)).copy();
+      branch.setIsDistinct(true);
+      branches.set(0, branch);
+    }
+
+    SetOperationQuery<?> copy = (SetOperationQuery<?>)query.copy();
+    copy.setQueries(type, branches);
+    return copy;
+  }
+
+  //
+  // branch merging
+  //
+
+  /**
+   * Merges any branches in the given list which differ only by an equality
+   * condition.
+   *
+   * @return {@code true} if any branches were merged, {@code false}
+   *         otherwise
+   */
+  private static boolean mergeBranches(List<SqlObject> branches,
+                                       boolean isUnion) {
+    boolean changed = false;
+    for(int i = 0; i < branches.size(); ++i) {
+      if(!isMergeable(branches.get(i), isUnion)) {
+        continue;
+      }
+      for(int j = i + 1; j < branches.size(); ++j) {
+        if(!isMergeable(branches.get(j), isUnion)) {
+          continue;
+        }
+        SelectQuery merged = merge((SelectQuery)branches.get(i),
+                                   (SelectQuery)branches.get(j), isUnion);
+        if(merged != null) {
+          branches.set(i, merged);
+          branches.remove(j);
+          changed = true;
+          // check the remaining branches against the merged branch
+          j = i;
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return {@code true} if the given branch produces the same rows when
+   *         conditions are combined with those of another branch, {@code
+   *         false} otherwise
+   */
+  private static boolean isMergeable(SqlObject obj, boolean isUnion) {
+    if(!(obj instanceof SelectQuery)) {
+      return false;
+    }
+    SelectQuery query = (SelectQuery)obj;
+    if(!query.getGrouping().isEmpty() || !query.getHavingClause().isEmpty() ||
+       !query.getWindows().isEmpty() || !query.getOrdering().isEmpty() ||
+       (query.getOffset() != null) || (query.getFetchCount() != null) ||
+       query.isForUpdate() || (!isUnion && query.isDistinct()) ||
+       ConditionNormalizer.containsPlaceHolder(query)) {
+      return false;
+    }
+
+    // aggregate and window functions (which may also be hidden in custom
+    // sql) would be computed over the rows of both branches
+    final boolean[] found = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if(obj instanceof Subquery) {
+          // evaluated separately for each row
+          return false;
+        }
+        if((obj instanceof FunctionCall) || (obj instanceof CustomSql) ||
+           (obj instanceof CustomExpression)) {
+          found[0] = true;
+        }
+        return !found[0];
+      }
+    }.walk(query.getColumns());
+    return !found[0];
+  }
+
+  /**
+   * @return a branch equivalent to the given branches, or {@code null} if
+   *         they cannot be merged
+   */
+  private static SelectQuery merge(SelectQuery query1, SelectQuery query2,
+                                   boolean isUnion) {
+    List<Condition> conds1 = SubqueryRewriter.getConjuncts(
+        query1.getWhereClause());
+    List<Condition> conds2 = SubqueryRewriter.getConjuncts(
+        query2.getWhereClause());
+    if(conds1.size() != conds2.size()) {
+      return null;
+    }
+
+    for(int i = 0; i < conds1.size(); ++i) {
+      Column column = ConditionNormalizer.getEqualityColumn(conds1.get(i));
+      if((column == null) ||
+         (column != ConditionNormalizer.getEqualityColumn(conds2.get(i)))) {
+        continue;
+      }
+      List<SqlObject> values1 = ConditionNormalizer.getEqualityValues(
+          conds1.get(i));
+      List<SqlObject> values2 = ConditionNormalizer.getEqualityValues(
+          conds2.get(i));
+      if(!isUnion && !areDistinct(values1, values2)) {
+        // UNION ALL would return rows matching both values twice
+        continue;
+      }
+      if(!QueryFingerprint.of(replaceConjunct(query1, conds1, i, null))
+         .equals(QueryFingerprint.of(replaceConjunct(query2, conds2, i,
+                                                     null)))) {
+        continue;
+      }
+
+      List<SqlObject> values = new ArrayList<SqlObject>(values1);
+      for(SqlObject value : values2) {
+        if(!containsLiteral(values, value)) {
+          values.add(value);
+        }
+      }
+      return replaceConjunct(query1, conds1, i,
+                             new InCondition(column, values));
+    }
+    return null;
+  }
+
+  /**
+   * @return a copy of the given query with the top-level condition at the
+   *         given index replaced by the given condition (or removed if
+   *         {@code null})
+   */
+  private static SelectQuery replaceConjunct(SelectQuery query,
+                                             List<Condition> conds, int idx,
+                                             Condition newCond) {
+    List<Condition> newConds = new ArrayList<Condition>(conds);
+    if(newCond != null) {
+      newConds.set(idx, newCond);
+    } else {
+      newConds.remove(idx);
+    }
+    SelectQuery copy = query.copy();
+    copy.getWhereClause().getConditions().clear();
+    copy.getWhereClause().getConditions().addObjects(newConds);
+    return copy;
+  }
+
+  /**
+   * @return {@code true} if no value in the first list can be equal to any
+   *         value in the second list, {@code false} otherwise
+   */
+  private static boolean areDistinct(List<SqlObject> values1,
+                                     List<SqlObject> values2) {
+    for(SqlObject value1 : values1) {
+      Object key1 = getLiteralKey(value1);
+      for(SqlObject value2 : values2) {
+        Object key2 = getLiteralKey(value2);
+        if((key1 == null) || (key2 == null) || mayBeEqual(key1, key2)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if the given list contains the exact same literal
+   *         value as the given value, {@code false} otherwise
+   */
+  private static boolean containsLiteral(List<SqlObject> values,
+                                         SqlObject value) {
+    Object literal = getLiteralValue(value);
+    if(literal == null) {
+      return false;
+    }
+    for(SqlObject curValue : values) {
+      if((curValue.getClass() == value.getClass()) &&
+         literal.equals(getLiteralValue(curValue))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Object getLiteralValue(SqlObject obj) {
+    if(obj instanceof ValueObject) {
+      return ((ValueObject)obj).getValue();
+    }
+    if(obj instanceof NumberValueObject) {
+      return ((NumberValueObject)obj).getValue();
+    }
+    return null;
+  }
+
+  //
+  // UNION -> UNION ALL
+  //
+
+  /**
+   * @return {@code true} if the given branches are known to return distinct
+   *         rows which are not returned by any other branch, {@code false}
+   *         otherwise
+   */
+  private static boolean isDisjoint(List<SqlObject> branches) {
+    for(SqlObject branch : branches) {
+      if(!(branch instanceof SelectQuery) ||
+         ((SelectQuery)branch).hasAllColumns() ||
+         !returnsDistinctRows((SelectQuery)branch)) {
+        return false;
+      }
+    }
+    for(int i = 0; i < branches.size(); ++i) {
+      for(int j = i + 1; j < branches.size(); ++j) {
+        if(!areDisjoint((SelectQuery)branches.get(i),
+                        (SelectQuery)branches.get(j))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if the given query cannot return duplicate rows,
+   *         {@code false} otherwise
+   */
+  private static boolean returnsDistinctRows(SelectQuery query) {
+    if(query.isDistinct()) {
+      return true;
+    }
+    List<Column> columns = getSelectedColumns(query);
+    if(!query.getGrouping().isEmpty()) {
+      for(SqlObject group : query.getGrouping()) {
+        if(!(group instanceof ColumnObject) ||
+           !columns.contains(((ColumnObject)group).getColumn())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return (getKeyTable(query) != null);
+  }
+
+  /**
+   * @return {@code true} if the given queries cannot return any of the same
+   *         rows, {@code false} otherwise
+   */
+  private static boolean areDisjoint(SelectQuery query1, SelectQuery query2) {
+    int numCols = query1.getColumns().size();
+    if(numCols != query2.getColumns().size()) {
+      return false;
+    }
+    List<Condition> conds1 = SubqueryRewriter.getConjuncts(
+        query1.getWhereClause());
+    List<Condition> conds2 = SubqueryRewriter.getConjuncts(
+        query2.getWhereClause());
+
+    for(int i = 0; i < numCols; ++i) {
+      Domain domain1 = getDomain(query1.getColumns().get(i), conds1);
+      Domain domain2 = getDomain(query2.getColumns().get(i), conds2);
+      if(domain1.isDisjoint(domain2)) {
+        return true;
+      }
+    }
+
+    // rows with the same primary key come from the same row of the table,
+    // so mutually exclusive conditions on any column of the table suffice
+    Table table = getKeyTable(query1);
+    if((table == null) || (table != getKeyTable(query2))) {
+      return false;
+    }
+    List<Column> columns1 = getSelectedColumns(query1);
+    List<Column> columns2 = getSelectedColumns(query2);
+    for(Column pkCol : Constraints.getPrimaryKey(table)) {
+      if(!samePositions(pkCol, columns1, columns2)) {
+        return false;
+      }
+    }
+    for(Column column : table.getColumns()) {
+      if(getDomain(column, conds1).isDisjoint(getDomain(column, conds2))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the single table of the given ungrouped query if the query
+   *         selects all the primary key columns of that table, {@code null}
+   *         otherwise
+   */
+  private static Table getKeyTable(SelectQuery query) {
+    if(!query.getGrouping().isEmpty()) {
+      return null;
+    }
+    Collection<Table> tables = query.getColumnTables();
+    if(tables.size() != 1) {
+      return null;
+    }
+    Table table = tables.iterator().next();
+    SqlObjectList<SqlObject> joins = query.getJoins();
+    if(!joins.isEmpty() &&
+       ((joins.size() != 1) || !(joins.get(0) instanceof TableObject) ||
+        (((TableObject)joins.get(0))._table != table))) {
+      return null;
+    }
+    List<? extends Column> pkCols = Constraints.getPrimaryKey(table);
+    return (((pkCols != null) &&
+             getSelectedColumns(query).containsAll(pkCols)) ? table : null);
+  }
+
+  /**
+   * @return the columns selected by the given query ({@code null} for
+   *         select list entries which are not plain columns)
+   */
+  private static List<Column> getSelectedColumns(SelectQuery query) {
+    List<Column> columns = new ArrayList<Column>();
+    for(SqlObject obj : query.getColumns()) {
+      obj = unwrapAlias(obj);
+      columns.add((obj instanceof ColumnObject) ?
+                  ((ColumnObject)obj).getColumn() : null);
+    }
+    return columns;
+  }
+
+  /**
+   * @return {@code true} if the given column is selected at the same
+   *         position in both select lists, {@code false} otherwise
+   */
+  private static boolean samePositions(Column column, List<Column> columns1,
+                                       List<Column> columns2) {
+    for(int i = 0; i < columns1.size(); ++i) {
+      if((columns1.get(i) == column) && (columns2.get(i) == column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the possible values of the given select list entry based on the
+   *         given top-level conditions
+   */
+  private static Domain getDomain(SqlObject obj, List<Condition> conds) {
+    obj = unwrapAlias(obj);
+    if(obj instanceof ColumnObject) {
+      return getDomain(((ColumnObject)obj).getColumn(), conds);
+    }
+    Domain domain = new Domain();
+    Object key = getLiteralKey(obj);
+    if(key != null) {
+      domain.restrictValues(Collections.singletonList(key));
+    }
+    return domain;
+  }
+
+  /**
+   * @return the possible values of the given column based on the given
+   *         top-level conditions
+   */
+  private static Domain getDomain(Column column, List<Condition> conds) {
+    Domain domain = new Domain();
+    for(Condition cond : conds) {
+      if(cond instanceof BinaryCondition) {
+        restrictDomain(domain, column, (BinaryCondition)cond);
+      } else if(cond instanceof InCondition) {
+        InCondition ic = (InCondition)cond;
+        if(ic.isNegate() || !isColumn(ic.getLeftValue(), column)) {
+          continue;
+        }
+        List<Object> keys = new ArrayList<Object>();
+        for(SqlObject value : ic.getRightValues()) {
+          Object key = getLiteralKey(value);
+          if(key == null) {
+            keys = null;
+            break;
+          }
+          keys.add(key);
+        }
+        if(keys != null) {
+          domain.restrictValues(keys);
+        }
+      } else if(cond instanceof BetweenCondition) {
+        BetweenCondition bc = (BetweenCondition)cond;
+        if(bc.isNegate() || !isColumn(bc.getValue(), column)) {
+          continue;
+        }
+        BigDecimal min = getNumber(bc.getMinValue());
+        BigDecimal max = getNumber(bc.getMaxValue());
+        if((min != null) && (max != null)) {
+          domain.restrictLower(min, true);
+          domain.restrictUpper(max, true);
+        }
+      }
+    }
+    return domain;
+  }
+
+  private static void restrictDomain(Domain domain, Column column,
+                                     BinaryCondition cond) {
+    if(!(cond.getBinaryOp() instanceof BinaryCondition.Op)) {
+      return;
+    }
+    BinaryCondition.Op op = (BinaryCondition.Op)cond.getBinaryOp();
+    SqlObject value = null;
+    boolean flipped = false;
+    if(isColumn(cond.getLeftValue(), column)) {
+      value = cond.getRightValue();
+    } else if(isColumn(cond.getRightValue(), column)) {
+      value = cond.getLeftValue();
+      flipped = true;
+    } else {
+      return;
+    }
+
+    if(op == BinaryCondition.Op.EQUAL_TO) {
+      Object key = getLiteralKey(value);
+      if(key != null) {
+        domain.restrictValues(Collections.singletonList(key));
+      }
+      return;
+    }
+
+    BigDecimal num = getNumber(value);
+    if(num == null) {
+      return;
+    }
+    switch(op) {
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL_TO: {
+      boolean inclusive = (op == BinaryCondition.Op.LESS_THAN_OR_EQUAL_TO);
+      if(flipped) {
+        domain.restrictLower(num, inclusive);
+      } else {
+        domain.restrictUpper(num, inclusive);
+      }
+      break;
+    }
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL_TO: {
+      boolean inclusive = (op == BinaryCondition.Op.GREATER_THAN_OR_EQUAL_TO);
+      if(flipped) {
+        domain.restrictUpper(num, inclusive);
+      } else {
+        domain.restrictLower(num, inclusive);
+      }
+      break;
+    }
+    default:
+      // nothing to do
+    }
+  }
+
+  //
+  // utilities
+  //
+
+  private static SqlObject unwrapAlias(SqlObject obj) {
+    return ((obj instanceof AliasedObject) ?
+            ((AliasedObject)obj).getObject() : obj);
+  }
+
+  private static boolean isColumn(SqlObject obj, Column column) {
+    return ((obj instanceof ColumnObject) &&
+            (((ColumnObject)obj).getColumn() == column));
+  }
+
+  private static BigDecimal getNumber(SqlObject obj) {
+    return ((obj instanceof NumberValueObject) ?
+            Numbers.toBigDecimal(((NumberValueObject)obj).getValue()) :
+            null);
+  }
+
+  /**
+   * @return the value used to compare the given literal to other literals
+   *         (a BigDecimal for numbers, a normalized String for strings), or
+   *         {@code null} if the object is not a comparable literal
+   */
+  private static Object getLiteralKey(SqlObject obj) {
+    if(obj instanceof NumberValueObject) {
+      return getNumber(obj);
+    }
+    if((obj instanceof ValueObject) &&
+       (((ValueObject)obj).getValue() instanceof String)) {
+      String str = ((String)((ValueObject)obj).getValue())
+        .toLowerCase(Locale.ROOT);
+      int len = str.length();
+      while((len > 0) && (str.charAt(len - 1) == ' ')) {
+        --len;
+      }
+      return str.substring(0, len);
+    }
+    return null;
+  }
+
+  /**
+   * @return {@code false} if the given literal keys are definitely different
+   *         values, {@code true} otherwise
+   */
+  private static boolean mayBeEqual(Object key1, Object key2) {
+    if((key1 instanceof BigDecimal) && (key2 instanceof BigDecimal)) {
+      return (((BigDecimal)key1).compareTo((BigDecimal)key2) == 0);
+    }
+    if((key1 instanceof String) && (key2 instanceof String)) {
+      return key1.equals(key2);
+    }
+    // comparing different types depends on the database
+    return true;
+  }
+
+  /**
+   * The possible (non-null) values of a select list entry, a list of values
+   * and/or a numeric range.  An unrestricted domain may contain any value.
+   */
+  private static final class Domain
+  {
+    /** the possible values, {@code null} if not restricted to a list */
+    private List<Object> _values;
+    private BigDecimal _lower;
+    private boolean _lowerInclusive;
+    private BigDecimal _upper;
+    private boolean _upperInclusive;
+
+    private void restrictValues(List<Object> keys) {
+      if(_values == null) {
+        _values = new ArrayList<Object>(keys);
+        return;
+      }
+      List<Object> values = new ArrayList<Object>();
+      for(Object value : _values) {
+        for(Object key : keys) {
+          if(mayBeEqual(value, key)) {
+            values.add(value);
+            break;
+          }
+        }
+      }
+      _values = values;
+    }
+
+    private void restrictLower(BigDecimal lower, boolean inclusive) {
+      int cmp = ((_lower != null) ? lower.compareTo(_lower) : 1);
+      if((cmp > 0) || ((cmp == 0) && !inclusive)) {
+        _lower = lower;
+        _lowerInclusive = inclusive;
+      }
+    }
+
+    private void restrictUpper(BigDecimal upper, boolean inclusive) {
+      int cmp = ((_upper != null) ? upper.compareTo(_upper) : -1);
+      if((cmp < 0) || ((cmp == 0) && !inclusive)) {
+        _upper = upper;
+        _upperInclusive = inclusive;
+      }
+    }
+
+    /**
+     * @return {@code false} if the given value is definitely outside the
+     *         range of this domain, {@code true} otherwise
+     */
+    private boolean inRange(Object key) {
+      if(!(key instanceof BigDecimal)) {
+        // comparing different types depends on the database
+        return true;
+      }
+      BigDecimal num = (BigDecimal)key;
+      if(_lower != null) {
+        int cmp = num.compareTo(_lower);
+        if((cmp < 0) || ((cmp == 0) && !_lowerInclusive)) {
+          return false;
+        }
+      }
+      if(_upper != null) {
+        int cmp = num.compareTo(_upper);
+        if((cmp > 0) || ((cmp == 0) && !_upperInclusive)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return the values of this domain within its range, {@code null} if
+     *         this domain is not restricted to a list of values
+     */
+    private List<Object> getPossibleValues() {
+      if(_values == null) {
+        return null;
+      }
+      List<Object> values = new ArrayList<Object>();
+      for(Object value : _values) {
+        if(inRange(value)) {
+          values.add(value);
+        }
+      }
+      return values;
+    }
+
+    /**
+     * @return {@code true} if no value can be in both this domain and the
+     *         given domain, {@code false} otherwise
+     */
+    private boolean isDisjoint(Domain other) {
+      List<Object> values = getPossibleValues();
+      List<Object> otherValues = other.getPossibleValues();
+      if(values != null) {
+        for(Object value : values) {
+          if((otherValues != null) ? containsKey(otherValues, value) :
+             other.inRange(value)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      if(otherValues != null) {
+        return other.isDisjoint(this);
+      }
+      return (isBelow(_upper, _upperInclusive, other._lower,
+                      other._lowerInclusive) ||
+              isBelow(other._upper, other._upperInclusive, _lower,
+                      _lowerInclusive));
+    }
+
+    private static boolean containsKey(List<Object> keys, Object key) {
+      for(Object curKey : keys) {
+        if(mayBeEqual(curKey, key)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return {@code true} if every value up to the given upper bound is
+     *         below the given lower bound, {@code false} otherwise
+     */
+    private static boolean isBelow(BigDecimal upper, boolean upperInclusive,
+                                   BigDecimal lower, boolean lowerInclusive) {
+      if((upper == null) || (lower == null)) {
+        return false;
+      }
+      int cmp = upper.compareTo(lower);
+      return ((cmp < 0) || ((cmp == 0) && !(upperInclusive && lowerInclusive)));
+    }
+  }
+}
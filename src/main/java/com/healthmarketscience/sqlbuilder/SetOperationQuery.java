@@ -17,6 +17,8 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.healthmarketscience.common.util.AppendableExt;
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
@@ -214,6 +216,35 @@ public class SetOperationQuery<ThisType extends SetOperationQuery<ThisType>>
 
     _queries.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObjectList<RelateTo> queries = _queries.transformObjects(
+        transformer, RelateTo.class);
+    SqlObjectList<SqlObject> ordering = _ordering.transformObjects(
+        transformer, SqlObject.class);
+    if((queries == _queries) && (ordering == _ordering)) {
+      return result;
+    }
+    SetOperationQuery<?> copy = (SetOperationQuery<?>)((result == this) ?
+                                                       copy() : result);
+    if(queries != _queries) {
+      copy._queries = queries;
+    }
+    if(ordering != _ordering) {
+      copy._ordering = ordering;
+    }
+    return copy;
+  }
+
+  @Override
+  protected SetOperationQuery<?> copy() {
+    SetOperationQuery<?> copy = (SetOperationQuery<?>)super.copy();
+    copy._queries = _queries.copy();
+    copy._ordering = _ordering.copy();
+    return copy;
+  }
   
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
@@ -234,7 +265,35 @@ public class SetOperationQuery<ThisType extends SetOperationQuery<ThisType>>
   SqlObject getFirstQuery() {
     return (!_queries.isEmpty() ? _queries.get(0).getQuery() : null);
   }
-  
+
+  /** @return the queries joined by this set operation query */
+  List<SqlObject> getQueries() {
+    List<SqlObject> queries = new ArrayList<SqlObject>();
+    for(RelateTo relateTo : _queries) {
+      queries.add(relateTo.getQuery());
+    }
+    return queries;
+  }
+
+  /** @return the set operation types joining the queries (one less than
+      the number of queries) */
+  List<Type> getOperationTypes() {
+    List<Type> types = new ArrayList<Type>();
+    for(RelateTo relateTo : _queries) {
+      if(relateTo._type != null) {
+        types.add(relateTo._type);
+      }
+    }
+    return types;
+  }
+
+  /** Replaces all the queries of this query with the given queries joined
+      by the given type. */
+  void setQueries(Type type, List<? extends SqlObject> queries) {
+    _queries.clear();
+    addQueriesImpl(type, queries.toArray());
+  }
+
   /**
    * Convenience method to create a UNION query.
    */
@@ -0,0 +1,700 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+
+
+/**
+ * Helper class which executes {@link SelectQuery}s against a horizontally
+ * sharded database, where rows are assigned to shards based on the value of
+ * a single "shard key" column.
+ * <p>
+ * The WHERE clause of a query is inspected for equality ({@code "key = <literal>"})
+ * or IN ({@code "key IN (<literal>, ...)"}) conditions on the shard key
+ * column (possibly nested within AND/OR conditions).  If these conditions
+ * restrict the query to a subset of the shards, the query is only executed
+ * on those shards, otherwise it is executed on all shards.  When a query is
+ * executed on multiple shards, the queries are executed in parallel (if an
+ * ExecutorService is configured) and the results are merged client-side:
+ * <ul>
+ * <li>results are merged honoring the ORDER BY clause of the query (using a
+ *     k-way merge, so each shard must return its results in the requested
+ *     order)</li>
+ * <li>OFFSET and FETCH NEXT clauses are applied to the merged results (each
+ *     shard is asked for {@code offset + fetch} rows)</li>
+ * <li>DISTINCT queries have duplicate rows removed across shards</li>
+ * <li>queries which select only COUNT, SUM, MIN and/or MAX aggregates (with
+ *     no GROUP BY clause) have the per-shard aggregate values combined into a
+ *     single row</li>
+ * <li>queries with a GROUP BY clause are only supported if the grouping
+ *     includes the shard key column (so no group spans multiple shards)</li>
+ * </ul>
+ * Unsupported multi-shard queries (e.g. AVG aggregates without a GROUP BY
+ * clause) result in an UnsupportedOperationException.
+ * <p>
+ * Null values in the ORDER BY columns are sorted as larger than any non-null
+ * value unless a {@link OrderObject.NullOrder} is given.  Note that OFFSET
+ * and FETCH NEXT values must be literal numbers for multi-shard queries.
+ *
+ * @author James Ahlborn
+ */
+public class ShardRouter
+{
+  /**
+   * Strategy for mapping a shard key value to a shard.
+   */
+  public interface ShardFunction
+  {
+    /**
+     * @param keyValue a non-{@code null} shard key value
+     * @param numShards the number of shards
+     * @return the index of the shard holding rows with the given key value
+     */
+    public int getShard(Object keyValue, int numShards);
+  }
+
+  /** ShardFunction which uses the hash code of the key value (integral
+      numbers are hashed as {@code long} values, so equal numbers of
+      different types map to the same shard) */
+  public static final ShardFunction HASH = new ShardFunction() {
+    @Override
+    public int getShard(Object keyValue, int numShards) {
+      int hash = (Numbers.isIntegral(keyValue) ?
+                  Long.hashCode(((Number)keyValue).longValue()) :
+                  keyValue.hashCode());
+      return Math.floorMod(hash, numShards);
+    }
+  };
+
+  private final Column _shardKey;
+  private final List<DataSource> _shards;
+  private ShardFunction _shardFunction = HASH;
+  private ExecutorService _executor;
+
+  public ShardRouter(Column shardKey, DataSource... shards) {
+    if(shards.length == 0) {
+      throw new IllegalArgumentException("must have at least one shard");
+    }
+    _shardKey = shardKey;
+    _shards = Collections.unmodifiableList(
+        new ArrayList<DataSource>(Arrays.asList(shards)));
+  }
+
+  /** @return the shard key column */
+  public Column getShardKey() {
+    return _shardKey;
+  }
+
+  /** @return the shard DataSources */
+  public List<DataSource> getShards() {
+    return _shards;
+  }
+
+  public ShardRouter setShardFunction(ShardFunction shardFunction) {
+    _shardFunction = shardFunction;
+    return this;
+  }
+
+  /**
+   * Sets the ExecutorService used to execute multi-shard queries in
+   * parallel.  If {@code null} (the default), shards are queried
+   * sequentially by the calling thread.
+   */
+  public ShardRouter setExecutor(ExecutorService executor) {
+    _executor = executor;
+    return this;
+  }
+
+  /**
+   * @return the index of the shard which holds rows with the given shard key
+   *         value
+   */
+  public int getShard(Object keyValue) {
+    if(keyValue == null) {
+      throw new IllegalArgumentException("shard key value may not be null");
+    }
+    return _shardFunction.getShard(keyValue, _shards.size());
+  }
+
+  /**
+   * @return the indexes of the shards which may hold rows matching the given
+   *         query
+   */
+  public SortedSet<Integer> getTargetShards(SelectQuery query) {
+    Set<Integer> shards = findShards(query.getWhereClause());
+    if(shards == null) {
+      shards = new HashSet<Integer>();
+      for(int i = 0; i < _shards.size(); ++i) {
+        shards.add(i);
+      }
+    }
+    return new TreeSet<Integer>(shards);
+  }
+
+  /**
+   * Executes the given query on the relevant shards and returns the (merged)
+   * results.
+   *
+   * @return the result rows, where each row contains the values of the
+   *         result columns (as returned by {@link ResultSet#getObject(int)})
+   */
+  public List<Object[]> executeQuery(SelectQuery query) throws SQLException {
+    SortedSet<Integer> shards = getTargetShards(query);
+    if(shards.isEmpty()) {
+      return new ArrayList<Object[]>();
+    }
+    if(shards.size() == 1) {
+      return execute(shards.first(), query.toString());
+    }
+
+    MergePlan plan = new MergePlan(query);
+    List<List<Object[]>> results = executeAll(shards, plan.getShardSql(query));
+    return plan.merge(results);
+  }
+
+  private List<List<Object[]>> executeAll(SortedSet<Integer> shards,
+                                          final String sql)
+    throws SQLException
+  {
+    List<List<Object[]>> results = new ArrayList<List<Object[]>>();
+    if(_executor == null) {
+      for(int shard : shards) {
+        results.add(execute(shard, sql));
+      }
+      return results;
+    }
+
+    List<Future<List<Object[]>>> futures =
+      new ArrayList<Future<List<Object[]>>>();
+    for(final int shard : shards) {
+      futures.add(_executor.submit(new Callable<List<Object[]>>() {
+        @Override
+        public List<Object[]> call() throws SQLException {
+          return execute(shard, sql);
+        }
+      }));
+    }
+
+    try {
+      for(Future<List<Object[]>> future : futures) {
+        results.add(future.get());
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while querying shards", e);
+    } catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof SQLException) {
+        throw (SQLException)cause;
+      }
+      if(cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      throw new SQLException("Failed querying shards", cause);
+    } finally {
+      for(Future<List<Object[]>> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return results;
+  }
+
+  private List<Object[]> execute(int shard, String sql) throws SQLException {
+    Connection conn = _shards.get(shard).getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      try {
+        ResultSet rs = stmt.executeQuery(sql);
+        try {
+          int numCols = rs.getMetaData().getColumnCount();
+          List<Object[]> rows = new ArrayList<Object[]>();
+          while(rs.next()) {
+            Object[] row = new Object[numCols];
+            for(int i = 0; i < numCols; ++i) {
+              row[i] = rs.getObject(i + 1);
+            }
+            rows.add(row);
+          }
+          return rows;
+        } finally {
+          rs.close();
+        }
+      } finally {
+        stmt.close();
+      }
+    } finally {
+      conn.close();
+    }
+  }
+
+  /**
+   * Returns the shards to which the given condition restricts the query, or
+   * {@code null} if the condition does not restrict the shards.
+   */
+  private Set<Integer> findShards(Condition cond) {
+    if(cond instanceof ComboCondition) {
+      ComboCondition comboCond = (ComboCondition)cond;
+      Object op = comboCond.getComboOp();
+      if(op == ComboCondition.Op.AND) {
+        Set<Integer> shards = null;
+        for(Condition subCond : comboCond.getConditions()) {
+          Set<Integer> subShards = findShards(subCond);
+          if(subShards != null) {
+            if(shards == null) {
+              shards = subShards;
+            } else {
+              shards.retainAll(subShards);
+            }
+          }
+        }
+        return shards;
+      }
+      if((op == ComboCondition.Op.OR) && !comboCond.isEmpty()) {
+        Set<Integer> shards = new HashSet<Integer>();
+        for(Condition subCond : comboCond.getConditions()) {
+          if(subCond.isEmpty()) {
+            continue;
+          }
+          Set<Integer> subShards = findShards(subCond);
+          if(subShards == null) {
+            return null;
+          }
+          shards.addAll(subShards);
+        }
+        return shards;
+      }
+      return null;
+    }
+
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition binCond = (BinaryCondition)cond;
+      if(binCond.getBinaryOp() != BinaryCondition.Op.EQUAL_TO) {
+        return null;
+      }
+      SqlObject valueObj = null;
+      if(isShardKey(binCond.getLeftValue())) {
+        valueObj = binCond.getRightValue();
+      } else if(isShardKey(binCond.getRightValue())) {
+        valueObj = binCond.getLeftValue();
+      } else {
+        return null;
+      }
+      Object value = getLiteralValue(valueObj);
+      return ((value != null) ?
+              new HashSet<Integer>(Collections.singleton(getShard(value))) :
+              null);
+    }
+
+    if(cond instanceof InCondition) {
+      InCondition inCond = (InCondition)cond;
+      if(inCond.isNegate() || !isShardKey(inCond.getLeftValue())) {
+        return null;
+      }
+      Set<Integer> shards = new HashSet<Integer>();
+      for(SqlObject valueObj : inCond.getRightValues()) {
+        Object value = getLiteralValue(valueObj);
+        if(value == null) {
+          return null;
+        }
+        shards.add(getShard(value));
+      }
+      return shards;
+    }
+
+    return null;
+  }
+
+  private boolean isShardKey(SqlObject obj) {
+    return ((obj instanceof ColumnObject) &&
+            (((ColumnObject)obj).getColumn() == _shardKey));
+  }
+
+  /**
+   * @return the literal value of the given object, or {@code null} if the
+   *         object is not a (non-null) literal value
+   */
+  private static Object getLiteralValue(SqlObject obj) {
+    if(obj instanceof NumberValueObject) {
+      return ((NumberValueObject)obj).getValue();
+    }
+    if(obj instanceof ValueObject) {
+      return ((ValueObject)obj).getValue();
+    }
+    return null;
+  }
+
+  private static SqlObject unwrapAlias(SqlObject obj) {
+    return ((obj instanceof AliasedObject) ?
+            ((AliasedObject)obj).getObject() : obj);
+  }
+
+  /** the aggregates which can be combined across shards */
+  private enum Aggregate { COUNT, SUM, MIN, MAX; }
+
+  /**
+   * Determines how the results of a multi-shard query are merged.
+   */
+  private final class MergePlan implements Comparator<Object[]>
+  {
+    private final boolean _distinct;
+    private final long _offset;
+    private final long _fetchCount;
+    private final int[] _orderIdxs;
+    private final boolean[] _orderDesc;
+    private final boolean[] _nullsFirst;
+    private final Aggregate[] _aggregates;
+
+    private MergePlan(SelectQuery query) {
+      _distinct = query.isDistinct();
+      _offset = getLongValue(query.getOffset(), 0L, "offset");
+      _fetchCount = getLongValue(query.getFetchCount(), -1L, "fetch count");
+
+      SqlObjectList<SqlObject> columns = query.getColumns();
+      boolean grouped = !query.getGrouping().isEmpty();
+      if(grouped && !hasShardKey(query.getGrouping())) {
+        throw new UnsupportedOperationException(
+            "Multi-shard queries must group by the shard key");
+      }
+
+      // check for aggregate functions (the groups of a grouped query are
+      // each contained within a single shard)
+      Aggregate[] aggregates = null;
+      if(!grouped) {
+        aggregates = new Aggregate[columns.size()];
+        int numAggregates = 0;
+        for(int i = 0; i < columns.size(); ++i) {
+          SqlObject column = unwrapAlias(columns.get(i));
+          if(isAggregate(column)) {
+            aggregates[i] = toAggregate((FunctionCall)column);
+            ++numAggregates;
+          } else if(SelectQuery.hasAggregate(column)) {
+            throw new UnsupportedOperationException(
+                "Nested aggregate functions are not supported for " +
+                "multi-shard queries");
+          }
+        }
+        if(numAggregates == 0) {
+          aggregates = null;
+        } else if(numAggregates < columns.size()) {
+          throw new UnsupportedOperationException(
+              "Multi-shard aggregate queries must only select aggregates");
+        }
+      }
+      _aggregates = aggregates;
+
+      // map the orderings to result columns
+      SqlObjectList<SqlObject> ordering = query.getOrdering();
+      _orderIdxs = new int[ordering.size()];
+      _orderDesc = new boolean[ordering.size()];
+      _nullsFirst = new boolean[ordering.size()];
+      for(int i = 0; i < ordering.size(); ++i) {
+        SqlObject orderObj = ordering.get(i);
+        OrderObject.Dir dir = OrderObject.Dir.ASCENDING;
+        OrderObject.NullOrder nullOrder = null;
+        if(orderObj instanceof OrderObject) {
+          dir = ((OrderObject)orderObj).getDir();
+          nullOrder = ((OrderObject)orderObj).getNullOrder();
+          orderObj = ((OrderObject)orderObj).getObject();
+        }
+        _orderIdxs[i] = findColumnIndex(columns, orderObj);
+        _orderDesc[i] = (dir == OrderObject.Dir.DESCENDING);
+        _nullsFirst[i] = ((nullOrder != null) ?
+                          (nullOrder == OrderObject.NullOrder.FIRST) :
+                          _orderDesc[i]);
+      }
+    }
+
+    /**
+     * @return the sql for the query to execute on each shard
+     */
+    private String getShardSql(SelectQuery query) {
+      if((_offset == 0L) && (_fetchCount < 0L)) {
+        return query.toString();
+      }
+      // the given query is not modified (it may be in use elsewhere)
+      SelectQuery shardQuery = query.copy();
+      shardQuery.setOffsetAndFetch(
+          null, ((_fetchCount >= 0L) ?
+                 new NumberValueObject(_offset + _fetchCount) : null));
+      return shardQuery.toString();
+    }
+
+    private List<Object[]> merge(List<List<Object[]>> results) {
+      if(_aggregates != null) {
+        return Collections.singletonList(combineAggregates(results));
+      }
+
+      List<Object[]> merged = new ArrayList<Object[]>();
+      Set<List<Object>> seen = (_distinct ? new HashSet<List<Object>>() :
+                                null);
+      long skip = _offset;
+      Iterable<Object[]> rows = ((_orderIdxs.length > 0) ?
+                                 new MergeIterable(results, this) :
+                                 concat(results));
+      for(Object[] row : rows) {
+        if((seen != null) && !seen.add(Arrays.asList(row))) {
+          continue;
+        }
+        if(skip > 0L) {
+          --skip;
+          continue;
+        }
+        if((_fetchCount >= 0L) && (merged.size() >= _fetchCount)) {
+          break;
+        }
+        merged.add(row);
+      }
+      return merged;
+    }
+
+    private Object[] combineAggregates(List<List<Object[]>> results) {
+      Object[] combined = new Object[_aggregates.length];
+      for(List<Object[]> rows : results) {
+        for(Object[] row : rows) {
+          for(int i = 0; i < combined.length; ++i) {
+            combined[i] = combineAggregate(_aggregates[i], combined[i],
+                                           row[i]);
+          }
+        }
+      }
+      for(int i = 0; i < combined.length; ++i) {
+        if((combined[i] == null) && (_aggregates[i] == Aggregate.COUNT)) {
+          combined[i] = 0L;
+        }
+      }
+      return combined;
+    }
+
+    @Override
+    public int compare(Object[] row1, Object[] row2) {
+      for(int i = 0; i < _orderIdxs.length; ++i) {
+        Object value1 = row1[_orderIdxs[i]];
+        Object value2 = row2[_orderIdxs[i]];
+        int cmp = 0;
+        if((value1 == null) || (value2 == null)) {
+          if(value1 != value2) {
+            cmp = (((value1 == null) == _nullsFirst[i]) ? -1 : 1);
+          }
+        } else {
+          cmp = Numbers.compareValues(value1, value2);
+          if(_orderDesc[i]) {
+            cmp = -cmp;
+          }
+        }
+        if(cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    }
+
+    private boolean hasShardKey(SqlObjectList<SqlObject> grouping) {
+      for(SqlObject obj : grouping) {
+        if(isShardKey(obj)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isAggregate(SqlObject column) {
+      return ((column instanceof FunctionCall) &&
+              (((FunctionCall)column).getWindow() == null) &&
+              SubqueryRewriter.AGGREGATE_FUNCTIONS.contains(
+                  ((FunctionCall)column).getFunctionName().toString().trim()
+                  .toUpperCase()));
+    }
+
+    private Aggregate toAggregate(FunctionCall func) {
+      String name = func.getFunctionName().toString().trim().toUpperCase();
+      Aggregate aggregate = null;
+      try {
+        aggregate = Aggregate.valueOf(name);
+      } catch(IllegalArgumentException e) {
+        throw new UnsupportedOperationException(
+            "Function " + name + " is not supported for multi-shard queries");
+      }
+      if(func.isDistinct() && (aggregate != Aggregate.MIN) &&
+         (aggregate != Aggregate.MAX)) {
+        throw new UnsupportedOperationException(
+            "DISTINCT " + name + " is not supported for multi-shard queries");
+      }
+      return aggregate;
+    }
+
+    private Object combineAggregate(Aggregate aggregate, Object cur,
+                                    Object value) {
+      if(value == null) {
+        return cur;
+      }
+      if(cur == null) {
+        return value;
+      }
+      switch(aggregate) {
+      case COUNT:
+      case SUM:
+        return Numbers.add((Number)cur, (Number)value);
+      case MIN:
+        return ((Numbers.compareValues(value, cur) < 0) ? value : cur);
+      case MAX:
+        return ((Numbers.compareValues(value, cur) > 0) ? value : cur);
+      default:
+        throw new IllegalStateException("unexpected aggregate " + aggregate);
+      }
+    }
+
+    private int findColumnIndex(SqlObjectList<SqlObject> columns,
+                                SqlObject orderObj) {
+      if(orderObj instanceof NumberValueObject) {
+        return ((NumberValueObject)orderObj).getValue().intValue() - 1;
+      }
+      String orderStr = orderObj.toString();
+      for(int i = 0; i < columns.size(); ++i) {
+        SqlObject column = columns.get(i);
+        if((column instanceof AliasedObject) &&
+           ((AliasedObject)column).getAlias().equals(orderStr)) {
+          return i;
+        }
+        if(unwrapAlias(column).toString().equals(orderStr)) {
+          return i;
+        }
+      }
+      throw new UnsupportedOperationException(
+          "Multi-shard queries must order by selected columns, not '" +
+          orderStr + "'");
+    }
+
+    private long getLongValue(SqlObject obj, long defValue, String type) {
+      if(obj == null) {
+        return defValue;
+      }
+      if(!(obj instanceof NumberValueObject)) {
+        throw new UnsupportedOperationException(
+            "Multi-shard queries require a literal " + type);
+      }
+      return ((NumberValueObject)obj).getValue().longValue();
+    }
+  }
+
+  private static Iterable<Object[]> concat(List<List<Object[]>> results) {
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for(List<Object[]> shardRows : results) {
+      rows.addAll(shardRows);
+    }
+    return rows;
+  }
+
+  /**
+   * Iterates over the rows from all the shards in order (using a k-way merge
+   * of the already ordered shard results).
+   */
+  private static final class MergeIterable
+    implements Iterable<Object[]>, Iterator<Object[]>
+  {
+    private final PriorityQueue<Cursor> _cursors;
+
+    private MergeIterable(List<List<Object[]>> results,
+                          final Comparator<Object[]> rowComparator) {
+      _cursors = new PriorityQueue<Cursor>(
+          Math.max(results.size(), 1), new Comparator<Cursor>() {
+            @Override
+            public int compare(Cursor c1, Cursor c2) {
+              int cmp = rowComparator.compare(c1.current(), c2.current());
+              // break ties by shard order for stable results
+              return ((cmp != 0) ? cmp : Integer.compare(c1._shard, c2._shard));
+            }
+          });
+      for(int i = 0; i < results.size(); ++i) {
+        List<Object[]> rows = results.get(i);
+        if(!rows.isEmpty()) {
+          _cursors.add(new Cursor(i, rows));
+        }
+      }
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !_cursors.isEmpty();
+    }
+
+    @Override
+    public Object[] next() {
+      if(_cursors.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      Cursor cursor = _cursors.poll();
+      Object[] row = cursor.current();
+      if(++cursor._pos < cursor._rows.size()) {
+        _cursors.add(cursor);
+      }
+      return row;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * The current position within the results of a single shard.
+   */
+  private static final class Cursor
+  {
+    private final int _shard;
+    private final List<Object[]> _rows;
+    private int _pos;
+
+    private Cursor(int shard, List<Object[]> rows) {
+      _shard = shard;
+      _rows = rows;
+    }
+
+    private Object[] current() {
+      return _rows.get(_pos);
+    }
+  }
+
+}
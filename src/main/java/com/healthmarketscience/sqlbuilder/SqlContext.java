@@ -16,7 +16,10 @@ limitations under the License.
 
 package com.healthmarketscience.sqlbuilder;
 
+import java.util.Collection;
+
 import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
 
 /**
  * Object which maintains context for the sqlbuilder classes when a SQL
@@ -46,8 +49,32 @@ public class SqlContext implements Cloneable
   /** flag indicating whether constraints apply to a column or a table */
   private boolean _useTableConstraints = true;
 
+  /** flag indicating whether literal values should be replaced by
+      placeholders in the current SQL generation context */
+  private boolean _stripLiterals;
+
+  /** flag indicating whether semantically equivalent sql should be
+      generated as identical text in the current SQL generation context */
+  private boolean _canonicalize;
+
   /** handle to the immediate wrapping query */
   private Query<?> _query;
+
+  /** memoized tables referenced by the wrapping queries of this context
+      (and its parents), only valid for the current SQL generation */
+  private Collection<Table> _enclosingTables;
+
+  /** collects the tables of the columns appended within the immediate
+      wrapping query, if the query is collecting them (not inherited by
+      nested queries) */
+  private Collection<Table> _columnTables;
+
+  /** the builder of the fingerprint being computed from the generated SQL,
+      if any */
+  private QueryFingerprint.Builder _fingerprintBuilder;
+
+  /** the dialect of the SQL being generated */
+  private Dialect _dialect = Dialect.ANSI;
   
   public SqlContext() {
   }
@@ -100,6 +127,55 @@ public class SqlContext implements Cloneable
     _useTableConstraints = newUseTableConstraints;
   }
 
+  /**
+   * @return the flag indicating whether or not literal values should be
+   *         replaced by placeholders in the current SQL generation context.
+   */
+  public boolean getStripLiterals() {
+    return _stripLiterals;
+  }
+
+  /**
+   * Sets flag indicating whether or not literal values (strings, numbers,
+   * booleans and named parameters) should be replaced by <code>?</code>
+   * placeholders in the current SQL generation context.  Useful for
+   * generating a representation of a query which is independent of the
+   * values used in the query (e.g. for logging or metrics).
+   */
+  public void setStripLiterals(boolean newStripLiterals) {
+    _stripLiterals = newStripLiterals;
+  }
+
+  /**
+   * Gets whether or not sql should be generated in canonical form in the
+   * current SQL generation context.
+   */
+  public boolean getCanonicalize() {
+    return _canonicalize;
+  }
+
+  /**
+   * Sets whether or not sql should be generated in canonical form in the
+   * current SQL generation context.  In canonical form, semantically
+   * equivalent queries built in different orders generate identical sql
+   * (which improves the reuse of cached plans in databases which cache
+   * plans by the exact sql text):
+   * <ul>
+   * <li>the operands of AND/OR conditions and of {@code =}/{@code <>}
+   *     conditions are sorted</li>
+   * <li>IN lists are sorted (and duplicate literal values are dropped)</li>
+   * <li>FROM clauses consisting only of tables (no explicit joins) are
+   *     sorted</li>
+   * <li>the whitespace and reserved word case of {@link CustomSql} strings
+   *     are normalized</li>
+   * </ul>
+   * Operands are never reordered if that would change the order of
+   * positional parameters ({@code ?}).
+   */
+  public void setCanonicalize(boolean newCanonicalize) {
+    _canonicalize = newCanonicalize;
+  }
+
   /**
    * Gets the handle to the immediate wrapping query
    */
@@ -114,6 +190,71 @@ public class SqlContext implements Cloneable
     _query = newQuery;
   }
   
+  /**
+   * Gets the dialect of the SQL being generated (defaults to
+   * {@link Dialect#ANSI}).
+   */
+  public Dialect getDialect() {
+    return _dialect;
+  }
+
+  /**
+   * Sets the dialect of the SQL being generated.
+   */
+  public void setDialect(Dialect newDialect) {
+    _dialect = ((newDialect != null) ? newDialect : Dialect.ANSI);
+  }
+  
+  /**
+   * Gets the memoized tables referenced by the wrapping queries of this
+   * context (and its parents), if any.
+   */
+  Collection<Table> getEnclosingTables() {
+    return _enclosingTables;
+  }
+
+  /**
+   * Sets the memoized tables referenced by the wrapping queries of this
+   * context (and its parents).
+   */
+  void setEnclosingTables(Collection<Table> newEnclosingTables) {
+    _enclosingTables = newEnclosingTables;
+  }
+
+  /**
+   * Sets the collection into which the tables of any columns appended within
+   * this context are collected, if any.
+   */
+  void setColumnTables(Collection<Table> newColumnTables) {
+    _columnTables = newColumnTables;
+  }
+
+  /**
+   * Collects the given table of a column appended within this context, if
+   * the wrapping query is collecting them.
+   */
+  void addColumnTable(Table table) {
+    if(_columnTables != null) {
+      _columnTables.add(table);
+    }
+  }
+
+  /**
+   * Gets the builder of the fingerprint being computed from the generated
+   * SQL, if any.
+   */
+  QueryFingerprint.Builder getFingerprintBuilder() {
+    return _fingerprintBuilder;
+  }
+
+  /**
+   * Sets the builder of the fingerprint being computed from the generated
+   * SQL.
+   */
+  void setFingerprintBuilder(QueryFingerprint.Builder newFingerprintBuilder) {
+    _fingerprintBuilder = newFingerprintBuilder;
+  }
+
   @Override
   public SqlContext clone() {
     try {
@@ -151,6 +292,7 @@ public class SqlContext implements Cloneable
     if(parentContext != null) {
       context = parentContext.clone();
       context.setParent(parentContext);
+      context.setEnclosingTables(null);
     } else {
       context = new SqlContext();
     }
@@ -33,7 +33,7 @@ import com.healthmarketscience.common.util.StringAppendableExt;
  *
  * @author James Ahlborn
  */
-public abstract class SqlObject extends AppendeeObject
+public abstract class SqlObject extends AppendeeObject implements Cloneable
 {
   /** SqlObject which represents a <code>?</code> string for generating
       prepared statements. */
@@ -122,5 +122,34 @@ public abstract class SqlObject extends AppendeeObject
    */
   protected abstract void collectSchemaObjects(ValidationContext vContext);
 
+  /**
+   * Used by a {@link SqlTransformer} to transform the sql objects nested
+   * within this object.  Any subclass which contains nested sql objects
+   * should transform each of them using the given transformer and, if any of
+   * them were replaced, return a {@link #copy} of this object containing the
+   * replacements.  This object must not be modified.
+   * <p>
+   * Default implementation returns this object (no nested objects).
+   * @param transformer the current transformer
+   * @return this object if no nested objects were replaced, otherwise a
+   *         modified copy of this object
+   */
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    return this;
+  }
+
+  /**
+   * Returns a shallow copy of this object.  Subclasses which contain mutable
+   * collections should copy those collections so that the copy may be
+   * modified independently of this object.
+   */
+  protected SqlObject copy() {
+    try {
+      return (SqlObject)super.clone();
+    } catch(CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
 
 }
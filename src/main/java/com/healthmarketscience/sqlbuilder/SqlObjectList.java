@@ -41,7 +41,7 @@ public class SqlObjectList<ObjType extends SqlObject> extends SqlObject
   public static final String DEFAULT_DELIMITER = ",";
 
   private final String _delimiter;
-  private final List<ObjType> _objects;
+  private List<ObjType> _objects;
 
   public SqlObjectList() {
     this(DEFAULT_DELIMITER, new LinkedList<ObjType>());
@@ -192,6 +192,51 @@ public class SqlObjectList<ObjType extends SqlObject> extends SqlObject
     return this;
   }
 
+  @Override
+  protected SqlObjectList<ObjType> transformChildren(
+      SqlTransformer transformer) {
+    return transformObjects(transformer, SqlObject.class);
+  }
+
+  /**
+   * Transforms each of the objects in this list, requiring each replacement
+   * to be of the given type.
+   * @return this list if no objects were replaced, otherwise a copy of this
+   *         list containing the replacements
+   */
+  @SuppressWarnings("unchecked")
+  SqlObjectList<ObjType> transformObjects(
+      SqlTransformer transformer, Class<? super ObjType> type)
+  {
+    List<ObjType> newObjects = null;
+    int idx = 0;
+    for(ObjType obj : _objects) {
+      ObjType newObj = (ObjType)transformer.transform(
+          obj, type.asSubclass(SqlObject.class));
+      if((newObj != obj) && (newObjects == null)) {
+        newObjects = new LinkedList<ObjType>(_objects.subList(0, idx));
+      }
+      if(newObjects != null) {
+        newObjects.add(newObj);
+      }
+      ++idx;
+    }
+    if(newObjects == null) {
+      return this;
+    }
+    SqlObjectList<ObjType> copy = (SqlObjectList<ObjType>)super.copy();
+    copy._objects = newObjects;
+    return copy;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected SqlObjectList<ObjType> copy() {
+    SqlObjectList<ObjType> copy = (SqlObjectList<ObjType>)super.copy();
+    copy._objects = new LinkedList<ObjType>(_objects);
+    return copy;
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     for(ObjType obj : _objects) {
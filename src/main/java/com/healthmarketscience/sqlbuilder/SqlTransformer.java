@@ -0,0 +1,139 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+
+/**
+ * Rewrites a tree of SqlObjects (typically a query) using copy-on-write
+ * semantics.  The tree is walked depth first, calling {@link #enter} before
+ * the nested objects of an object are transformed and {@link #rewrite} after.
+ * <p>
+ * The original tree is never modified.  If none of the nested objects of an
+ * object are replaced, the object itself is returned, otherwise a (shallow)
+ * copy of the object which contains the replacements is returned.  Thus, the
+ * result of a transform shares all unchanged objects with the original tree.
+ * Copied queries have their own clause lists, so clauses may be added to a
+ * copied query without affecting the original.
+ * <p>
+ * The nested objects of all the standard SqlObjects (including the DDL
+ * queries, constraint clauses, query customizations and the custom syntax
+ * clauses) are transformed (see {@link SqlObject#transformChildren}).
+ * Objects which wrap raw sql (e.g. {@link CustomSql}) and objects which
+ * track their position in the generated sql (e.g.
+ * {@link QueryPreparer.PlaceHolder}) are treated as opaque, as are any
+ * custom SqlObjects which do not override {@code transformChildren}.
+ * <p>
+ * Example (replace one condition with another wherever it occurs):
+ * <pre>
+ *   SelectQuery newQuery = (SelectQuery)new SqlTransformer() {
+ *       &#64;Override
+ *       protected SqlObject rewrite(SqlObject obj) {
+ *         return ((obj == oldCondition) ? newCondition : obj);
+ *       }
+ *     }.transform(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public abstract class SqlTransformer
+{
+  protected SqlTransformer() {}
+
+  /**
+   * Transforms the given object and all of its nested objects.
+   *
+   * @param obj the object to transform, may be {@code null}
+   * @return the transformed object (which is the given object if nothing was
+   *         replaced)
+   */
+  public SqlObject transform(SqlObject obj) {
+    if(obj == null) {
+      return null;
+    }
+    SqlObject result = obj;
+    if(enter(obj)) {
+      result = obj.transformChildren(this);
+    }
+    result = rewrite(result);
+    if(result == null) {
+      throw new IllegalArgumentException(
+          "transformed object may not be null");
+    }
+    return result;
+  }
+
+  /**
+   * Transforms the given object (which must be replaced by an object of the
+   * given type).
+   *
+   * @param obj the object to transform, may be {@code null}
+   * @param type the required type of the transformed object
+   * @return the transformed object (which is the given object if nothing was
+   *         replaced)
+   * @throws IllegalArgumentException if the object was replaced by an object
+   *         of an incompatible type
+   */
+  public <T extends SqlObject> T transform(SqlObject obj, Class<T> type) {
+    SqlObject result = transform(obj);
+    if((result != null) && !type.isInstance(result)) {
+      throw new IllegalArgumentException(
+          "cannot replace " + obj.getClass().getName() + " with " +
+          result.getClass().getName() + ", expected " + type.getName());
+    }
+    return type.cast(result);
+  }
+
+  /**
+   * Transforms the given WHERE/HAVING clause of a query.  If the clause is
+   * replaced by anything other than an AND ComboCondition, the replacement
+   * is wrapped in a new AND ComboCondition (so that conditions may still be
+   * added to the clause).
+   */
+  ComboCondition transformClause(ComboCondition clause) {
+    Condition result = transform(clause, Condition.class);
+    if((result instanceof ComboCondition) &&
+       (((ComboCondition)result).getComboOp() == ComboCondition.Op.AND)) {
+      return (ComboCondition)result;
+    }
+    return ComboCondition.and(result);
+  }
+
+  /**
+   * Called before the nested objects of the given object are transformed.
+   * <p>
+   * Default implementation returns {@code true}.
+   *
+   * @return {@code true} if the nested objects of the given object should be
+   *         transformed, {@code false} otherwise
+   */
+  protected boolean enter(SqlObject obj) {
+    return true;
+  }
+
+  /**
+   * Called after the nested objects of an object have been transformed.
+   * <p>
+   * Default implementation returns the given object.
+   *
+   * @param obj the object (or a copy of it, if any nested objects were
+   *            replaced)
+   * @return the given object or a replacement object, never {@code null}
+   */
+  protected SqlObject rewrite(SqlObject obj) {
+    return obj;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+
+/**
+ * Read-only, depth first walk of a tree of SqlObjects (typically a query).
+ * Visits the same objects which are transformed by a {@link SqlTransformer},
+ * without rendering the tree to sql.
+ * <p>
+ * Example (find all nested subqueries):
+ * <pre>
+ *   final List&lt;Subquery&gt; subqueries = new ArrayList&lt;Subquery&gt;();
+ *   new SqlVisitor() {
+ *       &#64;Override
+ *       protected boolean visit(SqlObject obj) {
+ *         if(obj instanceof Subquery) {
+ *           subqueries.add((Subquery)obj);
+ *         }
+ *         return true;
+ *       }
+ *     }.walk(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public abstract class SqlVisitor
+{
+  private final SqlTransformer _walker = new SqlTransformer() {
+      @Override
+      protected boolean enter(SqlObject obj) {
+        return visit(obj);
+      }
+      @Override
+      protected SqlObject rewrite(SqlObject obj) {
+        leave(obj);
+        return obj;
+      }
+    };
+
+  protected SqlVisitor() {}
+
+  /**
+   * Walks the given object and all of its nested objects.
+   *
+   * @param obj the object to walk, may be {@code null}
+   */
+  public void walk(SqlObject obj) {
+    _walker.transform(obj);
+  }
+
+  /**
+   * Called before the nested objects of the given object are visited.
+   * <p>
+   * Default implementation returns {@code true}.
+   *
+   * @return {@code true} if the nested objects of the given object should be
+   *         visited, {@code false} otherwise
+   */
+  protected boolean visit(SqlObject obj) {
+    return true;
+  }
+
+  /**
+   * Called after the nested objects of the given object have been visited.
+   * <p>
+   * Default implementation does nothing.
+   */
+  protected void leave(SqlObject obj) {}
+}
@@ -52,6 +52,17 @@ public class Subquery extends Expression
   protected void collectSchemaObjects(ValidationContext vContext) {
     vContext.collectNestedQuerySchemaObjects(_query);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject query = transformer.transform(_query);
+    if(query == _query) {
+      return this;
+    }
+    Subquery copy = (Subquery)copy();
+    copy._query = query;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException {
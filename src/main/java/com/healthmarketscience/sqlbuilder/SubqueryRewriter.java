@@ -0,0 +1,661 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Opt-in pass which rewrites subqueries within {@link SelectQuery}s into
+ * forms which older query optimizers handle better.  Each of the following
+ * rules may be individually enabled/disabled (all are enabled by default):
+ * <ul>
+ * <li><b>predicate pushdown</b> ({@link #setPushDownPredicates}): predicates
+ *     AND'ed into the WHERE clause of a query which only reference the
+ *     columns of one of the query's {@link CommonTableExpression}s are
+ *     copied into the WHERE clause of the CTE query (the outer predicate is
+ *     retained).  Only null rejecting predicates (e.g. comparisons of a
+ *     column, but not {@code IS NULL}) are pushed down, and only into CTEs
+ *     which are not on the null supplying side of an outer join (e.g. the
+ *     anti-join {@code a LEFT JOIN c ... WHERE c.x IS NULL} is unaffected).
+ *     The CTE must declare its columns, must not be referenced by any other
+ *     query, and its query must be a simple SelectQuery of plain columns (no
+ *     grouping, windows, FETCH/OFFSET, etc).</li>
+ * <li><b>IN to EXISTS</b> ({@link #setInToExists}): {@code col IN (SELECT
+ *     c FROM ...)} becomes {@code EXISTS (SELECT c FROM ... AND (c = col))}.
+ *     This is only done where the result is equivalent: the IN condition
+ *     must be nested solely within AND/OR conditions of a WHERE or HAVING
+ *     clause (where a {@code NULL} result is equivalent to {@code false}).
+ *     {@code NOT IN} is only rewritten to {@code NOT EXISTS} if both columns
+ *     are known to be non-null (NOT NULL and not from an outer joined
+ *     table).</li>
+ * <li><b>scalar subquery decorrelation</b>
+ *     ({@link #setDecorrelateScalarSubqueries}): a correlated aggregate
+ *     subquery in the SELECT list of a single table query, e.g. {@code
+ *     SELECT a.x, (SELECT COUNT(*) FROM b WHERE b.aid = a.id) FROM a},
+ *     becomes {@code SELECT a.x, COUNT(b.aid) FROM a LEFT OUTER JOIN b ON
+ *     (b.aid = a.id) GROUP BY a.id, a.x}.  The outer table must have a
+ *     primary key and the query must have exactly one subquery in the SELECT
+ *     list.</li>
+ * </ul>
+ * <p>
+ * Derived tables (subqueries in the FROM clause) are only available as
+ * custom sql, so predicates cannot be pushed into them.
+ * <p>
+ * As with any {@link SqlTransformer}, the given object is not modified,
+ * instead a (partial) copy is returned if anything was rewritten.
+ * <p>
+ * Example:
+ * <pre>
+ *   SelectQuery rewritten = (SelectQuery)new SubqueryRewriter()
+ *     .setDecorrelateScalarSubqueries(false)
+ *     .transform(query);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class SubqueryRewriter extends SqlTransformer
+{
+  static final Set<String> AGGREGATE_FUNCTIONS =
+    new LinkedHashSet<String>(
+        Arrays.asList("COUNT", "SUM", "MIN", "MAX", "AVG"));
+
+  private boolean _pushDownPredicates = true;
+  private boolean _inToExists = true;
+  private boolean _decorrelateScalarSubqueries = true;
+
+  public SubqueryRewriter() {}
+
+  /**
+   * @return the given object with all relevant subqueries rewritten
+   */
+  public static SqlObject process(SqlObject obj) {
+    return new SubqueryRewriter().transform(obj);
+  }
+
+  public boolean isPushDownPredicates() {
+    return _pushDownPredicates;
+  }
+
+  public SubqueryRewriter setPushDownPredicates(boolean pushDownPredicates) {
+    _pushDownPredicates = pushDownPredicates;
+    return this;
+  }
+
+  public boolean isInToExists() {
+    return _inToExists;
+  }
+
+  public SubqueryRewriter setInToExists(boolean inToExists) {
+    _inToExists = inToExists;
+    return this;
+  }
+
+  public boolean isDecorrelateScalarSubqueries() {
+    return _decorrelateScalarSubqueries;
+  }
+
+  public SubqueryRewriter setDecorrelateScalarSubqueries(
+      boolean decorrelateScalarSubqueries) {
+    _decorrelateScalarSubqueries = decorrelateScalarSubqueries;
+    return this;
+  }
+
+  @Override
+  protected SqlObject rewrite(SqlObject obj) {
+    if(!(obj instanceof SelectQuery)) {
+      return obj;
+    }
+    SelectQuery query = (SelectQuery)obj;
+    if(_decorrelateScalarSubqueries) {
+      query = decorrelate(query);
+    }
+    if(_inToExists) {
+      query = rewriteInConditions(query);
+    }
+    if(_pushDownPredicates) {
+      query = pushDownPredicates(query);
+    }
+    return query;
+  }
+
+  //
+  // IN -> EXISTS
+  //
+
+  private static SelectQuery rewriteInConditions(SelectQuery query) {
+    Condition where = rewriteInConditions(query.getWhereClause(), query);
+    Condition having = rewriteInConditions(query.getHavingClause(), query);
+    if((where == query.getWhereClause()) &&
+       (having == query.getHavingClause())) {
+      return query;
+    }
+    SelectQuery copy = query.copy();
+    replaceConditions(copy.getWhereClause(), where);
+    replaceConditions(copy.getHavingClause(), having);
+    return copy;
+  }
+
+  /**
+   * Rewrites any IN conditions within the given condition (of the given
+   * query) which are only nested within AND/OR conditions.
+   */
+  private static Condition rewriteInConditions(Condition cond,
+                                               SelectQuery query) {
+    if(cond instanceof InCondition) {
+      Condition newCond = toExists((InCondition)cond, query);
+      return ((newCond != null) ? newCond : cond);
+    }
+    if(!(cond instanceof ComboCondition)) {
+      return cond;
+    }
+    ComboCondition combo = (ComboCondition)cond;
+    if((combo.getComboOp() != ComboCondition.Op.AND) &&
+       (combo.getComboOp() != ComboCondition.Op.OR)) {
+      return cond;
+    }
+    List<Condition> newConds = null;
+    int idx = 0;
+    for(Condition nestedCond : combo.getConditions()) {
+      Condition newCond = rewriteInConditions(nestedCond, query);
+      if((newCond != nestedCond) && (newConds == null)) {
+        newConds = new ArrayList<Condition>();
+        for(Condition prevCond : combo.getConditions()) {
+          if(newConds.size() == idx) {
+            break;
+          }
+          newConds.add(prevCond);
+        }
+      }
+      if(newConds != null) {
+        newConds.add(newCond);
+      }
+      ++idx;
+    }
+    if(newConds == null) {
+      return cond;
+    }
+    ComboCondition newCombo = combo.copy();
+    newCombo.getConditions().clear();
+    newCombo.getConditions().addObjects(newConds);
+    return newCombo;
+  }
+
+  /**
+   * @return the EXISTS condition equivalent to the given IN condition (of
+   *         the given query), or {@code null} if it cannot be rewritten
+   */
+  private static Condition toExists(InCondition cond, SelectQuery query) {
+    if((cond.getRightValues().size() != 1) ||
+       !(cond.getRightValues().get(0) instanceof Subquery) ||
+       !(cond.getLeftValue() instanceof ColumnObject)) {
+      return null;
+    }
+    SqlObject subquery = ((Subquery)cond.getRightValues().get(0))._query;
+    if(!(subquery instanceof SelectQuery)) {
+      return null;
+    }
+    SelectQuery inner = (SelectQuery)subquery;
+    if(!isSimpleQuery(inner) || (inner.getColumns().size() != 1) ||
+       !(inner.getColumns().get(0) instanceof ColumnObject)) {
+      return null;
+    }
+    Column outerCol = ((ColumnObject)cond.getLeftValue()).getColumn();
+    Column innerCol = ((ColumnObject)inner.getColumns().get(0)).getColumn();
+    if(referencesTable(inner.getJoins(), outerCol.getTable())) {
+      // the outer column would be interpreted as a column of the inner query
+      return null;
+    }
+    if(cond.isNegate() &&
+       (!Constraints.isNotNull(outerCol) || !Constraints.isNotNull(innerCol) ||
+        query.isOuterJoined(outerCol.getTable()) ||
+        inner.isOuterJoined(innerCol.getTable()))) {
+      // NOT IN has different semantics for null values (including the null
+      // values of outer joined tables)
+      return null;
+    }
+
+    SelectQuery newInner = inner.copy();
+    newInner.addCondition(BinaryCondition.equalTo(innerCol, outerCol));
+    Condition exists = UnaryCondition.exists(newInner);
+    return (cond.isNegate() ? new NotCondition(exists) : exists);
+  }
+
+  //
+  // predicate pushdown
+  //
+
+  private static SelectQuery pushDownPredicates(SelectQuery query) {
+    SqlObjectList<SqlObject> ctes = query.getCommonTableExpressions();
+    if(ctes.isEmpty() || query.getWhereClause().isEmpty()) {
+      return query;
+    }
+
+    SelectQuery copy = null;
+    int cteIdx = 0;
+    for(SqlObject cteObj : ctes) {
+      if(cteObj instanceof CommonTableExpression) {
+        CommonTableExpression cte = (CommonTableExpression)cteObj;
+        CommonTableExpression newCte = pushDownPredicates(query, cte);
+        if(newCte != cte) {
+          if(copy == null) {
+            copy = query.copy();
+          }
+          ListIterator<SqlObject> iter =
+            copy.getCommonTableExpressions().listIterator();
+          for(int i = 0; i <= cteIdx; ++i) {
+            iter.next();
+          }
+          iter.set(newCte);
+        }
+      }
+      ++cteIdx;
+    }
+    return ((copy != null) ? copy : query);
+  }
+
+  private static CommonTableExpression pushDownPredicates(
+      SelectQuery query, CommonTableExpression cte)
+  {
+    final Table cteTable = cte.getTable();
+    if(cteTable.getColumns().isEmpty() ||
+       !(cte.getQuery() instanceof SelectQuery)) {
+      return cte;
+    }
+    SelectQuery inner = (SelectQuery)cte.getQuery();
+    if(!isSimpleQuery(inner) ||
+       (inner.getColumns().size() != cteTable.getColumns().size()) ||
+       query.isOuterJoined(cteTable)) {
+      return cte;
+    }
+    final List<SqlObject> innerCols = new ArrayList<SqlObject>();
+    for(SqlObject col : inner.getColumns()) {
+      if(col instanceof AliasedObject) {
+        col = ((AliasedObject)col).getObject();
+      }
+      if(!(col instanceof ColumnObject)) {
+        return cte;
+      }
+      innerCols.add(col);
+    }
+
+    List<Condition> pushConds = new ArrayList<Condition>();
+    for(Condition cond : getConjuncts(query.getWhereClause())) {
+      Set<Table> tables = getReferencedTables(cond);
+      if((tables != null) && (tables.size() == 1) &&
+         tables.contains(cteTable) && isNullRejecting(cond) &&
+         !ConditionNormalizer.containsPlaceHolder(cond)) {
+        pushConds.add(cond);
+      }
+    }
+    if(pushConds.isEmpty() || isReferencedByNestedQuery(query, cteTable)) {
+      return cte;
+    }
+
+    // map the cte columns to the cte query columns
+    SqlTransformer mapper = new SqlTransformer() {
+      @Override
+      protected SqlObject rewrite(SqlObject obj) {
+        if((obj instanceof ColumnObject) &&
+           (((ColumnObject)obj).getColumn().getTable() == cteTable)) {
+          int idx = cteTable.getColumns().indexOf(
+              ((ColumnObject)obj).getColumn());
+          return innerCols.get(idx);
+        }
+        return obj;
+      }
+    };
+    SelectQuery newInner = inner.copy();
+    for(Condition cond : pushConds) {
+      newInner.addCondition((Condition)mapper.transform(cond));
+    }
+    CommonTableExpression newCte = (CommonTableExpression)cte.copy();
+    newCte.setQuery(newInner);
+    return newCte;
+  }
+
+  /**
+   * @return {@code true} if the given condition cannot be true when the
+   *         columns it compares are null, {@code false} otherwise
+   */
+  private static boolean isNullRejecting(Condition cond) {
+    if(cond instanceof BinaryCondition) {
+      BinaryCondition binCond = (BinaryCondition)cond;
+      return ((binCond.getBinaryOp() instanceof BinaryCondition.Op) &&
+              ((binCond.getLeftValue() instanceof ColumnObject) ||
+               (binCond.getRightValue() instanceof ColumnObject)));
+    }
+    if(cond instanceof InCondition) {
+      return (((InCondition)cond).getLeftValue() instanceof ColumnObject);
+    }
+    if(cond instanceof BetweenCondition) {
+      return (((BetweenCondition)cond).getValue() instanceof ColumnObject);
+    }
+    if(cond instanceof UnaryCondition) {
+      UnaryCondition unaryCond = (UnaryCondition)cond;
+      return ((unaryCond.getUnaryOp() == UnaryCondition.Op.IS_NOT_NULL) &&
+              (unaryCond.getValue() instanceof ColumnObject));
+    }
+    if(cond instanceof ComboCondition) {
+      ComboCondition comboCond = (ComboCondition)cond;
+      boolean isAnd = (comboCond.getComboOp() == ComboCondition.Op.AND);
+      for(Condition nestedCond : comboCond.getConditions()) {
+        if(nestedCond.isEmpty()) {
+          continue;
+        }
+        if(isNullRejecting(nestedCond) == isAnd) {
+          // any AND'ed condition or all OR'ed conditions
+          return isAnd;
+        }
+      }
+      return !isAnd;
+    }
+    return false;
+  }
+
+  /**
+   * @return {@code true} if the given table is referenced by any query
+   *         nested within the given query (including CTE queries),
+   *         {@code false} otherwise
+   */
+  private static boolean isReferencedByNestedQuery(final SelectQuery query,
+                                                   final Table table) {
+    final boolean[] found = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if((obj instanceof Query<?>) && (obj != query)) {
+          if(referencesTable(obj, table)) {
+            found[0] = true;
+          }
+          // nested query has been fully checked
+          return false;
+        }
+        return !found[0];
+      }
+    }.walk(query);
+    return found[0];
+  }
+
+  //
+  // scalar subquery decorrelation
+  //
+
+  private static SelectQuery decorrelate(SelectQuery query) {
+    if(!query.getJoins().isEmpty() || query.isDistinct() ||
+       !query.getGrouping().isEmpty() || !query.getHavingClause().isEmpty() ||
+       !query.getWindows().isEmpty() || query.isForUpdate()) {
+      return query;
+    }
+    Collection<Table> outerTables = query.getColumnTables();
+    if(outerTables.size() != 1) {
+      return query;
+    }
+    Table outerTable = outerTables.iterator().next();
+    List<? extends Column> pkCols = Constraints.getPrimaryKey(outerTable);
+    if(pkCols == null) {
+      return query;
+    }
+
+    // find the single subquery column, the other columns must be plain
+    // columns
+    int subqueryIdx = -1;
+    Set<Column> groupCols = new LinkedHashSet<Column>(pkCols);
+    int idx = 0;
+    for(SqlObject col : query.getColumns()) {
+      SqlObject obj = ((col instanceof AliasedObject) ?
+                       ((AliasedObject)col).getObject() : col);
+      if(obj instanceof Subquery) {
+        if(subqueryIdx >= 0) {
+          return query;
+        }
+        subqueryIdx = idx;
+      } else if(obj instanceof ColumnObject) {
+        groupCols.add(((ColumnObject)obj).getColumn());
+      } else {
+        return query;
+      }
+      ++idx;
+    }
+    if(subqueryIdx < 0) {
+      return query;
+    }
+    for(SqlObject order : query.getOrdering()) {
+      SqlObject obj = ((order instanceof OrderObject) ?
+                       ((OrderObject)order).getObject() : order);
+      if(obj instanceof ColumnObject) {
+        groupCols.add(((ColumnObject)obj).getColumn());
+      } else if(!(obj instanceof NumberValueObject)) {
+        return query;
+      }
+    }
+
+    SqlObject subqueryCol = query.getColumns().get(subqueryIdx);
+    String alias = null;
+    if(subqueryCol instanceof AliasedObject) {
+      alias = ((AliasedObject)subqueryCol).getAlias();
+      subqueryCol = ((AliasedObject)subqueryCol).getObject();
+    }
+    SqlObject subquery = ((Subquery)subqueryCol)._query;
+    if(!(subquery instanceof SelectQuery)) {
+      return query;
+    }
+    SelectQuery inner = (SelectQuery)subquery;
+    if(!isSimpleQuery(inner) || !inner.getJoins().isEmpty() ||
+       !inner.getOrdering().isEmpty() ||
+       (inner.getColumns().size() != 1) ||
+       !(inner.getColumns().get(0) instanceof FunctionCall)) {
+      return query;
+    }
+
+    // inner query must reference exactly one table other than the outer table
+    Set<Table> innerTables = new LinkedHashSet<Table>(inner.getColumnTables());
+    if(!innerTables.remove(outerTable) || (innerTables.size() != 1)) {
+      return query;
+    }
+    Table innerTable = innerTables.iterator().next();
+    Set<Table> whereTables = getReferencedTables(inner.getWhereClause());
+    if((whereTables == null) || !whereTables.contains(outerTable)) {
+      // must be a simple correlated subquery
+      return query;
+    }
+    whereTables.remove(outerTable);
+    whereTables.remove(innerTable);
+    if(!whereTables.isEmpty()) {
+      return query;
+    }
+
+    // the aggregate must only reference the inner table
+    FunctionCall agg = (FunctionCall)inner.getColumns().get(0);
+    if((agg.getWindow() != null) ||
+       !AGGREGATE_FUNCTIONS.contains(
+           agg.getFunctionName().toString().toUpperCase())) {
+      return query;
+    }
+    boolean countAll = false;
+    for(SqlObject param : agg.getParams()) {
+      if(param == SqlObject.ALL_SYMBOL) {
+        countAll = true;
+        continue;
+      }
+      Set<Table> paramTables = getReferencedTables(param);
+      if((paramTables == null) || paramTables.contains(outerTable)) {
+        return query;
+      }
+    }
+
+    FunctionCall newAgg = agg;
+    if(countAll) {
+      // count the matched inner rows using a column which is non-null for
+      // every match
+      Column countCol = findMatchColumn(inner.getWhereClause(), innerTable);
+      if(countCol == null) {
+        return query;
+      }
+      newAgg = FunctionCall.count().addColumnParams(countCol);
+    }
+
+    SelectQuery copy = query.copy();
+    ListIterator<SqlObject> iter = copy.getColumns().listIterator();
+    for(int i = 0; i <= subqueryIdx; ++i) {
+      iter.next();
+    }
+    iter.set((alias != null) ? new AliasedObject(newAgg, alias) : newAgg);
+    copy.addJoin(SelectQuery.JoinType.LEFT_OUTER, outerTable, innerTable,
+                 inner.getWhereClause().copy());
+    copy.addGroupings(groupCols.toArray(new Column[groupCols.size()]));
+    return copy;
+  }
+
+  /**
+   * @return a column of the given table which is non-null for any row
+   *         matching the given (AND) condition, or {@code null} if none can
+   *         be determined
+   */
+  private static Column findMatchColumn(Condition cond, Table table) {
+    List<? extends Column> pkCols = Constraints.getPrimaryKey(table);
+    if(pkCols != null) {
+      return pkCols.get(0);
+    }
+    for(Condition conjunct : getConjuncts(cond)) {
+      if((conjunct instanceof BinaryCondition) &&
+         (((BinaryCondition)conjunct).getBinaryOp() ==
+          BinaryCondition.Op.EQUAL_TO)) {
+        BinaryCondition bc = (BinaryCondition)conjunct;
+        for(SqlObject value : new SqlObject[]{bc.getLeftValue(),
+                                              bc.getRightValue()}) {
+          if((value instanceof ColumnObject) &&
+             (((ColumnObject)value).getColumn().getTable() == table)) {
+            // equality comparison can only succeed for a non-null value
+            return ((ColumnObject)value).getColumn();
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  //
+  // utilities
+  //
+
+  /**
+   * @return {@code true} if the given query is a basic select query which
+   *         can have conditions added to it without changing the meaning of
+   *         its select list, {@code false} otherwise
+   */
+  private static boolean isSimpleQuery(SelectQuery query) {
+    return (query.getGrouping().isEmpty() &&
+            query.getHavingClause().isEmpty() &&
+            query.getWindows().isEmpty() &&
+            (query.getOffset() == null) && (query.getFetchCount() == null) &&
+            !query.isForUpdate() && !query.hasAllColumns() &&
+            query.getCommonTableExpressions().isEmpty());
+  }
+
+  /**
+   * @return the conditions AND'ed together at the top level of the given
+   *         condition
+   */
+  static List<Condition> getConjuncts(Condition cond) {
+    List<Condition> conjuncts = new ArrayList<Condition>();
+    addConjuncts(cond, conjuncts);
+    return conjuncts;
+  }
+
+  private static void addConjuncts(Condition cond, List<Condition> conjuncts) {
+    if((cond instanceof ComboCondition) &&
+       (((ComboCondition)cond).getComboOp() == ComboCondition.Op.AND)) {
+      for(Condition nestedCond : ((ComboCondition)cond).getConditions()) {
+        addConjuncts(nestedCond, conjuncts);
+      }
+    } else if(!cond.isEmpty()) {
+      conjuncts.add(cond);
+    }
+  }
+
+  /**
+   * @return the tables of all the columns referenced by the given object, or
+   *         {@code null} if the object contains a nested query or custom sql
+   *         (which may reference unknown tables)
+   */
+  static Set<Table> getReferencedTables(SqlObject obj) {
+    final Set<Table> tables = new LinkedHashSet<Table>();
+    final boolean[] unknown = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if((obj instanceof Subquery) || (obj instanceof Query<?>) ||
+           (obj instanceof CustomSql) || (obj instanceof CustomCondition) ||
+           (obj instanceof CustomExpression)) {
+          unknown[0] = true;
+        } else if(obj instanceof ColumnObject) {
+          tables.add(((ColumnObject)obj).getColumn().getTable());
+        }
+        return !unknown[0];
+      }
+    }.walk(obj);
+    return (unknown[0] ? null : tables);
+  }
+
+  /**
+   * @return {@code true} if the given object references the given table,
+   *         {@code false} otherwise
+   */
+  private static boolean referencesTable(SqlObject obj, final Table table) {
+    final boolean[] found = new boolean[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        if(((obj instanceof ColumnObject) &&
+            (((ColumnObject)obj).getColumn().getTable() == table)) ||
+           ((obj instanceof TableObject) &&
+            (((TableObject)obj)._table == table))) {
+          found[0] = true;
+        }
+        return !found[0];
+      }
+    }.walk(obj);
+    return found[0];
+  }
+
+  /**
+   * Replaces the conditions of the given combo condition with the given
+   * condition (if different).
+   */
+  private static void replaceConditions(ComboCondition combo, Condition cond) {
+    if(cond == combo) {
+      return;
+    }
+    // the new condition is a copy of the combo (with a new condition list)
+    List<Condition> conds = new ArrayList<Condition>();
+    for(Condition nestedCond : ((ComboCondition)cond).getConditions()) {
+      conds.add(nestedCond);
+    }
+    combo.getConditions().clear();
+    combo.getConditions().addObjects(conds);
+  }
+}
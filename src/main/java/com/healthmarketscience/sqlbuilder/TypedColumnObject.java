@@ -84,6 +84,29 @@ class TypedColumnObject extends ColumnObject
       _defaultValue.collectSchemaObjects(vContext);
     }
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<SqlObject> constraints = _constraints.transformObjects(
+        transformer, SqlObject.class);
+    SqlObject defaultValue = transformer.transform(_defaultValue);
+    if((constraints == _constraints) && (defaultValue == _defaultValue)) {
+      return this;
+    }
+    TypedColumnObject copy = copy();
+    if(constraints != _constraints) {
+      copy._constraints = constraints;
+    }
+    copy._defaultValue = defaultValue;
+    return copy;
+  }
+
+  @Override
+  protected TypedColumnObject copy() {
+    TypedColumnObject copy = (TypedColumnObject)super.copy();
+    copy._constraints = _constraints.copy();
+    return copy;
+  }
  
   @Override
   @SuppressWarnings("deprecation")
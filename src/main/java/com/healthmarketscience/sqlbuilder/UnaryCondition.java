@@ -115,11 +115,32 @@ public class UnaryCondition extends Condition
     _unaryOp = unaryOp;
     _value = _unaryOp.getConverter().convert(value);
   }
+
+  /** @return the unary operation of this condition */
+  CustomUnaryOp getUnaryOp() {
+    return _unaryOp;
+  }
+
+  /** @return the value of this condition */
+  SqlObject getValue() {
+    return _value;
+  }
         
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     _value.collectSchemaObjects(vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject value = transformer.transform(_value);
+    if(value == _value) {
+      return this;
+    }
+    UnaryCondition copy = (UnaryCondition)copy();
+    copy._value = value;
+    return copy;
+  }
     
   @Override
   public void appendTo(AppendableExt app) throws IOException
@@ -19,6 +19,9 @@ package com.healthmarketscience.sqlbuilder;
 import java.io.IOException;
 
 import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
+import com.healthmarketscience.sqlbuilder.custom.HookAnchor;
+import com.healthmarketscience.sqlbuilder.custom.HookType;
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
 
 import com.healthmarketscience.sqlbuilder.dbspec.Table;
@@ -26,11 +29,27 @@ import com.healthmarketscience.sqlbuilder.dbspec.Table;
 
 /**
  * Query which generates an UPDATE statement.
+ * <p>
+ * Note that this query supports custom SQL syntax, see {@link Hook} for more
+ * details.
  *
  * @author James Ahlborn
  */
 public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
 {
+  /**
+   * The HookAnchors supported for UPDATE queries.  See {@link com.healthmarketscience.sqlbuilder.custom}
+   * for more details on custom SQL syntax.
+   */
+  public enum Hook implements HookAnchor {
+    /** Anchor for the beginning of the query, only supports {@link
+        HookType#BEFORE} */
+    HEADER,
+    /** Anchor for the end of the query, only supports {@link
+        HookType#BEFORE} */
+    TRAILER;
+  }
+
   private SqlObject _table;
   private SqlObjectList<SetClauseObject> _sets = SqlObjectList.create();
   private ComboCondition _condition = ComboCondition.and();
@@ -70,6 +89,11 @@ public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
     return this;
   }
 
+  /** @return the table of this update query */
+  SqlObject getTable() {
+    return _table;
+  }
+
   /**
    * Allows access to the AND ComboCondition of the where clause to facilitate
    * common condition building code.
@@ -93,6 +117,38 @@ public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
     return this;
   }
 
+  /**
+   * Adds custom SQL to this query.  See {@link com.healthmarketscience.sqlbuilder.custom} for more details on
+   * custom SQL syntax.
+   * @param hook the part of the query being customized
+   * @param type the type of customization
+   * @param obj the custom sql.  The {@code Object} -&gt; {@code SqlObject}
+   *            conversions handled by {@link Converter#toCustomSqlObject}.
+   */
+  public UpdateQuery addCustomization(Hook hook, HookType type, Object obj) {
+    super.addCustomization(hook, type, obj);
+    return this;
+  }
+
+  /**
+   * Adds custom SQL to this query.  See {@link com.healthmarketscience.sqlbuilder.custom} for more details on
+   * custom SQL syntax.
+   * @param obj the custom sql syntax on which the
+   *            {@link CustomSyntax#apply(UpdateQuery)} method will be
+   *            invoked (may be {@code null}).
+   */
+  public UpdateQuery addCustomization(CustomSyntax obj) {
+    if(obj != null) {
+      obj.apply(this);
+    }
+    return this;
+  }
+
+  @Override
+  protected void applyHint(CustomSyntax hint) {
+    addCustomization(hint);
+  }
+
   @Override
   protected void collectSchemaObjects(ValidationContext vContext) {
     super.collectSchemaObjects(vContext);
@@ -101,12 +157,43 @@ public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
     _condition.collectSchemaObjects(vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject result = super.transformChildren(transformer);
+    SqlObject table = transformer.transform(_table);
+    SqlObjectList<SetClauseObject> sets = _sets.transformObjects(
+        transformer, SetClauseObject.class);
+    ComboCondition condition = transformer.transformClause(_condition);
+    if((table == _table) && (sets == _sets) && (condition == _condition)) {
+      return result;
+    }
+    UpdateQuery copy = (UpdateQuery)((result == this) ? copy() : result);
+    copy._table = table;
+    if(sets != _sets) {
+      copy._sets = sets;
+    }
+    if(condition != _condition) {
+      copy._condition = condition;
+    }
+    return copy;
+  }
+
+  @Override
+  protected UpdateQuery copy() {
+    UpdateQuery copy = (UpdateQuery)super.copy();
+    copy._sets = _sets.copy();
+    copy._condition = _condition.copy();
+    return copy;
+  }
+
   @Override
   protected void appendTo(AppendableExt app, SqlContext newContext)
     throws IOException
   {
     newContext.setUseTableAliases(false);
-    
+
+    customAppendTo(app, Hook.HEADER);
+
     // append basic select
     app.append("UPDATE ").append(_table).append(" SET ").append(_sets);
 
@@ -114,6 +201,8 @@ public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
       // append "where" condition(s)
       app.append(" WHERE ").append(_condition);
     }
+
+    customAppendTo(app, Hook.TRAILER);
   }  
 
   /**
@@ -135,6 +224,19 @@ public class UpdateQuery extends BaseCTEQuery<UpdateQuery>
       _column.collectSchemaObjects(vContext);
       _value.collectSchemaObjects(vContext);
     }
+
+    @Override
+    protected SqlObject transformChildren(SqlTransformer transformer) {
+      SqlObject column = transformer.transform(_column);
+      SqlObject value = transformer.transform(_value);
+      if((column == _column) && (value == _value)) {
+        return this;
+      }
+      SetClauseObject copy = (SetClauseObject)copy();
+      copy._column = column;
+      copy._value = value;
+      return copy;
+    }
     
     @Override
     public void appendTo(AppendableExt app) throws IOException {
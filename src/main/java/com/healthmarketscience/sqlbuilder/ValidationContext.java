@@ -20,13 +20,18 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
 import com.healthmarketscience.sqlbuilder.dbspec.Table;
 
 /**
  * Object used to accummulate state during query validation.
+ * <p>
+ * Since validation may be run frequently, the default table and column
+ * collections are allocated lazily and compare elements by identity (see
+ * {@link CompactIdentitySet}), and the verifiables are only stored in the
+ * root context.
  *
  * @author james
  */
@@ -41,7 +46,14 @@ public class ValidationContext {
   /** whether or not collection/validation should proceed into nested
       subqueries */
   private boolean _localOnly;
-  private Collection<Map.Entry<ValidationContext,? extends Verifiable<?>>> _verifiables;
+  /** whether or not the schema objects of nested subqueries should be
+      collected into this context instead of a nested context (only useful
+      for collecting every schema object referenced by a query) */
+  private final boolean _flattenNested;
+  /** verifiables (and the context in which each was found) stored as
+      alternating elements, only used in the root context, allocated
+      lazily */
+  private List<Object> _verifiables;
 
   public ValidationContext() {
     this(null, null, null, DEFAULT_LOCAL_ONLY);
@@ -65,18 +77,55 @@ public class ValidationContext {
                            Collection<Column> columns,
                            boolean localOnly) {
     _parent = parent;
-    _tables = ((tables != null) ? tables : new HashSet<Table>());
-    _columns = ((columns != null) ? columns : new HashSet<Column>());
+    _tables = tables;
+    _columns = columns;
     _localOnly = localOnly;
-    _verifiables = ((_parent != null) ? _parent._verifiables :
-                    new ArrayList<Map.Entry<ValidationContext,? extends Verifiable<?>>>(2));
+    _flattenNested = false;
+  }
+
+  /**
+   * Creates a root context which collects the schema objects of any nested
+   * queries into the given collections (instead of a nested context).
+   */
+  ValidationContext(Collection<Table> tables, Collection<Column> columns,
+                    boolean localOnly, boolean flattenNested) {
+    _parent = null;
+    _tables = tables;
+    _columns = columns;
+    _localOnly = localOnly;
+    _flattenNested = flattenNested;
+  }
+
+  /**
+   * @return a new context which collects the schema objects of the outer
+   *         query and all nested queries into the same collections
+   */
+  static ValidationContext newFlattened() {
+    return newFlattened(null, null);
+  }
+
+  /**
+   * @return a new context which collects the schema objects of the outer
+   *         query and all nested queries into the given collections
+   */
+  static ValidationContext newFlattened(Collection<Table> tables,
+                                        Collection<Column> columns) {
+    return new ValidationContext(tables, columns, false, true);
   }
 
   public ValidationContext getParent() {
     return _parent;
   }
 
+  /**
+   * @return the tables collected in this context.  Unless a collection was
+   *         given via {@link #setTables}, this is an identity based set
+   *         (tables are not compared using {@code equals()}).
+   */
   public Collection<Table> getTables() {
+    if(_tables == null) {
+      _tables = new CompactIdentitySet<Table>();
+    }
     return _tables;
   }
 
@@ -85,10 +134,18 @@ public class ValidationContext {
   }
 
   public void addTable(Table table) {
-    _tables.add(table);
+    getTables().add(table);
   }
 
+  /**
+   * @return the columns collected in this context.  Unless a collection was
+   *         given via {@link #setColumns}, this is an identity based set
+   *         (columns are not compared using {@code equals()}).
+   */
   public Collection<Column> getColumns() {
+    if(_columns == null) {
+      _columns = new CompactIdentitySet<Column>();
+    }
     return _columns;
   }
 
@@ -97,7 +154,7 @@ public class ValidationContext {
   }
 
   public void addColumn(Column column) {
-    _columns.add(column);
+    getColumns().add(column);
   }
 
   public boolean isLocalOnly() {
@@ -113,26 +170,81 @@ public class ValidationContext {
     if(verifiable == null) {
       throw new IllegalArgumentException("verifiable was null");
     }
-    _verifiables.add(new AbstractMap.SimpleImmutableEntry<>(this, verifiable));
+    ValidationContext root = getRoot();
+    if(root._verifiables == null) {
+      root._verifiables = new ArrayList<Object>(4);
+    }
+    root._verifiables.add(this);
+    root._verifiables.add(verifiable);
   }
 
   public void validateAll() throws ValidationException {
-    for(Map.Entry<ValidationContext,? extends Verifiable<?>> verifiable : _verifiables) {
+    List<Object> verifiables = getRoot()._verifiables;
+    if(verifiables == null) {
+      return;
+    }
+    for(int i = 0; i < verifiables.size(); i += 2) {
+      ValidationContext vContext = (ValidationContext)verifiables.get(i);
+      Verifiable<?> verifiable = (Verifiable<?>)verifiables.get(i + 1);
       try {
-        verifiable.getValue().validate(verifiable.getKey());
+        verifiable.validate(vContext);
       } catch(ValidationException e) {
-        e.setFailedVerifiable(verifiable);
+        e.setFailedVerifiable(
+            new AbstractMap.SimpleImmutableEntry<ValidationContext,Verifiable<?>>(
+                vContext, verifiable));
         throw e;
       }
     }
   }
 
+  /**
+   * Returns <code>true</code> if the given table is referenced in this
+   * context or any of its parent contexts, <code>false</code> otherwise.
+   */
+  public boolean isTableInScope(Table table) {
+    for(ValidationContext vContext = this; vContext != null;
+        vContext = vContext.getParent()) {
+      if((vContext._tables != null) && vContext._tables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns <code>true</code> if the tables of all the columns referenced in
+   * this context are referenced in this context or any of its parent
+   * contexts (see {@link #isTableInScope}), <code>false</code> otherwise.
+   */
+  public boolean areColumnTablesInScope() {
+    if(_columns != null) {
+      for(Column column : _columns) {
+        if(!isTableInScope(column.getTable())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private ValidationContext getRoot() {
+    ValidationContext root = this;
+    while(root._parent != null) {
+      root = root._parent;
+    }
+    return root;
+  }
+
   /**
    * Handles schema object collection for nested queries.
    */
   public void collectNestedQuerySchemaObjects(SqlObject nestedQuery) {
     // we do not collect into the subquery if this a "local only" collection
     if((nestedQuery != null) && !isLocalOnly()) {
+      if(_flattenNested) {
+        nestedQuery.collectSchemaObjects(this);
+        return;
+      }
       // subqueries need a nested validation context because their schema
       // objects *do not* affect the outer query, but the outer query's
       // schema objects *do* affect their query
@@ -162,8 +274,10 @@ public class ValidationContext {
       columnTables = new HashSet<Table>();
     }
     // get the tables from the columns referenced
-    for(Column column : _columns) {
-      columnTables.add(column.getTable());
+    if(_columns != null) {
+      for(Column column : _columns) {
+        columnTables.add(column.getTable());
+      }
     }
     return columnTables;
   }
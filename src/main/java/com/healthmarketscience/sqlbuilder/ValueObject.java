@@ -34,6 +34,11 @@ public class ValueObject extends Expression
     _value = value;
   }
 
+  /** @return the literal value of this object */
+  Object getValue() {
+    return _value;
+  }
+
   @Override
   public boolean hasParens() { return false; }
 
@@ -43,6 +48,10 @@ public class ValueObject extends Expression
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    if(SqlContext.getContext(app).getStripLiterals()) {
+      QUESTION_MARK.appendTo(app);
+      return;
+    }
     app.append("'").append(_value).append("'");
   }
 }
@@ -62,8 +62,8 @@ public class WindowDefinitionClause extends SqlObject
     }
   }
 
-  private final SqlObjectList<SqlObject> _columns = SqlObjectList.create();
-  private final SqlObjectList<SqlObject> _ordering = SqlObjectList.create();
+  private SqlObjectList<SqlObject> _columns = SqlObjectList.create();
+  private SqlObjectList<SqlObject> _ordering = SqlObjectList.create();
   private Object _frameUnits;
   private SqlObject _frameStart;
   private SqlObject _frameEnd;
@@ -185,6 +185,38 @@ public class WindowDefinitionClause extends SqlObject
     collectSchemaObjects(_frameEnd, vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<SqlObject> columns = _columns.transformObjects(
+        transformer, SqlObject.class);
+    SqlObjectList<SqlObject> ordering = _ordering.transformObjects(
+        transformer, SqlObject.class);
+    SqlObject frameStart = transformer.transform(_frameStart);
+    SqlObject frameEnd = transformer.transform(_frameEnd);
+    if((columns == _columns) && (ordering == _ordering) &&
+       (frameStart == _frameStart) && (frameEnd == _frameEnd)) {
+      return this;
+    }
+    WindowDefinitionClause copy = copy();
+    if(columns != _columns) {
+      copy._columns = columns;
+    }
+    if(ordering != _ordering) {
+      copy._ordering = ordering;
+    }
+    copy._frameStart = frameStart;
+    copy._frameEnd = frameEnd;
+    return copy;
+  }
+
+  @Override
+  protected WindowDefinitionClause copy() {
+    WindowDefinitionClause copy = (WindowDefinitionClause)super.copy();
+    copy._columns = _columns.copy();
+    copy._ordering = _ordering.copy();
+    return copy;
+  }
+
   @Override
   public void appendTo(AppendableExt app) throws IOException {
 
@@ -0,0 +1,379 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Constraint;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
+
+
+/**
+ * Helper class which buffers logical writes (inserts, updates and counter
+ * increments) to the rows of a single table, coalescing successive writes to
+ * the same row in memory.  Rows are identified by the primary key of the
+ * table, which is determined from the table's {@link Constraint.Type#PRIMARY_KEY}
+ * constraint (either a table constraint or a column constraint).
+ * <p>
+ * When the buffer is flushed, at most one {@link InsertQuery} and/or one
+ * {@link UpdateQuery} is generated for each buffered row.  The generated
+ * statements are ordered by primary key value so that concurrent flushers
+ * always acquire row locks in a consistent order (which avoids deadlocks
+ * between them).
+ * <p>
+ * Write coalescing rules for a given row:
+ * <ul>
+ * <li>an insert replaces any previously buffered writes for the row</li>
+ * <li>an update of a column replaces any previously buffered value (or
+ *     increment) for that column</li>
+ * <li>an increment of a column is folded into a previously buffered numeric
+ *     value for that column, otherwise it is accumulated and written as
+ *     {@code "column = column + delta"}</li>
+ * </ul>
+ * <p>
+ * Primary key values are given as a single value for single column keys, or
+ * as a {@code List} or {@code Object[]} of values (in key column order) for
+ * multi-column keys.
+ * <p>
+ * This class is thread-safe.  The buffer does not flush itself, the caller is
+ * responsible for calling one of the {@code flush} methods periodically (the
+ * {@link #size} method may be used to flush based on buffered row count).
+ * <p>
+ * Example:
+ * <pre>
+ *   WriteBuffer buf = new WriteBuffer(counterTable);
+ *   buf.addIncrement(counterId, hitsCol, 1);
+ *   buf.addUpdate(counterId, lastHitCol, now);
+ *   // ... many more writes ...
+ *   buf.flush(conn);
+ * </pre>
+ *
+ * @author James Ahlborn
+ */
+public class WriteBuffer
+{
+  /** orders key values component-wise, using natural ordering where
+      possible */
+  private static final Comparator<List<Object>> KEY_COMPARATOR =
+    new Comparator<List<Object>>() {
+      @Override
+      public int compare(List<Object> key1, List<Object> key2) {
+        for(int i = 0; i < key1.size(); ++i) {
+          int cmp = Numbers.compareValues(key1.get(i), key2.get(i));
+          if(cmp != 0) {
+            return cmp;
+          }
+        }
+        return 0;
+      }
+    };
+
+  private final Table _table;
+  private final List<Column> _keyColumns;
+  private Map<List<Object>,PendingWrite> _pending = newPendingMap();
+
+  public WriteBuffer(Table table) {
+    _table = table;
+    _keyColumns = Collections.unmodifiableList(findPrimaryKey(table));
+  }
+
+  /** @return the table to which this buffer writes */
+  public Table getTable() {
+    return _table;
+  }
+
+  /** @return the primary key columns used to identify the rows of the
+              table */
+  public List<Column> getKeyColumns() {
+    return _keyColumns;
+  }
+
+  /** @return the number of rows which currently have buffered writes */
+  public synchronized int size() {
+    return _pending.size();
+  }
+
+  /** @return {@code true} if there are no buffered writes */
+  public synchronized boolean isEmpty() {
+    return _pending.isEmpty();
+  }
+
+  /**
+   * Buffers the insert of a new row with the given primary key and (non-key)
+   * column values.  Any writes previously buffered for this row are
+   * discarded.
+   */
+  public synchronized WriteBuffer addInsert(
+      Object key, Map<? extends Column,?> values)
+  {
+    List<Object> keyValues = toKeyValues(key);
+    PendingWrite write = new PendingWrite(keyValues);
+    write._insert = true;
+    for(Map.Entry<? extends Column,?> entry : values.entrySet()) {
+      write.setValue(checkColumn(entry.getKey()), entry.getValue());
+    }
+    _pending.put(keyValues, write);
+    return this;
+  }
+
+  /**
+   * Buffers the update of a column value for the row with the given primary
+   * key.
+   */
+  public synchronized WriteBuffer addUpdate(
+      Object key, Column column, Object value)
+  {
+    getPendingWrite(key).setValue(checkColumn(column), value);
+    return this;
+  }
+
+  /**
+   * Buffers the update of multiple column values for the row with the given
+   * primary key.
+   */
+  public synchronized WriteBuffer addUpdate(
+      Object key, Map<? extends Column,?> values)
+  {
+    PendingWrite write = getPendingWrite(key);
+    for(Map.Entry<? extends Column,?> entry : values.entrySet()) {
+      write.setValue(checkColumn(entry.getKey()), entry.getValue());
+    }
+    return this;
+  }
+
+  /**
+   * Buffers the increment of a numeric column value for the row with the
+   * given primary key (a negative delta decrements the column value).
+   */
+  public synchronized WriteBuffer addIncrement(
+      Object key, Column column, Number delta)
+  {
+    if(delta == null) {
+      throw new IllegalArgumentException("increment delta may not be null");
+    }
+    getPendingWrite(key).addIncrement(checkColumn(column), delta);
+    return this;
+  }
+
+  /**
+   * Discards all buffered writes without generating any statements.
+   */
+  public synchronized void clear() {
+    _pending = newPendingMap();
+  }
+
+  /**
+   * Removes all buffered writes from this buffer and returns the statements
+   * which apply them, ordered by primary key.
+   */
+  public List<Query<?>> flush() {
+    Collection<PendingWrite> writes = null;
+    synchronized(this) {
+      writes = _pending.values();
+      _pending = newPendingMap();
+    }
+    return toQueries(writes);
+  }
+
+  /**
+   * Executes the statements which apply all the buffered writes as a single
+   * batch using the given connection, and then removes the writes from this
+   * buffer.  If the batch fails, the writes remain buffered (other threads
+   * wait to add writes while the batch is executing).  Note, the caller is
+   * responsible for any transaction handling (if the batch is not executed
+   * within a transaction which is rolled back on failure, some of the
+   * statements may have been applied before the failure).
+   *
+   * @return the update counts returned from
+   *         {@link Statement#executeBatch}
+   */
+  public synchronized int[] flush(Connection conn) throws SQLException {
+    List<Query<?>> queries = toQueries(_pending.values());
+    if(queries.isEmpty()) {
+      return new int[0];
+    }
+    int[] counts = null;
+    Statement stmt = conn.createStatement();
+    try {
+      for(Query<?> query : queries) {
+        stmt.addBatch(query.toString());
+      }
+      counts = stmt.executeBatch();
+    } finally {
+      stmt.close();
+    }
+    _pending = newPendingMap();
+    return counts;
+  }
+
+  private static List<Query<?>> toQueries(Collection<PendingWrite> writes) {
+    List<Query<?>> queries = new ArrayList<Query<?>>(writes.size());
+    for(PendingWrite write : writes) {
+      write.appendQueries(queries);
+    }
+    return queries;
+  }
+
+  private PendingWrite getPendingWrite(Object key) {
+    List<Object> keyValues = toKeyValues(key);
+    PendingWrite write = _pending.get(keyValues);
+    if(write == null) {
+      write = new PendingWrite(keyValues);
+      _pending.put(keyValues, write);
+    }
+    return write;
+  }
+
+  private Column checkColumn(Column column) {
+    if(column.getTable() != _table) {
+      throw new IllegalArgumentException(
+          "Column " + column + " does not belong to table " + _table);
+    }
+    if(_keyColumns.contains(column)) {
+      throw new IllegalArgumentException(
+          "Primary key column " + column + " may not be written");
+    }
+    return column;
+  }
+
+  private List<Object> toKeyValues(Object key) {
+    List<Object> keyValues = null;
+    if(key instanceof List<?>) {
+      keyValues = new ArrayList<Object>((List<?>)key);
+    } else if(key instanceof Object[]) {
+      keyValues = new ArrayList<Object>(Arrays.asList((Object[])key));
+    } else {
+      keyValues = new ArrayList<Object>(Collections.singletonList(key));
+    }
+    if(keyValues.size() != _keyColumns.size()) {
+      throw new IllegalArgumentException(
+          "Expected " + _keyColumns.size() + " primary key values, got " +
+          keyValues.size());
+    }
+    if(keyValues.contains(null)) {
+      throw new IllegalArgumentException(
+          "Primary key values may not be null");
+    }
+    return keyValues;
+  }
+
+  private static Map<List<Object>,PendingWrite> newPendingMap() {
+    return new TreeMap<List<Object>,PendingWrite>(KEY_COMPARATOR);
+  }
+
+  /**
+   * Finds the primary key columns for the given table, looking first at the
+   * table constraints and then at the column constraints.
+   */
+  private static List<Column> findPrimaryKey(Table table) {
+    List<? extends Column> keyColumns = Constraints.getPrimaryKey(table);
+    if(keyColumns == null) {
+      throw new IllegalArgumentException(
+          "Table " + table + " does not have a primary key constraint");
+    }
+    return new ArrayList<Column>(keyColumns);
+  }
+
+  /**
+   * The coalesced writes for a single row.
+   */
+  private final class PendingWrite
+  {
+    private final List<Object> _keyValues;
+    private boolean _insert;
+    private final Map<Column,Object> _values =
+      new LinkedHashMap<Column,Object>();
+    private final Map<Column,Number> _increments =
+      new LinkedHashMap<Column,Number>();
+
+    private PendingWrite(List<Object> keyValues) {
+      _keyValues = keyValues;
+    }
+
+    private void setValue(Column column, Object value) {
+      _increments.remove(column);
+      _values.put(column, value);
+    }
+
+    private void addIncrement(Column column, Number delta) {
+      if(_values.containsKey(column)) {
+        Object curValue = _values.get(column);
+        if(!(curValue instanceof Number)) {
+          throw new IllegalArgumentException(
+              "Cannot increment non-numeric value " + curValue +
+              " for column " + column);
+        }
+        _values.put(column, Numbers.add((Number)curValue, delta));
+        return;
+      }
+      Number curDelta = _increments.get(column);
+      _increments.put(column, ((curDelta != null) ?
+                               Numbers.add(curDelta, delta) : delta));
+    }
+
+    private void appendQueries(List<Query<?>> queries) {
+      UpdateQuery update = null;
+      if(_insert) {
+        InsertQuery insert = new InsertQuery(_table);
+        for(int i = 0; i < _keyColumns.size(); ++i) {
+          insert.addColumn(_keyColumns.get(i), _keyValues.get(i));
+        }
+        for(Map.Entry<Column,Object> entry : _values.entrySet()) {
+          insert.addColumn(entry.getKey(), entry.getValue());
+        }
+        queries.add(insert);
+      } else if(!_values.isEmpty()) {
+        update = new UpdateQuery(_table);
+        for(Map.Entry<Column,Object> entry : _values.entrySet()) {
+          update.addSetClause(entry.getKey(), entry.getValue());
+        }
+      }
+
+      if(!_increments.isEmpty()) {
+        if(update == null) {
+          update = new UpdateQuery(_table);
+        }
+        for(Map.Entry<Column,Number> entry : _increments.entrySet()) {
+          update.addSetClause(entry.getKey(),
+                              ComboExpression.add(entry.getKey(),
+                                                  entry.getValue()));
+        }
+      }
+
+      if(update != null) {
+        for(int i = 0; i < _keyColumns.size(); ++i) {
+          update.addCondition(BinaryCondition.equalTo(_keyColumns.get(i),
+                                                      _keyValues.get(i)));
+        }
+        queries.add(update);
+      }
+    }
+  }
+
+}
@@ -18,8 +18,10 @@ package com.healthmarketscience.sqlbuilder.custom;
 
 import com.healthmarketscience.sqlbuilder.CreateIndexQuery;
 import com.healthmarketscience.sqlbuilder.CreateTableQuery;
+import com.healthmarketscience.sqlbuilder.DeleteQuery;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.UpdateQuery;
 
 /**
  * Utility base class for custom SQL syntax instances.  Uses the visitor
@@ -58,4 +60,20 @@ public abstract class CustomSyntax extends SqlObject
   public void apply(CreateIndexQuery query) {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Called by {@link UpdateQuery#addCustomization(CustomSyntax)} to add this
+   * custom syntax to the appropriate location in the UpdateQuery.
+   */
+  public void apply(UpdateQuery query) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Called by {@link DeleteQuery#addCustomization(CustomSyntax)} to add this
+   * custom syntax to the appropriate location in the DeleteQuery.
+   */
+  public void apply(DeleteQuery query) {
+    throw new UnsupportedOperationException();
+  }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import com.healthmarketscience.common.util.AppendableExt;
 import com.healthmarketscience.sqlbuilder.ValidationContext;
 import com.healthmarketscience.sqlbuilder.Expression;
+import com.healthmarketscience.sqlbuilder.SqlContext;
 
 /**
  * SqlObject expression which inserts a "named" parameter like {@code
@@ -43,6 +44,10 @@ public class NamedParamObject extends Expression
   
   @Override
   public void appendTo(AppendableExt app) throws IOException {
+    if(SqlContext.getContext(app).getStripLiterals()) {
+      QUESTION_MARK.appendTo(app);
+      return;
+    }
     app.append(':').append(_name);
   }
 }
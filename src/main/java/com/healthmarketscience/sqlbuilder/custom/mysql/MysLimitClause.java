@@ -23,6 +23,7 @@ import com.healthmarketscience.sqlbuilder.Converter;
 import com.healthmarketscience.sqlbuilder.NumberValueObject;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
 import com.healthmarketscience.sqlbuilder.ValidationContext;
 import com.healthmarketscience.sqlbuilder.ValidationException;
 import com.healthmarketscience.sqlbuilder.Verifiable;
@@ -76,6 +77,19 @@ public class MysLimitClause extends CustomSyntax
     collectSchemaObjects(_rowCount, vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject offset = transformer.transform(_offset);
+    SqlObject rowCount = transformer.transform(_rowCount);
+    if((offset == _offset) && (rowCount == _rowCount)) {
+      return this;
+    }
+    MysLimitClause copy = (MysLimitClause)copy();
+    copy._offset = offset;
+    copy._rowCount = rowCount;
+    return copy;
+  }
+
   @Override
   public final MysLimitClause validate() throws ValidationException {
     doValidate();
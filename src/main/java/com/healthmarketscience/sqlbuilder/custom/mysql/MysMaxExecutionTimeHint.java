@@ -0,0 +1,62 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder.custom.mysql;
+
+import java.io.IOException;
+
+import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.ExecutionEnvelope;
+import com.healthmarketscience.sqlbuilder.SelectQuery;
+import com.healthmarketscience.sqlbuilder.ValidationContext;
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
+import com.healthmarketscience.sqlbuilder.custom.HookType;
+
+
+/**
+ * Appends a MySQL {@code "MAX_EXECUTION_TIME(<millis>)"} optimizer hint
+ * comment immediately after the {@code "SELECT "} keyword for use in
+ * {@link SelectQuery}s.
+ *
+ * @see SelectQuery#addCustomization(CustomSyntax)
+ * @see ExecutionEnvelope#addHints
+ *
+ * @author James Ahlborn
+ */
+public class MysMaxExecutionTimeHint extends CustomSyntax
+{
+  private final long _millis;
+
+  public MysMaxExecutionTimeHint(long millis) {
+    if(millis <= 0) {
+      throw new IllegalArgumentException("execution time must be positive");
+    }
+    _millis = millis;
+  }
+
+  @Override
+  public void apply(SelectQuery query) {
+    query.addCustomization(SelectQuery.Hook.SELECT, HookType.SUFFIX, this);
+  }
+
+  @Override
+  public void appendTo(AppendableExt app) throws IOException {
+    app.append("/*+ MAX_EXECUTION_TIME(").append(_millis).append(") */ ");
+  }
+
+  @Override
+  protected void collectSchemaObjects(ValidationContext vContext) {}
+}
@@ -23,6 +23,7 @@ import com.healthmarketscience.sqlbuilder.Converter;
 import com.healthmarketscience.sqlbuilder.NumberValueObject;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
 import com.healthmarketscience.sqlbuilder.ValidationContext;
 import com.healthmarketscience.sqlbuilder.ValidationException;
 import com.healthmarketscience.sqlbuilder.Verifiable;
@@ -65,6 +66,17 @@ public class PgLimitClause extends CustomSyntax
     collectSchemaObjects(_value, vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject value = transformer.transform(_value);
+    if(value == _value) {
+      return this;
+    }
+    PgLimitClause copy = (PgLimitClause)copy();
+    copy._value = value;
+    return copy;
+  }
+
   @Override
   public final PgLimitClause validate() throws ValidationException {
     doValidate();
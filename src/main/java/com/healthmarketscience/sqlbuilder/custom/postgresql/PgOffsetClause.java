@@ -22,6 +22,7 @@ import com.healthmarketscience.common.util.AppendableExt;
 import com.healthmarketscience.sqlbuilder.Converter;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
 import com.healthmarketscience.sqlbuilder.ValidationContext;
 import com.healthmarketscience.sqlbuilder.ValidationException;
 import com.healthmarketscience.sqlbuilder.Verifiable;
@@ -64,6 +65,17 @@ public class PgOffsetClause extends CustomSyntax
     collectSchemaObjects(_value, vContext);
   }
 
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject value = transformer.transform(_value);
+    if(value == _value) {
+      return this;
+    }
+    PgOffsetClause copy = (PgOffsetClause)copy();
+    copy._value = value;
+    return copy;
+  }
+
   @Override
   public final PgOffsetClause validate() throws ValidationException {
     doValidate();
@@ -0,0 +1,103 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder.custom.postgresql;
+
+import java.io.IOException;
+
+import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.Converter;
+import com.healthmarketscience.sqlbuilder.CustomSql;
+import com.healthmarketscience.sqlbuilder.ExecutionEnvelope;
+import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
+import com.healthmarketscience.sqlbuilder.ValidationContext;
+
+
+/**
+ * Outputs a PostgreSQL {@code "SET LOCAL <name> = <value>"} statement, for
+ * use as a session setting in an {@link ExecutionEnvelope}.  Note that
+ * {@code SET LOCAL} settings only last until the end of the current
+ * transaction (and have no effect outside of a transaction).
+ *
+ * @see ExecutionEnvelope#addSessionSettings
+ *
+ * @author James Ahlborn
+ */
+public class PgSetLocal extends SqlObject
+{
+  public static final String STATEMENT_TIMEOUT = "statement_timeout";
+  public static final String LOCK_TIMEOUT = "lock_timeout";
+  public static final String WORK_MEM = "work_mem";
+
+  private SqlObject _name;
+  private SqlObject _value;
+
+  /**
+   * {@code Object} -&gt; {@code SqlObject} conversions handled by
+   * {@link Converter#toCustomSqlObject} and {@link Converter#toValueSqlObject}
+   * respectively.
+   */
+  public PgSetLocal(Object name, Object value) {
+    _name = Converter.toCustomSqlObject(name);
+    _value = Converter.toValueSqlObject(value);
+  }
+
+  /**
+   * @return a {@code "SET LOCAL statement_timeout = <millis>"} setting
+   */
+  public static PgSetLocal statementTimeout(long millis) {
+    return new PgSetLocal(new CustomSql(STATEMENT_TIMEOUT), millis);
+  }
+
+  /**
+   * @return a {@code "SET LOCAL lock_timeout = <millis>"} setting
+   */
+  public static PgSetLocal lockTimeout(long millis) {
+    return new PgSetLocal(new CustomSql(LOCK_TIMEOUT), millis);
+  }
+
+  /**
+   * @param workMem memory value with optional units, e.g. {@code "64MB"}
+   * @return a {@code "SET LOCAL work_mem = '<workMem>'"} setting
+   */
+  public static PgSetLocal workMem(String workMem) {
+    return new PgSetLocal(new CustomSql(WORK_MEM), workMem);
+  }
+
+  @Override
+  public void appendTo(AppendableExt app) throws IOException {
+    app.append("SET LOCAL ").append(_name).append(" = ").append(_value);
+  }
+
+  @Override
+  protected void collectSchemaObjects(ValidationContext vContext) {
+    collectSchemaObjects(_value, vContext);
+  }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject name = transformer.transform(_name);
+    SqlObject value = transformer.transform(_value);
+    if((name == _name) && (value == _value)) {
+      return this;
+    }
+    PgSetLocal copy = (PgSetLocal)copy();
+    copy._name = name;
+    copy._value = value;
+    return copy;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder.custom.sqlserver;
+
+import java.io.IOException;
+
+import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.Converter;
+import com.healthmarketscience.sqlbuilder.CustomSql;
+import com.healthmarketscience.sqlbuilder.DeleteQuery;
+import com.healthmarketscience.sqlbuilder.ExecutionEnvelope;
+import com.healthmarketscience.sqlbuilder.SelectQuery;
+import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlObjectList;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
+import com.healthmarketscience.sqlbuilder.UpdateQuery;
+import com.healthmarketscience.sqlbuilder.ValidationContext;
+import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
+import com.healthmarketscience.sqlbuilder.custom.HookType;
+
+
+/**
+ * Appends a SQL Server query hint clause like
+ * {@code " OPTION (MAXDOP <n>, ...)"} for use in {@link SelectQuery}s,
+ * {@link UpdateQuery}s and {@link DeleteQuery}s.
+ *
+ * @see SelectQuery#addCustomization(CustomSyntax)
+ * @see UpdateQuery#addCustomization(CustomSyntax)
+ * @see DeleteQuery#addCustomization(CustomSyntax)
+ * @see ExecutionEnvelope#addHints
+ *
+ * @author James Ahlborn
+ */
+public class MssOptionClause extends CustomSyntax
+{
+  private SqlObjectList<SqlObject> _options = SqlObjectList.create();
+
+  public MssOptionClause() {}
+
+  /**
+   * Adds a {@code "MAXDOP <n>"} query hint.
+   */
+  public MssOptionClause setMaxDop(int maxDop) {
+    if(maxDop < 0) {
+      throw new IllegalArgumentException("maxdop may not be negative");
+    }
+    return addOptions(new CustomSql("MAXDOP " + maxDop));
+  }
+
+  /**
+   * Adds arbitrary query hints.
+   * <p>
+   * {@code Object} -&gt; {@code SqlObject} conversions handled by
+   * {@link Converter#CUSTOM_TO_OBJ}.
+   */
+  public MssOptionClause addOptions(Object... options) {
+    _options.addObjects(Converter.CUSTOM_TO_OBJ, options);
+    return this;
+  }
+
+  @Override
+  public void apply(SelectQuery query) {
+    query.addCustomization(SelectQuery.Hook.TRAILER, HookType.BEFORE, this);
+  }
+
+  @Override
+  public void apply(UpdateQuery query) {
+    query.addCustomization(UpdateQuery.Hook.TRAILER, HookType.BEFORE, this);
+  }
+
+  @Override
+  public void apply(DeleteQuery query) {
+    query.addCustomization(DeleteQuery.Hook.TRAILER, HookType.BEFORE, this);
+  }
+
+  @Override
+  public void appendTo(AppendableExt app) throws IOException {
+    if(!_options.isEmpty()) {
+      app.append(" OPTION (").append(_options).append(")");
+    }
+  }
+
+  @Override
+  protected void collectSchemaObjects(ValidationContext vContext) {
+    collectSchemaObjects(_options, vContext);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObjectList<SqlObject> options = transformer.transform(
+        _options, SqlObjectList.class);
+    if(options == _options) {
+      return this;
+    }
+    MssOptionClause copy = (MssOptionClause)copy();
+    copy._options = options;
+    return copy;
+  }
+}
@@ -22,6 +22,7 @@ import com.healthmarketscience.common.util.AppendableExt;
 import com.healthmarketscience.sqlbuilder.Converter;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.SqlObject;
+import com.healthmarketscience.sqlbuilder.SqlTransformer;
 import com.healthmarketscience.sqlbuilder.ValidationContext;
 import com.healthmarketscience.sqlbuilder.custom.CustomSyntax;
 import com.healthmarketscience.sqlbuilder.custom.HookType;
@@ -70,4 +71,15 @@ public class MssTopClause extends CustomSyntax
   protected void collectSchemaObjects(ValidationContext vContext) {
     collectSchemaObjects(_count, vContext);
   }
+
+  @Override
+  protected SqlObject transformChildren(SqlTransformer transformer) {
+    SqlObject count = transformer.transform(_count);
+    if(count == _count) {
+      return this;
+    }
+    MssTopClause copy = (MssTopClause)copy();
+    copy._count = count;
+    return copy;
+  }
 }
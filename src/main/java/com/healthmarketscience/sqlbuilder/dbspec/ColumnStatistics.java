@@ -0,0 +1,32 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder.dbspec;
+
+/**
+ * Optional interface for a {@link Column} which has statistics for use by
+ * the cost based sqlbuilder utilities (see
+ * {@link com.healthmarketscience.sqlbuilder.CardinalityEstimator}).
+ *
+ * @author James Ahlborn
+ */
+public interface ColumnStatistics {
+
+  /** @return the estimated number of distinct values in this column, or
+      {@code null} if unknown */
+  public Long getDistinctValueCount();
+
+}
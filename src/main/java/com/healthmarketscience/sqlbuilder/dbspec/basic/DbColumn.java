@@ -24,6 +24,7 @@ import java.util.Map;
 
 import com.healthmarketscience.sqlbuilder.Condition;
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.ColumnStatistics;
 import com.healthmarketscience.sqlbuilder.dbspec.Constraint;
 
 /**
@@ -33,7 +34,7 @@ import com.healthmarketscience.sqlbuilder.dbspec.Constraint;
  */
 @SuppressWarnings("deprecation")
 public class DbColumn extends DbObject<DbTable>
-  implements Column
+  implements Column, ColumnStatistics
 {
   private static final Map<Integer,String> _typeNameMap =
     new HashMap<Integer,String>();
@@ -59,6 +60,8 @@ public class DbColumn extends DbObject<DbTable>
   private final List<Object> _qualifiers = new ArrayList<Object>();
   private final List<DbConstraint> _constraints = new ArrayList<DbConstraint>();
   private Object _defaultValue;
+  /** estimated number of distinct values in this column, if known */
+  private Long _distinctValueCount;
 
   public DbColumn(DbTable parent, String name,
                   String typeName, Integer typeLength) {
@@ -128,6 +131,21 @@ public class DbColumn extends DbObject<DbTable>
     return _defaultValue;
   }
 
+  /**
+   * Sets the estimated number of distinct values in this column (see
+   * {@link DbStatistics}).  A value of {@code null} indicates that the
+   * number is unknown.
+   */
+  public DbColumn setDistinctValueCount(Long distinctValueCount) {
+    _distinctValueCount = distinctValueCount;
+    return this;
+  }
+
+  @Override
+  public Long getDistinctValueCount() {
+    return _distinctValueCount;
+  }
+
   /**
    * Creates and adds not null constraint with the given parameters to this
    * column.
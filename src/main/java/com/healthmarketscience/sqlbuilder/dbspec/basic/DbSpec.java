@@ -19,6 +19,7 @@ package com.healthmarketscience.sqlbuilder.dbspec.basic;
 import java.util.ArrayList;
 import java.util.List;
 import com.healthmarketscience.sqlbuilder.Condition;
+import com.healthmarketscience.sqlbuilder.JoinPlanner;
 
 /**
  * Root object for a collection of db objects all residing in the same
@@ -48,6 +49,8 @@ public class DbSpec {
   private final List<DbJoin> _joins = new ArrayList<DbJoin>();
   /** unique id for the next alias for this db spec */
   private int _nextAliasNum;
+  /** planner for the current joins, created on demand */
+  private JoinPlanner _joinPlanner;
 
   public DbSpec() {
     this(DEFAULT_ALIAS_PREFIX);
@@ -65,6 +68,19 @@ public class DbSpec {
     return _joins;
   }
   
+  /**
+   * @return a JoinPlanner for the current joins of this spec (rebuilt if the
+   *         joins have changed since it was last built)
+   */
+  public JoinPlanner getJoinPlanner() {
+    JoinPlanner planner = _joinPlanner;
+    if((planner == null) || !planner.getJoins().equals(_joins)) {
+      planner = new JoinPlanner(_joins);
+      _joinPlanner = planner;
+    }
+    return planner;
+  }
+
   /**
    * @return the next unused alias for this group of db objects
    */
@@ -0,0 +1,253 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder.dbspec.basic;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility methods for loading table and column statistics (see
+ * {@link DbTable#setRowCount} and {@link DbColumn#setDistinctValueCount})
+ * into the tables of a {@link DbSpec} from the database, for use by
+ * {@link com.healthmarketscience.sqlbuilder.CardinalityEstimator}.
+ * Statistics for tables and columns which are not in the spec are ignored.
+ * <p>
+ * Statistics may be loaded using the generic JDBC
+ * {@link DatabaseMetaData#getIndexInfo} statistics (table row counts and the
+ * distinct values of singly indexed columns, support varies by driver) or
+ * from a snapshot of the PostgreSQL {@code pg_stats} view (see
+ * {@link #PG_STATS_QUERY}).
+ *
+ * @author James Ahlborn
+ */
+public class DbStatistics
+{
+  /** PostgreSQL query which selects the columns needed by
+      {@link #loadFromPgStats(DbSpec,ResultSet)} (the position of the schema
+      in the current search path, if any, ordered by that position) */
+  public static final String PG_STATS_QUERY =
+    "SELECT s.schemaname,s.tablename,s.attname,s.n_distinct,c.reltuples," +
+    "array_position(current_schemas(false),s.schemaname) AS search_path_pos " +
+    "FROM pg_stats s " +
+    "INNER JOIN pg_namespace n ON (n.nspname = s.schemaname) " +
+    "INNER JOIN pg_class c ON ((c.relnamespace = n.oid) AND " +
+    "(c.relname = s.tablename)) WHERE (NOT s.inherited) " +
+    "ORDER BY search_path_pos";
+
+  private DbStatistics() {}
+
+  /**
+   * Loads the row counts of the tables of the given spec and the number of
+   * distinct values of any columns which are the only column of an index
+   * using {@link DatabaseMetaData#getIndexInfo} (with approximate
+   * statistics).  The table names of the spec must match the names used by
+   * the database.
+   */
+  public static void loadFromMetaData(DbSpec spec, DatabaseMetaData metaData)
+    throws SQLException
+  {
+    for(DbSchema schema : spec.getSchemas()) {
+      for(DbTable table : schema.getTables()) {
+        ResultSet rs = metaData.getIndexInfo(null, schema.getName(),
+                                             table.getName(), false, true);
+        try {
+          loadIndexInfo(table, rs);
+        } finally {
+          rs.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the statistics for the given table from the given
+   * {@link DatabaseMetaData#getIndexInfo} results.
+   */
+  private static void loadIndexInfo(DbTable table, ResultSet rs)
+    throws SQLException
+  {
+    Long rowCount = null;
+    // column name (or null if multi-column) by index name
+    Map<String,String> indexColumns = new LinkedHashMap<String,String>();
+    Map<String,Long> indexCardinality = new LinkedHashMap<String,Long>();
+    Map<String,Boolean> indexUnique = new LinkedHashMap<String,Boolean>();
+    while(rs.next()) {
+      long cardinality = rs.getLong("CARDINALITY");
+      boolean hasCardinality = !rs.wasNull();
+      if(rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+        if(hasCardinality && (cardinality >= 0)) {
+          rowCount = cardinality;
+        }
+        continue;
+      }
+      String indexName = rs.getString("INDEX_NAME");
+      if(indexName == null) {
+        continue;
+      }
+      indexColumns.put(indexName, (indexColumns.containsKey(indexName) ?
+                                   null : rs.getString("COLUMN_NAME")));
+      indexCardinality.put(indexName, (hasCardinality ? cardinality : 0L));
+      indexUnique.put(indexName, !rs.getBoolean("NON_UNIQUE"));
+    }
+
+    if(rowCount != null) {
+      table.setRowCount(rowCount);
+    }
+    for(Map.Entry<String,String> entry : indexColumns.entrySet()) {
+      DbColumn column = ((entry.getValue() != null) ?
+                         findIgnoreCase(table.getColumns(), entry.getValue()) :
+                         null);
+      if(column == null) {
+        continue;
+      }
+      long distinctValues = indexCardinality.get(entry.getKey());
+      if(indexUnique.get(entry.getKey()) && (rowCount != null)) {
+        distinctValues = Math.max(distinctValues, rowCount);
+      }
+      if((distinctValues > 0) &&
+         ((column.getDistinctValueCount() == null) ||
+          (column.getDistinctValueCount() < distinctValues))) {
+        column.setDistinctValueCount(distinctValues);
+      }
+    }
+  }
+
+  /**
+   * Loads the row counts and the number of distinct values of the columns of
+   * the tables of the given spec from the PostgreSQL {@code pg_stats} view
+   * (using {@link #PG_STATS_QUERY}).
+   */
+  public static void loadFromPgStats(DbSpec spec, Connection conn)
+    throws SQLException
+  {
+    Statement stmt = conn.createStatement();
+    try {
+      ResultSet rs = stmt.executeQuery(PG_STATS_QUERY);
+      try {
+        loadFromPgStats(spec, rs);
+      } finally {
+        rs.close();
+      }
+    } finally {
+      stmt.close();
+    }
+  }
+
+  /**
+   * Loads the row counts and the number of distinct values of the columns of
+   * the tables of the given spec from the given snapshot of the PostgreSQL
+   * {@code pg_stats} view, which must have the columns selected by
+   * {@link #PG_STATS_QUERY} (in the same order).  Table and column names
+   * are matched ignoring case.  Tables in other schemas of the current
+   * search path are matched to the tables of the default schema of the
+   * spec, using the first schema in the search path with a table of the
+   * given name (as PostgreSQL would resolve an unqualified name).
+   */
+  public static void loadFromPgStats(DbSpec spec, ResultSet rs)
+    throws SQLException
+  {
+    // the search path schema of each matched default schema table
+    Map<DbTable,String> defaultTableSchemas = new HashMap<DbTable,String>();
+    while(rs.next()) {
+      String schemaName = rs.getString("schemaname");
+      String tableName = rs.getString("tablename");
+      DbTable table = findTable(spec, schemaName, tableName);
+      if(table == null) {
+        rs.getInt("search_path_pos");
+        if(rs.wasNull()) {
+          // not visible as an unqualified table
+          continue;
+        }
+        table = findTable(spec, null, tableName);
+        if(table == null) {
+          continue;
+        }
+        String pathSchemaName = defaultTableSchemas.get(table);
+        if(pathSchemaName == null) {
+          defaultTableSchemas.put(table, schemaName);
+        } else if(!pathSchemaName.equals(schemaName)) {
+          // hidden by a table earlier in the search path
+          continue;
+        }
+      }
+
+      // reltuples is -1 for tables which have never been analyzed
+      double rowCount = rs.getDouble("reltuples");
+      if(rowCount >= 0) {
+        table.setRowCount(Math.round(rowCount));
+      }
+
+      DbColumn column = findIgnoreCase(table.getColumns(),
+                                       rs.getString("attname"));
+      if(column == null) {
+        continue;
+      }
+      // n_distinct is either the number of distinct values, or (if
+      // negative) the negated number of distinct values divided by the
+      // number of rows
+      double distinct = rs.getDouble("n_distinct");
+      if(distinct > 0) {
+        column.setDistinctValueCount(Math.round(distinct));
+      } else if((distinct < 0) && (rowCount >= 0)) {
+        column.setDistinctValueCount(Math.max(
+                                         1L, Math.round(-distinct * rowCount)));
+      }
+    }
+  }
+
+  /**
+   * @return the table with the given name (ignoring case) in the schema with
+   *         the given name (ignoring case, {@code null} for the default
+   *         schema), or {@code null} if none
+   */
+  private static DbTable findTable(DbSpec spec, String schemaName,
+                                   String tableName)
+  {
+    for(DbSchema schema : spec.getSchemas()) {
+      if((schemaName == null) ? (schema.getName() == null) :
+         schemaName.equalsIgnoreCase(schema.getName())) {
+        DbTable table = findIgnoreCase(schema.getTables(), tableName);
+        if(table != null) {
+          return table;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the object with the given name (ignoring case), or {@code null}
+   *         if none
+   */
+  private static <T extends DbObject<?>> T findIgnoreCase(
+      Collection<T> objects, String name)
+  {
+    for(T obj : objects) {
+      if((obj.getName() != null) && obj.getName().equalsIgnoreCase(name)) {
+        return obj;
+      }
+    }
+    return null;
+  }
+}
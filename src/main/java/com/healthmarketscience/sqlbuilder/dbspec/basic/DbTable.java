@@ -23,13 +23,16 @@ import com.healthmarketscience.sqlbuilder.Condition;
 import com.healthmarketscience.sqlbuilder.dbspec.Constraint;
 import com.healthmarketscience.sqlbuilder.dbspec.RejoinTable;
 import com.healthmarketscience.sqlbuilder.dbspec.Table;
+import com.healthmarketscience.sqlbuilder.dbspec.TableStatistics;
 
 /**
  * Representation of a table in a database schema.
  *
  * @author James Ahlborn
  */
-public class DbTable extends DbObject<DbSchema> implements Table {
+public class DbTable extends DbObject<DbSchema>
+  implements Table, TableStatistics
+{
 
   /** alias to use for this table in queries (should be unique) */
   private final String _alias;
@@ -37,6 +40,8 @@ public class DbTable extends DbObject<DbSchema> implements Table {
   private final List<DbColumn> _columns = new ArrayList<DbColumn>();
   /** constraints currently defined for this table */
   private final List<DbConstraint> _constraints = new ArrayList<DbConstraint>();
+  /** estimated number of rows in this table, if known */
+  private Long _rowCount;
 
   public DbTable(DbSchema parent, String name) {
     this(parent, name, parent.getSpec().getNextAlias());
@@ -67,6 +72,21 @@ public class DbTable extends DbObject<DbSchema> implements Table {
     return _constraints;
   }
 
+  /**
+   * Sets the estimated number of rows in this table (see
+   * {@link DbStatistics}).  A value of {@code null} indicates that the
+   * number is unknown.
+   */
+  public DbTable setRowCount(Long rowCount) {
+    _rowCount = rowCount;
+    return this;
+  }
+
+  @Override
+  public Long getRowCount() {
+    return _rowCount;
+  }
+
   /**
    * @param name name of the column to find
    * @return the column previously added to this table with the given name, or
@@ -0,0 +1,333 @@
+/*
+Copyright (c) 2026 James Ahlborn
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.healthmarketscience.sqlbuilder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+
+/**
+ * @author James Ahlborn
+ */
+public class ShardRouterTest extends BaseSqlTestCase {
+
+  private static final Pattern FETCH_PAT =
+    Pattern.compile("FETCH NEXT (\\d+) ROWS ONLY");
+
+  private static final ShardRouter.ShardFunction MOD =
+    new ShardRouter.ShardFunction() {
+      @Override
+      public int getShard(Object keyValue, int numShards) {
+        return Math.floorMod(((Number)keyValue).intValue(), numShards);
+      }
+    };
+
+  public ShardRouterTest(String name) {
+    super(name);
+  }
+
+  public void testTargetShards() throws Exception
+  {
+    MockShard[] shards = createShards(3);
+    ShardRouter router = createRouter(shards);
+
+    assertEquals(Arrays.asList(0, 1, 2), new ArrayList<Integer>(
+                     router.getTargetShards(new SelectQuery()
+                                            .addColumns(_table1_col1))));
+    assertEquals(Arrays.asList(2), new ArrayList<Integer>(
+                     router.getTargetShards(
+                         new SelectQuery()
+                         .addColumns(_table1_col1)
+                         .addCondition(BinaryCondition.equalTo(
+                                           _table1_col2, "foo"))
+                         .addCondition(BinaryCondition.equalTo(
+                                           _table1_col1, 5)))));
+    assertEquals(Arrays.asList(0, 1), new ArrayList<Integer>(
+                     router.getTargetShards(
+                         new SelectQuery()
+                         .addColumns(_table1_col1)
+                         .addCondition(new InCondition(_table1_col1,
+                                                       3, 4, 6)))));
+    assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(
+                     router.getTargetShards(
+                         new SelectQuery()
+                         .addColumns(_table1_col1)
+                         .addCondition(ComboCondition.or(
+                                           BinaryCondition.equalTo(
+                                               _table1_col1, 1),
+                                           BinaryCondition.equalTo(
+                                               2, _table1_col1))))));
+    assertEquals(Arrays.asList(0, 1, 2), new ArrayList<Integer>(
+                     router.getTargetShards(
+                         new SelectQuery()
+                         .addColumns(_table1_col1)
+                         .addCondition(ComboCondition.or(
+                                           BinaryCondition.equalTo(
+                                               _table1_col1, 1),
+                                           BinaryCondition.equalTo(
+                                               _table1_col2, 2))))));
+    assertTrue(router.getTargetShards(
+                   new SelectQuery()
+                   .addColumns(_table1_col1)
+                   .addCondition(BinaryCondition.equalTo(_table1_col1, 1))
+                   .addCondition(BinaryCondition.equalTo(_table1_col1, 2)))
+               .isEmpty());
+
+    // single shard queries are passed through unchanged
+    shards[2]._rows.add(new Object[]{5, "foo"});
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1, _table1_col2)
+      .addCondition(BinaryCondition.equalTo(_table1_col1, 5))
+      .setFetchNext(10);
+    List<Object[]> rows = router.executeQuery(query);
+    assertEquals(1, rows.size());
+    assertEquals(Arrays.asList(query.toString()), shards[2]._queries);
+    assertTrue(shards[0]._queries.isEmpty());
+    assertTrue(shards[1]._queries.isEmpty());
+  }
+
+  public void testMergeOrdered() throws Exception
+  {
+    MockShard[] shards = createShards(3);
+    shards[0].addRows(new Object[]{null, "z"}, new Object[]{9, "i"},
+                      new Object[]{6, "f"}, new Object[]{3, "c"});
+    shards[1].addRows(new Object[]{7, "g"}, new Object[]{4, "d"},
+                      new Object[]{1, "a"});
+    shards[2].addRows(new Object[]{8, "h"}, new Object[]{5, "e"},
+                      new Object[]{2, "b"});
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      ShardRouter router = createRouter(shards).setExecutor(executor);
+
+      SelectQuery query = new SelectQuery()
+        .addColumns(_table1_col1, _table1_col2)
+        .addOrdering(_table1_col1, OrderObject.Dir.DESCENDING)
+        .setOffset(2)
+        .setFetchNext(3);
+      String queryStr = query.toString();
+
+      List<Object[]> rows = router.executeQuery(query);
+      assertEquals(Arrays.asList(8, 7, 6), getColumn(rows, 0));
+
+      // query is unchanged, but shards were asked for offset + fetch rows
+      assertEquals(queryStr, query.toString());
+      for(MockShard shard : shards) {
+        assertEquals(1, shard._queries.size());
+        checkResult(shard._queries.get(0),
+                    "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 ORDER BY t0.col1 DESC FETCH NEXT 5 ROWS ONLY");
+      }
+
+      // nulls sort first for descending order
+      rows = router.executeQuery(
+          new SelectQuery()
+          .addColumns(_table1_col1, _table1_col2)
+          .addOrdering(_table1_col1, OrderObject.Dir.DESCENDING)
+          .setFetchNext(2));
+      assertEquals(Arrays.asList(null, 9), getColumn(rows, 0));
+
+      // order by index
+      rows = router.executeQuery(
+          new SelectQuery()
+          .addColumns(_table1_col1, _table1_col2)
+          .addIndexedOrdering(1, OrderObject.Dir.DESCENDING)
+          .addCondition(new InCondition(_table1_col1, 1, 2)));
+      assertEquals(Arrays.asList("h", "g", "e", "d", "b", "a"),
+                   getColumn(rows, 1));
+      assertEquals(2, shards[0]._queries.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testMergeAggregates() throws Exception
+  {
+    MockShard[] shards = createShards(3);
+    shards[0].addRows(new Object[]{3L, 10, "b"});
+    shards[1].addRows(new Object[]{0L, null, null});
+    shards[2].addRows(new Object[]{4L, 7, "a"});
+    ShardRouter router = createRouter(shards);
+
+    List<Object[]> rows = router.executeQuery(
+        new SelectQuery()
+        .addCustomColumns(FunctionCall.countAll(),
+                          FunctionCall.sum().addColumnParams(_table1_col1),
+                          FunctionCall.min().addColumnParams(_table1_col2)));
+    assertEquals(1, rows.size());
+    assertEquals(Arrays.asList(7L, 17L, "a"), Arrays.asList(rows.get(0)));
+
+    try {
+      router.executeQuery(
+          new SelectQuery()
+          .addCustomColumns(FunctionCall.avg().addColumnParams(_table1_col1)));
+      fail("UnsupportedOperationException should have been thrown");
+    } catch(UnsupportedOperationException e) {}
+
+    try {
+      router.executeQuery(
+          new SelectQuery()
+          .addCustomColumns(_table1_col2, FunctionCall.countAll())
+          .addGroupings(_table1_col2));
+      fail("UnsupportedOperationException should have been thrown");
+    } catch(UnsupportedOperationException e) {}
+
+    try {
+      router.executeQuery(
+          new SelectQuery()
+          .addCustomColumns(new FunctionCall("COALESCE")
+                            .addCustomParams(
+                                FunctionCall.sum().addColumnParams(
+                                    _table1_col1), 0)));
+      fail("UnsupportedOperationException should have been thrown");
+    } catch(UnsupportedOperationException e) {}
+
+    // groups by the shard key are each within one shard
+    rows = router.executeQuery(
+        new SelectQuery()
+        .addCustomColumns(_table1_col1,
+                          FunctionCall.avg().addColumnParams(_table1_col2))
+        .addGroupings(_table1_col1));
+    assertEquals(3, rows.size());
+
+    // scalar functions are not aggregates
+    rows = router.executeQuery(
+        new SelectQuery()
+        .addCustomColumns(new FunctionCall("LOWER")
+                          .addColumnParams(_table1_col2)));
+    assertEquals(3, rows.size());
+  }
+
+  private static List<Object> getColumn(List<Object[]> rows, int idx) {
+    List<Object> values = new ArrayList<Object>();
+    for(Object[] row : rows) {
+      values.add(row[idx]);
+    }
+    return values;
+  }
+
+  private ShardRouter createRouter(MockShard[] shards) {
+    DataSource[] dataSources = new DataSource[shards.length];
+    for(int i = 0; i < shards.length; ++i) {
+      dataSources[i] = shards[i].getDataSource();
+    }
+    return new ShardRouter(_table1_col1, dataSources).setShardFunction(MOD);
+  }
+
+  private static MockShard[] createShards(int numShards) {
+    MockShard[] shards = new MockShard[numShards];
+    for(int i = 0; i < numShards; ++i) {
+      shards[i] = new MockShard();
+    }
+    return shards;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+    return (T)Proxy.newProxyInstance(
+        Thread.currentThread().getContextClassLoader(), new Class<?>[]{type},
+        handler);
+  }
+
+  /**
+   * Stand-in for a shard database which returns canned (already ordered)
+   * rows for any query, honoring a "FETCH NEXT" clause.
+   */
+  private static class MockShard implements InvocationHandler
+  {
+    private final List<Object[]> _rows = new ArrayList<Object[]>();
+    private final List<String> _queries =
+      Collections.synchronizedList(new ArrayList<String>());
+
+    private void addRows(Object[]... rows) {
+      _rows.addAll(Arrays.asList(rows));
+    }
+
+    private DataSource getDataSource() {
+      return newProxy(DataSource.class, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+      String name = method.getName();
+      if(name.equals("getConnection")) {
+        return newProxy(Connection.class, this);
+      }
+      if(name.equals("createStatement")) {
+        return newProxy(Statement.class, this);
+      }
+      if(name.equals("executeQuery")) {
+        String sql = (String)args[0];
+        _queries.add(sql);
+        List<Object[]> rows = _rows;
+        Matcher m = FETCH_PAT.matcher(sql);
+        if(m.find()) {
+          rows = rows.subList(0, Math.min(rows.size(),
+                                          Integer.parseInt(m.group(1))));
+        }
+        return newProxy(ResultSet.class, new MockResultSet(rows));
+      }
+      return null;
+    }
+  }
+
+  private static class MockResultSet implements InvocationHandler
+  {
+    private final List<Object[]> _rows;
+    private int _pos = -1;
+
+    private MockResultSet(List<Object[]> rows) {
+      _rows = rows;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+      String name = method.getName();
+      if(name.equals("next")) {
+        return (++_pos < _rows.size());
+      }
+      if(name.equals("getObject")) {
+        return _rows.get(_pos)[(Integer)args[0] - 1];
+      }
+      if(name.equals("getMetaData")) {
+        return newProxy(ResultSetMetaData.class, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return (_rows.isEmpty() ? 0 : _rows.get(0).length);
+          }
+        });
+      }
+      return null;
+    }
+  }
+
+}
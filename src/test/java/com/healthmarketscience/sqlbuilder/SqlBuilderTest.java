@@ -17,19 +17,40 @@ limitations under the License.
 package com.healthmarketscience.sqlbuilder;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
 
 import com.healthmarketscience.common.util.AppendableExt;
+import com.healthmarketscience.sqlbuilder.custom.HookType;
+import com.healthmarketscience.sqlbuilder.custom.mysql.MysLimitClause;
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
+import com.healthmarketscience.sqlbuilder.dbspec.Join;
 import com.healthmarketscience.sqlbuilder.dbspec.RejoinTable;
+import com.healthmarketscience.sqlbuilder.dbspec.Table;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbColumn;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbFunction;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbFunctionPackage;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbIndex;
+import com.healthmarketscience.sqlbuilder.dbspec.basic.DbJoin;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbSpec;
+import com.healthmarketscience.sqlbuilder.dbspec.basic.DbStatistics;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbTable;
 
 
@@ -1181,4 +1202,1806 @@ public class SqlBuilderTest extends BaseSqlTestCase
 
     checkResult(queryStr, "SELECT t0.col1,t0.col2,AVG() OVER w AS average FROM Schema1.Table1 t0,Table1 t1 WINDOW w AS (PARTITION BY t1.col_id ORDER BY t1.col2 ROWS BETWEEN UNBOUNDED PRECEDING AND 5 FOLLOWING EXCLUDE CURRENT ROW)");
   }
+
+  public void testWriteBuffer() throws Exception
+  {
+    WriteBuffer buf = new WriteBuffer(_defTable2);
+    assertEquals(Arrays.asList(_defTable2_col_id), buf.getKeyColumns());
+
+    buf.addIncrement(7, _defTable2_col4, 1)
+      .addUpdate(3, _defTable2_col5, "foo")
+      .addIncrement(7, _defTable2_col4, 2)
+      .addUpdate(3, _defTable2_col5, "bar")
+      .addIncrement(3, _defTable2_col4, -1)
+      .addInsert(5, Collections.singletonMap(_defTable2_col4, 10))
+      .addIncrement(5, _defTable2_col4, 5)
+      .addUpdate(5, _defTable2_col5, "baz");
+    assertEquals(3, buf.size());
+
+    List<Query<?>> queries = buf.flush();
+    assertTrue(buf.isEmpty());
+    assertEquals(3, queries.size());
+    checkResult(queries.get(0).toString(),
+                "UPDATE Table2 SET col5 = 'bar',col4 = (col4 + -1) WHERE (col_id = 3)");
+    checkResult(queries.get(1).toString(),
+                "INSERT INTO Table2 (col_id,col4,col5) VALUES (5,15,'baz')");
+    checkResult(queries.get(2).toString(),
+                "UPDATE Table2 SET col4 = (col4 + 3) WHERE (col_id = 7)");
+
+    assertTrue(buf.flush().isEmpty());
+
+    // writes are retained if the batch fails
+    final List<String> batch = new ArrayList<String>();
+    InvocationHandler failingHandler = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+          throws SQLException
+        {
+          if(method.getName().equals("createStatement")) {
+            return Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, this);
+          }
+          if(method.getName().equals("addBatch")) {
+            batch.add((String)args[0]);
+          } else if(method.getName().equals("executeBatch")) {
+            throw new SQLException("batch failed");
+          }
+          return null;
+        }
+      };
+    Connection conn = (Connection)Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+        failingHandler);
+    buf.addIncrement(7, _defTable2_col4, 1);
+    try {
+      buf.flush(conn);
+      fail("SQLException should have been thrown");
+    } catch(SQLException e) {}
+    assertEquals(Arrays.asList(
+                     "UPDATE Table2 SET col4 = (col4 + 1) WHERE (col_id = 7)"),
+                 batch);
+    assertEquals(1, buf.size());
+    buf.addIncrement(7, _defTable2_col4, 2);
+    checkResult(buf.flush().get(0).toString(),
+                "UPDATE Table2 SET col4 = (col4 + 3) WHERE (col_id = 7)");
+
+    try {
+      buf.addUpdate(1, _defTable2_col_id, 2);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+
+    try {
+      new WriteBuffer(_defTable1);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+  }
+
+  public void testQueryResultCache() throws Exception
+  {
+    QueryResultCache cache = new QueryResultCache(2, 0, TimeUnit.SECONDS);
+
+    QueryResultCache.CachedQuery query1 = cache.register(
+        new SelectQuery()
+        .addColumns(_table1_col1)
+        .addCondition(new InCondition(
+                          _table1_col2,
+                          new Subquery(new SelectQuery()
+                                       .addColumns(_defTable2_col4)))));
+    assertEquals(new HashSet<Table>(Arrays.asList(_table1, _defTable2)),
+                 query1.getTables());
+
+    QueryResultCache.CachedQuery query2 = cache.register(
+        new SelectQuery().addColumns(_defTable1_col2));
+    assertEquals(Collections.singleton(_defTable1), query2.getTables());
+
+    query1.put("result1", 1);
+    query1.put("result2", 2);
+    assertEquals("result1", query1.get(1));
+    assertEquals("result2", query1.get(2));
+    assertNull(query1.get(3));
+
+    // least recently used entry is evicted
+    assertEquals("result3", query2.get(
+                     new QueryResultCache.Loader<String>() {
+                       @Override
+                       public String load(String sql, List<?> params) {
+                         return "result3";
+                       }
+                     }));
+    assertEquals(2, cache.size());
+    assertNull(query1.get(1));
+    assertEquals("result2", query1.get(2));
+
+    // writes to a nested subquery table invalidate the outer query
+    cache.invalidate(new UpdateQuery(_defTable2)
+                     .addSetClause(_defTable2_col5, "foo"));
+    assertNull(query1.get(2));
+    assertEquals("result3", query2.get());
+
+    cache.invalidate(new DeleteQuery(_defTable1));
+    assertEquals(0, cache.size());
+
+    // tables written within a transaction are invalidated again on commit
+    final List<String> calls = new ArrayList<String>();
+    Connection conn = (Connection)Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if(name.equals("getAutoCommit")) {
+              return Boolean.FALSE;
+            }
+            if(name.equals("hashCode")) {
+              return System.identityHashCode(proxy);
+            }
+            if(name.equals("equals")) {
+              return (proxy == args[0]);
+            }
+            if(name.equals("createStatement")) {
+              return Proxy.newProxyInstance(
+                  Statement.class.getClassLoader(),
+                  new Class<?>[]{Statement.class}, this);
+            }
+            if(name.equals("executeUpdate")) {
+              calls.add((String)args[0]);
+              return 1;
+            }
+            if(name.equals("commit")) {
+              calls.add(name);
+            }
+            return null;
+          }
+        });
+    assertEquals(1, cache.executeUpdate(
+                     conn, new UpdateQuery(_defTable2)
+                     .addSetClause(_defTable2_col5, "foo")));
+    // result read by another transaction before the commit
+    query1.put("result4", 4);
+    query2.put("result5", 5);
+    cache.commit(conn);
+    assertEquals(Arrays.asList("UPDATE Table2 SET col5 = 'foo'", "commit"),
+                 calls);
+    assertNull(query1.get(4));
+    assertEquals("result5", query2.get(5));
+
+    // nothing pending after the commit
+    query1.put("result4", 4);
+    cache.commit(conn);
+    assertEquals("result4", query1.get(4));
+  }
+
+  public void testReplicaRouter() throws Exception
+  {
+    SelectQuery readQuery = new SelectQuery().addColumns(_table1_col1);
+    SelectQuery lockQuery = new SelectQuery().addColumns(_table1_col1)
+      .setForUpdate(true);
+    UpdateQuery writeQuery = new UpdateQuery(_table1)
+      .addSetClause(_table1_col1, 1);
+
+    assertTrue(ReplicaRouter.isReadOnly(readQuery));
+    assertTrue(ReplicaRouter.isReadOnly(
+                   new UnionQuery(SetOperationQuery.Type.UNION,
+                                  readQuery,
+                                  new SelectQuery().addColumns(_table1_col2))));
+    assertFalse(ReplicaRouter.isReadOnly(lockQuery));
+    assertFalse(ReplicaRouter.isReadOnly(writeQuery));
+    assertFalse(ReplicaRouter.isReadOnly(new CustomSql("SELECT 1")));
+    assertFalse(ReplicaRouter.isReadOnly(
+                    new SelectQuery()
+                    .addColumns(_table1_col1)
+                    .addCondition(new InCondition(_table1_col2,
+                                                  new Subquery(lockQuery)))));
+
+    ReplicaRouter router = new ReplicaRouter(
+        mockDataSource("primary"), mockDataSource("replica0"),
+        mockDataSource("replica1"));
+
+    assertEquals("replica0", router.getConnection(readQuery).toString());
+    assertEquals("replica1", router.getConnection(readQuery).toString());
+    assertEquals("primary", router.getConnection(writeQuery).toString());
+    assertEquals("primary", router.getConnection(lockQuery).toString());
+    assertEquals("replica0", router.getConnection(readQuery).toString());
+
+    // round robin state is per router
+    assertEquals("replica0", new ReplicaRouter(
+                     mockDataSource("primary"), mockDataSource("replica0"),
+                     mockDataSource("replica1"))
+                 .getConnection(readQuery).toString());
+
+    router = new ReplicaRouter(
+        mockDataSource("primary"), mockDataSource("replica0"),
+        mockDataSource("replica1"))
+      .setBalancer(ReplicaRouter.LEAST_IN_FLIGHT)
+      .setReadYourWritesWindow(1, TimeUnit.HOURS);
+
+    Connection conn1 = router.getConnection(readQuery);
+    assertEquals("replica0", conn1.toString());
+    Connection conn2 = router.getConnection(readQuery);
+    assertEquals("replica1", conn2.toString());
+    conn1.close();
+    conn1.close();
+    assertEquals(0, router.getInFlight(0));
+    assertEquals(1, router.getInFlight(1));
+    assertEquals("replica0", router.getConnection(readQuery).toString());
+
+    ReplicaRouter.Session session = router.newSession();
+    assertFalse(session.isWithinWriteWindow());
+    assertEquals("primary", session.getConnection(writeQuery).toString());
+    assertTrue(session.isWithinWriteWindow());
+    assertEquals("primary", session.getConnection(readQuery).toString());
+    assertEquals("replica0",
+                 router.newSession().getConnection(readQuery).toString());
+  }
+
+  public void testCachedJoins()
+  {
+    SelectQuery query = new SelectQuery().addColumns(_table1_col1);
+    String queryStr1 = query.toString();
+    checkResult(queryStr1, "SELECT t0.col1 FROM Schema1.Table1 t0");
+    assertEquals(queryStr1, query.toString());
+
+    // the tables are determined again by every append call
+    query.addColumns(_defTable1_col_id);
+    checkResult(query.toString(),
+                "SELECT t0.col1,t1.col_id FROM Schema1.Table1 t0,Table1 t1");
+    query.getWhereClause().addCondition(
+        BinaryCondition.equalTo(_defTable2_col5, 13));
+    checkResult(query.toString(),
+                "SELECT t0.col1,t1.col_id FROM Schema1.Table1 t0,Table1 t1,Table2 t2 WHERE (t2.col5 = 13)");
+
+    // outer tables are excluded from nested queries, at any depth
+    SelectQuery innerQuery = new SelectQuery()
+      .addColumns(_defTable2_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable1_col2, _table1_col2));
+    SelectQuery middleQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCondition(new InCondition(_defTable1_col3, new Subquery(innerQuery)));
+    SelectQuery outerQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(new InCondition(_table1_col3, new Subquery(middleQuery)));
+    String expected = "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE (t0.col3 IN (SELECT t1.col_id FROM Table1 t1 WHERE (t1.col3 IN (SELECT t2.col_id FROM Table2 t2 WHERE (t1.col2 = t0.col2)) )) )";
+    checkResult(outerQuery.toString(), expected);
+    checkResult(outerQuery.toString(), expected);
+
+    // the nested query by itself includes all its tables
+    checkResult(innerQuery.toString(),
+                "SELECT t2.col_id FROM Table2 t2,Table1 t1,Schema1.Table1 t0 WHERE (t1.col2 = t0.col2)");
+  }
+
+  public void testCollectedJoins()
+  {
+    // tables collected while appending are ordered the same as tables found
+    // by collectSchemaObjects (ordering before having)
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addGroupings(_table1_col1)
+      .addHaving(BinaryCondition.greaterThan(
+                     FunctionCall.max().addColumnParams(_defTable1_col_id),
+                     5))
+      .addOrdering(_defTable2_col4, OrderObject.Dir.ASCENDING);
+    String expected = "SELECT t0.col1 FROM Schema1.Table1 t0,Table2 t2,Table1 t1 GROUP BY t0.col1 HAVING (MAX(t1.col_id) > 5) ORDER BY t2.col4 ASC";
+    checkResult(query.toString(), expected);
+    checkResult(query.toString(), expected);
+
+    // having clause is not appended without groupings, but its tables are
+    // still included
+    checkResult(new SelectQuery()
+                .addColumns(_table1_col1)
+                .addHaving(BinaryCondition.equalTo(_defTable1_col_id, 5))
+                .toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0,Table1 t1");
+
+    // columns within customizations
+    checkResult(new SelectQuery()
+                .addColumns(_table1_col1)
+                .addCustomization(SelectQuery.Hook.TRAILER, HookType.AFTER,
+                                  " -- ")
+                .addCustomization(SelectQuery.Hook.TRAILER, HookType.AFTER,
+                                  FunctionCall.max().addColumnParams(
+                                      _defTable1_col_id))
+                .toString(),
+                "SELECT t0.col1 FROM Table1 t1,Schema1.Table1 t0 -- MAX(t1.col_id)");
+  }
+
+  public void testValidationContext()
+  {
+    CompactIdentitySet<Object> set = new CompactIdentitySet<Object>();
+    assertTrue(set.isEmpty());
+    List<Object> expected = new ArrayList<Object>();
+    for(int i = 0; i < CompactIdentitySet.MAX_INLINE_SIZE; ++i) {
+      Object obj = new Object();
+      assertTrue(set.add(obj));
+      assertFalse(set.add(obj));
+      expected.add(obj);
+    }
+    // inline storage preserves insertion order
+    assertEquals(expected, new ArrayList<Object>(set));
+    assertFalse(set.contains(new String("foo")));
+
+    String str = "foo";
+    assertTrue(set.add(str));
+    assertFalse(set.add(str));
+    // identity comparison
+    assertTrue(set.add(new String(str)));
+    assertEquals(CompactIdentitySet.MAX_INLINE_SIZE + 2, set.size());
+    assertTrue(set.remove(str));
+    assertFalse(set.contains(str));
+    set.clear();
+    assertTrue(set.isEmpty());
+
+    set.add(str);
+    set.add(expected.get(0));
+    Iterator<Object> iter = set.iterator();
+    iter.next();
+    iter.remove();
+    assertEquals(Collections.singleton(expected.get(0)), set);
+
+    // tables in outer contexts are in scope for nested contexts
+    ValidationContext vContext = new ValidationContext();
+    assertTrue(vContext.areColumnTablesInScope());
+    vContext.addTable(_table1);
+    ValidationContext nestedVContext = new ValidationContext(vContext);
+    nestedVContext.addColumn(_table1_col1);
+    nestedVContext.addColumn(_defTable1_col_id);
+    assertTrue(nestedVContext.isTableInScope(_table1));
+    assertFalse(vContext.isTableInScope(_defTable1));
+    assertFalse(nestedVContext.areColumnTablesInScope());
+    nestedVContext.addTable(_defTable1);
+    assertTrue(nestedVContext.areColumnTablesInScope());
+
+    // failed verifiable is reported with the context of the failed query
+    SelectQuery innerQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable2_col4, _table1_col1))
+      .addFromTable(_defTable1);
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addFromTable(_table1)
+      .addCondition(new InCondition(_table1_col2, new Subquery(innerQuery)));
+    try {
+      query.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {
+      assertSame(innerQuery, e.getFailedVerifiable().getValue());
+      assertNotNull(e.getFailedVerifiable().getKey().getParent());
+    }
+    innerQuery.addFromTable(_defTable2);
+    query.validate();
+  }
+
+  public void testRevalidation()
+  {
+    SelectQuery innerQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addFromTable(_defTable1)
+      .addCondition(BinaryCondition.equalTo(_defTable1_col2, _table1_col2));
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addFromTable(_table1)
+      .addCondition(new InCondition(_table1_col3, new Subquery(innerQuery)));
+    query.validate();
+    query.validate();
+
+    // unchanged nested query still requires the outer table
+    try {
+      innerQuery.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+    query.validate();
+
+    // modifications to the nested query are detected
+    innerQuery.addCondition(BinaryCondition.equalTo(_defTable2_col4, 5));
+    try {
+      query.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+    innerQuery.addFromTable(_defTable2);
+    query.validate();
+
+    // modifications to the outer query are detected
+    query.addIndexedOrdering(2, OrderObject.Dir.ASCENDING);
+    try {
+      query.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+    query.addColumns(_table1_col2);
+    query.validate();
+
+    // nested queries reused in another query are checked against the new
+    // enclosing query
+    SelectQuery otherQuery = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addFromTable(_defTable2)
+      .addCondition(new InCondition(_defTable2_col5, new Subquery(innerQuery)));
+    try {
+      otherQuery.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+
+    // modifications to nested verifiables are detected
+    CaseStatement caseStmt = new CaseStatement()
+      .addWhen(BinaryCondition.equalTo(_table1_col1, 1), "one");
+    SelectQuery caseQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCustomColumns(caseStmt)
+      .addFromTable(_table1);
+    caseQuery.validate();
+    caseStmt.addElse("other").addWhen(
+        BinaryCondition.equalTo(_table1_col1, 2), "two");
+    try {
+      caseQuery.validate();
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+  }
+
+  public void testNestedModification()
+  {
+    ComboCondition cond = ComboCondition.and(
+        BinaryCondition.equalTo(_defTable1_col2, "foo"));
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCondition(cond);
+    checkResult(query.toString(),
+                "SELECT t1.col_id FROM Table1 t1 WHERE (t1.col2 = 'foo')");
+
+    // the FROM tables are re-determined after a nested condition is modified
+    cond.addCondition(BinaryCondition.equalTo(_defTable2_col4, 5));
+    checkResult(query.toString(),
+                "SELECT t1.col_id FROM Table1 t1,Table2 t2 WHERE ((t1.col2 = 'foo') AND (t2.col4 = 5))");
+  }
+
+  public void testJoinPlanner()
+  {
+    JoinPlanner planner = _spec.getJoinPlanner();
+    assertSame(planner, _spec.getJoinPlanner());
+
+    // intermediate tables are included, joins are reversed as necessary
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable2_col4, _table1_col1);
+    assertSame(query, planner.addJoins(query, SelectQuery.JoinType.INNER));
+    checkResult(query.validate().toString(),
+                "SELECT t2.col4,t0.col1 FROM Table2 t2 INNER JOIN Table1 t1 ON (t2.col_id = t1.col_id) INNER JOIN Schema1.Table1 t0 ON (t1.altCol4 = t0.col4)");
+
+    assertEquals(Arrays.asList(_idJoin),
+                 planner.planJoins(Arrays.asList(_defTable1, _defTable2)));
+    assertTrue(planner.planJoins(Arrays.asList(_defTable1)).isEmpty());
+
+    query = new SelectQuery().addColumns(_defTable1_col_id);
+    planner.addJoins(query, SelectQuery.JoinType.INNER);
+    checkResult(query.toString(), "SELECT t1.col_id FROM Table1 t1");
+
+    try {
+      planner.planJoins(Arrays.asList(_defTable1, _defTable3));
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+
+    try {
+      planner.addJoins(new SelectQuery().addColumns(_defTable1_col_id)
+                       .addFromTable(_defTable1),
+                       SelectQuery.JoinType.INNER);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+
+    // new joins cause the planner to be rebuilt
+    DbJoin newJoin = _spec.addJoin(null, "DefTable3", "Schema1", "Table1",
+                                   new String[]{"col_id"},
+                                   new String[]{"col2"});
+    planner = _spec.getJoinPlanner();
+    List<Join> joins = planner.planJoins(Arrays.asList(_defTable2, _defTable3));
+    assertEquals(3, joins.size());
+    assertSame(_defTable2, joins.get(0).getFromTable());
+    assertSame(_defTable1, joins.get(0).getToTable());
+    assertSame(_table1, joins.get(1).getToTable());
+    assertSame(_defTable3, joins.get(2).getToTable());
+    assertEquals(newJoin.getFromColumns(), joins.get(2).getToColumns());
+  }
+
+  public void testEliminateUnusedJoins()
+  {
+    DbTable table4 = _defSchema.addTable("Table4");
+    DbColumn table4_col_id = table4.addColumn("col_id", "NUMBER", null);
+    table4_col_id.primaryKey();
+    DbColumn table4_col2 = table4.addColumn("col2", "VARCHAR", 64);
+
+    // left outer joins on unique keys are removed, last to first
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable1_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable1, _defTable2,
+               _defTable1_col_id, _defTable2_col_id)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable2, table4,
+               _defTable2_col4, table4_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable1_col3, "foo"))
+      .eliminateUnusedJoins();
+    checkResult(query.validate().toString(),
+                "SELECT t1.col2 FROM Table1 t1 WHERE (t1.col3 = 'foo')");
+
+    // referenced tables are kept (including from nested queries)
+    query = new SelectQuery()
+      .addColumns(_defTable1_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable1, _defTable2,
+               _defTable1_col_id, _defTable2_col_id)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable2, table4,
+               _defTable2_col4, table4_col_id)
+      .addCondition(new InCondition(
+                        _defTable1_col3,
+                        new Subquery(new SelectQuery()
+                                     .addColumns(_table1_col3)
+                                     .addCondition(BinaryCondition.equalTo(
+                                                       _table1_col1,
+                                                       _defTable2_col5)))))
+      .eliminateUnusedJoins();
+    checkResult(query.validate().toString(),
+                "SELECT t1.col2 FROM Table1 t1 LEFT OUTER JOIN Table2 t2 ON (t1.col_id = t2.col_id) WHERE (t1.col3 IN (SELECT t0.col3 FROM Schema1.Table1 t0 WHERE (t0.col1 = t2.col5)) )");
+
+    // left outer join on a non-unique column is kept
+    String queryStr = new SelectQuery()
+      .addColumns(table4_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, table4, _defTable2,
+               table4_col_id, _defTable2_col4)
+      .eliminateUnusedJoins()
+      .toString();
+    checkResult(queryStr, "SELECT t4.col2 FROM Table4 t4 LEFT OUTER JOIN Table2 t2 ON (t4.col_id = t2.col4)");
+
+    // inner join on a nullable foreign key is kept
+    query = new SelectQuery()
+      .addColumns(_defTable3_col_id)
+      .addJoin(SelectQuery.JoinType.INNER, _defTable3, _table1,
+               _defTable3_col_id, _table1_col2)
+      .eliminateUnusedJoins();
+    checkResult(query.toString(), "SELECT t3.col_id FROM DefTable3 t3 INNER JOIN Schema1.Table1 t0 ON (t3.col_id = t0.col2)");
+
+    // inner join on a not null foreign key is removed
+    _defTable3_col_id.notNull();
+    query.eliminateUnusedJoins();
+    checkResult(query.toString(), "SELECT t3.col_id FROM DefTable3 t3");
+
+    // unless the foreign key table is outer joined
+    queryStr = new SelectQuery()
+      .addColumns(table4_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, table4, _defTable3,
+               table4_col_id, _defTable3_col_id)
+      .addJoin(SelectQuery.JoinType.INNER, _defTable3, _table1,
+               _defTable3_col_id, _table1_col2)
+      .eliminateUnusedJoins()
+      .toString();
+    checkResult(queryStr, "SELECT t4.col2 FROM Table4 t4 LEFT OUTER JOIN DefTable3 t3 ON (t4.col_id = t3.col_id) INNER JOIN Schema1.Table1 t0 ON (t3.col_id = t0.col2)");
+
+    // but not in the other direction
+    queryStr = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addJoin(SelectQuery.JoinType.INNER, _table1, _defTable3,
+               _table1_col2, _defTable3_col_id)
+      .eliminateUnusedJoins()
+      .toString();
+    checkResult(queryStr, "SELECT t0.col1 FROM Schema1.Table1 t0 INNER JOIN DefTable3 t3 ON (t0.col2 = t3.col_id)");
+  }
+
+  public void testTransform()
+  {
+    final Condition inCond = new InCondition(
+        _table1_col1,
+        new Subquery(new SelectQuery()
+                     .addColumns(_defTable2_col4)
+                     .addCondition(BinaryCondition.equalTo(
+                                       _defTable2_col5, _defTable1_col2))));
+    final SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1, _defTable1_col_id)
+      .addCustomColumns(FunctionCall.sum().addColumnParams(_table1_col2))
+      .addJoin(SelectQuery.JoinType.INNER, _table1, _defTable1,
+               BinaryCondition.equalTo(_table1_col3, _defTable1_col_id))
+      .addCondition(inCond)
+      .addCondition(new NotCondition(
+                        BinaryCondition.lessThan(_table1_col3, 13)))
+      .addGroupings(_table1_col1, _defTable1_col_id)
+      .addOrdering(_table1_col1, OrderObject.Dir.ASCENDING);
+    String origStr = query.toString();
+
+    final List<SqlObject> visited = new ArrayList<SqlObject>();
+    final int[] numLeft = new int[1];
+    new SqlVisitor() {
+      @Override
+      protected boolean visit(SqlObject obj) {
+        visited.add(obj);
+        // skip the nested subquery
+        return !(obj instanceof Subquery);
+      }
+      @Override
+      protected void leave(SqlObject obj) {
+        ++numLeft[0];
+      }
+    }.walk(query);
+    assertSame(query, visited.get(0));
+    assertTrue(visited.contains(inCond));
+    assertEquals(visited.size(), numLeft[0]);
+    int numColumns = 0;
+    for(SqlObject obj : visited) {
+      if(obj instanceof ColumnObject) {
+        ++numColumns;
+      }
+    }
+    assertEquals(10, numColumns);
+
+    // no-op transform returns the original objects
+    assertSame(query, new SqlTransformer() {}.transform(query));
+
+    // replace a column everywhere (including in the nested subquery)
+    SqlTransformer colReplacer = new SqlTransformer() {
+      @Override
+      protected SqlObject rewrite(SqlObject obj) {
+        if((obj instanceof ColumnObject) &&
+           (((ColumnObject)obj).getColumn() == _defTable1_col2)) {
+          return new ColumnObject(_defTable1_col3);
+        }
+        return obj;
+      }
+    };
+    SelectQuery newQuery = (SelectQuery)colReplacer.transform(query);
+    assertNotSame(query, newQuery);
+    assertEquals(origStr, query.toString());
+    checkResult(newQuery.toString(),
+                origStr.replace("t1.col2", "t1.col3"));
+
+    // copies may be modified independently
+    newQuery.addCondition(BinaryCondition.equalTo(_table1_col2, "foo"));
+    assertEquals(origStr, query.toString());
+    assertFalse(newQuery.toString().equals(
+                    colReplacer.transform(query).toString()));
+
+    // replaced where clauses are still combo conditions
+    SelectQuery simpleQuery = (SelectQuery)new SqlTransformer() {
+      @Override
+      protected SqlObject rewrite(SqlObject obj) {
+        if(obj == query.getWhereClause()) {
+          return inCond;
+        }
+        return obj;
+      }
+    }.transform(query);
+    simpleQuery.addCondition(BinaryCondition.equalTo(_table1_col2, "foo"));
+    assertTrue(simpleQuery.toString().contains(
+                   "WHERE ((t0.col1 IN (SELECT t2.col4 FROM Table2 t2 WHERE (t2.col5 = t1.col2)) ) AND (t0.col2 = 'foo'))"));
+
+    // replacements must be of a compatible type
+    try {
+      new SqlTransformer() {
+        @Override
+        protected SqlObject rewrite(SqlObject obj) {
+          return ((obj == inCond) ? new ColumnObject(_table1_col1) : obj);
+        }
+      }.transform(query);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+
+    // nested queries, DDL clauses and customizations are transformed too
+    InsertSelectQuery insertQuery = new InsertSelectQuery(_defTable1)
+      .addColumns(_defTable1_col_id)
+      .setSelectQuery(new SelectQuery().addColumns(_defTable1_col2));
+    String insertStr = insertQuery.toString();
+    checkResult(colReplacer.transform(insertQuery).toString(),
+                insertStr.replace("t1.col2", "t1.col3"));
+    assertEquals(insertStr, insertQuery.toString());
+
+    CreateTableQuery createQuery = new CreateTableQuery(_defTable1, false)
+      .addColumns(_defTable1_col_id)
+      .addCustomConstraints(ConstraintClause.checkCondition(
+                                BinaryCondition.greaterThan(
+                                    _defTable1_col2, 0)));
+    String createStr = createQuery.toString();
+    checkResult(colReplacer.transform(createQuery).toString(),
+                createStr.replace("(col2 > 0)", "(col3 > 0)"));
+
+    SelectQuery custQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCustomization(new MysLimitClause(10));
+    checkResult(new SqlTransformer() {
+                  @Override
+                  protected SqlObject rewrite(SqlObject obj) {
+                    return ((obj instanceof NumberValueObject) ?
+                            new NumberValueObject(20) : obj);
+                  }
+                }.transform(custQuery).toString(),
+                "SELECT t1.col_id FROM Table1 t1 LIMIT 20");
+    checkResult(custQuery.toString(),
+                "SELECT t1.col_id FROM Table1 t1 LIMIT 10");
+  }
+
+  public void testFingerprint()
+  {
+    SelectQuery query1 = new SelectQuery()
+      .addColumns(_table1_col1, _table1_col2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, "foo"))
+      .addCondition(BinaryCondition.greaterThan(_table1_col1, 13))
+      .setFetchNext(10);
+    SelectQuery query2 = new SelectQuery()
+      .addColumns(_table1_col1, _table1_col2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, "foo"))
+      .addCondition(BinaryCondition.greaterThan(_table1_col1, 13))
+      .setFetchNext(10);
+    SelectQuery query3 = new SelectQuery()
+      .addColumns(_table1_col1, _table1_col2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, "bar"))
+      .addCondition(BinaryCondition.greaterThan(_table1_col1, 42))
+      .setFetchNext(20);
+
+    assertEquals(QueryFingerprint.of(query1), QueryFingerprint.of(query2));
+    assertTrue(QueryFingerprint.generateSameSql(query1, query2));
+    assertFalse(QueryFingerprint.generateSameSql(query1, query3));
+    assertFalse(QueryFingerprint.of(query1).equals(
+                    QueryFingerprint.shapeOf(query1)));
+    assertEquals(QueryFingerprint.shapeOf(query1),
+                 QueryFingerprint.shapeOf(query3));
+    assertFalse(QueryFingerprint.shapeOf(query1).equals(
+                    QueryFingerprint.shapeOf(
+                        new SelectQuery()
+                        .addColumns(_table1_col1, _table1_col3)
+                        .addCondition(BinaryCondition.equalTo(
+                                          _table1_col2, "foo")))));
+
+    // fingerprints are fixed
+    assertEquals("282227cf28e0c49d923ae9cc4225731c",
+                 QueryFingerprint.of(query1).toString());
+
+    SqlContext context = new SqlContext();
+    context.setStripLiterals(true);
+    checkResult(query1.toString(64, context),
+                "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 WHERE ((t0.col2 = ?) AND (t0.col1 > ?)) FETCH NEXT ? ROWS ONLY");
+
+    // placeholders are not assigned by fingerprints
+    QueryPreparer prep = new QueryPreparer();
+    QueryPreparer.PlaceHolder ph = prep.getNewPlaceHolder();
+    SelectQuery prepQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, ph));
+    assertEquals(QueryFingerprint.shapeOf(prepQuery),
+                 QueryFingerprint.shapeOf(
+                     new SelectQuery()
+                     .addColumns(_table1_col1)
+                     .addCondition(BinaryCondition.equalTo(
+                                       _table1_col2, "foo"))));
+    assertFalse(ph.isInQuery());
+    prepQuery.toString();
+    assertEquals(1, ph.getIndex());
+
+    // fingerprints are computed from the generated sql (so they are not
+    // cheaper than rendering the query, just smaller)
+    assertEquals(QueryFingerprint.of(query1),
+                 QueryFingerprint.of(new CustomSql(query1.toString())));
+
+    // modifications to nested objects are always reflected
+    SelectQuery innerQuery = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addFromTable(_defTable2)
+      .addCondition(BinaryCondition.equalTo(_defTable2_col5, 5));
+    ComboCondition outerCond = ComboCondition.and(
+        new InCondition(_table1_col2, new Subquery(innerQuery)));
+    SelectQuery outerQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(outerCond);
+    QueryFingerprint innerFp = QueryFingerprint.of(innerQuery);
+    QueryFingerprint outerFp = QueryFingerprint.of(outerQuery);
+    assertEquals(outerFp, QueryFingerprint.of(outerQuery));
+    innerQuery.addCondition(BinaryCondition.equalTo(_defTable2_col4, 6));
+    assertFalse(innerFp.equals(QueryFingerprint.of(innerQuery)));
+    QueryFingerprint newOuterFp = QueryFingerprint.of(outerQuery);
+    assertFalse(outerFp.equals(newOuterFp));
+    outerCond.addCondition(BinaryCondition.equalTo(_defTable1_col2, "x"));
+    assertFalse(newOuterFp.equals(QueryFingerprint.of(outerQuery)));
+    assertEquals(QueryFingerprint.of(new CustomSql(outerQuery.toString())),
+                 QueryFingerprint.of(outerQuery));
+  }
+
+
+  public void testNormalizeConditions()
+  {
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(ComboCondition.and(
+                        BinaryCondition.equalTo(1, 1),
+                        Condition.EMPTY,
+                        ComboCondition.and(
+                            BinaryCondition.greaterThan(_table1_col1, 5),
+                            BinaryCondition.lessThan(_table1_col1, 10)),
+                        BinaryCondition.greaterThan(_table1_col1, 5)))
+      .addCondition(ComboCondition.or(
+                        BinaryCondition.equalTo(_table1_col2, "a"),
+                        BinaryCondition.equalTo("b", _table1_col2),
+                        BinaryCondition.equalTo(_table1_col3, "c"),
+                        new InCondition(_table1_col2, "c", "a")));
+    String queryStr = query.toString();
+    SqlObject normalized = ConditionNormalizer.normalize(query);
+    checkResult(normalized.toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE ((t0.col1 > 5) AND (t0.col1 < 10) AND ((t0.col2 IN ('a','b','c') ) OR (t0.col3 = 'c')))");
+    // original is unchanged
+    assertEquals(queryStr, query.toString());
+
+    // constant false decides an AND, constant true decides an OR
+    checkResult(ConditionNormalizer.normalize(
+                    ComboCondition.and(
+                        BinaryCondition.equalTo(_table1_col1, 5),
+                        BinaryCondition.lessThan(3, 2.5)))
+                .toString(),
+                "(3 < 2.5)");
+    checkResult(ConditionNormalizer.normalize(
+                    ComboCondition.or(
+                        BinaryCondition.equalTo(_table1_col1, 5),
+                        BinaryCondition.greaterThan(2, 3)))
+                .toString(),
+                "(t0.col1 = 5)");
+    checkResult(ConditionNormalizer.normalize(
+                    ComboCondition.or(
+                        BinaryCondition.equalTo(_table1_col1, 5),
+                        BinaryCondition.equalTo("x", "x")))
+                .toString(),
+                "('x' = 'x')");
+    // never made empty
+    checkResult(ConditionNormalizer.normalize(
+                    ComboCondition.and(BinaryCondition.equalTo(1, 1)))
+                .toString(),
+                "(1 = 1)");
+
+    // placeholders are never duplicates
+    QueryPreparer prep = new QueryPreparer();
+    checkResult(ConditionNormalizer.normalize(
+                    ComboCondition.and(
+                        BinaryCondition.equalTo(_table1_col1,
+                                                prep.getNewPlaceHolder()),
+                        BinaryCondition.equalTo(_table1_col1,
+                                                prep.getNewPlaceHolder())))
+                .toString(),
+                "((t0.col1 = ?) AND (t0.col1 = ?))");
+
+    // expression folding
+    checkResult(ConditionNormalizer.normalize(
+                    BinaryCondition.equalTo(
+                        _table1_col1,
+                        ComboExpression.add(
+                            2, ComboExpression.multiply(3, 4))))
+                .toString(),
+                "(t0.col1 = 14)");
+    checkResult(ConditionNormalizer.normalize(
+                    BinaryCondition.equalTo(
+                        _table1_col2,
+                        ComboExpression.concatenate("foo", "bar")))
+                .toString(),
+                "(t0.col2 = 'foobar')");
+    checkResult(ConditionNormalizer.normalize(
+                    ComboExpression.divide(6, 3)).toString(),
+                "(6 / 3)");
+    checkResult(ConditionNormalizer.normalize(
+                    ComboExpression.add(Long.MAX_VALUE, 1)).toString(),
+                "(" + Long.MAX_VALUE + " + 1)");
+  }
+
+
+  public void testNestedClauseStructureChanges()
+  {
+    ComboCondition inner = ComboCondition.or();
+    ComboCondition outer = ComboCondition.and(
+        BinaryCondition.equalTo(_table1_col1, 1), inner, Condition.EMPTY);
+    assertTrue(inner.isEmpty());
+    checkResult(outer.toString(), "(t0.col1 = 1)");
+
+    // modifications of nested clauses are always reflected
+    inner.addCondition(BinaryCondition.equalTo(_table1_col2, "a"));
+    assertFalse(inner.isEmpty());
+    checkResult(outer.toString(), "((t0.col1 = 1) AND (t0.col2 = 'a'))");
+    inner.addCondition(BinaryCondition.equalTo(_table1_col3, "b"));
+    checkResult(outer.toString(),
+                "((t0.col1 = 1) AND ((t0.col2 = 'a') OR (t0.col3 = 'b')))");
+    inner.setDisableParens(true);
+    checkResult(outer.toString(),
+                "((t0.col1 = 1) AND (t0.col2 = 'a') OR (t0.col3 = 'b'))");
+
+    InCondition inCond = new InCondition(_table1_col2);
+    ComboCondition inCombo = ComboCondition.and(inCond);
+    assertFalse(inCombo.isEmpty());
+    inCond.setNegate(true);
+    assertTrue(inCombo.isEmpty());
+    checkResult(inCombo.toString(), "");
+
+    Iterator<Condition> iter = inner.getConditions().iterator();
+    iter.next();
+    iter.remove();
+    checkResult(outer.toString(), "((t0.col1 = 1) AND (t0.col3 = 'b'))");
+  }
+
+
+  public void testSargableRewriter()
+  {
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(BinaryCondition.equalTo(
+                        new ExtractExpression(ExtractExpression.DatePart.YEAR,
+                                              _table1_col3), 2024))
+      .addCondition(BinaryCondition.like(_table1_col2, "abc%"));
+    String queryStr = query.toString();
+    // LIKE prefixes are only rewritten if enabled
+    checkResult(SargableRewriter.process(query).toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE (((t0.col3 >= {d '2024-01-01'}) AND (t0.col3 < {d '2025-01-01'})) AND (t0.col2 LIKE 'abc%'))");
+    SargableRewriter likeRewriter = new SargableRewriter()
+      .setRewriteLikePrefixes(true);
+    checkResult(likeRewriter.transform(query).toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE (((t0.col3 >= {d '2024-01-01'}) AND (t0.col3 < {d '2025-01-01'})) AND ((t0.col2 >= 'abc') AND (t0.col2 < 'abd')))");
+    assertEquals(queryStr, query.toString());
+
+    // year functions and flipped comparisons
+    checkResult(SargableRewriter.process(
+                    BinaryCondition.lessThanOrEq(
+                        new FunctionCall("YEAR").addColumnParams(_table1_col3),
+                        2000)).toString(),
+                "(t0.col3 < {d '2001-01-01'})");
+    checkResult(SargableRewriter.process(
+                    BinaryCondition.lessThan(
+                        2000, new ExtractExpression(
+                            ExtractExpression.DatePart.YEAR, _table1_col3)))
+                .toString(),
+                "(t0.col3 >= {d '2001-01-01'})");
+
+    // escaped prefix
+    checkResult(likeRewriter.transform(
+                    BinaryCondition.like(_table1_col2, "a!_b%%")
+                    .setLikeEscapeChar('!')).toString(),
+                "((t0.col2 >= 'a_b') AND (t0.col2 < 'a_c'))");
+
+    // not rewritable
+    for(Condition cond : new Condition[]{
+          BinaryCondition.notEqualTo(
+              new ExtractExpression(ExtractExpression.DatePart.YEAR,
+                                    _table1_col3), 2024),
+          BinaryCondition.equalTo(
+              new ExtractExpression(ExtractExpression.DatePart.MONTH,
+                                    _table1_col3), 3),
+          BinaryCondition.equalTo(
+              new FunctionCall("lower").addColumnParams(_table1_col2),
+              "abc"),
+          BinaryCondition.like(_table1_col2, "%abc"),
+          BinaryCondition.like(_table1_col2, "a_c%"),
+          BinaryCondition.like(_table1_col2, "abc"),
+          BinaryCondition.like(_table1_col2, "a%c"),
+          BinaryCondition.like(_table1_col2, "a\\%c%"),
+          BinaryCondition.notLike(_table1_col2, "abc%")}) {
+      assertSame(cond, likeRewriter.transform(cond));
+    }
+    Condition likeCond = BinaryCondition.like(_table1_col2, "abc%");
+    assertFalse(new SargableRewriter().isRewriteLikePrefixes());
+    assertSame(likeCond, SargableRewriter.process(likeCond));
+  }
+
+
+  public void testIndexAnalyzer() throws Exception
+  {
+    _schema1.addIndex("t1_idx", "Table1", "col2", "col3");
+    IndexAnalyzer analyzer = new IndexAnalyzer(_schema1.getIndexs());
+
+    // indexed predicate, ordering covered by index after fixed column
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, 5))
+      .addOrdering(_table1_col3, OrderObject.Dir.DESCENDING);
+    assertTrue(analyzer.analyze(query).isEmpty());
+    analyzer.check(query);
+    analyzer.check(new DeleteQuery(_defTable2)
+                   .addCondition(BinaryCondition.equalTo(
+                                     _defTable2_col_id, 5)));
+    analyzer.check(new SelectQuery()
+                   .addColumns(_table1_col1, _defTable2_col5)
+                   .addJoin(SelectQuery.JoinType.INNER, _table1, _defTable2,
+                            _table1_col2, _defTable2_col4));
+
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1)
+                 .addCondition(BinaryCondition.equalTo(_table1_col1, "foo")),
+                 "UNINDEXED_PREDICATE Schema1.Table1 (col1)");
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1)
+                 .addCondition(ComboCondition.or(
+                                   BinaryCondition.equalTo(_table1_col2, 5),
+                                   BinaryCondition.equalTo(_table1_col2, 6)))
+                 .addCondition(BinaryCondition.equalTo(
+                                   new FunctionCall("abs")
+                                   .addColumnParams(_table1_col2), 5))
+                 .addCondition(BinaryCondition.like(_table1_col1, "%foo")),
+                 "FUNCTION_ON_INDEXED_COLUMN Schema1.Table1 (col2)",
+                 "LEADING_WILDCARD_LIKE Schema1.Table1 (col1)");
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1)
+                 .addOrderings(_table1_col3),
+                 "UNINDEXED_ORDER_BY Schema1.Table1 (col3)");
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1)
+                 .addOrdering(_table1_col2, OrderObject.Dir.ASCENDING)
+                 .addOrdering(_table1_col3, OrderObject.Dir.DESCENDING),
+                 "UNINDEXED_ORDER_BY Schema1.Table1 (col2,col3)");
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1, _defTable3_col_id)
+                 .addJoin(SelectQuery.JoinType.LEFT_OUTER, _table1,
+                          _defTable3, _table1_col1, _defTable3_col_id),
+                 "UNINDEXED_JOIN (col1,col_id)");
+    assertIssues(analyzer, new SelectQuery()
+                 .addColumns(_table1_col1)
+                 .addCondition(new InCondition(
+                                   _table1_col2,
+                                   new Subquery(
+                                       new SelectQuery()
+                                       .addColumns(_defTable2_col_id)
+                                       .addCondition(BinaryCondition.equalTo(
+                                                         _defTable2_col4,
+                                                         "foo"))))),
+                 "UNINDEXED_PREDICATE Table2 (col4)");
+    assertIssues(analyzer, new DeleteQuery(_defTable2)
+                 .addCondition(BinaryCondition.equalTo(_defTable2_col4, "foo")),
+                 "UNINDEXED_WRITE Table2 (col4)");
+    assertIssues(analyzer, new UpdateQuery(_table1)
+                 .addSetClause(_table1_col1, "foo"),
+                 "UNINDEXED_WRITE Schema1.Table1");
+
+    try {
+      analyzer.check(new UpdateQuery(_table1).addSetClause(_table1_col1, "foo"));
+      fail("ValidationException should have been thrown");
+    } catch(ValidationException e) {}
+  }
+
+
+  public void testSubqueryRewriter()
+  {
+    // IN -> EXISTS
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(ComboCondition.or(
+                        new InCondition(_table1_col2, new Subquery(
+                                            new SelectQuery()
+                                            .addColumns(_defTable3_col_id)
+                                            .addCondition(
+                                                UnaryCondition.isNotNull(
+                                                    _defTable3_col_id)))),
+                        BinaryCondition.equalTo(_table1_col1, "foo")));
+    String queryStr = query.toString();
+    checkResult(SubqueryRewriter.process(query).toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE ((EXISTS (SELECT t3.col_id FROM DefTable3 t3 WHERE ((t3.col_id IS NOT NULL) AND (t3.col_id = t0.col2)))) OR (t0.col1 = 'foo'))");
+    assertEquals(queryStr, query.toString());
+    assertSame(query, new SubqueryRewriter().setInToExists(false)
+               .transform(query));
+
+    // not null safe
+    SelectQuery notInQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(new InCondition(_table1_col2, new Subquery(
+                                        new SelectQuery()
+                                        .addColumns(_defTable3_col_id)))
+                    .setNegate(true));
+    assertSame(notInQuery, SubqueryRewriter.process(notInQuery));
+    // not in a "truth" context
+    SelectQuery notQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addCondition(new NotCondition(
+                        new InCondition(_table1_col2, new Subquery(
+                                            new SelectQuery()
+                                            .addColumns(_defTable3_col_id)))));
+    assertSame(notQuery, SubqueryRewriter.process(notQuery));
+    // null safe
+    _defTable1_col_id.notNull();
+    checkResult(SubqueryRewriter.process(
+                    new SelectQuery()
+                    .addColumns(_defTable1_col2)
+                    .addCondition(new InCondition(
+                                      _defTable1_col_id, new Subquery(
+                                          new SelectQuery()
+                                          .addColumns(_defTable2_col_id)))
+                                  .setNegate(true))).toString(),
+                "SELECT t1.col2 FROM Table1 t1 WHERE (NOT (EXISTS (SELECT t2.col_id FROM Table2 t2 WHERE (t2.col_id = t1.col_id))))");
+    // not null columns of outer joined tables may still be null
+    _defTable3_col_id.notNull();
+    notInQuery = new SelectQuery()
+      .addColumns(_defTable1_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable1, _defTable2,
+               _defTable1_col_id, _defTable2_col_id)
+      .addCondition(new InCondition(
+                        _defTable2_col_id, new Subquery(
+                            new SelectQuery()
+                            .addColumns(_defTable3_col_id)))
+                    .setNegate(true));
+    assertSame(notInQuery, SubqueryRewriter.process(notInQuery));
+    notInQuery = new SelectQuery()
+      .addColumns(_defTable1_col2)
+      .addCondition(new InCondition(
+                        _defTable1_col_id, new Subquery(
+                            new SelectQuery()
+                            .addColumns(_defTable2_col_id)
+                            .addJoin(SelectQuery.JoinType.LEFT_OUTER,
+                                     _defTable3, _defTable2,
+                                     _defTable3_col_id, _defTable2_col_id)))
+                    .setNegate(true));
+    assertSame(notInQuery, SubqueryRewriter.process(notInQuery));
+
+    // predicate pushdown
+    CommonTableExpression cte = new CommonTableExpression("cte_expr");
+    Column cteCol1 = cte.addColumn("col1");
+    Column cteCol2 = cte.addColumn("col2");
+    cte.setQuery(new SelectQuery().addColumns(_defTable2_col_id,
+                                              _defTable2_col4));
+    SelectQuery cteQuery = new SelectQuery()
+      .addCommonTableExpression(cte)
+      .addColumns(_table1_col1, cteCol2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, cteCol1))
+      .addCondition(BinaryCondition.greaterThan(cteCol1, 5))
+      .addCondition(BinaryCondition.equalTo(_table1_col3, 7));
+    queryStr = cteQuery.toString();
+    checkResult(SubqueryRewriter.process(cteQuery).toString(),
+                "WITH cte_expr (col1,col2) AS (SELECT t2.col_id,t2.col4 FROM Table2 t2 WHERE (t2.col_id > 5)) SELECT t0.col1,cte0.col2 FROM Schema1.Table1 t0,cte_expr cte0 WHERE ((t0.col2 = cte0.col1) AND (cte0.col1 > 5) AND (t0.col3 = 7))");
+    assertEquals(queryStr, cteQuery.toString());
+
+    // only null rejecting predicates are pushed down
+    SelectQuery nullQuery = new SelectQuery()
+      .addCommonTableExpression(cte)
+      .addColumns(_table1_col1, cteCol2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, cteCol1))
+      .addCondition(UnaryCondition.isNull(cteCol2));
+    assertSame(nullQuery, SubqueryRewriter.process(nullQuery));
+
+    // anti-join, the cte is null supplying
+    SelectQuery antiJoinQuery = new SelectQuery()
+      .addCommonTableExpression(cte)
+      .addColumns(_table1_col1)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _table1, cte.getTable(),
+               _table1_col2, cteCol1)
+      .addCondition(UnaryCondition.isNull(cteCol2));
+    assertSame(antiJoinQuery, SubqueryRewriter.process(antiJoinQuery));
+    antiJoinQuery.addCondition(BinaryCondition.greaterThan(cteCol1, 5));
+    assertSame(antiJoinQuery, SubqueryRewriter.process(antiJoinQuery));
+
+    // cte referenced by nested query
+    cteQuery.addCondition(UnaryCondition.exists(
+                              new SelectQuery().addColumns(cteCol2)));
+    assertSame(cteQuery, SubqueryRewriter.process(cteQuery));
+
+    // decorrelation
+    SelectQuery scalarQuery = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addAliasedColumn(new Subquery(
+                            new SelectQuery()
+                            .addCustomColumns(FunctionCall.countAll())
+                            .addCondition(BinaryCondition.equalTo(
+                                              _defTable3_col_id,
+                                              _defTable2_col_id))),
+                        "cnt")
+      .addOrdering(_defTable2_col5, OrderObject.Dir.DESCENDING);
+    queryStr = scalarQuery.toString();
+    checkResult(SubqueryRewriter.process(scalarQuery).toString(),
+                "SELECT t2.col4,COUNT(t3.col_id) AS cnt FROM Table2 t2 LEFT OUTER JOIN DefTable3 t3 ON (t3.col_id = t2.col_id) GROUP BY t2.col_id,t2.col4,t2.col5 ORDER BY t2.col5 DESC");
+    assertEquals(queryStr, scalarQuery.toString());
+    assertSame(scalarQuery, new SubqueryRewriter()
+               .setDecorrelateScalarSubqueries(false).transform(scalarQuery));
+  }
+
+
+  public void testSetOperationOptimizer()
+  {
+    // literal discriminator columns
+    UnionQuery query = SetOperationQuery.union(
+        new SelectQuery().setIsDistinct(true)
+        .addCustomColumns(_table1_col1, "a"),
+        new SelectQuery().setIsDistinct(true)
+        .addCustomColumns(_table1_col1, "b"));
+    checkResult(SetOperationOptimizer.process(query).toString(),
+                "SELECT DISTINCT t0.col1,'a' FROM Schema1.Table1 t0 UNION ALL SELECT DISTINCT t0.col1,'b' FROM Schema1.Table1 t0");
+    query = SetOperationQuery.union(
+        new SelectQuery().setIsDistinct(true)
+        .addCustomColumns(_table1_col1, "a"),
+        new SelectQuery().setIsDistinct(true)
+        .addCustomColumns(_table1_col1, "A "));
+    assertSame(query, SetOperationOptimizer.process(query));
+
+    // branches must return distinct rows
+    query = SetOperationQuery.union(
+        new SelectQuery().addCustomColumns(_table1_col1, "a"),
+        new SelectQuery().addCustomColumns(_table1_col1, "b"));
+    assertSame(query, SetOperationOptimizer.process(query));
+
+    // mutually exclusive ranges on a selected column
+    query = SetOperationQuery.union(
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col4)
+        .addCondition(BinaryCondition.lessThan(_defTable2_col_id, 10)),
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col4)
+        .addCondition(BinaryCondition.greaterThanOrEq(_defTable2_col_id, 10)));
+    checkResult(SetOperationOptimizer.process(query).toString(),
+                "SELECT t2.col_id,t2.col4 FROM Table2 t2 WHERE (t2.col_id < 10) UNION ALL SELECT t2.col_id,t2.col4 FROM Table2 t2 WHERE (t2.col_id >= 10)");
+    query = SetOperationQuery.union(
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col4)
+        .addCondition(new BetweenCondition(_defTable2_col_id, 1, 10)),
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col4)
+        .addCondition(BinaryCondition.lessThanOrEq(10, _defTable2_col_id)));
+    assertSame(query, SetOperationOptimizer.process(query));
+
+    // same primary key with mutually exclusive conditions on another column
+    query = SetOperationQuery.union(
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col5)
+        .addCondition(BinaryCondition.equalTo(_defTable2_col4, "x")),
+        new SelectQuery().addColumns(_defTable2_col_id, _defTable2_col5)
+        .addCondition(new InCondition(_defTable2_col4, "y", "z")));
+    checkResult(new SetOperationOptimizer().setMergeBranches(false)
+                .transform(query).toString(),
+                "SELECT t2.col_id,t2.col5 FROM Table2 t2 WHERE (t2.col4 = 'x') UNION ALL SELECT t2.col_id,t2.col5 FROM Table2 t2 WHERE (t2.col4 IN ('y','z') )");
+    checkResult(SetOperationOptimizer.process(query).toString(),
+                "SELECT t2.col_id,t2.col5 FROM Table2 t2 WHERE (t2.col4 IN ('x','y','z') )");
+
+    // merge branches which differ by an equality condition
+    UnionQuery unionAll = SetOperationQuery.unionAll(
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1))
+        .addCondition(BinaryCondition.equalTo(_table1_col3, 5)),
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1))
+        .addCondition(BinaryCondition.equalTo(_table1_col3, 6)),
+        new SelectQuery().addColumns(_table1_col2)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1))
+        .addCondition(BinaryCondition.equalTo(_table1_col3, 7)),
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1))
+        .addCondition(BinaryCondition.equalTo(_table1_col3, 8)));
+    unionAll.addIndexedOrderings(1);
+    checkResult(SetOperationOptimizer.process(unionAll).toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 WHERE ((t0.col2 = 1) AND (t0.col3 IN (5,6,8) )) UNION ALL SELECT t0.col2 FROM Schema1.Table1 t0 WHERE ((t0.col2 = 1) AND (t0.col3 = 7)) ORDER BY 1");
+    unionAll = SetOperationQuery.unionAll(
+        new SelectQuery().addColumns(_table1_col2)
+        .addCondition(BinaryCondition.equalTo(_table1_col1, "a")),
+        new SelectQuery().addColumns(_table1_col2)
+        .addCondition(BinaryCondition.equalTo(_table1_col1, "A")));
+    assertSame(unionAll, SetOperationOptimizer.process(unionAll));
+    unionAll = SetOperationQuery.unionAll(
+        new SelectQuery().addCustomColumns(FunctionCall.countAll())
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1)),
+        new SelectQuery().addCustomColumns(FunctionCall.countAll())
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 2)));
+    assertSame(unionAll, SetOperationOptimizer.process(unionAll));
+
+    // a lone merged UNION branch must eliminate duplicates itself
+    query = SetOperationQuery.union(
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1)),
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 2)));
+    checkResult(SetOperationOptimizer.process(query).toString(),
+                "SELECT DISTINCT t0.col1 FROM Schema1.Table1 t0 WHERE (t0.col2 IN (1,2) )");
+
+    // other set operations are left alone
+    ExceptQuery except = SetOperationQuery.except(
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 1)),
+        new SelectQuery().addColumns(_table1_col1)
+        .addCondition(BinaryCondition.equalTo(_table1_col2, 2)));
+    assertSame(except, SetOperationOptimizer.process(except));
+  }
+
+
+  public void testProjectionPruner()
+  {
+    QueryReader reader = new QueryReader();
+    QueryReader.Column rCol1 = reader.getNewColumn()
+      .setColumnObject(_table1_col3);
+    QueryReader.Column rCol2 = reader.getNewColumn()
+      .setColumnObject(_defTable1_col2);
+    QueryReader.Column rCol3 = reader.getNewColumn()
+      .setCustomColumnObject(new CustomSql("foo"));
+    QueryReader.Column rCol4 = reader.getNewColumn()
+      .setColumnObject(_table1_col1);
+
+    SelectQuery query = new SelectQuery()
+      .addAllTableColumns(_table1)
+      .addCondition(UnaryCondition.exists(
+                        new SelectQuery().addAllColumns()
+                        .addCondition(BinaryCondition.equalTo(
+                                          _defTable1_col_id, _table1_col2))));
+    String queryStr = query.toString();
+    SelectQuery pruned = (SelectQuery)new ProjectionPruner(reader)
+      .transform(query);
+    checkResult(pruned.toString(),
+                "SELECT t0.col3,t0.col1 FROM Schema1.Table1 t0 WHERE (EXISTS (SELECT * FROM Table1 t1 WHERE (t1.col_id = t0.col2)))");
+    assertEquals(queryStr, query.toString());
+    assertEquals(1, rCol1.getIndex());
+    assertEquals(2, rCol4.getIndex());
+    assertFalse(rCol2.isInQuery());
+    assertFalse(rCol3.isInQuery());
+
+    // declared columns, "*" covers all the tables of the query
+    query = new SelectQuery()
+      .addAllColumns()
+      .addJoin(SelectQuery.JoinType.INNER, _defTable1, _defTable2,
+               _defTable1_col_id, _defTable2_col_id);
+    checkResult(new ProjectionPruner(_defTable2_col4, _defTable1_col2,
+                                     _table1_col1)
+                .transform(query).toString(),
+                "SELECT t2.col4,t1.col2 FROM Table1 t1 INNER JOIN Table2 t2 ON (t1.col_id = t2.col_id)");
+
+    // falls back to "*" when there is no usage info
+    query = new SelectQuery().addAllTableColumns(_defTable2);
+    assertSame(query, new ProjectionPruner(new QueryReader())
+               .transform(query));
+    assertSame(query, new ProjectionPruner(_table1_col1).transform(query));
+
+    // DISTINCT and grouped queries are left unchanged
+    query = new SelectQuery(true).addAllTableColumns(_defTable2);
+    assertSame(query, new ProjectionPruner(_defTable2_col4)
+               .transform(query));
+    query = new SelectQuery().addAllTableColumns(_defTable2)
+      .addGroupings(_defTable2_col_id, _defTable2_col4, _defTable2_col5);
+    assertSame(query, new ProjectionPruner(_defTable2_col4)
+               .transform(query));
+
+    // as are queries ordered by select list position
+    query = new SelectQuery().addAllTableColumns(_defTable2)
+      .addIndexedOrdering(3, OrderObject.Dir.DESCENDING);
+    assertSame(query, new ProjectionPruner(_defTable2_col4)
+               .transform(query));
+  }
+
+
+  public void testToCountQuery()
+  {
+    // ordering, paging and the unique outer join are dropped
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable2_col4, _defTable1_col2)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable2, _defTable1,
+               _defTable2_col_id, _defTable1_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable2_col5, "foo"))
+      .addOrdering(_defTable1_col2, OrderObject.Dir.ASCENDING)
+      .setOffset(20)
+      .setFetchNext(10);
+    _defTable1_col_id.primaryKey();
+    String queryStr = query.toString();
+    checkResult(query.toCountQuery().validate().toString(),
+                "SELECT COUNT(*) FROM Table2 t2 WHERE (t2.col5 = 'foo')");
+    assertEquals(queryStr, query.toString());
+    checkResult(query.withTotalCount().toString(),
+                "SELECT t2.col4,t1.col2,COUNT(*) OVER () FROM Table2 t2 LEFT OUTER JOIN Table1 t1 ON (t2.col_id = t1.col_id) WHERE (t2.col5 = 'foo') ORDER BY t1.col2 ASC OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+
+    // the FROM clause no longer comes from the select list
+    query = new SelectQuery()
+      .addColumns(_table1_col1, _defTable1_col2)
+      .addCondition(BinaryCondition.equalTo(_table1_col2, _defTable1_col_id));
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM Schema1.Table1 t0, Table1 t1 WHERE (t0.col2 = t1.col_id)");
+
+    // distinct rows and groups
+    query = new SelectQuery().setIsDistinct(true)
+      .addColumns(_defTable2_col_id)
+      .addOrderings(_defTable2_col_id);
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(DISTINCT t2.col_id) FROM Table2 t2");
+    query = new SelectQuery().setIsDistinct(true)
+      .addColumns(_defTable2_col4, _defTable2_col5)
+      .addOrderings(_defTable2_col4)
+      .setFetchNext(10);
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM (SELECT DISTINCT t2.col4 AS cnt_col1,t2.col5 AS cnt_col2 FROM Table2 t2) cnt");
+    query = new SelectQuery()
+      .addCustomColumns(_defTable2_col4,
+                        FunctionCall.sum().addColumnParams(_defTable2_col_id))
+      .addGroupings(_defTable2_col4)
+      .addHaving(BinaryCondition.greaterThan(
+                     FunctionCall.sum().addColumnParams(_defTable2_col_id),
+                     5));
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM (SELECT t2.col4 AS cnt_col1 FROM Table2 t2 GROUP BY t2.col4 HAVING (SUM(t2.col_id) > 5)) cnt");
+
+    // the key of an outer joined table may be null
+    query = new SelectQuery().setIsDistinct(true)
+      .addColumns(_defTable1_col_id)
+      .addJoin(SelectQuery.JoinType.LEFT_OUTER, _defTable2, _defTable1,
+               _defTable2_col_id, _defTable1_col_id);
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM (SELECT DISTINCT t1.col_id AS cnt_col1 FROM Table2 t2 LEFT OUTER JOIN Table1 t1 ON (t2.col_id = t1.col_id)) cnt");
+    query = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addJoin(SelectQuery.JoinType.INNER, _defTable2, _defTable1,
+               _defTable2_col_id, _defTable1_col_id)
+      .addGroupings(_defTable1_col_id);
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(DISTINCT t1.col_id) FROM Table2 t2 INNER JOIN Table1 t1 ON (t2.col_id = t1.col_id)");
+
+    // derived table columns have distinct names
+    query = new SelectQuery()
+      .addColumns(_defTable1_col_id, _defTable2_col_id)
+      .addJoin(SelectQuery.JoinType.INNER, _defTable2, _defTable1,
+               _defTable2_col_id, _defTable1_col_id)
+      .addGroupings(_defTable1_col_id, _defTable2_col_id);
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM (SELECT t1.col_id AS cnt_col1,t2.col_id AS cnt_col2 FROM Table2 t2 INNER JOIN Table1 t1 ON (t2.col_id = t1.col_id) GROUP BY t1.col_id,t2.col_id) cnt");
+
+    // aggregate queries return at most one row
+    query = new SelectQuery()
+      .addCustomColumns(FunctionCall.max().addColumnParams(_defTable2_col4));
+    checkResult(query.toCountQuery().toString(),
+                "SELECT COUNT(*) FROM (SELECT MAX(t2.col4) AS cnt_col1 FROM Table2 t2) cnt");
+
+    try {
+      new SelectQuery().setIsDistinct(true).addColumns(_defTable2_col4)
+        .withTotalCount();
+      fail("IllegalStateException should have been thrown");
+    } catch(IllegalStateException e) {}
+  }
+
+
+  public void testKeysetPager()
+  {
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable2_col4, _defTable2_col_id)
+      .addCondition(UnaryCondition.isNotNull(_defTable2_col5))
+      .addOrdering(_defTable2_col4, OrderObject.Dir.ASCENDING)
+      .addIndexedOrdering(2, OrderObject.Dir.DESCENDING)
+      .setOffset(100);
+    String queryStr = query.toString();
+
+    KeysetPager pager = new KeysetPager();
+    checkResult(pager.getFirstPage(query, 20).toString(),
+                "SELECT t2.col4,t2.col_id FROM Table2 t2 WHERE (t2.col5 IS NOT NULL) ORDER BY t2.col4 ASC,2 DESC FETCH NEXT 20 ROWS ONLY");
+    checkResult(pager.getPageAfter(query, 20, "foo", 37).toString(),
+                "SELECT t2.col4,t2.col_id FROM Table2 t2 WHERE ((t2.col5 IS NOT NULL) AND ((t2.col4 >= 'foo') AND ((t2.col4 > 'foo') OR ((t2.col4 = 'foo') AND (t2.col_id < 37))))) ORDER BY t2.col4 ASC,2 DESC FETCH NEXT 20 ROWS ONLY");
+    assertEquals(queryStr, query.toString());
+
+    // row values only apply if all keys have the same direction
+    pager.setUseRowValues(true);
+    checkResult(pager.getPageAfter(query, 20, "foo", 37).toString(),
+                "SELECT t2.col4,t2.col_id FROM Table2 t2 WHERE ((t2.col5 IS NOT NULL) AND ((t2.col4 >= 'foo') AND ((t2.col4 > 'foo') OR ((t2.col4 = 'foo') AND (t2.col_id < 37))))) ORDER BY t2.col4 ASC,2 DESC FETCH NEXT 20 ROWS ONLY");
+    query = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addOrderings(_defTable2_col4, _defTable2_col_id);
+    checkResult(pager.getPageAfter(query, 20, "foo", 37).toString(),
+                "SELECT t2.col4 FROM Table2 t2 WHERE ((t2.col4,t2.col_id) > ('foo',37)) ORDER BY t2.col4,t2.col_id FETCH NEXT 20 ROWS ONLY");
+
+    // single key, custom limit syntax
+    pager.setLimitSyntax(new KeysetPager.LimitSyntax() {
+      @Override
+      public void applyLimit(SelectQuery query, int pageSize) {
+        query.addCustomization(new MysLimitClause(pageSize));
+      }
+    });
+    query = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addOrdering(_defTable2_col_id, OrderObject.Dir.DESCENDING);
+    checkResult(pager.getPageAfter(query, 20, 37).toString(),
+                "SELECT t2.col4 FROM Table2 t2 WHERE (t2.col_id < 37) ORDER BY t2.col_id DESC LIMIT 20");
+
+    try {
+      pager.getPageAfter(query, 20, 37, 38);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+
+    query = new SelectQuery()
+      .addColumns(_defTable2_col4)
+      .addOrderings(_defTable2_col4);
+    try {
+      pager.getFirstPage(query, 20);
+      fail("IllegalArgumentException should have been thrown");
+    } catch(IllegalArgumentException e) {}
+    pager.setRequireUniqueKey(false);
+    checkResult(pager.getPageAfter(query, 20, "foo").toString(),
+                "SELECT t2.col4 FROM Table2 t2 WHERE (t2.col4 > 'foo') ORDER BY t2.col4 LIMIT 20");
+  }
+
+  public void testDialect()
+  {
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1, _table1_col2)
+      .addOrdering(_table1_col1, OrderObject.Dir.ASCENDING)
+      .setOffset(20).setFetchNext(10);
+    SelectQuery fetchQuery = new SelectQuery()
+      .addColumns(_table1_col1).setIsDistinct(true).setFetchNext(10);
+    SelectQuery offsetQuery = new SelectQuery()
+      .addColumns(_table1_col1).setOffset(SqlObject.QUESTION_MARK);
+
+    checkResult(query.toString(),
+                "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 ORDER BY t0.col1 ASC OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+    checkResult(Dialect.ANSI.toSql(query), query.toString());
+    checkResult(Dialect.ORACLE.toSql(query), query.toString());
+
+    checkResult(Dialect.POSTGRESQL.toSql(query),
+                "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 ORDER BY t0.col1 ASC LIMIT 10 OFFSET 20");
+    checkResult(Dialect.POSTGRESQL.toSql(offsetQuery),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 OFFSET ?");
+
+    checkResult(Dialect.MYSQL.toSql(query),
+                "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 ORDER BY t0.col1 ASC LIMIT 20, 10");
+    checkResult(Dialect.MYSQL.toSql(fetchQuery),
+                "SELECT DISTINCT t0.col1 FROM Schema1.Table1 t0 LIMIT 10");
+    checkResult(Dialect.MYSQL.toSql(offsetQuery),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 LIMIT ?, 18446744073709551615");
+
+    checkResult(Dialect.SQL_SERVER.toSql(query),
+                "SELECT t0.col1,t0.col2 FROM Schema1.Table1 t0 ORDER BY t0.col1 ASC OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+    checkResult(Dialect.SQL_SERVER.toSql(fetchQuery),
+                "SELECT DISTINCT TOP (10) t0.col1 FROM Schema1.Table1 t0");
+    checkResult(Dialect.SQL_SERVER.toSql(offsetQuery),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 ORDER BY (SELECT NULL) OFFSET ? ROWS");
+
+    // dialect is inherited by nested queries
+    SelectQuery outerQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCondition(new InCondition(_defTable1_col2, new Subquery(fetchQuery)));
+    checkResult(Dialect.POSTGRESQL.toSql(outerQuery),
+                "SELECT t1.col_id FROM Table1 t1 WHERE (t1.col2 IN (SELECT DISTINCT t0.col1 FROM Schema1.Table1 t0 LIMIT 10) )");
+
+    SqlContext context = new SqlContext();
+    context.setDialect(Dialect.MYSQL);
+    checkResult(fetchQuery.toString(32, context),
+                Dialect.MYSQL.toSql(fetchQuery));
+    context.setDialect(null);
+    assertSame(Dialect.ANSI, context.getDialect());
+
+    // capabilities
+    assertEquals(2100, Dialect.SQL_SERVER.getMaxBindParameters());
+    assertEquals(1000, Dialect.ORACLE.getMaxInListSize());
+    assertEquals(Dialect.UpsertSyntax.ON_CONFLICT,
+                 Dialect.POSTGRESQL.getUpsertSyntax());
+    assertEquals(Dialect.UpsertSyntax.ON_DUPLICATE_KEY_UPDATE,
+                 Dialect.MYSQL.getUpsertSyntax());
+    assertTrue(Dialect.POSTGRESQL.supportsArrays());
+    assertFalse(Dialect.SQL_SERVER.supportsRowValueComparison());
+    assertEquals("\"my\"\"col\"", Dialect.ANSI.quoteIdentifier("my\"col"));
+    assertEquals("`my col`", Dialect.MYSQL.quoteIdentifier("my col"));
+    assertEquals("[my]]col]", Dialect.SQL_SERVER.quoteIdentifier("my]col"));
+  }
+
+  public void testCanonicalize()
+  {
+    SelectQuery query1 = new SelectQuery()
+      .addColumns(_defTable1_col_id, _defTable2_col4)
+      .addCondition(BinaryCondition.equalTo(_defTable1_col2, "foo"))
+      .addCondition(new InCondition(_defTable2_col5, 3, 1, 2, 1))
+      .addCondition(new CustomCondition("t1.col3   is  not null"));
+    SelectQuery query2 = new SelectQuery()
+      .addColumns(_defTable1_col_id, _defTable2_col4)
+      .addCondition(new CustomCondition("t1.col3 IS\n NOT NULL "))
+      .addCondition(new InCondition(_defTable2_col5, 2, 3, 1))
+      .addCondition(BinaryCondition.equalTo("foo", _defTable1_col2));
+    query2 = new SelectQuery()
+      .addColumns(_defTable1_col_id, _defTable2_col4)
+      .addFromTable(_defTable2).addFromTable(_defTable1)
+      .addCondition(query2.getWhereClause());
+
+    assertFalse(query1.toString().equals(query2.toString()));
+    String expected = "SELECT t1.col_id,t2.col4 FROM Table1 t1,Table2 t2 WHERE (('foo' = t1.col2) AND (t1.col3 IS NOT NULL) AND (t2.col5 IN (1,2,3) ))";
+    checkResult(Dialect.ANSI.toCanonicalSql(query1), expected);
+    checkResult(Dialect.ANSI.toCanonicalSql(query2), expected);
+
+    // quoted text is untouched, line comments disable normalization
+    SqlContext context = new SqlContext();
+    context.setCanonicalize(true);
+    checkResult(new CustomSql(" x  like 'a  b' or \"is  y\"").toString(32, context),
+                "x LIKE 'a  b' OR \"is  y\"");
+    checkResult(new CustomSql("x  -- is\n").toString(32, context),
+                "x  -- is\n");
+
+    // positional parameters are never reordered
+    QueryPreparer prep = new QueryPreparer();
+    QueryPreparer.PlaceHolder ph1 = prep.getNewPlaceHolder();
+    QueryPreparer.PlaceHolder ph2 = prep.getNewPlaceHolder();
+    SelectQuery paramQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable1_col3, ph1))
+      .addCondition(BinaryCondition.equalTo(_defTable1_col2, ph2))
+      .addCondition(BinaryCondition.equalTo(_defTable1_col_id, 5));
+    checkResult(Dialect.ANSI.toCanonicalSql(paramQuery),
+                "SELECT t1.col_id FROM Table1 t1 WHERE ((? = t1.col3) AND (? = t1.col2) AND (5 = t1.col_id))");
+    assertEquals(1, ph1.getIndex());
+    assertEquals(2, ph2.getIndex());
+    checkResult(Dialect.ANSI.toCanonicalSql(
+                    new InCondition(_defTable1_col2, "b", SqlObject.QUESTION_MARK,
+                                    "a", SqlObject.QUESTION_MARK)),
+                "(t1.col2 IN ('b',?,'a',?) )");
+
+    // explicit joins are left alone
+    SelectQuery joinQuery = new SelectQuery()
+      .addColumns(_defTable1_col_id)
+      .addJoin(SelectQuery.JoinType.INNER, _defTable2, _defTable1,
+               _defTable2_col_id, _defTable1_col_id);
+    checkResult(Dialect.ANSI.toCanonicalSql(joinQuery),
+                "SELECT t1.col_id FROM Table2 t2 INNER JOIN Table1 t1 ON (t1.col_id = t2.col_id)");
+  }
+
+  public void testCardinalityEstimator() throws Exception
+  {
+    SelectQuery query = new SelectQuery()
+      .addColumns(_defTable1_col_id, _defTable2_col4, _defTable3_col_id)
+      .addCondition(BinaryCondition.equalTo(_defTable2_col4, "foo"))
+      .addCondition(BinaryCondition.equalTo(_defTable1_col_id,
+                                            _defTable2_col_id));
+    String noStatsStr = query.toString();
+    checkResult(noStatsStr,
+                "SELECT t1.col_id,t2.col4,t3.col_id FROM Table1 t1,Table2 t2,DefTable3 t3 WHERE ((t2.col4 = 'foo') AND (t1.col_id = t2.col_id))");
+    assertNull(CardinalityEstimator.estimateResultRows(query));
+
+    DbStatistics.loadFromPgStats(_spec, mockResultSet(
+        new String[]{"schemaname", "tablename", "attname", "n_distinct",
+                     "reltuples", "search_path_pos"},
+        new Object[]{"public", "table1", "col_id", -1.0d, 10000.0d, 1},
+        new Object[]{"public", "TABLE2", "col4", 50.0d, 1000.0d, 1},
+        new Object[]{"public", "table2", "col_id", -1.0d, 1000.0d, 1},
+        new Object[]{"public", "unknown", "col_id", 5.0d, 10.0d, 1},
+        // hidden by the table earlier in the search path
+        new Object[]{"app", "table2", "col5", 5.0d, 10.0d, 2},
+        // not in the search path
+        new Object[]{"archive", "table2", "col5", 7.0d, 20.0d, null}));
+    assertEquals(Long.valueOf(10000L), _defTable1.getRowCount());
+    assertEquals(Long.valueOf(50L),
+                 ((DbColumn)_defTable2_col4).getDistinctValueCount());
+    assertEquals(Long.valueOf(1000L),
+                 ((DbColumn)_defTable2_col_id).getDistinctValueCount());
+    assertEquals(Long.valueOf(1000L), _defTable2.getRowCount());
+    assertNull(((DbColumn)_defTable2_col5).getDistinctValueCount());
+    assertEquals(20.0d, CardinalityEstimator.estimateTableRows(
+                     query, _defTable2), 0.0001d);
+
+    // tables with estimates first, smallest first
+    query = query.copy();
+    checkResult(query.toString(),
+                "SELECT t1.col_id,t2.col4,t3.col_id FROM Table2 t2,Table1 t1,DefTable3 t3 WHERE ((t2.col4 = 'foo') AND (t1.col_id = t2.col_id))");
+    assertNull(CardinalityEstimator.estimateResultRows(query));
+
+    _defTable3.setRowCount(5L);
+    query = query.copy();
+    checkResult(query.toString(),
+                "SELECT t1.col_id,t2.col4,t3.col_id FROM DefTable3 t3,Table2 t2,Table1 t1 WHERE ((t2.col4 = 'foo') AND (t1.col_id = t2.col_id))");
+    assertEquals(100.0d, CardinalityEstimator.estimateResultRows(query),
+                 0.0001d);
+
+    checkResult(_spec.getJoinPlanner().addJoins(
+                    new SelectQuery()
+                    .addColumns(_defTable1_col_id, _defTable2_col4)
+                    .addCondition(BinaryCondition.equalTo(_defTable2_col4, "foo")),
+                    SelectQuery.JoinType.INNER).toString(),
+                "SELECT t1.col_id,t2.col4 FROM Table2 t2 INNER JOIN Table1 t1 ON (t2.col_id = t1.col_id) WHERE (t2.col4 = 'foo')");
+    // outer joins are not reordered
+    checkResult(_spec.getJoinPlanner().addJoins(
+                    new SelectQuery()
+                    .addColumns(_defTable1_col_id, _defTable2_col4)
+                    .addCondition(BinaryCondition.equalTo(_defTable2_col4, "foo")),
+                    SelectQuery.JoinType.LEFT_OUTER).toString(),
+                "SELECT t1.col_id,t2.col4 FROM Table1 t1 LEFT OUTER JOIN Table2 t2 ON (t1.col_id = t2.col_id) WHERE (t2.col4 = 'foo')");
+
+    assertEquals(0.06d, CardinalityEstimator.estimateSelectivity(
+                     new InCondition(_defTable2_col4, "a", "b", "c")),
+                 0.0001d);
+    assertEquals(0.94d, CardinalityEstimator.estimateSelectivity(
+                     new NotCondition(new InCondition(_defTable2_col4,
+                                                      "a", "b", "c"))),
+                 0.0001d);
+    assertEquals(0.0396d, CardinalityEstimator.estimateSelectivity(
+                     ComboCondition.or(
+                         BinaryCondition.equalTo(_defTable2_col4, "a"),
+                         BinaryCondition.equalTo(_defTable2_col4, "b"))),
+                 0.0001d);
+    assertEquals(CardinalityEstimator.RANGE_SELECTIVITY,
+                 CardinalityEstimator.estimateSelectivity(
+                     BinaryCondition.lessThan(_defTable2_col5, "2020-01-01")),
+                 0.0001d);
+    assertEquals(CardinalityEstimator.NULL_SELECTIVITY,
+                 CardinalityEstimator.estimateSelectivity(
+                     UnaryCondition.isNull(_defTable1_col3)),
+                 0.0001d);
+
+    // statistics from the jdbc index info
+    DatabaseMetaData metaData = (DatabaseMetaData)Proxy.newProxyInstance(
+        DatabaseMetaData.class.getClassLoader(),
+        new Class<?>[]{DatabaseMetaData.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String[] labels = new String[]{"TYPE", "INDEX_NAME", "COLUMN_NAME",
+                                           "CARDINALITY", "NON_UNIQUE"};
+            if(!"Table1".equals(args[2])) {
+              return mockResultSet(labels);
+            }
+            return mockResultSet(
+                labels,
+                new Object[]{DatabaseMetaData.tableIndexStatistic, null, null,
+                             500L, false},
+                new Object[]{DatabaseMetaData.tableIndexOther, "t1_pk",
+                             "col_id", null, false},
+                new Object[]{DatabaseMetaData.tableIndexOther, "t1_col2",
+                             "col2", 40L, true},
+                new Object[]{DatabaseMetaData.tableIndexOther, "t1_multi",
+                             "col2", 450L, true},
+                new Object[]{DatabaseMetaData.tableIndexOther, "t1_multi",
+                             "col3", 450L, true});
+          }
+        });
+    ((DbColumn)_defTable1_col_id).setDistinctValueCount(null);
+    DbStatistics.loadFromMetaData(_spec, metaData);
+    assertEquals(Long.valueOf(500L), _defTable1.getRowCount());
+    assertEquals(Long.valueOf(500L),
+                 ((DbColumn)_defTable1_col_id).getDistinctValueCount());
+    assertEquals(Long.valueOf(40L),
+                 ((DbColumn)_defTable1_col2).getDistinctValueCount());
+    assertNull(((DbColumn)_defTable1_col3).getDistinctValueCount());
+  }
+
+  private static void assertIssues(IndexAnalyzer analyzer, SqlObject query,
+                                   String... expected)
+  {
+    List<String> issues = new ArrayList<String>();
+    for(IndexAnalyzer.Issue issue : analyzer.analyze(query)) {
+      issues.add(issue.toString());
+    }
+    assertEquals(Arrays.asList(expected), issues);
+  }
+
+  private static DataSource mockDataSource(final String name)
+  {
+    final Connection conn = (Connection)Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if(method.getName().equals("toString")) {
+              return name;
+            }
+            return null;
+          }
+        });
+    return (DataSource)Proxy.newProxyInstance(
+        DataSource.class.getClassLoader(),
+        new Class<?>[]{DataSource.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if(method.getName().equals("getConnection")) {
+              return conn;
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Returns a ResultSet with the given column labels and rows (supporting
+   * only forward iteration and the value getters used by the tests).
+   */
+  private static ResultSet mockResultSet(final String[] labels,
+                                         final Object[]... rows)
+  {
+    return (ResultSet)Proxy.newProxyInstance(
+        ResultSet.class.getClassLoader(),
+        new Class<?>[]{ResultSet.class},
+        new InvocationHandler() {
+          private int _rowIdx = -1;
+          private boolean _wasNull;
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if(name.equals("next")) {
+              return (++_rowIdx < rows.length);
+            }
+            if(name.equals("wasNull")) {
+              return _wasNull;
+            }
+            if(!name.startsWith("get")) {
+              return null;
+            }
+            Object value = rows[_rowIdx][
+                Arrays.asList(labels).indexOf(args[0])];
+            _wasNull = (value == null);
+            Class<?> type = method.getReturnType();
+            if(value == null) {
+              if(!type.isPrimitive()) {
+                return null;
+              }
+              if(type == boolean.class) {
+                return false;
+              }
+              value = 0;
+            }
+            if(type == long.class) {
+              return ((Number)value).longValue();
+            } else if(type == double.class) {
+              return ((Number)value).doubleValue();
+            } else if(type == short.class) {
+              return ((Number)value).shortValue();
+            }
+            return value;
+          }
+        });
+  }
 }
@@ -16,15 +16,21 @@ limitations under the License.
 
 package com.healthmarketscience.sqlbuilder.custom;
 
+import java.util.concurrent.TimeUnit;
+
 import com.healthmarketscience.sqlbuilder.BaseSqlTestCase;
 import com.healthmarketscience.sqlbuilder.BinaryCondition;
 import com.healthmarketscience.sqlbuilder.CreateIndexQuery;
 import com.healthmarketscience.sqlbuilder.CreateTableQuery;
+import com.healthmarketscience.sqlbuilder.DeleteQuery;
+import com.healthmarketscience.sqlbuilder.ExecutionEnvelope;
 import com.healthmarketscience.sqlbuilder.ExtractExpression;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
+import com.healthmarketscience.sqlbuilder.UpdateQuery;
 import com.healthmarketscience.sqlbuilder.ValidationException;
 import com.healthmarketscience.sqlbuilder.custom.mysql.MysExtractDatePart;
 import com.healthmarketscience.sqlbuilder.custom.mysql.MysLimitClause;
+import com.healthmarketscience.sqlbuilder.custom.mysql.MysMaxExecutionTimeHint;
 import com.healthmarketscience.sqlbuilder.custom.mysql.MysObjects;
 import com.healthmarketscience.sqlbuilder.custom.oracle.OraExtractDatePart;
 import com.healthmarketscience.sqlbuilder.custom.oracle.OraObjects;
@@ -34,6 +40,8 @@ import com.healthmarketscience.sqlbuilder.custom.postgresql.PgExtractDatePart;
 import com.healthmarketscience.sqlbuilder.custom.postgresql.PgLimitClause;
 import com.healthmarketscience.sqlbuilder.custom.postgresql.PgObjects;
 import com.healthmarketscience.sqlbuilder.custom.postgresql.PgOffsetClause;
+import com.healthmarketscience.sqlbuilder.custom.postgresql.PgSetLocal;
+import com.healthmarketscience.sqlbuilder.custom.sqlserver.MssOptionClause;
 import com.healthmarketscience.sqlbuilder.custom.sqlserver.MssTopClause;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbIndex;
 
@@ -266,4 +274,79 @@ public class CustomSyntaxTest extends BaseSqlTestCase
     checkResult(selectQuery2,
                 "SELECT DISTINCT TOP 30 PERCENT t0.col1 FROM Schema1.Table1 t0");
   }
+
+  public void testExecutionEnvelope()
+  {
+    ExecutionEnvelope env = new ExecutionEnvelope()
+      .setQueryTimeout(1500, TimeUnit.MILLISECONDS)
+      .addSessionSettings(PgSetLocal.statementTimeout(1500),
+                          PgSetLocal.lockTimeout(200),
+                          PgSetLocal.workMem("64MB"));
+    assertEquals(2, env.getQueryTimeout());
+    assertEquals(3, env.getSessionSettings().size());
+    checkResult(env.getSessionSettings().get(0).toString(),
+                "SET LOCAL statement_timeout = 1500");
+    checkResult(env.getSessionSettings().get(1).toString(),
+                "SET LOCAL lock_timeout = 200");
+    checkResult(env.getSessionSettings().get(2).toString(),
+                "SET LOCAL work_mem = '64MB'");
+
+    SelectQuery query = new SelectQuery()
+      .addColumns(_table1_col1)
+      .setExecutionEnvelope(env);
+    assertSame(env, query.getExecutionEnvelope());
+    checkResult(query.validate().toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0");
+
+    String selectQuery1 = new SelectQuery()
+      .addColumns(_table1_col1)
+      .setIsDistinct(true)
+      .setExecutionEnvelope(new ExecutionEnvelope()
+                            .addHints(new MysMaxExecutionTimeHint(1000)))
+      .validate().toString();
+    checkResult(selectQuery1,
+                "SELECT /*+ MAX_EXECUTION_TIME(1000) */ DISTINCT t0.col1 FROM Schema1.Table1 t0");
+
+    ExecutionEnvelope mssEnv = new ExecutionEnvelope()
+      .addHints(new MssOptionClause()
+                .setMaxDop(4)
+                .addOptions("RECOMPILE"));
+    SelectQuery hintQuery = new SelectQuery()
+      .addColumns(_table1_col1)
+      .addOrderings(_table1_col1)
+      .setExecutionEnvelope(mssEnv)
+      .validate();
+    checkResult(hintQuery.toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 ORDER BY t0.col1 OPTION (MAXDOP 4,RECOMPILE)");
+
+    // hints do not accumulate and are removed with the envelope
+    hintQuery.setExecutionEnvelope(mssEnv);
+    checkResult(hintQuery.toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 ORDER BY t0.col1 OPTION (MAXDOP 4,RECOMPILE)");
+    hintQuery.setExecutionEnvelope(null);
+    checkResult(hintQuery.toString(),
+                "SELECT t0.col1 FROM Schema1.Table1 t0 ORDER BY t0.col1");
+
+    String updateQuery = new UpdateQuery(_table1)
+      .addSetClause(_table1_col1, 1)
+      .setExecutionEnvelope(new ExecutionEnvelope()
+                            .addHints(new MssOptionClause().setMaxDop(1)))
+      .validate().toString();
+    checkResult(updateQuery,
+                "UPDATE Schema1.Table1 SET col1 = 1 OPTION (MAXDOP 1)");
+    String deleteQuery = new DeleteQuery(_table1)
+      .addCondition(BinaryCondition.equalTo(_table1_col1, 1))
+      .setExecutionEnvelope(new ExecutionEnvelope()
+                            .addHints(new MssOptionClause().setMaxDop(1)))
+      .validate().toString();
+    checkResult(deleteQuery,
+                "DELETE FROM Schema1.Table1 WHERE (col1 = 1) OPTION (MAXDOP 1)");
+
+    try {
+      new UpdateQuery(_table1)
+        .setExecutionEnvelope(new ExecutionEnvelope()
+                              .addHints(new MysMaxExecutionTimeHint(1000)));
+      fail("UnsupportedOperationException should have been thrown");
+    } catch(UnsupportedOperationException e) {}
+  }
 }